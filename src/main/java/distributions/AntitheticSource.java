@@ -0,0 +1,37 @@
+package distributions;
+
+/**
+ * A uniform source that returns <code>1 - u</code> for every sample <code>u</code> of another source.
+ * <p>
+ * A run drawing from the antithetic copies of the sources of another run is its antithetic twin: with
+ * samplers that are monotone in their uniform (<code>SamplingMethod.INVERSION</code>) a long service
+ * time in one run is a short one in the other, so the mean of the pair varies less than that of two
+ * independent runs. The samples stay strictly inside <code>(0, 1)</code> when those of the source do.
+ */
+public class AntitheticSource implements ContinuousGenerator {
+    private final ContinuousGenerator source;
+
+    /**
+     * @param source The source whose samples are mirrored
+     */
+    public AntitheticSource(ContinuousGenerator source) {
+	this.source = source;
+    }
+
+    // ----- implements ContinuousGenerator { -----
+    public double sample() {
+	return 1.0 - source.sample();
+    }
+
+    public void sample(double[] out, int off, int len) {
+	source.sample(out, off, len);
+	for (int i = off; i < off + len; i++) out[i] = 1.0 - out[i];
+    }
+    // ----- } implements ContinuousGenerator -----
+
+    // ----- implements Seedable { -----
+    public void setSeed(long seed) { source.setSeed(seed); }
+    public long getSeed() { return source.getSeed(); }
+    public void reseed() { source.reseed(); }
+    // ----- } implements Seedable -----
+}
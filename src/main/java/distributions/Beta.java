@@ -6,7 +6,7 @@ package distributions;
  * @author      F.Mallet from Costas Simatos's original
  */
 
-public class Beta extends Generator implements ContinuousGenerator {
+public class Beta extends Generator implements ContinuousGenerator, Invertible {
     protected double shape_a, shape_b;
     
     /**
@@ -40,8 +40,15 @@ public class Beta extends Generator implements ContinuousGenerator {
     }
 
   /**
-   * Generate a new random number.
+   * Generate a new random number; <code>SamplingMethod.INVERSION</code> uses the numerically inverted distribution function.
    * @return The next random number in the sequence
    */
-    public double sample() { return distrib.beta(shape_a, shape_b); }
+    public double sample() {
+	return method == SamplingMethod.INVERSION ? quantile(distrib.source.sample()) : distrib.beta(shape_a, shape_b);
+    }
+
+    // ----- implements Invertible { -----
+    public double cdf(double x) { return SpecialFunctions.betaI(shape_a, shape_b, x); }
+    public double quantile(double p) { return SpecialFunctions.betaQuantile(shape_a, shape_b, p); }
+    // ----- } implements Invertible -----
 }
@@ -29,8 +29,15 @@ public class BetaPrime extends Beta {
     }
 
   /**
-   * Generate a new random number.
+   * Generate a new random number; <code>SamplingMethod.INVERSION</code> uses the numerically inverted distribution function.
    * @return The next random number in the sequence
    */
-    public double sample() { return distrib.betaprime(shape_a, shape_b); }
+    public double sample() {
+	return method == SamplingMethod.INVERSION ? quantile(distrib.source.sample()) : distrib.betaprime(shape_a, shape_b);
+    }
+
+    // ----- implements Invertible { -----
+    public double cdf(double x) { return x > 0 ? super.cdf(x / (1+x)) : 0.0; }
+    public double quantile(double p) { double y = super.quantile(p); return y / (1-y); }
+    // ----- } implements Invertible -----
 }
@@ -43,10 +43,13 @@ public class Binomial extends Generator implements DiscreteGenerator {
     }
 
     /**
-     * Generate a new random number.
+     * Generate a new random number; <code>SamplingMethod.FAST</code> uses the BTPE algorithm.
      * @return The next random number in the sequence
      */
-    public long sample() { return distrib.binomial(prob, trials); }
+    public long sample() {
+	if (method == SamplingMethod.INVERSION) return distrib.binomialInversion(prob, trials);
+	return method == SamplingMethod.FAST ? distrib.binomialBTPE(prob, trials) : distrib.binomial(prob, trials);
+    }
 
     public String toString() { return "Binomial("+prob+", "+trials+")"; }
 }
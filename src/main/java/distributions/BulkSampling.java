@@ -0,0 +1,63 @@
+package distributions;
+
+/**
+ * Loops behind the bulk <code>sample(double[], int, int)</code> methods. The loops run inside one
+ * class over whole arrays, so a block of variates costs one interface call instead of one per value
+ * and the JIT can unroll them. Where the Vector API (<code>jdk.incubator.vector</code>) is present at
+ * run time, e.g. with <code>--add-modules jdk.incubator.vector</code>, the Lehmer recurrence and the
+ * affine transforms run in {@link VectorKernels}; <code>-Ddistributions.vector=false</code> turns that off.
+ * <p>
+ * Every bulk method returns exactly the values, in the same order, that the same number of
+ * <code>sample()</code> calls would return, and leaves the generator in the same state.
+ */
+final class BulkSampling {
+    /** whether the Vector API kernels are used */
+    static final boolean VECTOR = vectorAvailable();
+
+    private BulkSampling() {}
+
+    private static boolean vectorAvailable() {
+	if (!Boolean.parseBoolean(System.getProperty("distributions.vector", "true"))) return false;
+	return ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+    }
+
+    /**
+     * Fill an array range with uniforms of the {@link RandomGenerator} sequence that follows <code>seed</code>.
+     * @return the new seed of the generator
+     */
+    static long lehmer(long seed, double[] out, int off, int len) {
+	if (VECTOR && seed > 0 && seed < RandomGenerator.m) return VectorKernels.lehmer(seed, out, off, len);
+	return lehmerScalar(seed, out, off, len);
+    }
+
+    static long lehmerScalar(long seed, double[] out, int off, int len) {
+	for (int i = off, end = off + len; i < end; i++) {
+	    seed = (RandomGenerator.a * seed) % RandomGenerator.m;
+	    out[i] = ((double) seed) / RandomGenerator.m;
+	}
+	return seed;
+    }
+
+    /** <code>out[i] = scale * out[i] + shift</code> */
+    static void affine(double[] out, int off, int len, double scale, double shift) {
+	if (VECTOR) {
+	    VectorKernels.affine(out, off, len, scale, shift);
+	    return;
+	}
+	for (int i = off, end = off + len; i < end; i++) out[i] = scale * out[i] + shift;
+    }
+
+    /** <code>out[i] = -mean * log(out[i])</code>: uniforms to exponential variates by inversion */
+    static void negexp(double[] out, int off, int len, double mean) {
+	for (int i = off, end = off + len; i < end; i++) out[i] = -mean * Math.log(out[i]);
+    }
+
+    /**
+     * Box-Muller as in {@link Distributions#normal2}: <code>out[off+i]</code> from the uniform pair
+     * <code>u[2i], u[2i+1]</code>.
+     */
+    static void boxMuller(double[] u, double[] out, int off, int len, double mean, double std_dev) {
+	for (int i = 0; i < len; i++)
+	    out[off + i] = mean + std_dev * Math.cos(2 * Math.PI * u[2 * i]) * Math.sqrt(-2 * Math.log(u[2 * i + 1]));
+    }
+}
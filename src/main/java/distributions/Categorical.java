@@ -0,0 +1,106 @@
+package distributions;
+
+import java.util.Arrays;
+
+/**
+ * A random number generator for a categorical distribution: returns <code>i</code> with probability
+ * <code>weights[i] / &sum; weights</code>. Sampling is O(1) for any number of categories with the
+ * alias tables of Vose (1991): one uniform picks a column in its integer part and, through the
+ * fraction, either the column or its alias.
+ * <p>
+ * The fraction keeps about <code>31 - log<sub>2</sub>(k)</code> bits of a <code>LEHMER</code> uniform,
+ * so probabilities are resolved to that precision. <code>SamplingMethod.INVERSION</code> uses a
+ * binary search of the cumulative probabilities instead, O(log k), which is monotone in the uniform.
+ */
+public class Categorical extends Generator implements DiscreteGenerator {
+    private double[] weights;
+    private double[] prob;  // probability of keeping the column
+    private int[] alias;    // category taken otherwise
+    private double[] cumulative; // distribution function, for INVERSION
+
+    /**
+     * the seed is automatically provided by the <code>SeedGenerator</code>
+     * @param weights The relative weights of the categories, not negative and not all 0
+     */
+    public Categorical(double[] weights) {
+	super();
+	set(weights);
+    }
+
+    /**
+     * The constructor with which a specific seed is set for the random
+     * number generator
+     * @param weights The relative weights of the categories, not negative and not all 0
+     * @param seed The initial seed for the generator, two instances with
+     *             the same seed will generate the same sequence of numbers
+     */
+    public Categorical(double[] weights, long seed) {
+	super(seed);
+	set(weights);
+    }
+
+    private void set(double[] weights) {
+	if (weights.length == 0)
+	    throw new ParameterException("Categorical: There must be at least one category.");
+	double sum = 0.0;
+	for (double w : weights) {
+	    if (!(w >= 0.0) || Double.isInfinite(w))
+		throw new ParameterException("Categorical: The weights must be finite and not negative.");
+	    sum += w;
+	}
+	if (sum <= 0.0)
+	    throw new ParameterException("Categorical: At least one weight must be greater than 0.");
+	this.weights = weights.clone();
+
+	int k = weights.length;
+	double[] scaled = new double[k];
+	int[] small = new int[k], large = new int[k];
+	int ns = 0, nl = 0;
+	for (int i = 0; i < k; i++) {
+	    scaled[i] = weights[i] * k / sum;
+	    if (scaled[i] < 1.0) small[ns++] = i; else large[nl++] = i;
+	}
+	prob = new double[k];
+	alias = new int[k];
+	while (ns > 0 && nl > 0) {
+	    int s = small[--ns], l = large[--nl];
+	    prob[s] = scaled[s];
+	    alias[s] = l;
+	    scaled[l] = (scaled[l] + scaled[s]) - 1.0;
+	    if (scaled[l] < 1.0) small[ns++] = l; else large[nl++] = l;
+	}
+	// what is left is 1 up to rounding
+	while (nl > 0) { int l = large[--nl]; prob[l] = 1.0; alias[l] = l; }
+	while (ns > 0) { int s = small[--ns]; prob[s] = 1.0; alias[s] = s; }
+
+	cumulative = new double[k];
+	double c = 0.0;
+	for (int i = 0; i < k; i++) { c += weights[i]; cumulative[i] = c / sum; }
+	cumulative[k - 1] = 1.0;
+    }
+
+    /**
+     * Generate a new random number.
+     * @return The index of the next category in the sequence
+     */
+    public long sample() {
+	return method == SamplingMethod.INVERSION ? distrib.cumulative(cumulative) : distrib.alias(prob, alias);
+    }
+
+    /**
+     * @return The number of categories
+     */
+    public int size() { return weights.length; }
+
+    /**
+     * @param i The index of a category
+     * @return The probability of the category
+     */
+    public double getProbability(int i) {
+	double sum = 0.0;
+	for (double w : weights) sum += w;
+	return weights[i] / sum;
+    }
+
+    public String toString() { return "Categorical("+Arrays.toString(weights)+")"; }
+}
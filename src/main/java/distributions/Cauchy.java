@@ -6,7 +6,7 @@ package distributions;
  * @author      F.Mallet from Costas Simatos's original
  */
 
-public class Cauchy extends Generator implements ContinuousGenerator {
+public class Cauchy extends Generator implements ContinuousGenerator, Invertible {
     private double median, scale;
     
     /**
@@ -44,4 +44,9 @@ public class Cauchy extends Generator implements ContinuousGenerator {
      * @return The next random number in the sequence
      */
     public double sample() { return distrib.cauchy(median, scale); }
+
+    // ----- implements Invertible { -----
+    public double cdf(double x) { return 0.5 + Math.atan((x-median) / scale) / Math.PI; }
+    public double quantile(double p) { return median + scale * Math.tan(Math.PI * (p-0.5)); }
+    // ----- } implements Invertible -----
 }
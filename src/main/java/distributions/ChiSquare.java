@@ -6,7 +6,7 @@ package distributions;
  * @author      F.Mallet from Costas Simatos's original
  */
 
-public class ChiSquare extends Generator implements ContinuousGenerator {
+public class ChiSquare extends Generator implements ContinuousGenerator, Invertible {
     private long deg_freedom;
     
     /**
@@ -37,8 +37,17 @@ public class ChiSquare extends Generator implements ContinuousGenerator {
     }
     
     /**
-     * Generate a new random number.
+     * Generate a new random number; <code>SamplingMethod.FAST</code> uses the Marsaglia-Tsang gamma method,
+     * <code>SamplingMethod.INVERSION</code> the numerically inverted distribution function.
      * @return The next random number in the sequence
      */
-    public double sample() { return distrib.chisquare(deg_freedom); }
+    public double sample() {
+	if (method == SamplingMethod.INVERSION) return quantile(distrib.source.sample());
+	return method == SamplingMethod.FAST ? distrib.chisquareMarsagliaTsang(deg_freedom) : distrib.chisquare(deg_freedom);
+    }
+
+    // ----- implements Invertible { -----
+    public double cdf(double x) { return SpecialFunctions.gammaP(0.5 * deg_freedom, 0.5 * x); }
+    public double quantile(double p) { return 2.0 * SpecialFunctions.gammaQuantile(0.5 * deg_freedom, p); }
+    // ----- } implements Invertible -----
 }
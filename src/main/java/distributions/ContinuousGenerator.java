@@ -1,7 +1,18 @@
 package distributions;
 
+import java.util.Objects;
+
 /** A continuous generator provides a double value according to the distribution it relies on.
  */
 public interface ContinuousGenerator extends Seedable {
     double sample(); 
+
+    /** Fills <code>out[off]</code> .. <code>out[off+len-1]</code> with the next <code>len</code> samples,
+     * the values <code>len</code> calls of <code>sample()</code> would return. Generators override it to
+     * draw a whole block with one call.
+     */
+    default void sample(double[] out, int off, int len) {
+	Objects.checkFromIndexSize(off, len, out.length);
+	for (int i = off; i < off + len; i++) out[i] = sample();
+    }
 }
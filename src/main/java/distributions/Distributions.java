@@ -25,6 +25,28 @@ public class Distributions {
      */
     public long bernoulli(double prob) { return source.sample()<=prob?1:0; }
 
+    /** computes a categorical distribution by a binary search of its distribution function
+     * @return the smallest i with cumulative[i] &ge; <i>sample</i>; categories of weight 0 are never returned
+     */
+    public long cumulative(double[] cumulative) {
+	double u = source.sample();
+	int lo = 0, hi = cumulative.length - 1;
+	while (lo < hi) {
+	    int mid = (lo + hi) >>> 1;
+	    if (cumulative[mid] < u) lo = mid + 1; else hi = mid;
+	}
+	return lo;
+    }
+
+    /** computes a categorical distribution from the alias tables built by {@link Categorical}
+     * @return i = &lfloor;k <i>sample</i>&rfloor; if the fraction of k <i>sample</i> is &lt; prob[i], alias[i] otherwise
+     */
+    public long alias(double[] prob, int[] alias) {
+	double x = source.sample() * prob.length;
+	int i = Math.min((int) x, prob.length - 1);
+	return x - i < prob[i] ? i : alias[i];
+    }
+
     /** computes a binomial distribution
      * @return &sum;(i=0; i&lt;trials-1; bernoulli(prob))
      */
@@ -34,6 +56,28 @@ public class Distributions {
 	return sum;
     }
 
+    /** computes a binomial distribution with the BTPE algorithm, or inversion when trials*prob &lt; 10;
+     * O(1) expected time
+     */
+    public long binomialBTPE(double prob, int trials) {
+	return RejectionSamplers.binomial(source, prob, trials);
+    }
+
+    /** computes a binomial distribution by inversion: a search of the distribution function from the mode,
+     * O(&radic;(trials prob (1-prob))) steps
+     * @return the smallest k with P(X &le; k) &ge; <i>sample</i>
+     */
+    public long binomialInversion(double prob, int trials) {
+	double u = source.sample();
+	if (prob >= 1.0) return trials;
+	double q = 1.0 - prob, r = prob / q;
+	long k = Math.min(trials, (long) ((trials + 1) * prob));
+	double pk = Math.exp(SpecialFunctions.logGamma(trials + 1.0) - SpecialFunctions.logGamma(k + 1.0)
+			     - SpecialFunctions.logGamma(trials - k + 1.0) + k * Math.log(prob) + (trials - k) * Math.log1p(-prob));
+	double cdf = k < trials ? SpecialFunctions.betaI(trials - k, k + 1.0, q) : 1.0;
+	return invert(u, k, pk, cdf, 0, trials, j -> (trials - j) * r / (j + 1), j -> j / ((trials - j + 1) * r));
+    }
+
     /** computes a geometric distribution
      * @return &lceil; log(<i>sample</i>)/log(1-prob) &rceil;; <i>sample</i> is provided by the PRGN
      */    
@@ -51,17 +95,78 @@ public class Distributions {
 	return sum;
     }
 
-    /** computes a poisson distribution
+    /** computes a poisson distribution; a mean above 500 is drawn as a sum of poisson parts so that
+     * exp(-mean) does not underflow
      * @return the smallest integer x so as &prod;(i=0; i&lt;x; <i>sample</i>) &le; exp(-mean) 
      */
     public long poisson(double mean) {
+	long parts = 0L;
+	for (; mean > 500.0; mean -= 500.0)
+	    parts += poisson(500.0);
 	long x = -1L;
 	double m = Math.exp(-mean), product=1;
 	do {
 	    x++;
 	    product *= source.sample();
 	} while(m < product);
-	return x;
+	return parts + x;
+    }
+
+    /** computes a poisson distribution by inversion: a search of the distribution function from the mode,
+     * O(&radic;mean) steps
+     * @return the smallest k with P(X &le; k) &ge; <i>sample</i>
+     */
+    public long poissonInversion(double mean) {
+	double u = source.sample();
+	long k = (long) mean;
+	double pk = Math.exp(k * Math.log(mean) - mean - SpecialFunctions.logGamma(k + 1.0));
+	double cdf = SpecialFunctions.gammaQ(k + 1.0, mean);
+	return invert(u, k, pk, cdf, 0, Long.MAX_VALUE, j -> mean / (j + 1), j -> j / mean);
+    }
+
+    /** computes a Pascal's distribution (the number of trials up to the <code>successes</code>-th success)
+     * by inversion: a search of the distribution function from the mode
+     * @return the smallest k with P(X &le; k) &ge; <i>sample</i>
+     */
+    public long pascalInversion(double prob, int successes) {
+	double u = source.sample();
+	double q = 1.0 - prob;
+	long k = successes + (long) ((successes - 1) * q / prob);
+	double pk = Math.exp(SpecialFunctions.logGamma(k) - SpecialFunctions.logGamma(successes)
+			     - SpecialFunctions.logGamma(k - successes + 1.0) + successes * Math.log(prob) + (k - successes) * Math.log(q));
+	double cdf = SpecialFunctions.betaI(successes, k - successes + 1.0, prob);
+	return invert(u, k, pk, cdf, successes, Long.MAX_VALUE, j -> j * q / (j - successes + 1), j -> (j - successes) / ((j - 1) * q));
+    }
+
+    /**
+     * Search the smallest k with F(k) &ge; u, starting at k with its probability and distribution function.
+     * @param up P(j+1) / P(j)
+     * @param down P(j-1) / P(j)
+     */
+    private static long invert(double u, long k, double pk, double cdf, long min, long max,
+			       java.util.function.LongToDoubleFunction up, java.util.function.LongToDoubleFunction down) {
+	if (u <= cdf) {
+	    while (k > min && u <= cdf - pk && pk > 0.0) {
+		cdf -= pk;
+		pk *= down.applyAsDouble(k);
+		k--;
+	    }
+	    return k;
+	}
+	while (u > cdf && k < max) {
+	    pk *= up.applyAsDouble(k);
+	    k++;
+	    if (pk == 0.0) break; // u lies in the rounding error of the far tail
+	    cdf += pk;
+	}
+	return k;
+    }
+
+    /** computes a poisson distribution with the PTRS algorithm, or the multiplication method when mean &lt; 10;
+     * O(1) expected time
+     */
+    public long poissonPTRS(double mean) {
+	return RejectionSamplers.poisson(source, mean);
     }
     
     // continuous distributions
@@ -79,26 +184,23 @@ public class Distributions {
 	    return power(shape_a);
 	
 	if ((shape_a > 1.0) || (shape_b > 1.0)) {
-	    // Cheng's method (1978)
-	    double alpha = shape_a + shape_b;
-	    double min = Math.min(shape_a, shape_b);
-	    double beta;
-	    if (min <= 1.0) beta = 1.0/min;
-	    else
-		beta = Math.sqrt((alpha - 2.0)/(2.0*shape_a*shape_b - alpha));
-	    
-	    double gamma = shape_a + 1.0/shape_b;
-	    double w, el1, el2;
+	    // Cheng's methods (1978): BB if both shapes are greater than 1, BC otherwise
+	    double a = Math.max(shape_a, shape_b), b = Math.min(shape_a, shape_b);
+	    double alpha = a + b;
+	    boolean bb = b > 1.0;
+	    double beta = bb ? Math.sqrt((alpha - 2.0)/(2.0*a*b - alpha)) : 1.0/b;
+	    double p = bb ? b : a; // the shape W is built on
+	    double q = bb ? a : b;
+	    double gamma = p + 1.0/beta;
+	    double v, w, z;
 	    do {
-		double u1 = source.sample(), 
-		    u2 = source.sample(),
-		    u3 = source.sample();
-		double v = beta*Math.log(u1/(1.0-u1));
-		w = alpha*Math.exp(v);
-		el1 = alpha*Math.log(alpha/(beta+w)) + gamma*v - Math.log(4.0);
-		el2 = Math.log(u1*u2*u3);
-	    } while(el1 < el2);
-	    return w/(beta+w);
+		double u1 = source.sample(),
+		    u2 = source.sample();
+		v = beta*Math.log(u1/(1.0-u1));
+		w = p*Math.exp(v);
+		z = u1*u1*u2;
+	    } while(alpha*Math.log(alpha/(q+w)) + (bb ? gamma*v : alpha*v) - Math.log(4.0) < Math.log(z));
+	    return p == shape_a ? w/(q+w) : q/(q+w);
 	} 
 	
 	// Berman's method (1970)
@@ -111,10 +213,10 @@ public class Distributions {
     }
 
     /** computes a beta prime distribution
-     * @return 1/beta(shape_a, shape_b) - 1
+     * @return 1/beta(shape_b, shape_a) - 1
      */
     public double betaprime(double shape_a, double shape_b) {
-	return 1.0/beta(shape_a, shape_b) - 1.0;
+	return 1.0/beta(shape_b, shape_a) - 1.0;
     }
     
     /** computes a Cauchy's distribution
@@ -125,15 +227,23 @@ public class Distributions {
     }
 
     /** computes a chisquare distribution
-     * @return &sum;(i=0; i&lt;deg_freedom; normal(0,1))
+     * @return &sum;(i=0; i&lt;deg_freedom; normal(0,1)<sup>2</sup>)
      */
     public double chisquare(long deg_freedom) {
 	// use normal2 because sqrt(1)=1
 	double result = 0.0;
-	for (long i=0L; i < deg_freedom; i++)
-	    result += normal2(0.0, 1.0);
+	for (long i=0L; i < deg_freedom; i++) {
+	    double n = normal2(0.0, 1.0);
+	    result += n*n;
+	}
 	return result;
     }
+
+    /** computes a chisquare distribution as 2 * gamma(deg_freedom/2) with the Marsaglia-Tsang method
+     */
+    public double chisquareMarsagliaTsang(long deg_freedom) {
+	return 2.0 * RejectionSamplers.gamma(source, 0.5 * deg_freedom);
+    }
     
     /** computes an Erlang's distribution
      * @return -scale * log ( &prod;(i=0; i&lt;shape; <i>sample</i>) ); <i>sample</i> is provided by the PRGN
@@ -153,6 +263,30 @@ public class Distributions {
 	    / (chisquare(den_deg_freedom)/den_deg_freedom);
     }
 
+    /** computes a F distribution from two Marsaglia-Tsang chisquare samples
+     */
+    public double fMarsagliaTsang(long num_deg_freedom, long den_deg_freedom) {
+	return (chisquareMarsagliaTsang(num_deg_freedom)/num_deg_freedom)
+	    / (chisquareMarsagliaTsang(den_deg_freedom)/den_deg_freedom);
+    }
+
+    /** computes an empirical distribution by inversion of a quantile table
+     * @return the quantiles linearly interpolated at <i>sample</i>
+     */
+    public double empirical(double[] quantiles) {
+	return interpolate(quantiles, source.sample());
+    }
+
+    /** linear interpolation in a table of quantiles at equally spaced probabilities 0 .. 1 */
+    static double interpolate(double[] quantiles, double p) {
+	int last = quantiles.length - 1;
+	double x = p * last;
+	int i = (int) x;
+	if (i >= last) return quantiles[last];
+	if (i < 0) return quantiles[0];
+	return quantiles[i] + (x - i) * (quantiles[i + 1] - quantiles[i]);
+    }
+
     /** computes a gamma distribution
      */
     public double gamma(double scale, double shape) {
@@ -172,6 +306,12 @@ public class Distributions {
 	double floor = Math.floor(shape);
 	return gamma(scale, floor) + gamma(scale, shape-floor);
     }
+
+    /** computes a gamma distribution with the Marsaglia-Tsang method (2000); O(1) expected time for any shape
+     */
+    public double gammaMarsagliaTsang(double scale, double shape) {
+	return scale * RejectionSamplers.gamma(source, shape);
+    }
     
     /** computes an invgamma distribution
      * @return 1.0/gamma(scale, shape)
@@ -179,6 +319,13 @@ public class Distributions {
     public double invgamma(double scale, double shape) { 
 	return 1.0/gamma(scale, shape); 
     }
+
+    /** computes an invgamma distribution
+     * @return 1.0/gammaMarsagliaTsang(scale, shape)
+     */
+    public double invgammaMarsagliaTsang(double scale, double shape) {
+	return 1.0/gammaMarsagliaTsang(scale, shape);
+    }
     
     /** computes a logistic distribution
      * @return location - scale * log (1/<i>sample</i> - 1)
@@ -210,6 +357,13 @@ public class Distributions {
 	return -mean * Math.log(source.sample());
     }
     
+    /** computes a negexp distribution with the {@link Ziggurat} method; no <code>log</code> in about 99% of the samples
+     * @return mean * ziggurat exponential(1)
+     */
+    public double negexpZiggurat(double mean) {
+	return mean * Ziggurat.exponential(source);
+    }
+
     /** computes a normal distribution; <i>sample</i> are provided by the same PRGN
      * @return mean + &radic;(variance) * cos (2&Pi; * <i>sample</i>) * &radic;(-2 * log (<i>sample</i>))
      */
@@ -226,6 +380,14 @@ public class Distributions {
 	return mean + std_dev * Math.cos(2 * Math.PI * u1) * Math.sqrt(-2 * Math.log(u2));
     }
 
+    /** computes a normal distribution with the {@link Ziggurat} method; no transcendental functions in about 99% of the samples
+     * @param std_dev is assumed to be the square root of the variance.
+     * @return mean + std_dev * ziggurat normal(0,1)
+     */
+    public double normalZiggurat(double mean, double std_dev) {
+	return mean + std_dev * Ziggurat.normal(source);
+    }
+
     /** computes a pareto distribution; <i>sample</i> is provided by the PRGN
      * @return scale / (<i>sample</i>^(1/shape))
      */
@@ -241,6 +403,12 @@ public class Distributions {
 	return normal2(0.0, 1.0)/Math.sqrt(chisquare(deg_freedom)/deg_freedom);
     }
 
+    /** computes a tstudent distribution from a Ziggurat normal and a Marsaglia-Tsang chisquare sample
+     */
+    public double tstudentMarsagliaTsang(long deg_freedom) {
+	return Ziggurat.normal(source)/Math.sqrt(chisquareMarsagliaTsang(deg_freedom)/deg_freedom);
+    }
+
     /** computes a uniform distribution; <i>sample</i> is provided by the PRGN
      * @return min + (max-min) * <i>sample</i>
      */
@@ -249,10 +417,10 @@ public class Distributions {
     }
 
     /** computes a weibull distribution; <i>sample</i> is provided by the PRGN
-     * @return scale * (<i>sample</i> ^ (1/shape))
+     * @return scale * (-log(<i>sample</i>) ^ (1/shape))
      */
     public double weibull(double scale, double shape) {
-	return scale * Math.pow(Math.log(source.sample()), 1/shape);
+	return scale * Math.pow(-Math.log(source.sample()), 1/shape);
     }
 }
 
@@ -0,0 +1,132 @@
+package distributions;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * A random number generator based on observed data, e.g. logged service durations. The empirical
+ * distribution function, linearly interpolated between the sorted observations, is inverted into a
+ * table of <code>tableSize</code> quantiles at equally spaced probabilities; a sample interpolates
+ * in that table at a uniform, which costs O(1) whatever the number of observations. With fewer
+ * observations than table entries, the table holds the sorted observations themselves.
+ * <p>
+ * The observations are only needed while the table is built; a large <code>SampleFile</code> is read
+ * through memory-mapped windows, sorted once and dropped.
+ * @see TraceReplay for an exact replay of the observations in file order
+ */
+public class Empirical extends Generator implements ContinuousGenerator, Invertible {
+    /** Default number of quantiles in the table */
+    public static final int DEFAULT_TABLE = 4096;
+
+    private double[] quantiles;
+    private long count;
+
+    /**
+     * the seed is automatically provided by the <code>SeedGenerator</code>
+     * @param observations The observed values
+     */
+    public Empirical(double[] observations) {
+	super();
+	set(observations.clone(), DEFAULT_TABLE);
+    }
+
+    /**
+     * The constructor with which a specific seed is set for the random
+     * number generator
+     * @param observations The observed values
+     * @param seed The initial seed for the generator, two instances with
+     *             the same seed will generate the same sequence of numbers
+     */
+    public Empirical(double[] observations, long seed) {
+	super(seed);
+	set(observations.clone(), DEFAULT_TABLE);
+    }
+
+    /**
+     * A generator with its own seed that shares the (immutable) quantile table of another one.
+     * @param table The generator whose table is used
+     * @param seed The initial seed for the generator
+     */
+    public Empirical(Empirical table, long seed) {
+	super(seed);
+	this.quantiles = table.quantiles;
+	this.count = table.count;
+    }
+
+    /**
+     * @param file The observations, see <code>SampleFile</code> for the formats
+     * @param seed The initial seed for the generator
+     */
+    public Empirical(Path file, long seed) {
+	this(new SampleFile(file), DEFAULT_TABLE, seed);
+    }
+
+    /**
+     * @param file The observations
+     * @param tableSize The number of quantiles in the table, at least 2
+     * @param seed The initial seed for the generator
+     */
+    public Empirical(SampleFile file, int tableSize, long seed) {
+	super(seed);
+	set(file.readAll(), tableSize);
+    }
+
+    private void set(double[] observations, int tableSize) {
+	if (observations.length == 0)
+	    throw new ParameterException("Empirical: There must be at least one observation.");
+	if (tableSize < 2)
+	    throw new ParameterException("Empirical: The table must have at least 2 entries.");
+	for (double v : observations) {
+	    if (Double.isInfinite(v) || Double.isNaN(v))
+		throw new ParameterException("Empirical: The observations must be finite.");
+	}
+	Arrays.parallelSort(observations);
+	this.count = observations.length;
+	int n = observations.length;
+	if (n <= tableSize) {
+	    quantiles = observations;
+	    return;
+	}
+	quantiles = new double[tableSize];
+	for (int i = 0; i < tableSize; i++) {
+	    double pos = (double) i * (n - 1) / (tableSize - 1);
+	    int lo = (int) pos;
+	    quantiles[i] = lo + 1 < n ? observations[lo] + (pos - lo) * (observations[lo + 1] - observations[lo]) : observations[n - 1];
+	}
+    }
+
+    /**
+     * Generate a new random number.
+     * @return The next random number in the sequence
+     */
+    public double sample() { return distrib.empirical(quantiles); }
+
+    /**
+     * @return The number of observations the table was built from
+     */
+    public long getCount() { return count; }
+
+    // ----- implements Invertible { -----
+    /**
+     * @param x A value
+     * @return The (interpolated) empirical distribution function at <code>x</code>
+     */
+    public double cdf(double x) {
+	int last = quantiles.length - 1;
+	if (x < quantiles[0]) return 0.0;
+	if (x >= quantiles[last]) return 1.0;
+	int i = Arrays.binarySearch(quantiles, x);
+	if (i < 0) i = -i - 2;
+	while (i < last && quantiles[i + 1] <= x) i++; // the last of equal quantiles
+	return (i + (x - quantiles[i]) / (quantiles[i + 1] - quantiles[i])) / last;
+    }
+
+    /**
+     * @param p A probability in [0, 1]
+     * @return The quantile of the (interpolated) empirical distribution at <code>p</code>
+     */
+    public double quantile(double p) { return Distributions.interpolate(quantiles, p); }
+    // ----- } implements Invertible -----
+
+    public String toString() { return "Empirical("+count+" observations, "+quantiles.length+" quantiles)"; }
+}
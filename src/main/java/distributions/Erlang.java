@@ -6,7 +6,7 @@ package distributions;
  * @author      F.Mallet from Costas Simatos's original
  */
 
-public class Erlang extends Generator implements ContinuousGenerator {
+public class Erlang extends Generator implements ContinuousGenerator, Invertible {
   private double scale, shape;
     
     /**
@@ -40,8 +40,17 @@ public class Erlang extends Generator implements ContinuousGenerator {
     }
 
     /**
-     * Generate a new random number.
+     * Generate a new random number; <code>SamplingMethod.FAST</code> uses the Marsaglia-Tsang gamma method,
+     * <code>SamplingMethod.INVERSION</code> the numerically inverted distribution function.
      * @return The next random number in the sequence
      */
-    public double sample() { return distrib.erlang(shape, scale); }
+    public double sample() {
+	if (method == SamplingMethod.INVERSION) return quantile(distrib.source.sample());
+	return method == SamplingMethod.FAST ? distrib.gammaMarsagliaTsang(scale, shape) : distrib.erlang(scale, shape);
+    }
+
+    // ----- implements Invertible { -----
+    public double cdf(double x) { return SpecialFunctions.gammaP(shape, x/scale); }
+    public double quantile(double p) { return scale * SpecialFunctions.gammaQuantile(shape, p); }
+    // ----- } implements Invertible -----
 }
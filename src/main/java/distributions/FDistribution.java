@@ -6,7 +6,7 @@ package distributions;
  * @author      F.Mallet from Costas Simatos's original
  */
 
-public class FDistribution extends Generator implements ContinuousGenerator {
+public class FDistribution extends Generator implements ContinuousGenerator, Invertible {
   private long num_deg_freedom, den_deg_freedom;
 
     /**
@@ -40,10 +40,24 @@ public class FDistribution extends Generator implements ContinuousGenerator {
     }
 
     /**
-     * Generate a new random number.
+     * Generate a new random number; <code>SamplingMethod.FAST</code> uses the Marsaglia-Tsang gamma method,
+     * <code>SamplingMethod.INVERSION</code> the numerically inverted distribution function.
      * @return The next random number in the sequence
      */
     public double sample() { 
-	return distrib.f(num_deg_freedom, den_deg_freedom); 
+	if (method == SamplingMethod.INVERSION) return quantile(distrib.source.sample());
+	return method == SamplingMethod.FAST
+	    ? distrib.fMarsagliaTsang(num_deg_freedom, den_deg_freedom)
+	    : distrib.f(num_deg_freedom, den_deg_freedom);
     }
+
+    // ----- implements Invertible { -----
+    public double cdf(double x) {
+	return x > 0 ? SpecialFunctions.betaI(0.5*num_deg_freedom, 0.5*den_deg_freedom, num_deg_freedom*x / (num_deg_freedom*x + den_deg_freedom)) : 0.0;
+    }
+    public double quantile(double p) {
+	double y = SpecialFunctions.betaQuantile(0.5*num_deg_freedom, 0.5*den_deg_freedom, p);
+	return den_deg_freedom * y / (num_deg_freedom * (1-y));
+    }
+    // ----- } implements Invertible -----
 }
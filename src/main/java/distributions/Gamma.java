@@ -6,7 +6,7 @@ package distributions;
  * @author      F.Mallet from Costas Simatos's original
  */
 
-public class Gamma extends Generator implements ContinuousGenerator {
+public class Gamma extends Generator implements ContinuousGenerator, Invertible {
     private double scale, shape;
     
     /**
@@ -40,8 +40,17 @@ public class Gamma extends Generator implements ContinuousGenerator {
     }
 
     /**
-     * Generate a new random number.
+     * Generate a new random number; <code>SamplingMethod.FAST</code> uses the Marsaglia-Tsang method,
+     * <code>SamplingMethod.INVERSION</code> the numerically inverted distribution function.
      * @return The next random number in the sequence
      */
-    public double sample() { return distrib.gamma(scale, shape); }
+    public double sample() {
+	if (method == SamplingMethod.INVERSION) return quantile(distrib.source.sample());
+	return method == SamplingMethod.FAST ? distrib.gammaMarsagliaTsang(scale, shape) : distrib.gamma(scale, shape);
+    }
+
+    // ----- implements Invertible { -----
+    public double cdf(double x) { return SpecialFunctions.gammaP(shape, x/scale); }
+    public double quantile(double p) { return scale * SpecialFunctions.gammaQuantile(shape, p); }
+    // ----- } implements Invertible -----
 }
@@ -5,9 +5,28 @@ package distributions;
  */
 public abstract class Generator implements Seedable {
     protected Distributions distrib;
+    protected SamplingMethod method = SamplingMethod.REFERENCE;
     Generator () { distrib = new Distributions(); }
     Generator (long seed) { distrib = new Distributions(seed); }
-    
+
+    /**
+     * Draw from another uniform source, e.g. <code>RandomSource.XOSHIRO256_PLUS_PLUS.create(seed)</code>.
+     * @param source The uniform source used by the distribution from now on
+     */
+    public void setSource(ContinuousGenerator source) { distrib.source = source; }
+
+    /**
+     * @return The uniform source used by the distribution
+     */
+    public ContinuousGenerator getSource() { return distrib.source; }
+
+    /**
+     * Select the algorithm for generators that offer more than one (e.g. Ziggurat for <code>Normal</code>).
+     * @param method The sampling method, <code>REFERENCE</code> by default
+     */
+    public void setMethod(SamplingMethod method) { this.method = method; }
+    public SamplingMethod getMethod() { return method; }
+
     // ----- implements Seedable { -----
     public void setSeed(long seed) { distrib.source.setSeed(seed); }
     public long getSeed() { return distrib.source.getSeed(); }
@@ -0,0 +1,409 @@
+package distributions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.function.DoubleSupplier;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.LongFunction;
+
+/**
+ * A statistical test battery and throughput report for the uniform sources and the generators of this
+ * package. Run with <code>java distributions.GeneratorTestSuite [samples] [threads]</code>; every
+ * generator and sampling method is one case, and the cases are tested in parallel, one per core. For
+ * every case the report gives the p-values of
+ * <ul>
+ * <li><b>chi2</b>: Pearson's chi-square test of the frequencies, in 100 equiprobable classes of the
+ *     analytic distribution function for continuous generators, in classes of values with at least 5
+ *     expected samples for discrete ones;</li>
+ * <li><b>KS</b>: the Kolmogorov-Smirnov test of the first 100,000 samples against the distribution
+ *     function (continuous generators only);</li>
+ * <li><b>moments</b>: the z-tests of the sample mean and variance against the analytic ones, combined
+ *     with the Bonferroni bound (where they exist);</li>
+ * <li><b>serial</b>: the lag-1 autocorrelation, of the probability integral transforms
+ *     <code>cdf(x)</code> for continuous generators so that heavy tails do not matter;</li>
+ * <li><b>runs</b>: the Wald-Wolfowitz test of the runs above and below the median;</li>
+ * <li><b>streams</b>: the largest correlation between 8 streams of 50,000 samples seeded by one
+ *     {@link SeedGenerator}, Bonferroni corrected over the 28 pairs;</li>
+ * </ul>
+ * and the throughput in millions of samples per second, measured one case after the other once the
+ * tests are done (the best of five rounds of 200,000 samples; one JVM for all cases makes the call sites
+ * megamorphic, see {@link SamplerBenchmark} for per-source numbers). A p-value below 0.001 is flagged;
+ * with about 350 tests a flag by chance is to be expected now and then, a generator that fails a test
+ * for every seed is wrong.
+ * <p>
+ * The cases of a sampling method that inverts the distribution function draw the same uniforms from the
+ * same seeds, so their transforms <code>cdf(x)</code> and p-values are those of their uniform source up
+ * to the rounding of the quantile: a difference there points at the quantile or the distribution
+ * function. With 1,000,000 samples (JDK 21) no p-value is below 0.001; the numerical inversion of the
+ * gamma and beta families is the slowest method, at 0.2 to 1.5 million samples per second.
+ */
+public class GeneratorTestSuite {
+    private static final double ALPHA = 0.001;
+    private static final int CLASSES = 100;
+    private static final int KS_SAMPLES = 100_000;
+    private static final int STREAMS = 8;
+    private static final int STREAM_SAMPLES = 50_000;
+    private static final int THROUGHPUT_SAMPLES = 200_000;
+    private static final long ROOT = 4851L;
+
+    /**
+     * One generator under test: how to create it from a seed, its distribution and its moments.
+     */
+    static class Case {
+	final String name;
+	final String method;
+	final LongFunction<DoubleSupplier> factory;
+	final DoubleUnaryOperator cdf;  // P(X <= x)
+	final boolean discrete;
+	final double mean, variance;    // NaN if they do not exist
+
+	Case(String name, String method, LongFunction<DoubleSupplier> factory, DoubleUnaryOperator cdf,
+	     boolean discrete, double mean, double variance) {
+	    this.name = name;
+	    this.method = method;
+	    this.factory = factory;
+	    this.cdf = cdf;
+	    this.discrete = discrete;
+	    this.mean = mean;
+	    this.variance = variance;
+	}
+    }
+
+    /**
+     * p-values of the tests of one case, NaN where a test does not apply.
+     */
+    static class Result {
+	final Case c;
+	double chi2 = Double.NaN, ks = Double.NaN, moments = Double.NaN, serial = Double.NaN, runs = Double.NaN, streams = Double.NaN;
+	double samplesPerSecond = Double.NaN;
+
+	Result(Case c) { this.c = c; }
+
+	double[] pValues() { return new double[] {chi2, ks, moments, serial, runs, streams}; }
+    }
+
+    // ----- cases -----
+
+    private static DoubleSupplier continuous(Generator gen, SamplingMethod method) {
+	gen.setMethod(method);
+	ContinuousGenerator c = (ContinuousGenerator) gen;
+	return c::sample;
+    }
+
+    private static DoubleSupplier discrete(Generator gen, SamplingMethod method) {
+	gen.setMethod(method);
+	DiscreteGenerator d = (DiscreteGenerator) gen;
+	return d::sample;
+    }
+
+    private static void add(List<Case> cases, String name, SamplingMethod[] methods,
+			    java.util.function.BiFunction<Long, SamplingMethod, DoubleSupplier> factory,
+			    DoubleUnaryOperator cdf, boolean discrete, double mean, double variance) {
+	for (SamplingMethod m : methods) {
+	    cases.add(new Case(name, m.name(), seed -> factory.apply(seed, m), cdf, discrete, mean, variance));
+	}
+    }
+
+    /**
+     * @return the cases: every uniform source and every generator with each sampling method it implements
+     */
+    static List<Case> cases() {
+	List<Case> cases = new ArrayList<>();
+	SamplingMethod[] ref = {SamplingMethod.REFERENCE};
+	SamplingMethod[] refInv = {SamplingMethod.REFERENCE, SamplingMethod.INVERSION};
+	SamplingMethod[] refFast = {SamplingMethod.REFERENCE, SamplingMethod.FAST};
+	SamplingMethod[] all = SamplingMethod.values();
+	DoubleUnaryOperator unit = x -> x <= 0 ? 0.0 : x >= 1 ? 1.0 : x;
+
+	for (RandomSource s : RandomSource.values()) {
+	    cases.add(new Case("RandomSource", s.name(), seed -> s.create(seed)::sample, unit, false, 0.5, 1.0 / 12));
+	}
+	cases.add(new Case("KeyedSource", "-", seed -> new KeyedSource(seed)::sample, unit, false, 0.5, 1.0 / 12));
+
+	// continuous
+	add(cases, "Uniform(2,5)", ref, (seed, m) -> continuous(new Uniform(2, 5, seed), m),
+	    new Uniform(2, 5, 0)::cdf, false, 3.5, 0.75);
+	add(cases, "Negexp(4)", refFast, (seed, m) -> continuous(new Negexp(4, seed), m),
+	    new Negexp(4, 0)::cdf, false, 4, 16);
+	add(cases, "Normal(1,4)", all, (seed, m) -> continuous(new Normal(1, 4, seed), m),
+	    new Normal(1, 4, 0)::cdf, false, 1, 4);
+	add(cases, "LogNormal(0,0.25)", refInv, (seed, m) -> continuous(new LogNormal(0, 0.25, seed), m),
+	    new LogNormal(0, 0.25, 0)::cdf, false, Math.exp(0.125), Math.expm1(0.25) * Math.exp(0.25));
+	add(cases, "Gamma(2,2.5)", all, (seed, m) -> continuous(new Gamma(2, 2.5, seed), m),
+	    new Gamma(2, 2.5, 0)::cdf, false, 5, 10);
+	add(cases, "Gamma(1,0.4)", all, (seed, m) -> continuous(new Gamma(1, 0.4, seed), m),
+	    new Gamma(1, 0.4, 0)::cdf, false, 0.4, 0.4);
+	add(cases, "Erlang(3,2)", all, (seed, m) -> continuous(new Erlang(3, 2, seed), m),
+	    new Erlang(3, 2, 0)::cdf, false, 6, 12);
+	add(cases, "ChiSquare(5)", all, (seed, m) -> continuous(new ChiSquare(5, seed), m),
+	    new ChiSquare(5, 0)::cdf, false, 5, 10);
+	add(cases, "Invgamma(0.5,5)", all, (seed, m) -> continuous(new Invgamma(0.5, 5, seed), m),
+	    new Invgamma(0.5, 5, 0)::cdf, false, 0.5, 1.0 / 12);
+	add(cases, "Beta(2,5)", refInv, (seed, m) -> continuous(new Beta(2, 5, seed), m),
+	    new Beta(2, 5, 0)::cdf, false, 2.0 / 7, 10.0 / (49 * 8));
+	add(cases, "BetaPrime(3,6)", refInv, (seed, m) -> continuous(new BetaPrime(3, 6, seed), m),
+	    new BetaPrime(3, 6, 0)::cdf, false, 0.6, 0.24);
+	add(cases, "F(5,12)", all, (seed, m) -> continuous(new FDistribution(5, 12, seed), m),
+	    new FDistribution(5, 12, 0)::cdf, false, 1.2, 1.08);
+	add(cases, "Tstudent(6)", all, (seed, m) -> continuous(new Tstudent(6, seed), m),
+	    new Tstudent(6, 0)::cdf, false, 0, 1.5);
+	double g1 = Math.exp(SpecialFunctions.logGamma(1 + 1 / 1.5)), g2 = Math.exp(SpecialFunctions.logGamma(1 + 2 / 1.5));
+	add(cases, "Weibull(2,1.5)", ref, (seed, m) -> continuous(new Weibull(2, 1.5, seed), m),
+	    new Weibull(2, 1.5, 0)::cdf, false, 2 * g1, 4 * (g2 - g1 * g1));
+	add(cases, "Pareto(1,4.5)", ref, (seed, m) -> continuous(new Pareto(1, 4.5, seed), m),
+	    new Pareto(1, 4.5, 0)::cdf, false, 4.5 / 3.5, 4.5 / (3.5 * 3.5 * 2.5));
+	add(cases, "Cauchy(0,1)", ref, (seed, m) -> continuous(new Cauchy(0, 1, seed), m),
+	    new Cauchy(0, 1, 0)::cdf, false, Double.NaN, Double.NaN);
+	add(cases, "Logistic(1,2)", ref, (seed, m) -> continuous(new Logistic(1, 2, seed), m),
+	    new Logistic(1, 2, 0)::cdf, false, 1, 4 * Math.PI * Math.PI / 3);
+	double[] observations = new double[1000];
+	for (int i = 0; i < observations.length; i++) observations[i] = Math.sqrt(i);
+	Empirical table = new Empirical(observations, 0);
+	add(cases, "Empirical(sqrt)", ref, (seed, m) -> continuous(new Empirical(table, seed), m),
+	    table::cdf, false, Double.NaN, Double.NaN);
+
+	// discrete
+	add(cases, "Bernoulli(0.3)", ref, (seed, m) -> discrete(new Bernoulli(0.3, seed), m),
+	    k -> k < 0 ? 0.0 : k < 1 ? 0.7 : 1.0, true, 0.3, 0.21);
+	add(cases, "Binomial(0.3,40)", all, (seed, m) -> discrete(new Binomial(0.3, 40, seed), m),
+	    k -> k < 0 ? 0.0 : k >= 40 ? 1.0 : SpecialFunctions.betaI(40 - Math.floor(k), Math.floor(k) + 1, 0.7), true, 12, 8.4);
+	add(cases, "Geometric(0.2)", ref, (seed, m) -> discrete(new Geometric(0.2, seed), m),
+	    k -> k < 1 ? 0.0 : -Math.expm1(Math.floor(k) * Math.log(0.8)), true, 5, 20);
+	add(cases, "Pascal(0.4,3)", refInv, (seed, m) -> discrete(new Pascal(0.4, 3, seed), m),
+	    k -> k < 3 ? 0.0 : SpecialFunctions.betaI(3, Math.floor(k) - 2, 0.4), true, 7.5, 11.25);
+	add(cases, "Poisson(7.5)", all, (seed, m) -> discrete(new Poisson(7.5, seed), m),
+	    k -> k < 0 ? 0.0 : SpecialFunctions.gammaQ(Math.floor(k) + 1, 7.5), true, 7.5, 7.5);
+	add(cases, "Poisson(300)", all, (seed, m) -> discrete(new Poisson(300, seed), m),
+	    k -> k < 0 ? 0.0 : SpecialFunctions.gammaQ(Math.floor(k) + 1, 300), true, 300, 300);
+	double[] weights = {1, 0, 2, 3};
+	add(cases, "Categorical(1,0,2,3)", refInv, (seed, m) -> discrete(new Categorical(weights, seed), m),
+	    k -> k < 0 ? 0.0 : k < 2 ? 1.0 / 6 : k < 3 ? 0.5 : 1.0, true, 13.0 / 6, 35.0 / 6 - 169.0 / 36);
+	return cases;
+    }
+
+    // ----- tests -----
+
+    /**
+     * Run every test of one case.
+     * @param c the case
+     * @param n samples of the main stream
+     * @return the p-values
+     */
+    static Result test(Case c, int n) {
+	Result r = new Result(c);
+	SeedGenerator seeds = new SeedGenerator(ROOT, 100000);
+	DoubleSupplier gen = c.factory.apply(seeds.sample());
+	double[] x = new double[n];
+	for (int i = 0; i < n; i++) x[i] = gen.getAsDouble();
+
+	double[] u = new double[n]; // probability integral transforms, or the values of discrete cases
+	for (int i = 0; i < n; i++) u[i] = c.discrete ? x[i] : c.cdf.applyAsDouble(x[i]);
+
+	r.chi2 = c.discrete ? chiSquareDiscrete(x, c.cdf) : chiSquareUniform(u);
+	if (!c.discrete) r.ks = kolmogorovSmirnov(Arrays.copyOf(u, Math.min(n, KS_SAMPLES)));
+	if (!Double.isNaN(c.mean)) r.moments = moments(x, c.mean, c.variance);
+	r.serial = serialCorrelation(u);
+	double median = c.discrete ? discreteMedian(c.cdf) : 0.5;
+	r.runs = runs(u, median);
+
+	double[][] streams = new double[STREAMS][STREAM_SAMPLES];
+	for (int s = 0; s < STREAMS; s++) {
+	    DoubleSupplier g = c.factory.apply(seeds.sample());
+	    for (int i = 0; i < STREAM_SAMPLES; i++) {
+		double v = g.getAsDouble();
+		streams[s][i] = c.discrete ? v : c.cdf.applyAsDouble(v);
+	    }
+	}
+	r.streams = interStream(streams);
+	return r;
+    }
+
+    /** chi-square of the probability integral transforms in equiprobable classes */
+    static double chiSquareUniform(double[] u) {
+	long[] counts = new long[CLASSES];
+	for (double v : u) counts[Math.min(CLASSES - 1, Math.max(0, (int) (v * CLASSES)))]++;
+	double expected = (double) u.length / CLASSES, chi2 = 0.0;
+	for (long o : counts) chi2 += (o - expected) * (o - expected) / expected;
+	return SpecialFunctions.gammaQ((CLASSES - 1) / 2.0, chi2 / 2);
+    }
+
+    /** chi-square of integer values, in classes of consecutive values with at least 5 expected samples */
+    static double chiSquareDiscrete(double[] x, DoubleUnaryOperator cdf) {
+	TreeMap<Long, Long> counts = new TreeMap<>();
+	for (double v : x) counts.merge((long) v, 1L, Long::sum);
+	int n = x.length;
+	long k = counts.firstKey();
+	while (cdf.applyAsDouble(k - 1) > 0.0) k--; // start of the support
+	double chi2 = 0.0, prev = 0.0;
+	int classes = 0;
+	long from = Long.MIN_VALUE;
+	while (true) {
+	    double f = cdf.applyAsDouble(k);
+	    boolean last = n * (1.0 - f) < 5.0;
+	    if (n * (f - prev) >= 5.0 || last) {
+		double expected = n * ((last ? 1.0 : f) - prev);
+		long observed = 0;
+		for (long o : (last ? counts.tailMap(from, false) : counts.subMap(from, false, k, true)).values()) observed += o;
+		chi2 += (observed - expected) * (observed - expected) / expected;
+		classes++;
+		if (last) break;
+		prev = f;
+		from = k;
+	    }
+	    k++;
+	}
+	return classes > 1 ? SpecialFunctions.gammaQ((classes - 1) / 2.0, chi2 / 2) : Double.NaN;
+    }
+
+    /** Kolmogorov-Smirnov test of probability integral transforms against the uniform distribution */
+    static double kolmogorovSmirnov(double[] u) {
+	Arrays.sort(u);
+	int m = u.length;
+	double d = 0.0;
+	for (int i = 0; i < m; i++) d = Math.max(d, Math.max((i + 1.0) / m - u[i], u[i] - (double) i / m));
+	double sqrt = Math.sqrt(m), lambda = (sqrt + 0.12 + 0.11 / sqrt) * d;
+	// Kolmogorov distribution: Q(lambda) = 2 sum (-1)^(k-1) exp(-2 k^2 lambda^2)
+	double q = 0.0, sign = 1.0;
+	for (int k = 1; k <= 100; k++) {
+	    double term = sign * Math.exp(-2.0 * k * k * lambda * lambda);
+	    q += term;
+	    if (Math.abs(term) < 1e-12) break;
+	    sign = -sign;
+	}
+	return Math.max(0.0, Math.min(1.0, 2.0 * q));
+    }
+
+    /** z-tests of the mean and variance, Bonferroni combined */
+    static double moments(double[] x, double mean, double variance) {
+	int n = x.length;
+	double sum = 0.0;
+	for (double v : x) sum += v;
+	double m = sum / n, m2 = 0.0, m4 = 0.0;
+	for (double v : x) { double d = v - m; m2 += d * d; m4 += d * d * d * d; }
+	double s2 = m2 / (n - 1);
+	m4 /= n;
+	double pMean = twoSided((m - mean) / Math.sqrt(variance / n));
+	double pVar = twoSided((s2 - variance) / Math.sqrt(Math.max(m4 - s2 * s2, 1e-300) / n));
+	return Math.min(1.0, 2.0 * Math.min(pMean, pVar));
+    }
+
+    /** lag-1 autocorrelation */
+    static double serialCorrelation(double[] u) {
+	return twoSided(correlation(u, 0, u, 1, u.length - 1) * Math.sqrt(u.length - 1));
+    }
+
+    /** Wald-Wolfowitz runs above and below <code>median</code> */
+    static double runs(double[] u, double median) {
+	long above = 0, runs = 1;
+	for (int i = 0; i < u.length; i++) {
+	    if (u[i] > median) above++;
+	    if (i > 0 && (u[i] > median) != (u[i - 1] > median)) runs++;
+	}
+	double n = u.length, below = n - above;
+	if (above == 0 || below == 0) return Double.NaN;
+	double mu = 2.0 * above * below / n + 1.0;
+	double var = (mu - 1.0) * (mu - 2.0) / (n - 1.0);
+	return twoSided((runs - mu) / Math.sqrt(var));
+    }
+
+    /** largest correlation between streams, Bonferroni corrected over the pairs */
+    static double interStream(double[][] streams) {
+	double pMin = 1.0;
+	int pairs = 0;
+	for (int a = 0; a < streams.length; a++) {
+	    for (int b = a + 1; b < streams.length; b++) {
+		int m = streams[a].length;
+		pMin = Math.min(pMin, twoSided(correlation(streams[a], 0, streams[b], 0, m) * Math.sqrt(m)));
+		pairs++;
+	    }
+	}
+	return Math.min(1.0, pairs * pMin);
+    }
+
+    private static double correlation(double[] a, int offA, double[] b, int offB, int m) {
+	double ma = 0.0, mb = 0.0;
+	for (int i = 0; i < m; i++) { ma += a[offA + i]; mb += b[offB + i]; }
+	ma /= m;
+	mb /= m;
+	double sab = 0.0, saa = 0.0, sbb = 0.0;
+	for (int i = 0; i < m; i++) {
+	    double da = a[offA + i] - ma, db = b[offB + i] - mb;
+	    sab += da * db;
+	    saa += da * da;
+	    sbb += db * db;
+	}
+	return saa > 0.0 && sbb > 0.0 ? sab / Math.sqrt(saa * sbb) : 0.0;
+    }
+
+    private static double discreteMedian(DoubleUnaryOperator cdf) {
+	long k = 0;
+	while (cdf.applyAsDouble(k) > 0.5) k--;
+	while (cdf.applyAsDouble(k) < 0.5) k++;
+	return k;
+    }
+
+    private static double twoSided(double z) {
+	return Double.isNaN(z) ? Double.NaN : 2.0 * SpecialFunctions.normalCdf(-Math.abs(z));
+    }
+
+    // ----- throughput -----
+
+    private static double sink;
+
+    /**
+     * @return samples per second of the best of five rounds of <code>n</code> samples, after two warm-up rounds
+     */
+    static double throughput(Case c, int n) {
+	n = Math.min(n, THROUGHPUT_SAMPLES);
+	DoubleSupplier gen = c.factory.apply(ROOT);
+	double best = Double.MAX_VALUE;
+	for (int round = 0; round < 7; round++) {
+	    long t0 = System.nanoTime();
+	    double s = 0.0;
+	    for (int i = 0; i < n; i++) s += gen.getAsDouble();
+	    long t1 = System.nanoTime();
+	    sink += s;
+	    if (round >= 2) best = Math.min(best, (double) (t1 - t0));
+	}
+	return n / (best * 1e-9);
+    }
+
+    private static String p(double p) {
+	return Double.isNaN(p) ? "-" : String.format(p < ALPHA ? "%.4f*" : "%.4f", p);
+    }
+
+    public static void main(String[] args) throws Exception {
+	int n = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+	int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+	List<Case> cases = cases();
+
+	long t0 = System.nanoTime();
+	java.util.concurrent.ForkJoinPool pool = new java.util.concurrent.ForkJoinPool(threads);
+	List<Result> results;
+	try {
+	    results = pool.submit(() -> cases.parallelStream().map(c -> test(c, n)).toList()).get();
+	} finally {
+	    pool.shutdown();
+	}
+	long t1 = System.nanoTime();
+	for (Result r : results) r.samplesPerSecond = throughput(r.c, n);
+
+	System.out.printf("%d cases, %d samples each, tested on %d threads in %.1f s; * marks p < %s%n",
+			  cases.size(), n, threads, (t1 - t0) * 1e-9, ALPHA);
+	System.out.printf("%-20s %-20s %7s %7s %7s %7s %7s %7s %9s%n",
+			  "generator", "method", "chi2", "KS", "moments", "serial", "runs", "streams", "M/s");
+	int flagged = 0;
+	for (Result r : results) {
+	    StringBuilder line = new StringBuilder(String.format("%-20s %-20s", r.c.name, r.c.method));
+	    for (double pv : r.pValues()) {
+		line.append(String.format(" %7s", p(pv)));
+		if (pv < ALPHA) flagged++;
+	    }
+	    line.append(String.format(" %9.1f", r.samplesPerSecond * 1e-6));
+	    System.out.println(line);
+	}
+	System.out.printf("%d of the p-values below %s%n", flagged, ALPHA);
+    }
+}
@@ -0,0 +1,105 @@
+package distributions;
+
+import java.util.Objects;
+import java.util.SplittableRandom;
+
+/**
+ * One coordinate of one point of a scrambled Halton sequence, used as a uniform source; see
+ * {@link QuasiRandomSequence} for how replications and inputs map onto points and coordinates.
+ * <p>
+ * Coordinate <code>d</code> is the radical inverse of the point index in the <code>d</code>-th prime
+ * base. Every digit position has its own random permutation of the digits (including the leading
+ * zeros down to 53-bit resolution), which removes the correlation between the coordinates of large
+ * bases, and every sample is the coordinate moved by the next random shift modulo 1 (Cranley and
+ * Patterson), so each sample is uniform on its own and the samples of one source are independent.
+ */
+public class HaltonSource implements ContinuousGenerator {
+    public static final int MAX_DIMENSION = 1000;
+
+    private final int dimension;
+    private final long point;
+    private final int base;
+    private long seed;
+    private double scrambled;
+    private SplittableRandom shifts;
+
+    /**
+     * @param dimension The coordinate, 0 to <code>MAX_DIMENSION - 1</code>
+     * @param point The index of the point, not negative
+     * @param seed The randomization; sources with the same seed share the permutations and the shifts
+     */
+    public HaltonSource(int dimension, long point, long seed) {
+	if (dimension < 0 || dimension >= MAX_DIMENSION)
+	    throw new ParameterException("HaltonSource: The dimension must be in [0, " + MAX_DIMENSION + ").");
+	if (point < 0)
+	    throw new ParameterException("HaltonSource: The point must not be negative.");
+	this.dimension = dimension;
+	this.point = point;
+	this.base = prime(dimension);
+	setSeed(seed);
+    }
+
+    /**
+     * @param k index, 0 for 2
+     * @return The <code>k</code>-th prime
+     */
+    static int prime(int k) {
+	int p = 1;
+	for (int found = -1; found < k; ) {
+	    p++;
+	    boolean isPrime = true;
+	    for (int q = 2; q * q <= p; q++) {
+		if (p % q == 0) { isPrime = false; break; }
+	    }
+	    if (isPrime) found++;
+	}
+	return p;
+    }
+
+    private static double radicalInverse(long n, int b, SplittableRandom rnd) {
+	int[] perm = new int[b];
+	double x = 0.0, scale = 1.0 / b;
+	for (double resolution = 1.0; resolution > 0x1.0p-53; resolution /= b, scale /= b) {
+	    // random permutation of the digits of this position (Fisher-Yates)
+	    for (int i = 0; i < b; i++) perm[i] = i;
+	    for (int i = b - 1; i > 0; i--) {
+		int j = rnd.nextInt(i + 1);
+		int t = perm[i]; perm[i] = perm[j]; perm[j] = t;
+	    }
+	    x += perm[(int) (n % b)] * scale;
+	    n /= b;
+	}
+	return x;
+    }
+
+    // ----- implements ContinuousGenerator { -----
+    public double sample() {
+	double u = scrambled + shifts.nextDouble();
+	if (u >= 1.0) u -= 1.0;
+	return u > 0.0 ? u : 0x1.0p-54;
+    }
+
+    public void sample(double[] out, int off, int len) {
+	Objects.checkFromIndexSize(off, len, out.length);
+	for (int i = off; i < off + len; i++) out[i] = sample();
+    }
+    // ----- } implements ContinuousGenerator -----
+
+    public int getDimension() { return dimension; }
+    public long getPoint() { return point; }
+    public int getBase() { return base; }
+
+    // ----- implements Seedable { -----
+    /**
+     * Draw new digit permutations and restart the stream of shifts.
+     */
+    public final void setSeed(long seed) {
+	this.seed = seed;
+	SplittableRandom rnd = new SplittableRandom(seed);
+	this.scrambled = radicalInverse(point, base, rnd.split());
+	this.shifts = rnd.split();
+    }
+    public long getSeed() { return seed; }
+    public final void reseed() { setSeed(SeedGenerator.getDefaultSeedGenerator().sample()); }
+    // ----- } implements Seedable -----
+}
@@ -0,0 +1,19 @@
+package distributions;
+
+/** represents distributions whose cumulative distribution function can be evaluated and inverted,
+ * in closed form or with a fast approximation
+ * @see Truncated
+ */
+public interface Invertible {
+    /**
+     * @param x A value
+     * @return The probability of a sample not greater than <code>x</code>
+     */
+    double cdf(double x);
+
+    /**
+     * @param p A probability in [0, 1]
+     * @return The smallest value <code>x</code> with <code>cdf(x) &ge; p</code>
+     */
+    double quantile(double p);
+}
@@ -6,7 +6,7 @@ package distributions;
   * @author F.Mallet from C.Simatos's original
   */
 
-public class Invgamma extends Generator implements ContinuousGenerator {
+public class Invgamma extends Generator implements ContinuousGenerator, Invertible {
     private double scale;
     private double shape;
     /**
@@ -36,10 +36,17 @@ public class Invgamma extends Generator implements ContinuousGenerator {
     }
 
     /**
-     * Generate a new random number.
+     * Generate a new random number; <code>SamplingMethod.FAST</code> uses the Marsaglia-Tsang gamma method,
+     * <code>SamplingMethod.INVERSION</code> the numerically inverted distribution function.
      * @return The next random number in the sequence
      */
     public double sample() { 
-         return distrib.invgamma(scale, shape);
+         if (method == SamplingMethod.INVERSION) return quantile(distrib.source.sample());
+         return method == SamplingMethod.FAST ? distrib.invgammaMarsagliaTsang(scale, shape) : distrib.invgamma(scale, shape);
     }
+
+    // ----- implements Invertible { -----
+    public double cdf(double x) { return x > 0 ? SpecialFunctions.gammaQ(shape, 1/(x*scale)) : 0.0; }
+    public double quantile(double p) { return 1 / (scale * SpecialFunctions.gammaQuantile(shape, 1-p)); }
+    // ----- } implements Invertible -----
 }
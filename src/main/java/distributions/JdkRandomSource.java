@@ -0,0 +1,69 @@
+package distributions;
+
+import java.util.Objects;
+import java.util.random.RandomGeneratorFactory;
+
+/**
+ * A uniform random number source backed by one of the JDK 17+ <code>java.util.random</code>
+ * algorithms, e.g. <code>L64X128MixRandom</code> or <code>Xoshiro256PlusPlus</code>.
+ * <p>
+ * Samples use the upper 53 bits of a 64-bit output and are centred in their interval,
+ * so they lie strictly inside <code>(0, 1)</code> like those of {@link RandomGenerator}
+ * and can be passed to <code>Math.log</code> safely.
+ * @see RandomSource
+ */
+public class JdkRandomSource implements ContinuousGenerator {
+    private final RandomGeneratorFactory<java.util.random.RandomGenerator> factory;
+    private java.util.random.RandomGenerator rng;
+    private long seed;
+
+    /**
+     * @param algorithm name of a <code>java.util.random</code> algorithm
+     * @param seed The initial seed, two sources with the same algorithm and seed
+     *             produce the same sequence of numbers
+     */
+    public JdkRandomSource(String algorithm, long seed) {
+	this.factory = RandomGeneratorFactory.of(algorithm);
+	setSeed(seed);
+    }
+
+    /**
+     * the seed is automatically provided by the <code>SeedGenerator</code>
+     * @param algorithm name of a <code>java.util.random</code> algorithm
+     */
+    public JdkRandomSource(String algorithm) {
+	this.factory = RandomGeneratorFactory.of(algorithm);
+	reseed();
+    }
+
+    // ----- implements ContinuousGenerator { -----
+    public double sample() {
+	return ((rng.nextLong() >>> 11) + 0.5) * 0x1.0p-53;
+    }
+
+    public void sample(double[] out, int off, int len) {
+	Objects.checkFromIndexSize(off, len, out.length);
+	java.util.random.RandomGenerator r = rng;
+	for (int i = off; i < off + len; i++) out[i] = ((r.nextLong() >>> 11) + 0.5) * 0x1.0p-53;
+    }
+    // ----- } implements ContinuousGenerator -----
+
+    /**
+     * @return The next 64-bit random number of the sequence
+     */
+    public long nextLong() { return rng.nextLong(); }
+
+    /**
+     * @return the name of the underlying algorithm
+     */
+    public String getAlgorithm() { return factory.name(); }
+
+    // ----- implements Seedable { -----
+    public final void setSeed(long seed) {
+	this.seed = seed;
+	this.rng = factory.create(seed);
+    }
+    public long getSeed() { return seed; }
+    public final void reseed() { setSeed(SeedGenerator.getDefaultSeedGenerator().sample()); }
+    // ----- } implements Seedable -----
+}
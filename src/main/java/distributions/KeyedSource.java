@@ -0,0 +1,60 @@
+package distributions;
+
+/**
+ * A counter-based uniform source: the <code>j</code>-th sample after {@link #setKey(long)} is a pure
+ * function of the seed, the key and <code>j</code>, whatever was drawn before under other keys.
+ * <p>
+ * Keyed e.g. by customer number, it gives common random numbers across simulation scenarios: the
+ * customer gets the same draws in every scenario no matter in which order the events of the customers
+ * happen. Every sample is one SplitMix64 finalizer (Steele, Lea and Flood 2014) of the key's start
+ * state plus a multiple of the golden gamma; the upper 53 bits are centred in their interval, so samples
+ * lie strictly inside <code>(0, 1)</code> like those of {@link RandomGenerator}.
+ */
+public class KeyedSource implements ContinuousGenerator {
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private long seed;
+    private long key;
+    private long state;
+
+    /**
+     * @param seed The seed, two sources with the same seed give the same samples for the same key
+     */
+    public KeyedSource(long seed) {
+	setSeed(seed);
+    }
+
+    /**
+     * Restart the samples at those of <code>key</code>.
+     * @param key e.g. the number of the customer the next samples are drawn for
+     */
+    public final void setKey(long key) {
+	this.key = key;
+	this.state = mix(seed ^ mix(key * GOLDEN_GAMMA + GOLDEN_GAMMA));
+    }
+
+    public long getKey() { return key; }
+
+    private static long mix(long z) {
+	z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+	z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+	return z ^ (z >>> 31);
+    }
+
+    // ----- implements ContinuousGenerator { -----
+    public double sample() {
+	state += GOLDEN_GAMMA;
+	return ((mix(state) >>> 11) + 0.5) * 0x1.0p-53;
+    }
+    // ----- } implements ContinuousGenerator -----
+
+    // ----- implements Seedable { -----
+    /** Also restarts the samples of the current key. */
+    public final void setSeed(long seed) {
+	this.seed = seed;
+	setKey(key);
+    }
+    public long getSeed() { return seed; }
+    public final void reseed() { setSeed(SeedGenerator.getDefaultSeedGenerator().sample()); }
+    // ----- } implements Seedable -----
+}
@@ -1,5 +1,7 @@
 package distributions;
 
+import java.util.Objects;
+
 /**
  * A random number generator based on the lognormal distribution.
  * @version     1.0, 2 October 2002
@@ -32,5 +34,20 @@ public class LogNormal extends Normal {
      * Generate a new random number.
      * @return The next random number in the sequence
      */
-    public double sample() { return distrib.lognormal2(mean, std_dev); }
+    public double sample() {
+	return method == SamplingMethod.INVERSION ? quantile(distrib.source.sample()) : distrib.lognormal2(mean, std_dev);
+    }
+
+    /**
+     * Generate the next <code>len</code> random numbers one by one (not the bulk normal of the superclass).
+     */
+    public void sample(double[] out, int off, int len) {
+	Objects.checkFromIndexSize(off, len, out.length);
+	for (int i = off; i < off + len; i++) out[i] = sample();
+    }
+
+    // ----- implements Invertible { -----
+    public double cdf(double x) { return x > 0.0 ? super.cdf(Math.log(x)) : 0.0; }
+    public double quantile(double p) { return Math.exp(super.quantile(p)); }
+    // ----- } implements Invertible -----
 }
@@ -6,7 +6,7 @@ package distributions;
   * @author F.Mallet from C.Simatos's original
   */
 
-public class Logistic extends Generator implements ContinuousGenerator {
+public class Logistic extends Generator implements ContinuousGenerator, Invertible {
     private double location;
     private double scale;
     /**
@@ -42,4 +42,9 @@ public class Logistic extends Generator implements ContinuousGenerator {
     public double sample() { 
          return distrib.logistic(location, scale);
     }
+
+    // ----- implements Invertible { -----
+    public double cdf(double x) { return 1 / (1 + Math.exp(-(x-location) / scale)); }
+    public double quantile(double p) { return location + scale * Math.log(p / (1-p)); }
+    // ----- } implements Invertible -----
 }
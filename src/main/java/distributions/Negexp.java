@@ -1,12 +1,14 @@
 package distributions;
 
+import java.util.Objects;
+
 /** A random number generator based on the negexp distribution.
   * automatically generated by <code>MetaGenerator</code> 
   * @version 1.0, Thu Oct 03 10:57:43 BST 2002
   * @author F.Mallet from C.Simatos's original
   */
 
-public class Negexp extends Generator implements ContinuousGenerator {
+public class Negexp extends Generator implements ContinuousGenerator, Invertible {
     private double mean;
     /**
      * the seed is aumatically provided by the <code>SeedGenerator</code>
@@ -34,10 +36,28 @@ public class Negexp extends Generator implements ContinuousGenerator {
     }
 
     /**
-     * Generate a new random number.
+     * Generate a new random number, by inversion or, for <code>SamplingMethod.FAST</code>, the Ziggurat method.
      * @return The next random number in the sequence
      */
     public double sample() { 
-         return distrib.negexp(mean);
+         return method == SamplingMethod.FAST ? distrib.negexpZiggurat(mean) : distrib.negexp(mean);
+    }
+
+    /**
+     * Generate the next <code>len</code> random numbers into <code>out</code>; inversion transforms one block of uniforms.
+     */
+    public void sample(double[] out, int off, int len) {
+        if (method == SamplingMethod.FAST) {
+            Objects.checkFromIndexSize(off, len, out.length);
+            for (int i = off; i < off + len; i++) out[i] = distrib.negexpZiggurat(mean);
+            return;
+        }
+        distrib.source.sample(out, off, len);
+        BulkSampling.negexp(out, off, len, mean);
     }
+
+    // ----- implements Invertible { -----
+    public double cdf(double x) { return x > 0 ? -Math.expm1(-x/mean) : 0.0; }
+    public double quantile(double p) { return -mean * Math.log1p(-p); }
+    // ----- } implements Invertible -----
 }
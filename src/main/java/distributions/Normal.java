@@ -1,13 +1,17 @@
 package distributions;
 
+import java.util.Objects;
+
 /**
  * A random number generator based on the normal distribution.
  * @version     1.0, 2 October 2002
  * @author      F.Mallet from Costas Simatos's original
  */
 
-public class Normal extends Generator implements ContinuousGenerator {
+public class Normal extends Generator implements ContinuousGenerator, Invertible {
     protected double mean, std_dev;
+    private static final int BLOCK = 1024;
+    private double[] pairs; // uniforms of the bulk Box-Muller
     
     /**
      * the seed is automatically provided by the <code>SeedGenerator</code>
@@ -40,8 +44,40 @@ public class Normal extends Generator implements ContinuousGenerator {
     }
 
     /**
-     * Generate a new random number.
+     * Generate a new random number, with Box-Muller, for <code>SamplingMethod.FAST</code> the Ziggurat method
+     * or for <code>SamplingMethod.INVERSION</code> the quantile function.
      * @return The next random number in the sequence
      */
-    public double sample() { return distrib.normal2(mean, std_dev); }
+    public double sample() {
+	if (method == SamplingMethod.INVERSION) return quantile(distrib.source.sample());
+	return method == SamplingMethod.FAST ? distrib.normalZiggurat(mean, std_dev) : distrib.normal2(mean, std_dev);
+    }
+
+    /**
+     * Generate the next <code>len</code> random numbers into <code>out</code>; Box-Muller reads
+     * the uniform pairs in blocks of <code>2*BLOCK</code>.
+     */
+    public void sample(double[] out, int off, int len) {
+	Objects.checkFromIndexSize(off, len, out.length);
+	if (method == SamplingMethod.FAST) {
+	    for (int i = off; i < off + len; i++) out[i] = distrib.normalZiggurat(mean, std_dev);
+	    return;
+	}
+	if (method == SamplingMethod.INVERSION) {
+	    distrib.source.sample(out, off, len);
+	    for (int i = off; i < off + len; i++) out[i] = quantile(out[i]);
+	    return;
+	}
+	if (pairs == null) pairs = new double[2 * BLOCK];
+	for (int done = 0; done < len; done += BLOCK) {
+	    int n = Math.min(BLOCK, len - done);
+	    distrib.source.sample(pairs, 0, 2 * n);
+	    BulkSampling.boxMuller(pairs, out, off + done, n, mean, std_dev);
+	}
+    }
+
+    // ----- implements Invertible { -----
+    public double cdf(double x) { return SpecialFunctions.normalCdf((x-mean) / std_dev); }
+    public double quantile(double p) { return mean + std_dev * SpecialFunctions.normalQuantile(p); }
+    // ----- } implements Invertible -----
 }
@@ -6,7 +6,7 @@ package distributions;
   * @author F.Mallet from C.Simatos's original
   */
 
-public class Pareto extends Generator implements ContinuousGenerator {
+public class Pareto extends Generator implements ContinuousGenerator, Invertible {
     private double shape;
     private double scale;
     /**
@@ -40,6 +40,11 @@ public class Pareto extends Generator implements ContinuousGenerator {
      * @return The next random number in the sequence
      */
     public double sample() { 
-         return distrib.pareto(shape, scale);
+         return distrib.pareto(scale, shape);
     }
+
+    // ----- implements Invertible { -----
+    public double cdf(double x) { return x > scale ? 1 - Math.pow(scale/x, shape) : 0.0; }
+    public double quantile(double p) { return scale / Math.pow(1-p, 1/shape); }
+    // ----- } implements Invertible -----
 }
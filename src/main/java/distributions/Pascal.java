@@ -42,6 +42,6 @@ public class Pascal extends Generator implements DiscreteGenerator {
      * @return The next random number in the sequence
      */
     public long sample() { 
-         return distrib.pascal(prob, successes);
+         return method == SamplingMethod.INVERSION ? distrib.pascalInversion(prob, successes) : distrib.pascal(prob, successes);
     }
 }
@@ -34,10 +34,11 @@ public class Poisson extends Generator implements DiscreteGenerator {
     }
 
     /**
-     * Generate a new random number.
+     * Generate a new random number; <code>SamplingMethod.FAST</code> uses the PTRS algorithm.
      * @return The next random number in the sequence
      */
     public long sample() { 
-         return distrib.poisson(mean);
+         if (method == SamplingMethod.INVERSION) return distrib.poissonInversion(mean);
+         return method == SamplingMethod.FAST ? distrib.poissonPTRS(mean) : distrib.poisson(mean);
     }
 }
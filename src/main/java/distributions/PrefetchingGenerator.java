@@ -0,0 +1,192 @@
+package distributions;
+
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A generator that draws the samples of another one ahead of time on a helper thread. Two buffers
+ * alternate: the caller consumes one while the helper fills the other with the bulk
+ * <code>sample(double[], int, int)</code> of the wrapped generator. The helper publishes a filled buffer
+ * through a volatile counter, which the caller reads without locks.
+ * <p>
+ * At most one fill of a wrapper is in flight and fills run in buffer order, so the wrapped generator
+ * is used by one thread at a time and in sequence: the samples are exactly those of the wrapped
+ * generator, for any timing of the threads. The wrapped generator must not be used directly while
+ * it is wrapped. Like the other generators, a wrapper must only be used by one thread.
+ * <p>
+ * By default all wrappers share one daemon helper thread. It only pays off when the helper runs on
+ * another core than the caller; on a single core the handoffs only add cost. A wrapped generator must
+ * not draw from a wrapper on the same helper, not even through other generators: its fill would wait
+ * for a fill queued behind it. Wrapping a wrapper on the same helper is rejected.
+ */
+public class PrefetchingGenerator implements ContinuousGenerator {
+    /** Default number of samples per buffer */
+    public static final int DEFAULT_BLOCK = 4096;
+
+    private static ExecutorService sharedHelper; // created with the first wrapper
+
+    private final ContinuousGenerator base;
+    private final Executor helper;
+    private final double[][] buffers;
+    private final Runnable fillNext = this::fillNext;
+
+    private volatile long filled;      // buffers filled by the helper so far
+    private volatile long finished;    // fills the helper has run so far, failed or not
+    private volatile Throwable failure; // thrown by the wrapped generator on the helper thread
+    private long requested;            // buffers handed to the helper so far (caller side)
+    private long current;              // number of the buffer being consumed
+    private double[] buffer;
+    private int position;
+
+    /**
+     * Prefetch on the shared helper thread in blocks of {@link #DEFAULT_BLOCK}.
+     * @param base The generator to draw from
+     */
+    public PrefetchingGenerator(ContinuousGenerator base) {
+	this(base, DEFAULT_BLOCK);
+    }
+
+    /**
+     * Prefetch on the shared helper thread.
+     * @param base The generator to draw from
+     * @param block The number of samples per buffer
+     */
+    public PrefetchingGenerator(ContinuousGenerator base, int block) {
+	this(base, block, sharedHelper());
+    }
+
+    /**
+     * @param base The generator to draw from
+     * @param block The number of samples per buffer
+     * @param helper Runs the buffer fills; must run each task exactly once
+     */
+    public PrefetchingGenerator(ContinuousGenerator base, int block, Executor helper) {
+	if (block <= 0)
+	    throw new ParameterException("PrefetchingGenerator: The block size must be a positive integer.");
+	if (base instanceof PrefetchingGenerator && ((PrefetchingGenerator) base).helper == helper)
+	    throw new ParameterException("PrefetchingGenerator: The generator is already prefetched on this helper.");
+	this.base = base;
+	this.helper = helper;
+	this.buffers = new double[][] { new double[block], new double[block] };
+	start();
+    }
+
+    private static synchronized Executor sharedHelper() {
+	if (sharedHelper == null) {
+	    sharedHelper = Executors.newSingleThreadExecutor(r -> {
+		Thread t = new Thread(r, "variate-prefetch");
+		t.setDaemon(true);
+		return t;
+	    });
+	}
+	return sharedHelper;
+    }
+
+    // request buffers 0 and 1 and start reading buffer 0; no fill may be in flight
+    private void start() {
+	filled = 0;
+	finished = 0;
+	failure = null;
+	requested = 2;
+	current = 0;
+	buffer = null;
+	position = 0;
+	helper.execute(() -> {
+	    fillNext();
+	    fillNext();
+	});
+    }
+
+    // helper thread: fill the next buffer in order and publish it
+    private void fillNext() {
+	try {
+	    if (failure != null) return;
+	    long n = filled;
+	    double[] b = buffers[(int) (n & 1)];
+	    base.sample(b, 0, b.length);
+	    filled = n + 1;
+	} catch (Throwable t) {
+	    failure = t;
+	} finally {
+	    finished = finished + 1; // only the helper writes it
+	}
+    }
+
+    // caller: wait until buffer k is published
+    private void await(long k) {
+	int spins = 0;
+	while (filled <= k) {
+	    Throwable t = failure;
+	    if (t != null) throw new IllegalStateException("PrefetchingGenerator: the wrapped generator failed.", t);
+	    if (++spins < 1000) Thread.onSpinWait();
+	    else Thread.yield();
+	}
+    }
+
+    // caller: switch to the other buffer, then give back the consumed one
+    private void nextBuffer() {
+	if (buffer != null) current++;
+	await(current);
+	if (current + 1 == requested) {
+	    requested++;
+	    helper.execute(fillNext); // refills the buffer just consumed; no other fill is in flight
+	}
+	buffer = buffers[(int) (current & 1)];
+	position = 0;
+    }
+
+    // ----- implements ContinuousGenerator { -----
+    public double sample() {
+	if (buffer == null || position == buffer.length) nextBuffer();
+	return buffer[position++];
+    }
+
+    public void sample(double[] out, int off, int len) {
+	Objects.checkFromIndexSize(off, len, out.length);
+	while (len > 0) {
+	    if (buffer == null || position == buffer.length) nextBuffer();
+	    int n = Math.min(len, buffer.length - position);
+	    System.arraycopy(buffer, position, out, off, n);
+	    position += n;
+	    off += n;
+	    len -= n;
+	}
+    }
+    // ----- } implements ContinuousGenerator -----
+
+    /**
+     * @return The wrapped generator
+     */
+    public ContinuousGenerator getBase() { return base; }
+
+    // wait for the fills in flight, failed or not, before touching the wrapped generator
+    private void quiesce() {
+	int spins = 0;
+	while (finished < requested) {
+	    if (++spins < 1000) Thread.onSpinWait();
+	    else Thread.yield();
+	}
+    }
+
+    // ----- implements Seedable { -----
+    /** Discards the prefetched samples and restarts the wrapped generator from the seed. */
+    public void setSeed(long seed) {
+	quiesce();
+	base.setSeed(seed);
+	start();
+    }
+    /** @return The seed of the wrapped generator, which runs up to two buffers ahead of the samples returned */
+    public long getSeed() {
+	quiesce();
+	return base.getSeed();
+    }
+    /** Discards the prefetched samples and reseeds the wrapped generator. */
+    public void reseed() {
+	quiesce();
+	base.reseed();
+	start();
+    }
+    // ----- } implements Seedable -----
+}
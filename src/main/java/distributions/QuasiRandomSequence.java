@@ -0,0 +1,41 @@
+package distributions;
+
+/**
+ * The randomized quasi-Monte Carlo sequences a set of replications can draw from instead of
+ * independent pseudo-random streams.
+ * <p>
+ * Replication <code>r</code> of a design is point <code>r</code> of the sequence and every stochastic
+ * input of the model (arrivals, one service, routing, ...) one coordinate of it. The <code>j</code>-th
+ * uniform an input draws is that coordinate under the <code>j</code>-th of a stream of random shifts
+ * shared by all replications of the design. Within a replication the draws are therefore independent
+ * and uniform, as from a pseudo-random source, while across the replications of a design the
+ * <code>j</code>-th draws of all inputs form a scrambled low-discrepancy point set, so a few
+ * replications cover the input space more evenly than independent streams. Independent designs
+ * (different seeds) give independent estimates, whose spread is the error estimate.
+ * <p>
+ * The point sets are balanced for the first 2<sup>m</sup> (Sobol) or b<sup>m</sup> (Halton)
+ * replications, so designs of 8, 16, 32, ... replications work best.
+ */
+public enum QuasiRandomSequence {
+    /** Sobol sequence with Matou&scaron;ek's random linear scrambling and digital shifts. */
+    SOBOL,
+    /** Halton sequence with random digit permutations and Cranley-Patterson shifts. */
+    HALTON;
+
+    /**
+     * @param dimension coordinate of the input, distinct for every input of a model
+     * @param point index of the point, e.g. the replication number
+     * @param seed randomization of the design, the same for all its replications
+     * @return a uniform source
+     */
+    public ContinuousGenerator create(int dimension, long point, long seed) {
+	return this == SOBOL ? new SobolSource(dimension, point, seed) : new HaltonSource(dimension, point, seed);
+    }
+
+    /**
+     * @return the number of coordinates available
+     */
+    public int getMaxDimension() {
+	return this == SOBOL ? SobolSource.MAX_DIMENSION : HaltonSource.MAX_DIMENSION;
+    }
+}
@@ -1,5 +1,7 @@
 package distributions;
 
+import java.util.Objects;
+
 /**
  * A random number generator producing pseudorandom numbers based
  * on the value of a specific seed. The generator is a multiplicative
@@ -17,9 +19,9 @@ package distributions;
 
 public class RandomGenerator implements ContinuousGenerator {
     // The multiplier
-    private final long a = 742938285;
+    static final long a = 742938285;
     // The modulus
-    private final long m = 2147483647;
+    static final long m = 2147483647;
     // The last computed random number
     private long seed;
     
@@ -30,6 +32,11 @@ public class RandomGenerator implements ContinuousGenerator {
     public double sample() { 
 	return ((double)nextLong()) / m;
     }
+
+    public void sample(double[] out, int off, int len) {
+	Objects.checkFromIndexSize(off, len, out.length);
+	seed = BulkSampling.lehmer(seed, out, off, len);
+    }
     // ----- } implements ContinuousGenerator -----
 
     /**
@@ -39,6 +46,31 @@ public class RandomGenerator implements ContinuousGenerator {
 	return seed = (a * seed) % m;
     }
     
+    /**
+     * Advance the sequence by <code>steps</code> numbers in O(log steps) time;
+     * the same as calling <code>nextLong()</code> <code>steps</code> times.
+     * @param steps The number of values to skip
+     */
+    public void skip(long steps) {
+	seed = seed * multiplierFor(steps) % m;
+    }
+
+    /**
+     * Since <code>Y[k] = (a<sup>k</sup> * Y[0]) mod m</code>, jumping ahead is a single
+     * multiplication by <code>a<sup>k</sup> mod m</code>, computed by square-and-multiply.
+     * @param steps The number of values to skip
+     * @return <code>a<sup>steps</sup> mod m</code>
+     */
+    static long multiplierFor(long steps) {
+	if (steps < 0) throw new ParameterException("RandomGenerator: cannot skip a negative number of values.");
+	long result = 1, base = a;
+	for (long k = steps % (m - 1); k > 0; k >>= 1) { // a^(m-1) = 1 mod m
+	    if ((k & 1) != 0) result = result * base % m;
+	    base = base * base % m;
+	}
+	return result;
+    }
+
     // ----- implements Seedable { -----
     public void setSeed(long seed) { this.seed = seed; }
     public long getSeed() { return seed; }
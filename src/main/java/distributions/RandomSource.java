@@ -0,0 +1,38 @@
+package distributions;
+
+/**
+ * The uniform sources a {@link Generator} can draw from. <code>LEHMER</code> ({@link RandomGenerator}) is
+ * the default so existing seeds reproduce existing runs; the others are <code>java.util.random</code> algorithms.
+ */
+public enum RandomSource {
+    LEHMER(null),
+    L64X128_MIX("L64X128MixRandom"),
+    L64X256_MIX("L64X256MixRandom"),
+    XOSHIRO256_PLUS_PLUS("Xoshiro256PlusPlus");
+
+    private final String algorithm;
+
+    RandomSource(String algorithm) { this.algorithm = algorithm; }
+
+    /**
+     * @param seed The initial seed of the source
+     * @return a new uniform source
+     */
+    public ContinuousGenerator create(long seed) {
+	return algorithm == null ? new RandomGenerator(seed) : new JdkRandomSource(algorithm, seed);
+    }
+
+    /**
+     * @param seed The initial seed of the source
+     * @param antithetic whether to return <code>1 - u</code> for the samples <code>u</code> of the source
+     * @return a new uniform source, the {@link AntitheticSource} of <code>create(seed)</code> if antithetic
+     */
+    public ContinuousGenerator create(long seed, boolean antithetic) {
+	return antithetic ? new AntitheticSource(create(seed)) : create(seed);
+    }
+
+    /**
+     * @return the <code>java.util.random</code> algorithm name, null for <code>LEHMER</code>
+     */
+    public String getAlgorithm() { return algorithm; }
+}
@@ -0,0 +1,107 @@
+package distributions;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Partitions the sequence of the {@link RandomGenerator} LCG into non-overlapping streams and
+ * substreams, all derived deterministically from one base seed (e.g. the base random seed of a
+ * simulation). Stream <code>i</code> starts <code>i * streamSpacing</code> values after the base
+ * seed and substream <code>j</code> of it another <code>j * substreamSpacing</code> values later;
+ * every start is found by jump-ahead in O(log n), so thousands of generators are set up instantly.
+ * <p>
+ * With the defaults (substreams of 100,000 values, 100 substreams per stream) the period of
+ * 2<sup>31</sup>-2 gives 214 streams. Seeds are pure functions of the indices, so this class is
+ * thread-safe and parallel runs can derive their generators independently.
+ */
+public class RandomStreams {
+    public static final long DEFAULT_SUBSTREAM_SPACING = 100_000L;
+    public static final int DEFAULT_SUBSTREAMS = 100;
+
+    private final long base;
+    private final long streamSpacing;
+    private final long substreamSpacing;
+    private final int substreams;
+
+    /**
+     * @param baseSeed any value, mapped into the valid seed range of the LCG
+     */
+    public RandomStreams(long baseSeed) {
+	this(baseSeed, DEFAULT_SUBSTREAM_SPACING, DEFAULT_SUBSTREAMS);
+    }
+
+    /**
+     * @param baseSeed any value, mapped into the valid seed range of the LCG
+     * @param substreamSpacing values available to each substream
+     * @param substreams substreams per stream
+     */
+    public RandomStreams(long baseSeed, long substreamSpacing, int substreams) {
+	if (substreamSpacing <= 0 || substreams <= 0)
+	    throw new ParameterException("RandomStreams: spacing and substreams must be greater than 0.");
+	this.base = 1 + Math.floorMod(baseSeed, RandomGenerator.m - 1); // in [1, m-1]
+	this.substreamSpacing = substreamSpacing;
+	this.substreams = substreams;
+	this.streamSpacing = substreamSpacing * substreams;
+    }
+
+    /**
+     * @return number of non-overlapping streams within the period of the LCG
+     */
+    public long getStreamCount() { return (RandomGenerator.m - 1) / streamSpacing; }
+
+    /**
+     * @return number of substreams per stream
+     */
+    public int getSubstreamCount() { return substreams; }
+
+    /**
+     * @param stream stream index, e.g. the replication number
+     * @return The first seed of the stream (its substream 0)
+     */
+    public long seed(int stream) { return seed(stream, 0); }
+
+    /**
+     * @param stream stream index, e.g. the replication number, less than {@link #getStreamCount()}
+     * @param substream substream index, e.g. the stochastic input within the replication, less than
+     *        {@link #getSubstreamCount()}
+     * @return The first seed of the substream
+     */
+    public long seed(int stream, int substream) {
+	if (stream < 0 || substream < 0)
+	    throw new ParameterException("RandomStreams: stream indices must not be negative.");
+	if (stream >= getStreamCount())
+	    throw new ParameterException("RandomStreams: stream " + stream + " is beyond the " + getStreamCount() + " non-overlapping streams.");
+	if (substream >= substreams)
+	    throw new ParameterException("RandomStreams: substream " + substream + " is beyond the " + substreams + " substreams of a stream.");
+	long offset = (stream * streamSpacing + substream * substreamSpacing) % (RandomGenerator.m - 1);
+	return base * RandomGenerator.multiplierFor(offset) % RandomGenerator.m;
+    }
+
+    /**
+     * @param stream stream index
+     * @return The stream, handing out its substream seeds in order
+     */
+    public Stream stream(int stream) { return new Stream(stream); }
+
+    /**
+     * One stream; {@link #nextSeed()} hands out the seeds of its substreams in order (thread-safe).
+     */
+    public class Stream {
+	private final int index;
+	private final AtomicInteger next = new AtomicInteger();
+
+	private Stream(int index) { this.index = index; }
+
+	public int getIndex() { return index; }
+
+	/**
+	 * @return The seed of the next unused substream; fails when the substreams run out
+	 */
+	public long nextSeed() { return seed(index, next.getAndIncrement()); }
+
+	/**
+	 * @param source uniform source algorithm
+	 * @return A uniform source seeded with the next unused substream
+	 */
+	public ContinuousGenerator nextSource(RandomSource source) { return source.create(nextSeed()); }
+    }
+}
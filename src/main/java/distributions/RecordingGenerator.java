@@ -0,0 +1,114 @@
+package distributions;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Passes on the samples of another generator and appends every one to a file, as little-endian IEEE
+ * doubles: the <code>BINARY</code> format of <code>SampleFile</code>, so that a <code>TraceReplay</code>
+ * of the file draws exactly the recorded samples again.
+ * <p>
+ * A seed only reproduces a run as long as the samples are drawn in the same order; a recording
+ * reproduces it after any change of the code between the samples and the results. The samples are
+ * buffered, so the file is complete only after {@link #close()}. A NaN sample is rejected, since
+ * <code>SampleFile</code> skips NaN and the replay would be shifted.
+ */
+public class RecordingGenerator implements ContinuousGenerator, AutoCloseable {
+    private static final int BUFFER = 1 << 16; // bytes written at a time
+
+    private final ContinuousGenerator source;
+    private final Path file;
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+    private long count;
+
+    /**
+     * Create (or overwrite) the recording.
+     * @param source The generator whose samples are recorded, null to record only through {@link #record(double)}
+     * @param file The file of the samples, its directory is created if missing
+     */
+    public RecordingGenerator(ContinuousGenerator source, Path file) {
+	this.source = source;
+	this.file = file;
+	try {
+	    Path dir = file.toAbsolutePath().getParent();
+	    if (dir != null) Files.createDirectories(dir);
+	    channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				       StandardOpenOption.TRUNCATE_EXISTING);
+	} catch (IOException e) {
+	    throw new UncheckedIOException("RecordingGenerator: Cannot create " + file + ".", e);
+	}
+    }
+
+    /**
+     * Append a value drawn elsewhere, e.g. a routing decision.
+     * @param x The value
+     * @return <code>x</code>
+     */
+    public double record(double x) {
+	if (Double.isNaN(x))
+	    throw new ParameterException("RecordingGenerator: A NaN sample cannot be replayed from " + file + ".");
+	if (!channel.isOpen())
+	    throw new IllegalStateException("RecordingGenerator: The recording " + file + " is closed.");
+	if (!buffer.hasRemaining()) flush();
+	buffer.putDouble(x);
+	count++;
+	return x;
+    }
+
+    /**
+     * @return The number of samples recorded
+     */
+    public long getCount() { return count; }
+
+    public Path getFile() { return file; }
+
+    private void flush() {
+	buffer.flip();
+	try {
+	    while (buffer.hasRemaining()) channel.write(buffer);
+	} catch (IOException e) {
+	    throw new UncheckedIOException("RecordingGenerator: Cannot write " + file + ".", e);
+	}
+	buffer.clear();
+    }
+
+    /**
+     * Write the buffered samples and close the file; later samples fail.
+     */
+    public void close() {
+	if (!channel.isOpen()) return;
+	try {
+	    flush();
+	} finally {
+	    try {
+		channel.close();
+	    } catch (IOException e) {
+		throw new UncheckedIOException("RecordingGenerator: Cannot close " + file + ".", e);
+	    }
+	}
+    }
+
+    // ----- implements ContinuousGenerator { -----
+    public double sample() {
+	return record(source.sample());
+    }
+
+    public void sample(double[] out, int off, int len) {
+	source.sample(out, off, len);
+	for (int i = off; i < off + len; i++) record(out[i]);
+    }
+    // ----- } implements ContinuousGenerator -----
+
+    // ----- implements Seedable { -----
+    public void setSeed(long seed) { source.setSeed(seed); }
+    public long getSeed() { return source.getSeed(); }
+    public void reseed() { source.reseed(); }
+    // ----- } implements Seedable -----
+}
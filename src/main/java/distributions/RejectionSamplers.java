@@ -0,0 +1,198 @@
+package distributions;
+
+/**
+ * Samplers whose expected cost does not grow with the parameters:
+ * <ul>
+ * <li>gamma: Marsaglia &amp; Tsang (2000), a squeeze and one log on a cubed normal; chi-square is
+ *     gamma(k/2) scaled by 2,</li>
+ * <li>binomial: BTPE of Kachitvichyanukul &amp; Schmeiser (1988) when <code>n min(p, 1-p) &ge; 10</code>,
+ *     sequential inversion below,</li>
+ * <li>Poisson: PTRS, transformed rejection with squeeze of H&ouml;rmann (1993), when
+ *     <code>mean &ge; 10</code>, the multiplication method below.</li>
+ * </ul>
+ * The small-parameter branches cost a bounded number of uniforms (about <code>mean</code> or
+ * <code>np</code> &le; 10), so every sampler runs in O(1) expected time. The reference loops of
+ * {@link Distributions} draw <code>shape</code>, <code>deg_freedom</code>, <code>trials</code> or
+ * <code>mean</code> uniforms per sample.
+ */
+final class RejectionSamplers {
+    private static final int LOG_FACTORIAL_TABLE = 128;
+    private static final double[] LOG_FACTORIAL = new double[LOG_FACTORIAL_TABLE];
+    private static final double HALF_LOG_2PI = 0.5 * Math.log(2.0 * Math.PI);
+
+    static {
+	for (int k = 1; k < LOG_FACTORIAL_TABLE; k++)
+	    LOG_FACTORIAL[k] = LOG_FACTORIAL[k - 1] + Math.log(k);
+    }
+
+    private RejectionSamplers() {}
+
+    /**
+     * @param k a non-negative integer
+     * @return log(k!), from a table for small k and from Stirling's series above
+     */
+    static double logFactorial(long k) {
+	if (k < LOG_FACTORIAL_TABLE) return LOG_FACTORIAL[(int) k];
+	double x = k, ix2 = 1.0 / (x * x);
+	return (x + 0.5) * Math.log(x) - x + HALF_LOG_2PI + (1.0 / 12.0 - ix2 * (1.0 / 360.0 - ix2 / 1260.0)) / x;
+    }
+
+    /**
+     * @param source uniform source on (0, 1)
+     * @param shape shape parameter, &gt; 0
+     * @return a gamma variate with the given shape and scale 1
+     */
+    static double gamma(ContinuousGenerator source, double shape) {
+	if (shape < 1.0) {
+	    // boost: gamma(a) = gamma(a+1) * U^(1/a)
+	    return gamma(source, shape + 1.0) * Math.pow(source.sample(), 1.0 / shape);
+	}
+	double d = shape - 1.0 / 3.0, c = 1.0 / Math.sqrt(9.0 * d);
+	for (;;) {
+	    double x, v;
+	    do {
+		x = Ziggurat.normal(source);
+		v = 1.0 + c * x;
+	    } while (v <= 0.0);
+	    v = v * v * v;
+	    double u = source.sample(), x2 = x * x;
+	    if (u < 1.0 - 0.0331 * x2 * x2) return d * v;
+	    if (Math.log(u) < 0.5 * x2 + d * (1.0 - v + Math.log(v))) return d * v;
+	}
+    }
+
+    /**
+     * @param source uniform source on (0, 1)
+     * @param prob probability of success in (0, 1]
+     * @param trials number of trials, &gt; 0
+     * @return a binomial variate
+     */
+    static long binomial(ContinuousGenerator source, double prob, int trials) {
+	if (prob >= 1.0) return trials;
+	double p = Math.min(prob, 1.0 - prob);
+	long y = trials * p < 10.0 ? binomialInversion(source, p, trials) : btpe(source, p, trials);
+	return prob > 0.5 ? trials - y : y;
+    }
+
+    private static long binomialInversion(ContinuousGenerator source, double p, int n) {
+	double q = 1.0 - p, qn = Math.exp(n * Math.log(q)), np = n * p;
+	double bound = Math.min(n, np + 10.0 * Math.sqrt(np * q + 1.0));
+	long x = 0;
+	double px = qn, u = source.sample();
+	while (u > px) {
+	    x++;
+	    if (x > bound) {  // lost to rounding in the far tail: start over
+		x = 0;
+		px = qn;
+		u = source.sample();
+	    } else {
+		u -= px;
+		px = ((n - x + 1) * p * px) / (x * q);
+	    }
+	}
+	return x;
+    }
+
+    // Kachitvichyanukul & Schmeiser (1988), step numbers as in the paper; p <= 0.5, n p >= 10
+    private static long btpe(ContinuousGenerator source, double p, int n) {
+	double q = 1.0 - p, nrq = n * p * q;
+	double fm = n * p + p;
+	long m = (long) Math.floor(fm);
+	double p1 = Math.floor(2.195 * Math.sqrt(nrq) - 4.6 * q) + 0.5;
+	double xm = m + 0.5, xl = xm - p1, xr = xm + p1;
+	double c = 0.134 + 20.5 / (15.3 + m);
+	double a = (fm - xl) / (fm - xl * p);
+	double laml = a * (1.0 + 0.5 * a);
+	a = (xr - fm) / (xr * q);
+	double lamr = a * (1.0 + 0.5 * a);
+	double p2 = p1 * (1.0 + 2.0 * c), p3 = p2 + c / laml, p4 = p3 + c / lamr;
+
+	for (;;) {
+	    // step 1-4: triangle, parallelograms and exponential tails
+	    double u = source.sample() * p4, v = source.sample();
+	    long y;
+	    if (u <= p1) {
+		return (long) Math.floor(xm - p1 * v + u);
+	    } else if (u <= p2) {
+		double x = xl + (u - p1) / c;
+		v = v * c + 1.0 - Math.abs(m - x + 0.5) / p1;
+		if (v > 1.0) continue;
+		y = (long) Math.floor(x);
+	    } else if (u <= p3) {
+		y = (long) Math.floor(xl + Math.log(v) / laml);
+		if (y < 0) continue;
+		v = v * (u - p2) * laml;
+	    } else {
+		y = (long) Math.floor(xr - Math.log(v) / lamr);
+		if (y > n) continue;
+		v = v * (u - p3) * lamr;
+	    }
+
+	    long k = Math.abs(y - m);
+	    if (k <= 20 || k >= nrq / 2.0 - 1.0) {
+		// step 5.1: evaluate f(y)/f(m) recursively
+		double s = p / q, aa = s * (n + 1), f = 1.0;
+		if (m < y) {
+		    for (long i = m + 1; i <= y; i++) f *= aa / i - s;
+		} else if (m > y) {
+		    for (long i = y + 1; i <= m; i++) f /= aa / i - s;
+		}
+		if (v <= f) return y;
+		continue;
+	    }
+
+	    // step 5.2: squeeze on log(v)
+	    double rho = (k / nrq) * ((k * (k / 3.0 + 0.625) + 1.0 / 6.0) / nrq + 0.5);
+	    double t = -(double) k * k / (2.0 * nrq);
+	    double logv = Math.log(v);
+	    if (logv < t - rho) return y;
+	    if (logv > t + rho) continue;
+
+	    // step 5.3: final comparison with Stirling's approximation of f(y)/f(m)
+	    double x1 = y + 1, f1 = m + 1, z = n + 1 - m, w = n - y + 1;
+	    double bound = xm * Math.log(f1 / x1)
+		    + (n - m + 0.5) * Math.log(z / w)
+		    + (y - m) * Math.log(w * p / (x1 * q))
+		    + stirling(f1) + stirling(z) + stirling(x1) + stirling(w);
+	    if (logv <= bound) return y;
+	}
+    }
+
+    // correction term of Stirling's formula used by BTPE step 5.3
+    private static double stirling(double a) {
+	double a2 = a * a;
+	return (13860.0 - (462.0 - (132.0 - (99.0 - 140.0 / a2) / a2) / a2) / a2) / a / 166320.0;
+    }
+
+    /**
+     * @param source uniform source on (0, 1)
+     * @param mean mean, &gt; 0
+     * @return a Poisson variate
+     */
+    static long poisson(ContinuousGenerator source, double mean) {
+	if (mean < 10.0) {
+	    long x = 0;
+	    double limit = Math.exp(-mean), product = source.sample();
+	    while (product > limit) {
+		x++;
+		product *= source.sample();
+	    }
+	    return x;
+	}
+	double smu = Math.sqrt(mean), logMean = Math.log(mean);
+	double b = 0.931 + 2.53 * smu;
+	double a = -0.059 + 0.02483 * b;
+	double invAlpha = 1.1239 + 1.1328 / (b - 3.4);
+	double vr = 0.9277 - 3.6224 / (b - 2.0);
+	for (;;) {
+	    double u = source.sample() - 0.5, v = source.sample();
+	    double us = 0.5 - Math.abs(u);
+	    long k = (long) Math.floor((2.0 * a / us + b) * u + mean + 0.43);
+	    if (us >= 0.07 && v <= vr) return k;
+	    if (k < 0 || (us < 0.013 && v > us)) continue;
+	    if (Math.log(v) + Math.log(invAlpha) - Math.log(a / (us * us) + b)
+		    <= -mean + k * logMean - logFactorial(k))
+		return k;
+	}
+    }
+}
@@ -0,0 +1,221 @@
+package distributions;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.function.DoubleConsumer;
+
+/**
+ * A file of observations, e.g. logged service durations, read through memory-mapped windows so that
+ * files of any size are scanned with constant heap usage. Two formats are understood:
+ * <ul>
+ * <li><code>BINARY</code>: little-endian IEEE doubles, as in the <code>.f64</code> column files of the
+ *     customer store,</li>
+ * <li><code>CSV</code>: one observation per line in the given column; lines whose field is not a
+ *     number (headers, comments) are skipped.</li>
+ * </ul>
+ * NaN observations (a station not visited) are skipped in both formats.
+ * @see Empirical
+ * @see TraceReplay
+ */
+public final class SampleFile {
+    public enum Format { BINARY, CSV }
+
+    private static final int WINDOW = 1 << 24; // bytes mapped at a time
+
+    private final Path path;
+    private final Format format;
+    private final int column;
+
+    /**
+     * Read a file in the format given by its name: <code>.csv</code> and <code>.txt</code> files
+     * as CSV with the observations in the first column, all others as binary.
+     * @param path The file
+     */
+    public SampleFile(Path path) {
+	this(path, formatOf(path), 0);
+    }
+
+    /**
+     * @param path The file
+     * @param format The format of the file
+     * @param column The CSV column of the observations, counted from 0
+     */
+    public SampleFile(Path path, Format format, int column) {
+	if (column < 0)
+	    throw new ParameterException("SampleFile: The column must not be negative.");
+	this.path = path;
+	this.format = format;
+	this.column = column;
+    }
+
+    /**
+     * @param path A file name
+     * @return CSV for <code>.csv</code> and <code>.txt</code> files, BINARY otherwise
+     */
+    public static Format formatOf(Path path) {
+	String name = path.getFileName().toString().toLowerCase();
+	return name.endsWith(".csv") || name.endsWith(".txt") ? Format.CSV : Format.BINARY;
+    }
+
+    public Path getPath() { return path; }
+    public Format getFormat() { return format; }
+
+    /**
+     * Visit all observations in file order.
+     * @param consumer receives the observations
+     */
+    public void forEach(DoubleConsumer consumer) {
+	Cursor c = cursor();
+	while (c.hasNext()) consumer.accept(c.next());
+    }
+
+    /**
+     * @return all observations in file order
+     */
+    public double[] readAll() {
+	double[] values = new double[1024];
+	int n = 0;
+	for (Cursor c = cursor(); c.hasNext(); ) {
+	    if (n == values.length) values = Arrays.copyOf(values, 2 * n);
+	    values[n++] = c.next();
+	}
+	return Arrays.copyOf(values, n);
+    }
+
+    /**
+     * @return a new sequential reader positioned at the first observation
+     */
+    public Cursor cursor() { return new Cursor(); }
+
+    /**
+     * Sequential reader over the observations of the file. Only one window of the file is mapped at a time.
+     */
+    public final class Cursor {
+	private final long size;
+	private MappedByteBuffer window;
+	private long windowStart;
+	private double pending;
+	private boolean hasPending;
+	private long position;  // observations returned so far
+
+	private Cursor() {
+	    try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+		this.size = ch.size();
+	    } catch (IOException e) {
+		throw new UncheckedIOException("Cannot open sample file " + path, e);
+	    }
+	    map(0);
+	}
+
+	private void map(long start) {
+	    try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+		long len = Math.min(WINDOW, size - start);
+		window = ch.map(FileChannel.MapMode.READ_ONLY, start, len);
+		window.order(ByteOrder.LITTLE_ENDIAN);
+		windowStart = start;
+	    } catch (IOException e) {
+		throw new UncheckedIOException("Cannot read sample file " + path, e);
+	    }
+	}
+
+	/**
+	 * @return whether another observation follows
+	 */
+	public boolean hasNext() {
+	    while (!hasPending) {
+		if (!advance()) return false;
+	    }
+	    return true;
+	}
+
+	/**
+	 * @return the next observation
+	 */
+	public double next() {
+	    if (!hasNext()) throw new NoSuchElementException("End of sample file " + path);
+	    hasPending = false;
+	    position++;
+	    return pending;
+	}
+
+	/**
+	 * @return the number of observations returned so far
+	 */
+	public long getPosition() { return position; }
+
+	/**
+	 * Skip observations, at most to the end of the file.
+	 * @param n number of observations to skip
+	 */
+	public void skip(long n) {
+	    for (long i = 0; i < n && hasNext(); i++) next();
+	}
+
+	// read the next raw record into pending; false at the end of the file
+	private boolean advance() {
+	    if (format == Format.BINARY) {
+		if (window.remaining() < 8) {
+		    long next = windowStart + window.position();
+		    if (size - next < 8) return false;
+		    map(next);
+		}
+		double v = window.getDouble();
+		if (!Double.isNaN(v)) {
+		    pending = v;
+		    hasPending = true;
+		}
+		return true;
+	    }
+	    return advanceCsv();
+	}
+
+	private boolean advanceCsv() {
+	    int lineStart = window.position();
+	    int end = lineStart;
+	    while (end < window.limit() && window.get(end) != '\n') end++;
+	    if (end == window.limit() && windowStart + end < size) {
+		// the line continues in the next window
+		if (lineStart == 0) throw new UncheckedIOException(new IOException("Line too long in " + path));
+		map(windowStart + lineStart);
+		return true;
+	    }
+	    if (lineStart == end && end == window.limit()) return false;
+	    window.position(Math.min(end + 1, window.limit()));
+	    parseField(lineStart, end);
+	    return true;
+	}
+
+	private void parseField(int lineStart, int lineEnd) {
+	    int field = 0, from = lineStart;
+	    for (int i = lineStart; i <= lineEnd; i++) {
+		if (i == lineEnd || window.get(i) == ',' || window.get(i) == ';') {
+		    if (field == column) {
+			byte[] b = new byte[i - from];
+			window.get(from, b);
+			String s = new String(b, StandardCharsets.US_ASCII).trim();
+			try {
+			    double v = Double.parseDouble(s);
+			    if (!Double.isNaN(v)) {
+				pending = v;
+				hasPending = true;
+			    }
+			} catch (NumberFormatException e) {
+			    // header or comment line
+			}
+			return;
+		    }
+		    field++;
+		    from = i + 1;
+		}
+	    }
+	}
+    }
+}
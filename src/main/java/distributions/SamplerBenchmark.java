@@ -0,0 +1,92 @@
+package distributions;
+
+/**
+ * A small throughput benchmark of the uniform sources and of the hot samplers drawing from them.
+ * Run with <code>java distributions.SamplerBenchmark [samples] [source]</code>; every measurement is
+ * repeated after a warm-up and reported in nanoseconds per sample. Measure one source per JVM
+ * for comparable numbers, otherwise the call sites become megamorphic and all sources slow down.
+ * The second table draws the same variates through the bulk <code>sample(double[], int, int)</code>,
+ * the third one through a {@link PrefetchingGenerator}, whose gain depends on a free core for its helper.
+ */
+public class SamplerBenchmark {
+    private static double sink; // keeps the JIT from removing the loops
+
+    /**
+     * @param gen generator to measure
+     * @param n number of samples per round
+     * @return nanoseconds per sample of the best of five rounds
+     */
+    public static double measure(ContinuousGenerator gen, int n) {
+	double best = Double.MAX_VALUE;
+	for (int round = 0; round < 7; round++) {
+	    long t0 = System.nanoTime();
+	    double s = 0.0;
+	    for (int i = 0; i < n; i++) s += gen.sample();
+	    long t1 = System.nanoTime();
+	    sink += s;
+	    if (round >= 2) best = Math.min(best, (double) (t1 - t0) / n); // two warm-up rounds
+	}
+	return best;
+    }
+
+    /**
+     * @param gen generator to measure
+     * @param n number of samples per round, drawn in blocks of 4096 with the bulk method
+     * @return nanoseconds per sample of the best of five rounds
+     */
+    public static double measureBulk(ContinuousGenerator gen, int n) {
+	double[] block = new double[4096];
+	double best = Double.MAX_VALUE;
+	for (int round = 0; round < 7; round++) {
+	    long t0 = System.nanoTime();
+	    double s = 0.0;
+	    for (int i = 0; i < n; i += block.length) {
+		gen.sample(block, 0, block.length);
+		s += block[i & 4095];
+	    }
+	    long t1 = System.nanoTime();
+	    sink += s;
+	    if (round >= 2) best = Math.min(best, (double) (t1 - t0) / n);
+	}
+	return best;
+    }
+
+    private static ContinuousGenerator using(Generator gen, RandomSource source, SamplingMethod method) {
+	gen.setSource(source.create(4851L));
+	gen.setMethod(method);
+	return (ContinuousGenerator) gen;
+    }
+
+    public static void main(String[] args) {
+	int n = args.length > 0 ? Integer.parseInt(args[0]) : 20_000_000;
+	System.out.printf("%-22s %10s %10s %10s %10s %10s%n", "source", "uniform", "negexp", "negexp-zig", "normal", "normal-zig");
+	RandomSource[] sources = args.length > 1 ? new RandomSource[]{RandomSource.valueOf(args[1])} : RandomSource.values();
+	for (RandomSource source : sources) {
+	    System.out.printf("%-22s %10.2f %10.2f %10.2f %10.2f %10.2f%n", source,
+		    measure(source.create(4851L), n),
+		    measure(using(new Negexp(1.0, 1L), source, SamplingMethod.REFERENCE), n),
+		    measure(using(new Negexp(1.0, 1L), source, SamplingMethod.FAST), n),
+		    measure(using(new Normal(0.0, 1.0, 1L), source, SamplingMethod.REFERENCE), n),
+		    measure(using(new Normal(0.0, 1.0, 1L), source, SamplingMethod.FAST), n));
+	}
+	System.out.printf("%nbulk, vector API %s%n", BulkSampling.VECTOR ? "on" : "off (run with --add-modules jdk.incubator.vector)");
+	System.out.printf("%-22s %10s %10s %10s %10s%n", "source", "uniform", "negexp", "normal", "normal-zig");
+	for (RandomSource source : sources) {
+	    System.out.printf("%-22s %10.2f %10.2f %10.2f %10.2f%n", source,
+		    measureBulk(source.create(4851L), n),
+		    measureBulk(using(new Negexp(1.0, 1L), source, SamplingMethod.REFERENCE), n),
+		    measureBulk(using(new Normal(0.0, 1.0, 1L), source, SamplingMethod.REFERENCE), n),
+		    measureBulk(using(new Normal(0.0, 1.0, 1L), source, SamplingMethod.FAST), n));
+	}
+	System.out.printf("%nsample() through PrefetchingGenerator, %d cores%n", Runtime.getRuntime().availableProcessors());
+	System.out.printf("%-22s %10s %10s %10s %10s%n", "source", "negexp", "negexp-zig", "normal", "normal-zig");
+	for (RandomSource source : sources) {
+	    System.out.printf("%-22s %10.2f %10.2f %10.2f %10.2f%n", source,
+		    measure(new PrefetchingGenerator(using(new Negexp(1.0, 1L), source, SamplingMethod.REFERENCE)), n),
+		    measure(new PrefetchingGenerator(using(new Negexp(1.0, 1L), source, SamplingMethod.FAST)), n),
+		    measure(new PrefetchingGenerator(using(new Normal(0.0, 1.0, 1L), source, SamplingMethod.REFERENCE)), n),
+		    measure(new PrefetchingGenerator(using(new Normal(0.0, 1.0, 1L), source, SamplingMethod.FAST)), n));
+	}
+	if (sink == 42.0) System.out.println(); // never true in practice
+    }
+}
@@ -0,0 +1,23 @@
+package distributions;
+
+/**
+ * Algorithm family used by the generators that offer more than one.
+ * <ul>
+ * <li><code>REFERENCE</code>: the original textbook algorithms of {@link Distributions}
+ *     (Box-Muller, inversion with <code>log</code>, ...), corrected where they did not draw the stated
+ *     distribution.</li>
+ * <li><code>FAST</code>: equivalent in distribution but cheaper per sample, e.g. the {@link Ziggurat}
+ *     samplers for <code>Normal</code> and <code>Negexp</code> and the O(1) expected time
+ *     {@link RejectionSamplers} for the gamma family, <code>Binomial</code> and <code>Poisson</code>.</li>
+ * <li><code>INVERSION</code>: one uniform per variate through the inverse distribution function, so
+ *     that the variate is a monotone function of the uniform, as antithetic variates and quasi-Monte
+ *     Carlo sources need; discrete generators search their distribution function. Generators whose
+ *     reference algorithm already inverts (e.g. <code>Negexp</code>, <code>Weibull</code>,
+ *     <code>Empirical</code>) use it for this method as well.</li>
+ * </ul>
+ */
+public enum SamplingMethod {
+    REFERENCE,
+    FAST,
+    INVERSION
+}
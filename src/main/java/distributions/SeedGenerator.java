@@ -6,6 +6,7 @@ package distributions;
 public class SeedGenerator implements DiscreteGenerator {
     private static long root = 4851L; // The root seed
     private int spacing;
+    private long jump; // a^spacing mod m, skips spacing values in one step
     private boolean not_sampled = true; // to use the assigned seed (id Costas)
     private RandomGenerator source;
 
@@ -13,23 +14,28 @@ public class SeedGenerator implements DiscreteGenerator {
     public SeedGenerator (long seed, int spacing) { 
 	source = new RandomGenerator(seed);
 	this.spacing = spacing;
+	this.jump = RandomGenerator.multiplierFor(spacing);
     }
 
     // ----- implements Seedable { -----
-    public void setSeed(long seed) { source.setSeed(seed); not_sampled=true; }
-    public long getSeed() { return source.getSeed(); }
-    public void reseed() { source.reseed(); not_sampled=true; }
+    public synchronized void setSeed(long seed) { source.setSeed(seed); not_sampled=true; }
+    public synchronized long getSeed() { return source.getSeed(); }
+    public synchronized void reseed() { source.reseed(); not_sampled=true; }
     // ----- } implements Seedable -----
 
     // ----- implements DiscreteGenerator { -----
-    public long sample() {
+    /**
+     * Thread-safe; skipping the <code>spacing</code> values costs a single multiplication.
+     * @return The next well-spaced seed
+     */
+    public synchronized long sample() {
 	if (not_sampled) not_sampled = false;
 	else
-	    for (int i=0; i<spacing; i++) source.nextLong();
-	return getSeed();
+	    source.setSeed(source.getSeed() * jump % RandomGenerator.m);
+	return source.getSeed();
     }
 
-    private static SeedGenerator defaut = new SeedGenerator();
+    private static volatile SeedGenerator defaut = new SeedGenerator();
     // package: accessible only from the generators within the package
     static SeedGenerator getDefaultSeedGenerator() { return defaut; }
     static void setDefaultSeedGenerator(long seed, int spacing) {
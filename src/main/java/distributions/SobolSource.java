@@ -0,0 +1,133 @@
+package distributions;
+
+import java.util.Objects;
+import java.util.SplittableRandom;
+
+/**
+ * One coordinate of one point of a scrambled Sobol sequence, used as a uniform source; see
+ * {@link QuasiRandomSequence} for how replications and inputs map onto points and coordinates.
+ * <p>
+ * The direction numbers are those of Joe and Kuo (2008) for the first {@value #MAX_DIMENSION}
+ * coordinates, with 64-bit resolution. The coordinate is scrambled with a random lower-triangular
+ * binary matrix (Matou&scaron;ek 1998) and every sample is it XORed with the next 64-bit random
+ * shift, so each sample is uniform on its own and the samples of one source are independent.
+ */
+public class SobolSource implements ContinuousGenerator {
+    public static final int MAX_DIMENSION = 21;
+
+    // degree s, coefficients a and initial direction numbers m of the primitive polynomial of dimensions 2, 3, ...
+    private static final int[][] JOE_KUO = {
+	{1, 0, 1},
+	{2, 1, 1, 3},
+	{3, 1, 1, 3, 1},
+	{3, 2, 1, 1, 1},
+	{4, 1, 1, 1, 3, 3},
+	{4, 4, 1, 3, 5, 13},
+	{5, 2, 1, 1, 5, 5, 17},
+	{5, 4, 1, 1, 5, 5, 5},
+	{5, 7, 1, 1, 7, 11, 19},
+	{5, 11, 1, 1, 5, 1, 1},
+	{5, 13, 1, 1, 1, 3, 11},
+	{5, 14, 1, 3, 5, 5, 31},
+	{6, 1, 1, 3, 3, 9, 7, 49},
+	{6, 13, 1, 1, 1, 15, 21, 21},
+	{6, 16, 1, 3, 1, 13, 27, 49},
+	{6, 19, 1, 1, 1, 15, 7, 5},
+	{6, 22, 1, 3, 1, 15, 13, 25},
+	{6, 25, 1, 1, 5, 5, 19, 61},
+	{7, 1, 1, 3, 7, 11, 23, 15, 103},
+	{7, 4, 1, 3, 7, 13, 13, 15, 69}
+    };
+
+    private final int dimension;
+    private final long point;
+    private final long coordinate; // unscrambled, bit 63 is 1/2
+    private long seed;
+    private long scrambled;
+    private SplittableRandom shifts;
+
+    /**
+     * @param dimension The coordinate, 0 to <code>MAX_DIMENSION - 1</code>
+     * @param point The index of the point, not negative
+     * @param seed The randomization; sources with the same seed share the scrambling and the shifts
+     */
+    public SobolSource(int dimension, long point, long seed) {
+	if (dimension < 0 || dimension >= MAX_DIMENSION)
+	    throw new ParameterException("SobolSource: The dimension must be in [0, " + MAX_DIMENSION + ").");
+	if (point < 0)
+	    throw new ParameterException("SobolSource: The point must not be negative.");
+	this.dimension = dimension;
+	this.point = point;
+	this.coordinate = coordinate(directions(dimension), point);
+	setSeed(seed);
+    }
+
+    /**
+     * @param dimension The coordinate
+     * @return The 64 direction numbers of the coordinate, bit 63 of <code>v[0]</code> is 1/2
+     */
+    static long[] directions(int dimension) {
+	long[] v = new long[64];
+	if (dimension == 0) {
+	    for (int i = 0; i < 64; i++) v[i] = 1L << (63 - i);
+	    return v;
+	}
+	int[] p = JOE_KUO[dimension - 1];
+	int s = p[0], a = p[1];
+	for (int i = 0; i < s; i++) v[i] = (long) p[2 + i] << (63 - i);
+	for (int i = s; i < 64; i++) {
+	    v[i] = v[i - s] ^ (v[i - s] >>> s);
+	    for (int k = 1; k < s; k++) {
+		if (((a >>> (s - 1 - k)) & 1) != 0) v[i] ^= v[i - k];
+	    }
+	}
+	return v;
+    }
+
+    private static long coordinate(long[] v, long n) {
+	long x = 0;
+	for (int i = 0; n != 0; i++, n >>>= 1) {
+	    if ((n & 1) != 0) x ^= v[i];
+	}
+	return x;
+    }
+
+    // output digit i (from the top) is digit i plus a random combination of the digits above it
+    private static long scramble(long x, SplittableRandom rnd) {
+	long y = 0;
+	for (int i = 0; i < 64; i++) {
+	    long bit = 1L << (63 - i);
+	    long row = bit | (rnd.nextLong() & -(bit << 1)); // diagonal and random bits above it
+	    y |= (Long.bitCount(row & x) & 1L) << (63 - i);
+	}
+	return y;
+    }
+
+    // ----- implements ContinuousGenerator { -----
+    public double sample() {
+	return (((scrambled ^ shifts.nextLong()) >>> 11) + 0.5) * 0x1.0p-53;
+    }
+
+    public void sample(double[] out, int off, int len) {
+	Objects.checkFromIndexSize(off, len, out.length);
+	for (int i = off; i < off + len; i++) out[i] = (((scrambled ^ shifts.nextLong()) >>> 11) + 0.5) * 0x1.0p-53;
+    }
+    // ----- } implements ContinuousGenerator -----
+
+    public int getDimension() { return dimension; }
+    public long getPoint() { return point; }
+
+    // ----- implements Seedable { -----
+    /**
+     * Draw a new scrambling and restart the stream of shifts.
+     */
+    public final void setSeed(long seed) {
+	this.seed = seed;
+	SplittableRandom rnd = new SplittableRandom(seed);
+	this.scrambled = scramble(coordinate, rnd.split());
+	this.shifts = rnd.split();
+    }
+    public long getSeed() { return seed; }
+    public final void reseed() { setSeed(SeedGenerator.getDefaultSeedGenerator().sample()); }
+    // ----- } implements Seedable -----
+}
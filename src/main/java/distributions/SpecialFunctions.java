@@ -0,0 +1,308 @@
+package distributions;
+
+/**
+ * Numerical approximations of the special functions behind the distribution functions of
+ * {@link Invertible} generators.
+ */
+public final class SpecialFunctions {
+    private static final double SQRT_2PI = 2.50662827463100050242;
+
+    // Acklam's rational approximation of the normal quantile
+    private static final double[] A = { -3.969683028665376e+01, 2.209460984245205e+02, -2.759285104469687e+02,
+					1.383577518672690e+02, -3.066479806614716e+01, 2.506628277459239e+00 };
+    private static final double[] B = { -5.447609879822406e+01, 1.615858368580409e+02, -1.556989798598866e+02,
+					6.680131188771972e+01, -1.328068155288572e+01 };
+    private static final double[] C = { -7.784894002430293e-03, -3.223964580411365e-01, -2.400758277161838e+00,
+					-2.549732539343734e+00, 4.374664141464968e+00, 2.938163982698783e+00 };
+    private static final double[] D = { 7.784695709041462e-03, 3.224671290700398e-01, 2.445134137142996e+00,
+					3.754408661907416e+00 };
+    private static final double P_LOW = 0.02425;
+
+    // Lanczos approximation of log Gamma (g = 671/128), as in Numerical Recipes, 3rd ed.
+    private static final double[] LANCZOS = { 57.1562356658629235, -59.5979603554754912, 14.1360979747417471,
+					      -0.491913816097620199, 0.339946499848118887e-4, 0.465236289270485756e-4,
+					      -0.983744753048795646e-4, 0.158088703224912494e-3, -0.210264441724104883e-3,
+					      0.217439618115212643e-3, -0.164318106536763890e-3, 0.844182239838527433e-4,
+					      -0.261908384015814087e-4, 0.368991826595316234e-5 };
+    private static final double EPS = 1e-15;
+    private static final double FPMIN = Double.MIN_NORMAL / EPS;
+    private static final int MAX_ITERATIONS = 100_000;
+
+    private SpecialFunctions() {}
+
+    /**
+     * The standard normal distribution function, with the rational approximation of Hart (1968)
+     * as given by West (2005): absolute error below 1e-15, relative error about 1e-9 in the far tails.
+     * @param x A value
+     * @return &Phi;(x)
+     */
+    public static double normalCdf(double x) {
+	double z = Math.abs(x), c;
+	if (z > 37.0) {
+	    c = 0.0;
+	} else {
+	    double e = Math.exp(-z * z / 2.0);
+	    if (z < 7.07106781186547) {
+		double n = 3.52624965998911e-02 * z + 0.700383064443688;
+		n = n * z + 6.37396220353165;
+		n = n * z + 33.912866078383;
+		n = n * z + 112.079291497871;
+		n = n * z + 221.213596169931;
+		n = n * z + 220.206867912376;
+		double d = 8.83883476483184e-02 * z + 1.75566716318264;
+		d = d * z + 16.064177579207;
+		d = d * z + 86.7807322029461;
+		d = d * z + 296.564248779674;
+		d = d * z + 637.333633378831;
+		d = d * z + 793.826512519948;
+		d = d * z + 440.413735824752;
+		c = e * n / d;
+	    } else {
+		double d = z + 0.65;
+		d = z + 4.0 / d;
+		d = z + 3.0 / d;
+		d = z + 2.0 / d;
+		d = z + 1.0 / d;
+		c = e / d / SQRT_2PI;
+	    }
+	}
+	return x > 0.0 ? 1.0 - c : c;
+    }
+
+    /**
+     * The standard normal quantile: the approximation of Acklam (relative error 1.15e-9),
+     * refined by one step of Halley's method so that it inverts {@link #normalCdf}.
+     * @param p A probability in [0, 1]
+     * @return &Phi;<sup>-1</sup>(p), infinite for 0 and 1
+     */
+    public static double normalQuantile(double p) {
+	if (p <= 0.0) return p == 0.0 ? Double.NEGATIVE_INFINITY : Double.NaN;
+	if (p >= 1.0) return p == 1.0 ? Double.POSITIVE_INFINITY : Double.NaN;
+	double x;
+	if (p < P_LOW) {
+	    double q = Math.sqrt(-2.0 * Math.log(p));
+	    x = (((((C[0]*q + C[1])*q + C[2])*q + C[3])*q + C[4])*q + C[5])
+		/ ((((D[0]*q + D[1])*q + D[2])*q + D[3])*q + 1.0);
+	} else if (p <= 1.0 - P_LOW) {
+	    double q = p - 0.5, r = q * q;
+	    x = (((((A[0]*r + A[1])*r + A[2])*r + A[3])*r + A[4])*r + A[5])*q
+		/ (((((B[0]*r + B[1])*r + B[2])*r + B[3])*r + B[4])*r + 1.0);
+	} else {
+	    double q = Math.sqrt(-2.0 * Math.log1p(-p));
+	    x = -(((((C[0]*q + C[1])*q + C[2])*q + C[3])*q + C[4])*q + C[5])
+		/ ((((D[0]*q + D[1])*q + D[2])*q + D[3])*q + 1.0);
+	}
+	// the upper tail is refined on the lower one, where the cdf keeps its precision
+	double e = x > 0.0 ? (1.0 - p) - normalCdf(-x) : normalCdf(x) - p;
+	double u = e * SQRT_2PI * Math.exp(x * x / 2.0);
+	return x - u / (1.0 + x * u / 2.0);
+    }
+
+    /**
+     * @param x A value &gt; 0
+     * @return log &Gamma;(x), with a relative error of about 1e-15
+     */
+    public static double logGamma(double x) {
+	double y = x, tmp = x + 5.24218750000000000;
+	tmp = (x + 0.5) * Math.log(tmp) - tmp;
+	double ser = 0.999999999999997092;
+	for (double c : LANCZOS) ser += c / ++y;
+	return tmp + Math.log(SQRT_2PI * ser / x);
+    }
+
+    /**
+     * The derivative of log &Gamma;, by the recurrence up to 6 and the asymptotic series above.
+     * @param x A value &gt; 0
+     * @return &psi;(x), with a relative error of about 1e-14
+     */
+    public static double digamma(double x) {
+	double r = 0.0;
+	for (; x < 6.0; x++) r -= 1.0 / x;
+	double f = 1.0 / (x * x);
+	return r + Math.log(x) - 0.5 / x
+	    - f * (1.0 / 12 - f * (1.0 / 120 - f * (1.0 / 252 - f * (1.0 / 240 - f / 132))));
+    }
+
+    /**
+     * The second derivative of log &Gamma;, by the recurrence up to 6 and the asymptotic series above.
+     * @param x A value &gt; 0
+     * @return &psi;'(x), with a relative error of about 1e-14
+     */
+    public static double trigamma(double x) {
+	double r = 0.0;
+	for (; x < 6.0; x++) r += 1.0 / (x * x);
+	double f = 1.0 / (x * x);
+	return r + 1.0 / x + f / 2.0
+	    + f / x * (1.0 / 6 - f * (1.0 / 30 - f * (1.0 / 42 - f * (1.0 / 30 - f * 5.0 / 66))));
+    }
+
+    /**
+     * The regularized lower incomplete gamma function, by its series below <code>a + 1</code>
+     * and its continued fraction above.
+     * @param a The shape, &gt; 0
+     * @param x A value &ge; 0
+     * @return P(a, x), the distribution function of Gamma(a, 1) at <code>x</code>
+     */
+    public static double gammaP(double a, double x) {
+	if (x <= 0.0) return 0.0;
+	if (x == Double.POSITIVE_INFINITY) return 1.0;
+	return x < a + 1.0 ? gammaSeries(a, x) : 1.0 - gammaFraction(a, x);
+    }
+
+    /**
+     * @param a The shape, &gt; 0
+     * @param x A value &ge; 0
+     * @return Q(a, x) = 1 - P(a, x), without the cancellation of the subtraction
+     */
+    public static double gammaQ(double a, double x) {
+	if (x <= 0.0) return 1.0;
+	if (x == Double.POSITIVE_INFINITY) return 0.0;
+	return x < a + 1.0 ? 1.0 - gammaSeries(a, x) : gammaFraction(a, x);
+    }
+
+    private static double gammaSeries(double a, double x) {
+	double ap = a, del = 1.0 / a, sum = del;
+	for (int i = 0; i < MAX_ITERATIONS && Math.abs(del) >= Math.abs(sum) * EPS; i++) {
+	    del *= x / ++ap;
+	    sum += del;
+	}
+	return sum * Math.exp(-x + a * Math.log(x) - logGamma(a));
+    }
+
+    // modified Lentz evaluation of the continued fraction of Q(a, x)
+    private static double gammaFraction(double a, double x) {
+	double b = x + 1.0 - a, c = 1.0 / FPMIN, d = 1.0 / b, h = d;
+	for (int i = 1; i < MAX_ITERATIONS; i++) {
+	    double an = -i * (i - a);
+	    b += 2.0;
+	    d = an * d + b;
+	    if (Math.abs(d) < FPMIN) d = FPMIN;
+	    c = b + an / c;
+	    if (Math.abs(c) < FPMIN) c = FPMIN;
+	    d = 1.0 / d;
+	    double del = d * c;
+	    h *= del;
+	    if (Math.abs(del - 1.0) <= EPS) break;
+	}
+	return Math.exp(-x + a * Math.log(x) - logGamma(a)) * h;
+    }
+
+    /**
+     * The inverse of {@link #gammaP} in <code>x</code>: the initial guess of Numerical Recipes
+     * (Wilson-Hilferty for <code>a &gt; 1</code>), refined with Halley's method.
+     * @param a The shape, &gt; 0
+     * @param p A probability in [0, 1]
+     * @return x with P(a, x) = p, infinite for 1
+     */
+    public static double gammaQuantile(double a, double p) {
+	if (p <= 0.0) return p == 0.0 ? 0.0 : Double.NaN;
+	if (p >= 1.0) return p == 1.0 ? Double.POSITIVE_INFINITY : Double.NaN;
+	double gln = logGamma(a), a1 = a - 1.0, lna1 = 0.0, afac = 0.0, x;
+	if (a > 1.0) {
+	    lna1 = Math.log(a1);
+	    afac = Math.exp(a1 * (lna1 - 1.0) - gln);
+	    double z = normalQuantile(p);
+	    x = Math.max(1e-3, a * Math.pow(1.0 - 1.0 / (9.0 * a) + z / (3.0 * Math.sqrt(a)), 3));
+	} else {
+	    double t = 1.0 - a * (0.253 + a * 0.12);
+	    x = p < t ? Math.pow(p / t, 1.0 / a) : 1.0 - Math.log1p(-(p - t) / (1.0 - t));
+	}
+	for (int j = 0; j < 20; j++) {
+	    if (x <= 0.0) return 0.0;
+	    // the upper tail is refined on Q, where it keeps its precision
+	    double err = p > 0.5 ? (1.0 - p) - gammaQ(a, x) : gammaP(a, x) - p;
+	    double t = a > 1.0 ? afac * Math.exp(-(x - a1) + a1 * (Math.log(x) - lna1)) : Math.exp(-x + a1 * Math.log(x) - gln);
+	    if (t == 0.0) break;
+	    double u = err / t;
+	    double step = u / (1.0 - 0.5 * Math.min(1.0, u * ((a - 1.0) / x - 1.0)));
+	    x -= step;
+	    if (x <= 0.0) x = 0.5 * (x + step);
+	    if (Math.abs(step) <= 1e-14 * x) break;
+	}
+	return x;
+    }
+
+    /**
+     * The regularized incomplete beta function, by its continued fraction.
+     * @param a The first shape, &gt; 0
+     * @param b The second shape, &gt; 0
+     * @param x A value in [0, 1]
+     * @return I<sub>x</sub>(a, b), the distribution function of Beta(a, b) at <code>x</code>
+     */
+    public static double betaI(double a, double b, double x) {
+	if (x <= 0.0) return 0.0;
+	if (x >= 1.0) return 1.0;
+	double bt = Math.exp(logGamma(a + b) - logGamma(a) - logGamma(b) + a * Math.log(x) + b * Math.log1p(-x));
+	if (x < (a + 1.0) / (a + b + 2.0)) return bt * betaFraction(a, b, x) / a;
+	return 1.0 - bt * betaFraction(b, a, 1.0 - x) / b;
+    }
+
+    private static double betaFraction(double a, double b, double x) {
+	double qab = a + b, qap = a + 1.0, qam = a - 1.0, c = 1.0, d = 1.0 - qab * x / qap;
+	if (Math.abs(d) < FPMIN) d = FPMIN;
+	d = 1.0 / d;
+	double h = d;
+	for (int m = 1; m < MAX_ITERATIONS; m++) {
+	    int m2 = 2 * m;
+	    double aa = m * (b - m) * x / ((qam + m2) * (a + m2));
+	    d = 1.0 + aa * d;
+	    if (Math.abs(d) < FPMIN) d = FPMIN;
+	    c = 1.0 + aa / c;
+	    if (Math.abs(c) < FPMIN) c = FPMIN;
+	    d = 1.0 / d;
+	    h *= d * c;
+	    aa = -(a + m) * (qab + m) * x / ((a + m2) * (qap + m2));
+	    d = 1.0 + aa * d;
+	    if (Math.abs(d) < FPMIN) d = FPMIN;
+	    c = 1.0 + aa / c;
+	    if (Math.abs(c) < FPMIN) c = FPMIN;
+	    d = 1.0 / d;
+	    double del = d * c;
+	    h *= del;
+	    if (Math.abs(del - 1.0) <= EPS) break;
+	}
+	return h;
+    }
+
+    /**
+     * The inverse of {@link #betaI} in <code>x</code>: the initial guess of Numerical Recipes,
+     * refined with Halley's method.
+     * @param a The first shape, &gt; 0
+     * @param b The second shape, &gt; 0
+     * @param p A probability in [0, 1]
+     * @return x with I<sub>x</sub>(a, b) = p
+     */
+    public static double betaQuantile(double a, double b, double p) {
+	if (p <= 0.0) return p == 0.0 ? 0.0 : Double.NaN;
+	if (p >= 1.0) return p == 1.0 ? 1.0 : Double.NaN;
+	double a1 = a - 1.0, b1 = b - 1.0, x;
+	if (a >= 1.0 && b >= 1.0) {
+	    double z = normalQuantile(p);
+	    double al = (z * z - 3.0) / 6.0;
+	    double h = 2.0 / (1.0 / (2.0 * a - 1.0) + 1.0 / (2.0 * b - 1.0));
+	    double w = (z * Math.sqrt(al + h) / h) - (1.0 / (2.0 * b - 1.0) - 1.0 / (2.0 * a - 1.0)) * (al + 5.0 / 6.0 - 2.0 / (3.0 * h));
+	    x = a / (a + b * Math.exp(2.0 * w));
+	} else {
+	    double lna = Math.log(a / (a + b)), lnb = Math.log(b / (a + b));
+	    double t = Math.exp(a * lna) / a, u = Math.exp(b * lnb) / b, w = t + u;
+	    x = p < t / w ? Math.pow(a * w * p, 1.0 / a) : 1.0 - Math.pow(b * w * (1.0 - p), 1.0 / b);
+	}
+	double afac = -logGamma(a) - logGamma(b) + logGamma(a + b);
+	// Halley steps kept inside a bracket of the root, which falls back to bisection from poor guesses
+	double lo = 0.0, hi = 1.0;
+	for (int j = 0; j < 200; j++) {
+	    if (x == 0.0 || x == 1.0) return x;
+	    double err = betaI(a, b, x) - p;
+	    if (err < 0.0) lo = x; else hi = x;
+	    double t = Math.exp(a1 * Math.log(x) + b1 * Math.log1p(-x) + afac);
+	    double u = err / t;
+	    double next = x - u / (1.0 - 0.5 * Math.min(1.0, u * (a1 / x - b1 / (1.0 - x))));
+	    if (!(next > lo && next < hi)) next = 0.5 * (lo + hi);
+	    double step = x - next;
+	    x = next;
+	    double scale = Math.min(x, 1.0 - x);
+	    if (Math.abs(step) <= 1e-14 * scale || hi - lo <= 1e-15 * scale) break;
+	}
+		return x;
+    }
+}
@@ -0,0 +1,72 @@
+package distributions;
+
+import java.nio.file.Path;
+
+/**
+ * Replays the observations of a <code>SampleFile</code> exactly, in file order, e.g. to drive a run
+ * with the service durations logged in a shop. The file is streamed through memory-mapped windows
+ * and never loaded as a whole. After the last observation the replay starts over from the first
+ * one, or fails if <code>wrap</code> is off; without wrapping the file may be empty, e.g. a recording
+ * (see <code>RecordingGenerator</code>) of a generator that was never drawn from.
+ * <p>
+ * There is no random number generator involved: the seed is the number of observations to skip
+ * from the start of the file, so replications can replay different parts of a long trace.
+ * @see Empirical for sampling from the distribution of the observations
+ */
+public class TraceReplay implements ContinuousGenerator {
+    private final SampleFile file;
+    private final boolean wrap;
+    private SampleFile.Cursor cursor;
+    private long offset;
+
+    /**
+     * Replay from the first observation, starting over at the end.
+     * @param file The observations, see <code>SampleFile</code> for the formats
+     */
+    public TraceReplay(Path file) {
+	this(new SampleFile(file), true, 0L);
+    }
+
+    /**
+     * @param file The observations
+     * @param wrap Whether to start over after the last observation
+     * @param offset The number of observations to skip first
+     */
+    public TraceReplay(SampleFile file, boolean wrap, long offset) {
+	this.file = file;
+	this.wrap = wrap;
+	setSeed(offset);
+	if (wrap && !cursor.hasNext() && !file.cursor().hasNext())
+	    throw new ParameterException("TraceReplay: The file " + file.getPath() + " holds no observations.");
+    }
+
+    // ----- implements ContinuousGenerator { -----
+    public double sample() {
+	if (!cursor.hasNext()) {
+	    if (!wrap) throw new IllegalStateException("TraceReplay: All observations of " + file.getPath() + " were replayed.");
+	    cursor = file.cursor();
+	}
+	return cursor.next();
+    }
+    // ----- } implements ContinuousGenerator -----
+
+    /**
+     * @return The number of observations read since the start of the file or the last wrap
+     */
+    public long getPosition() { return cursor.getPosition(); }
+
+    // ----- implements Seedable { -----
+    /** Restart the replay <code>seed</code> observations after the start of the file. */
+    public final void setSeed(long seed) {
+	if (seed < 0)
+	    throw new ParameterException("TraceReplay: The offset must not be negative.");
+	this.offset = seed;
+	cursor = file.cursor();
+	cursor.skip(seed);
+    }
+    /** @return The offset the replay started from */
+    public long getSeed() { return offset; }
+    /** Restart the replay from the same offset. */
+    public final void reseed() { setSeed(offset); }
+    // ----- } implements Seedable -----
+}
@@ -0,0 +1,98 @@
+package distributions;
+
+import java.util.Objects;
+
+/**
+ * A generator for a distribution truncated to <code>[lower, upper]</code> by inversion: a uniform is
+ * mapped onto <code>[F(lower), F(upper)]</code> and through the inverse distribution function of an
+ * {@link Invertible} generator. Every sample costs one uniform and one quantile, however much
+ * probability the bounds cut off; a rejection loop would slow down as the bounds narrow. One
+ * uniform per sample also keeps antithetic and quasi-random sources in step, so the sampling method
+ * of the wrapped generator is not used.
+ * <p>
+ * Distributions without an inverse are truncated through a quantile {@link #table}.
+ */
+public class Truncated implements ContinuousGenerator {
+    /** Number of pilot samples in the bounds from which a table is built */
+    public static final int PILOT = 1 << 18;
+    /** Pilot samples drawn at most for a table, i.e. the bounds must hold 1/64 of the probability */
+    public static final long MAX_PILOT = 64L * PILOT;
+
+    private final Generator base;
+    private final Invertible inverse;
+    private final double lower, upper;
+    private final double from, width;
+
+    /**
+     * @param base An <code>Invertible</code> generator; its uniform source drives the samples
+     * @param lower The lower bound, may be <code>-Infinity</code>
+     * @param upper The upper bound, may be <code>Infinity</code>
+     */
+    public Truncated(Generator base, double lower, double upper) {
+	if (!(base instanceof Invertible))
+	    throw new ParameterException("Truncated: The distribution has no inverse distribution function.");
+	if (!(lower < upper))
+	    throw new ParameterException("Truncated: The lower bound must be less than the upper bound.");
+	this.base = base;
+	this.inverse = (Invertible) base;
+	this.lower = lower;
+	this.upper = upper;
+	this.from = inverse.cdf(lower);
+	this.width = inverse.cdf(upper) - from;
+	if (!(width > 0.0))
+	    throw new ParameterException("Truncated: The bounds hold no probability.");
+    }
+
+    /**
+     * A quantile table of a distribution truncated to <code>[lower, upper]</code>, built from
+     * {@link #PILOT} samples of the distribution that fall in the bounds. The table is built once
+     * and shared, see <code>Empirical(Empirical, long)</code>; the rejection is paid only here.
+     * @param pilot The distribution to truncate
+     * @param lower The lower bound
+     * @param upper The upper bound
+     * @return A generator sampling from the table
+     */
+    public static Empirical table(ContinuousGenerator pilot, double lower, double upper) {
+	if (!(lower < upper))
+	    throw new ParameterException("Truncated: The lower bound must be less than the upper bound.");
+	double[] block = new double[4096], kept = new double[PILOT];
+	int n = 0;
+	for (long drawn = 0; n < PILOT; drawn += block.length) {
+	    if (drawn >= MAX_PILOT)
+		throw new ParameterException("Truncated: The bounds hold too little probability for a table.");
+	    pilot.sample(block, 0, block.length);
+	    for (int i = 0; i < block.length && n < PILOT; i++) {
+		if (block[i] >= lower && block[i] <= upper) kept[n++] = block[i];
+	    }
+	}
+	return new Empirical(kept, 0L);
+    }
+
+    // ----- implements ContinuousGenerator { -----
+    public double sample() {
+	return bound(inverse.quantile(from + width * base.getSource().sample()));
+    }
+
+    public void sample(double[] out, int off, int len) {
+	Objects.checkFromIndexSize(off, len, out.length);
+	base.getSource().sample(out, off, len);
+	for (int i = off; i < off + len; i++) out[i] = bound(inverse.quantile(from + width * out[i]));
+    }
+    // ----- } implements ContinuousGenerator -----
+
+    // rounding in the quantile must not leave the bounds
+    private double bound(double x) { return Math.max(lower, Math.min(upper, x)); }
+
+    /**
+     * @return The probability of the bounds under the untruncated distribution
+     */
+    public double getMass() { return width; }
+
+    // ----- implements Seedable { -----
+    public void setSeed(long seed) { base.setSeed(seed); }
+    public long getSeed() { return base.getSeed(); }
+    public void reseed() { base.reseed(); }
+    // ----- } implements Seedable -----
+
+    public String toString() { return "Truncated("+base.getClass().getSimpleName()+", "+lower+", "+upper+")"; }
+}
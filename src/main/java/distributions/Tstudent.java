@@ -6,7 +6,7 @@ package distributions;
   * @author F.Mallet from C.Simatos's original
   */
 
-public class Tstudent extends Generator implements ContinuousGenerator {
+public class Tstudent extends Generator implements ContinuousGenerator, Invertible {
     private long deg_freedom;
     /**
      * the seed is aumatically provided by the <code>SeedGenerator</code>
@@ -34,10 +34,26 @@ public class Tstudent extends Generator implements ContinuousGenerator {
     }
 
     /**
-     * Generate a new random number.
+     * Generate a new random number; <code>SamplingMethod.FAST</code> uses the Ziggurat normal and Marsaglia-Tsang gamma methods,
+     * <code>SamplingMethod.INVERSION</code> the numerically inverted distribution function.
      * @return The next random number in the sequence
      */
     public double sample() { 
-         return distrib.tstudent(deg_freedom);
+         if (method == SamplingMethod.INVERSION) return quantile(distrib.source.sample());
+         return method == SamplingMethod.FAST ? distrib.tstudentMarsagliaTsang(deg_freedom) : distrib.tstudent(deg_freedom);
     }
+
+    // ----- implements Invertible { -----
+    // through the incomplete beta function of deg_freedom / (deg_freedom + x^2), one tail at a time
+    public double cdf(double x) {
+        double tail = 0.5 * SpecialFunctions.betaI(0.5*deg_freedom, 0.5, deg_freedom / (deg_freedom + x*x));
+        return x < 0 ? tail : 1 - tail;
+    }
+    public double quantile(double p) {
+        if (p == 0.5) return 0.0;
+        double y = SpecialFunctions.betaQuantile(0.5*deg_freedom, 0.5, 2 * Math.min(p, 1-p));
+        double t = Math.sqrt(deg_freedom * (1/y - 1));
+        return p < 0.5 ? -t : t;
+    }
+    // ----- } implements Invertible -----
 }
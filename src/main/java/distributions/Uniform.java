@@ -6,7 +6,7 @@ package distributions;
   * @author F.Mallet from C.Simatos's original
   */
 
-public class Uniform extends Generator implements ContinuousGenerator {
+public class Uniform extends Generator implements ContinuousGenerator, Invertible {
     private double min;
     private double max;
     /**
@@ -42,4 +42,17 @@ public class Uniform extends Generator implements ContinuousGenerator {
     public double sample() { 
          return distrib.uniform(min, max);
     }
+
+    /**
+     * Generate the next <code>len</code> random numbers into <code>out</code> from one block of uniforms.
+     */
+    public void sample(double[] out, int off, int len) {
+        distrib.source.sample(out, off, len);
+        BulkSampling.affine(out, off, len, max-min, min);
+    }
+
+    // ----- implements Invertible { -----
+    public double cdf(double x) { return x <= min ? 0.0 : x >= max ? 1.0 : (x-min) / (max-min); }
+    public double quantile(double p) { return (max-min) * p + min; }
+    // ----- } implements Invertible -----
 }
@@ -0,0 +1,54 @@
+package distributions;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector API kernels behind {@link BulkSampling}. Only loaded when the <code>jdk.incubator.vector</code>
+ * module is present at run time; every kernel computes the same IEEE operations, in the same order,
+ * as the scalar loop it replaces, so the results are bit for bit identical.
+ */
+final class VectorKernels {
+    private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+    private static final int LANES = LONGS.length();
+
+    private VectorKernels() {}
+
+    /**
+     * Fill <code>out[off .. off+len)</code> with the next <code>len</code> values of a Lehmer generator.
+     * Lane <code>j</code> runs the sequence from <code>Y[j+1]</code> with the multiplier
+     * <code>a<sup>L</sup></code>, so consecutive lanes hold consecutive values.
+     * @return the last state written, the new seed of the generator
+     */
+    static long lehmer(long seed, double[] out, int off, int len) {
+	int blocks = len / LANES;
+	if (blocks < 2) return BulkSampling.lehmerScalar(seed, out, off, len);
+	long[] lanes = new long[LANES];
+	long y = seed;
+	for (int j = 0; j < LANES; j++) lanes[j] = y = y * RandomGenerator.a % RandomGenerator.m;
+	long stride = RandomGenerator.multiplierFor(LANES);
+	LongVector state = LongVector.fromArray(LONGS, lanes, 0);
+	LongVector m = LongVector.broadcast(LONGS, RandomGenerator.m);
+	int i = off;
+	for (int b = 0; ; b++, i += LANES) {
+	    ((DoubleVector) state.convert(VectorOperators.L2D, 0)).div((double) RandomGenerator.m).intoArray(out, i);
+	    if (b == blocks - 1) break;
+	    // y * a^L mod (2^31-1): fold the 62-bit product on the Mersenne modulus, then one conditional subtraction
+	    LongVector p = state.mul(stride);
+	    LongVector r = p.and(RandomGenerator.m).add(p.lanewise(VectorOperators.LSHR, 31));
+	    state = r.sub(m, r.compare(VectorOperators.GE, m));
+	}
+	return BulkSampling.lehmerScalar(state.lane(LANES - 1), out, i + LANES, len - blocks * LANES);
+    }
+
+    /** <code>out[i] = scale * out[i] + shift</code> */
+    static void affine(double[] out, int off, int len, double scale, double shift) {
+	int i = off, end = off + DOUBLES.loopBound(len);
+	for (; i < end; i += DOUBLES.length())
+	    DoubleVector.fromArray(DOUBLES, out, i).mul(scale).add(shift).intoArray(out, i);
+	for (; i < off + len; i++) out[i] = scale * out[i] + shift;
+    }
+}
@@ -6,7 +6,7 @@ package distributions;
   * @author F.Mallet. Adaptation of C.Simatos's original
   */
 
-public class Weibull extends Generator implements ContinuousGenerator {
+public class Weibull extends Generator implements ContinuousGenerator, Invertible {
     private double scale;
     private double shape;
     /**
@@ -42,4 +42,9 @@ public class Weibull extends Generator implements ContinuousGenerator {
     public double sample() { 
          return distrib.weibull(scale, shape);
     }
+
+    // ----- implements Invertible { -----
+    public double cdf(double x) { return x > 0 ? -Math.expm1(-Math.pow(x/scale, shape)) : 0.0; }
+    public double quantile(double p) { return scale * Math.pow(-Math.log1p(-p), 1/shape); }
+    // ----- } implements Invertible -----
 }
@@ -0,0 +1,94 @@
+package distributions;
+
+/**
+ * Ziggurat samplers for the standard normal and the standard exponential distribution
+ * (Marsaglia &amp; Tsang 2000, in the floating point form of Doornik 2005).
+ */
+final class Ziggurat {
+    // normal: 128 layers, tail start and layer area (Doornik 2005)
+    private static final int NC = 128;
+    private static final double NR = 3.442619855899;
+    private static final double NV = 9.91256303526217e-3;
+    private static final double[] NX = new double[NC + 1];
+    private static final double[] NRATIO = new double[NC];
+    private static final double[] NF = new double[NC + 1];
+
+    // exponential: 256 layers (Marsaglia & Tsang 2000)
+    private static final int EC = 256;
+    private static final double ER = 7.69711747013104972;
+    private static final double EV = 3.949659822581572e-3;
+    private static final double[] EX = new double[EC + 1];
+    private static final double[] ERATIO = new double[EC];
+    private static final double[] EF = new double[EC + 1];
+
+    static {
+	double f = Math.exp(-0.5 * NR * NR);
+	NX[0] = NV / f;
+	NX[1] = NR;
+	NX[NC] = 0.0;
+	for (int i = 2; i < NC; i++) {
+	    NX[i] = Math.sqrt(-2.0 * Math.log(NV / NX[i - 1] + f));
+	    f = Math.exp(-0.5 * NX[i] * NX[i]);
+	}
+	for (int i = 0; i < NC; i++) NRATIO[i] = NX[i + 1] / NX[i];
+	for (int i = 0; i <= NC; i++) NF[i] = Math.exp(-0.5 * NX[i] * NX[i]);
+
+	f = Math.exp(-ER);
+	EX[0] = EV / f;
+	EX[1] = ER;
+	EX[EC] = 0.0;
+	for (int i = 2; i < EC; i++) {
+	    EX[i] = -Math.log(EV / EX[i - 1] + f);
+	    f = Math.exp(-EX[i]);
+	}
+	for (int i = 0; i < EC; i++) ERATIO[i] = EX[i + 1] / EX[i];
+	for (int i = 0; i <= EC; i++) EF[i] = Math.exp(-EX[i]);
+    }
+
+    private Ziggurat() {}
+
+    /**
+     * @param source uniform source on (0, 1)
+     * @return a standard normal variate
+     */
+    static double normal(ContinuousGenerator source) {
+	for (;;) {
+	    double w = source.sample() * NC;  // layer in the integer part,
+	    int i = (int) w;                  // position in the fraction
+	    double u = 2.0 * (w - i) - 1.0;
+	    if (Math.abs(u) < NRATIO[i]) return u * NX[i];
+	    if (i == 0) return normalTail(source, u < 0);
+	    double x = u * NX[i];
+	    if (NF[i] + source.sample() * (NF[i + 1] - NF[i]) < Math.exp(-0.5 * x * x)) return x;
+	}
+    }
+
+    private static double normalTail(ContinuousGenerator source, boolean negative) {
+	double x, y;
+	do {
+	    x = Math.log(source.sample()) / NR;
+	    y = Math.log(source.sample());
+	} while (-2.0 * y < x * x);
+	return negative ? x - NR : NR - x;
+    }
+
+    /**
+     * @param source uniform source on (0, 1)
+     * @return a standard exponential variate (mean 1)
+     */
+    static double exponential(ContinuousGenerator source) {
+	double shift = 0.0;
+	for (;;) {
+	    double w = source.sample() * EC;
+	    int i = (int) w;
+	    double u = w - i;
+	    if (u < ERATIO[i]) return shift + u * EX[i];
+	    if (i == 0) {
+		shift += ER;  // memoryless tail: start over beyond R
+		continue;
+	    }
+	    double x = u * EX[i];
+	    if (EF[i] + source.sample() * (EF[i + 1] - EF[i]) < Math.exp(-x)) return shift + x;
+	}
+    }
+}
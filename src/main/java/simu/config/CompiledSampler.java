@@ -0,0 +1,54 @@
+package simu.config;
+
+import distributions.ContinuousGenerator;
+
+import java.util.Random;
+
+/**
+ * Superclass of the samplers generated by {@link SamplerExpression#compile}. A subclass is a hidden
+ * class holding the leaf generators of one expression in fields of their exact types and its
+ * constants in fields of their own; its {@code sample()} evaluates the whole expression in
+ * straight-line code. Expressions of the same shape over leaves of the same types share a subclass.
+ */
+public abstract class CompiledSampler implements ContinuousGenerator {
+    private final ContinuousGenerator[] leaves;
+    private final String expression;
+
+    protected CompiledSampler(ContinuousGenerator[] leaves, String expression) {
+        this.leaves = leaves;
+        this.expression = expression;
+    }
+
+    /** @return the distinct generators the expression samples, in order of first use */
+    public ContinuousGenerator[] getLeaves() {
+        return this.leaves.clone();
+    }
+
+    // ---------- Seedable ----------
+
+    /**
+     * Seed the first leaf with {@code seed} and the others with seeds drawn from it.
+     */
+    @Override
+    public void setSeed(long seed) {
+        Random seeds = new Random(seed);
+        for (int i = 0; i < this.leaves.length; i++) {
+            this.leaves[i].setSeed(i == 0 ? seed : Integer.toUnsignedLong(seeds.nextInt()));
+        }
+    }
+
+    @Override
+    public long getSeed() {
+        return this.leaves.length > 0 ? this.leaves[0].getSeed() : 0L;
+    }
+
+    @Override
+    public void reseed() {
+        for (ContinuousGenerator leaf : this.leaves) leaf.reseed();
+    }
+
+    @Override
+    public String toString() {
+        return this.expression;
+    }
+}
@@ -0,0 +1,763 @@
+package simu.config;
+
+import distributions.Gamma;
+import distributions.Invertible;
+import distributions.SampleFile;
+import distributions.SpecialFunctions;
+import simu.config.DistributionOptions.DistributionType;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Fits every parametric distribution of the {@link DistributionRegistry} to observed durations by maximum
+ * likelihood and ranks the fits by AIC, BIC and the Kolmogorov-Smirnov and Anderson-Darling statistics.
+ * <p>
+ * The observations are scanned once for the sufficient statistics (count, sums of x, x&sup2;, log x,
+ * log&sup2; x, 1/x, log(1 + x) and log(1 - x), minimum and maximum) and a uniform subsample of at most
+ * {@link #SUBSAMPLE_SIZE} observations. The normal, uniform, negative exponential, log-normal and Pareto
+ * estimates are closed forms of the statistics, and the gamma, Erlang, chi-square, inverse gamma, beta and
+ * beta prime ones Newton iterations on them, so their likelihoods never look at the data again. The
+ * Weibull, Cauchy, logistic, Student's t and F estimates have no sufficient statistics; they are found on
+ * the subsample, and their likelihood takes one more pass over the data. The distributions are fitted in
+ * parallel, and the goodness-of-fit statistics are those of the subsample.
+ * <p>
+ * Run with {@code java simu.config.DistributionFitter [file [column]]} to rank the fits to a sample file,
+ * or without a file to rank them for 10,000,000 gamma(2.5, 4) variates, which takes about 4 s on one core.
+ */
+public final class DistributionFitter {
+    /** Largest number of observations the iterative estimates and the goodness-of-fit statistics use. */
+    public static final int SUBSAMPLE_SIZE = 100_000;
+
+    private static final long SUBSAMPLE_SEED = 4851L;
+    private static final int MAX_ITERATIONS = 200;
+    private static final double TOLERANCE = 1e-10;
+    private static final double MAX_DEGREES = 1e6; // of the t and F fits
+
+    /** Order of the ranking, from best to worst. */
+    public enum Criterion {
+        AIC, // Akaike information criterion, lowest first
+        BIC, // Bayesian information criterion, lowest first
+        KS,  // Kolmogorov-Smirnov distance, lowest first
+        AD   // Anderson-Darling statistic, lowest first
+    }
+
+    /**
+     * One fitted distribution with its scores.
+     */
+    public static final class Fit {
+        private final DistributionOptions options;
+        private final double logLikelihood;
+        private final double aic;
+        private final double bic;
+        private final double ks;
+        private final double ad;
+
+        Fit(DistributionOptions options, double logLikelihood, double aic, double bic, double ks, double ad) {
+            this.options = options;
+            this.logLikelihood = logLikelihood;
+            this.aic = aic;
+            this.bic = bic;
+            this.ks = ks;
+            this.ad = ad;
+        }
+
+        public DistributionType getType() { return this.options.getType(); }
+
+        /** @return the estimates in schema order */
+        public double[] getParameters() { return this.options.getParameters(); }
+
+        /** @return the fitted distribution, unbounded below if its support or the data extends below 0 */
+        public DistributionOptions toOptions() { return this.options; }
+
+        public double getLogLikelihood() { return this.logLikelihood; }
+        public double getAic() { return this.aic; }
+        public double getBic() { return this.bic; }
+        public double getKs() { return this.ks; }
+        public double getAd() { return this.ad; }
+
+        /**
+         * @param criterion criterion
+         * @return the score of the criterion, lower is better
+         */
+        public double score(Criterion criterion) {
+            switch (criterion) {
+                case AIC: return this.aic;
+                case BIC: return this.bic;
+                case KS: return this.ks;
+                default: return this.ad;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-20s %-34s %14.6g %14.6g %9.5f %10.4g",
+                DistributionRegistry.get(this.getType()).getLabel(), format(this.getParameters()),
+                this.aic, this.bic, this.ks, this.ad);
+        }
+
+        private static String format(double[] params) {
+            return Arrays.stream(params).mapToObj(p -> String.format("%.5g", p)).collect(Collectors.joining(", "));
+        }
+    }
+
+    // ---------- Sufficient statistics ----------
+
+    /**
+     * Statistics of one pass over the data, with the subsample drawn by reservoir sampling.
+     */
+    private static final class Statistics implements DoubleConsumer {
+        private final SplittableRandom random = new SplittableRandom(SUBSAMPLE_SEED);
+        private final double[] reservoir = new double[SUBSAMPLE_SIZE];
+
+        private long n;
+        private double shift = Double.NaN; // first observation, the sum of squares is taken around it
+        private double sum, sumSq;         // of x - shift
+        private double sumLog, sumLogSq, sumInv, sumLog1p, sumLog1m;
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+
+        @Override
+        public void accept(double x) {
+            if (this.n < SUBSAMPLE_SIZE) {
+                this.reservoir[(int) this.n] = x;
+            } else {
+                long j = this.random.nextLong(this.n + 1);
+                if (j < SUBSAMPLE_SIZE) this.reservoir[(int) j] = x;
+            }
+            this.n++;
+            if (this.n == 1) this.shift = x;
+            double d = x - this.shift;
+            this.sum += d;
+            this.sumSq += d * d;
+            if (x < this.min) this.min = x;
+            if (x > this.max) this.max = x;
+            if (x > 0.0) {
+                double l = Math.log(x);
+                this.sumLog += l;
+                this.sumLogSq += l * l;
+                this.sumInv += 1.0 / x;
+                this.sumLog1p += Math.log1p(x);
+                if (x < 1.0) this.sumLog1m += Math.log1p(-x);
+            }
+        }
+
+        double mean() { return this.shift + this.sum / this.n; }
+
+        /** @return the maximum likelihood variance, over n */
+        double variance() {
+            double m = this.sum / this.n;
+            return Math.max(0.0, this.sumSq / this.n - m * m);
+        }
+
+        double meanLog() { return this.sumLog / this.n; }
+
+        double varianceLog() {
+            double m = this.meanLog();
+            return Math.max(0.0, this.sumLogSq / this.n - m * m);
+        }
+
+        boolean isPositive() { return this.min > 0.0; }
+
+        double[] subsample() {
+            return Arrays.copyOf(this.reservoir, (int) Math.min(this.n, SUBSAMPLE_SIZE));
+        }
+    }
+
+    /**
+     * The data and what was learnt of it in the first pass.
+     */
+    private static final class Data {
+        final Consumer<DoubleConsumer> source; // visits all observations
+        final Statistics stats;
+        final double[] sample;                 // sorted subsample
+
+        Data(Consumer<DoubleConsumer> source, Statistics stats) {
+            this.source = source;
+            this.stats = stats;
+            this.sample = stats.subsample();
+            Arrays.sort(this.sample);
+        }
+
+        /** @return sum of {@code f} over all observations, in one more pass */
+        double sum(DoubleUnaryOperator f) {
+            double[] s = new double[1];
+            this.source.accept(x -> s[0] += f.applyAsDouble(x));
+            return s[0];
+        }
+    }
+
+    private DistributionFitter() {}
+
+    // ---------- Fitting ----------
+
+    /**
+     * Fit all distributions to the observations of a file.
+     * @param file observations
+     * @return the fits ranked by AIC
+     */
+    public static List<Fit> fit(SampleFile file) {
+        return fit(file::forEach);
+    }
+
+    /**
+     * Fit all distributions to observations in memory. NaN observations are skipped.
+     * @param observations observations
+     * @return the fits ranked by AIC
+     */
+    public static List<Fit> fit(double[] observations) {
+        return fit(c -> {
+            for (double x : observations) {
+                if (!Double.isNaN(x)) c.accept(x);
+            }
+        });
+    }
+
+    /**
+     * Fit all distributions to the observations a source visits; the source is visited once, plus once for
+     * every distribution without sufficient statistics.
+     * @param source visits all observations, in any order
+     * @return the fits ranked by AIC
+     */
+    public static List<Fit> fit(Consumer<DoubleConsumer> source) {
+        Statistics stats = new Statistics();
+        source.accept(stats);
+        if (stats.n < 2) throw new IllegalArgumentException("at least two observations are needed");
+        Data data = new Data(source, stats);
+
+        List<Fit> fits = DistributionRegistry.entries().parallelStream()
+            .filter(entry -> !entry.usesFile())
+            .map(entry -> fit(entry.getType(), data))
+            .filter(Objects::nonNull)
+            .collect(Collectors.toCollection(ArrayList::new));
+        return rank(fits, Criterion.AIC);
+    }
+
+    /**
+     * @param fits fits of the same data
+     * @param criterion order of the ranking
+     * @return a new list of the fits, best first
+     */
+    public static List<Fit> rank(List<Fit> fits, Criterion criterion) {
+        List<Fit> ranked = new ArrayList<>(fits);
+        ranked.sort(Comparator.comparingDouble(f -> f.score(criterion)));
+        return ranked;
+    }
+
+    /**
+     * @param file observations
+     * @param criterion criterion to choose by
+     * @return the best fitting distribution of the file
+     */
+    public static DistributionOptions best(SampleFile file, Criterion criterion) {
+        List<Fit> fits = rank(fit(file), criterion);
+        if (fits.isEmpty()) throw new IllegalArgumentException("no distribution fits the data");
+        return fits.get(0).toOptions();
+    }
+
+    /**
+     * @return the fit of {@code type}, null if the data is outside its support or the estimate failed
+     */
+    private static Fit fit(DistributionType type, Data data) {
+        Statistics s = data.stats;
+        double n = s.n;
+        double[] params;
+        double ll;
+        switch (type) {
+            case NEGEXP: {
+                if (s.min < 0.0) return null;
+                double mean = s.mean();
+                params = new double[] { mean };
+                ll = -n * Math.log(mean) - n;
+                break;
+            }
+            case NORMAL: {
+                double v = s.variance();
+                params = new double[] { s.mean(), Math.sqrt(v) };
+                ll = -n / 2 * (Math.log(2 * Math.PI * v) + 1.0);
+                break;
+            }
+            case UNIFORM:
+                params = new double[] { s.min, s.max };
+                ll = -n * Math.log(s.max - s.min);
+                break;
+            case GAMMA: {
+                if (!s.isPositive()) return null;
+                double mean = s.mean();
+                double k = gammaShape(Math.log(mean) - s.meanLog());
+                params = new double[] { k, mean / k };
+                ll = gammaLogLikelihood(n, s.sumLog, n * mean, k, mean / k);
+                break;
+            }
+            case ERLANG: {
+                if (!s.isPositive()) return null;
+                double mean = s.mean();
+                double k = gammaShape(Math.log(mean) - s.meanLog());
+                double lo = Math.max(1.0, Math.floor(k)), hi = Math.max(1.0, Math.ceil(k));
+                double llLo = gammaLogLikelihood(n, s.sumLog, n * mean, lo, mean / lo);
+                double llHi = gammaLogLikelihood(n, s.sumLog, n * mean, hi, mean / hi);
+                k = llHi > llLo ? hi : lo;
+                params = new double[] { k, mean / k };
+                ll = Math.max(llLo, llHi);
+                break;
+            }
+            case CHISQUARE: {
+                if (!s.isPositive()) return null;
+                // gamma with scale 2: psi(k / 2) = mean log(x / 2)
+                double a = digammaInverse(s.meanLog() - Math.log(2.0));
+                double lo = Math.max(1.0, Math.floor(2 * a)), hi = Math.max(1.0, Math.ceil(2 * a));
+                double llLo = gammaLogLikelihood(n, s.sumLog, n * s.mean(), lo / 2, 2.0);
+                double llHi = gammaLogLikelihood(n, s.sumLog, n * s.mean(), hi / 2, 2.0);
+                params = new double[] { llHi > llLo ? hi : lo };
+                ll = Math.max(llLo, llHi);
+                break;
+            }
+            case INVGAMMA: {
+                if (!s.isPositive()) return null;
+                // 1 / x is gamma, and the Jacobian adds -2 log x
+                double meanInv = s.sumInv / n;
+                double k = gammaShape(Math.log(meanInv) + s.meanLog());
+                params = new double[] { k, meanInv / k };
+                ll = gammaLogLikelihood(n, -s.sumLog, s.sumInv, k, meanInv / k) - 2 * s.sumLog;
+                break;
+            }
+            case LOGNORMAL: {
+                if (!s.isPositive()) return null;
+                double v = s.varianceLog();
+                params = new double[] { s.meanLog(), Math.sqrt(v) };
+                ll = -s.sumLog - n / 2 * (Math.log(2 * Math.PI * v) + 1.0);
+                break;
+            }
+            case PARETO: {
+                if (!s.isPositive()) return null;
+                double logMin = Math.log(s.min);
+                double alpha = n / (s.sumLog - n * logMin);
+                params = new double[] { alpha, s.min };
+                ll = n * Math.log(alpha) + n * alpha * logMin - (alpha + 1) * s.sumLog;
+                break;
+            }
+            case BETA: {
+                if (!s.isPositive() || s.max >= 1.0) return null;
+                params = betaShapes(s.sumLog / n, s.sumLog1m / n);
+                ll = (params[0] - 1) * s.sumLog + (params[1] - 1) * s.sumLog1m - n * logBeta(params[0], params[1]);
+                break;
+            }
+            case BETAPRIME: {
+                if (!s.isPositive()) return null;
+                // x / (1 + x) is beta, with a Jacobian free of the parameters
+                params = betaShapes((s.sumLog - s.sumLog1p) / n, -s.sumLog1p / n);
+                ll = (params[0] - 1) * s.sumLog - (params[0] + params[1]) * s.sumLog1p
+                    - n * logBeta(params[0], params[1]);
+                break;
+            }
+            case WEIBULL: {
+                if (!s.isPositive()) return null;
+                params = weibull(data.sample, s.varianceLog());
+                double k = params[0], lambda = params[1];
+                ll = n * Math.log(k / lambda) + (k - 1) * (s.sumLog - n * Math.log(lambda))
+                    - data.sum(x -> Math.pow(x / lambda, k));
+                break;
+            }
+            case CAUCHY: {
+                double[] q = data.sample;
+                double median = q[q.length / 2];
+                double iqr = q[3 * q.length / 4] - q[q.length / 4];
+                double[] p = minimize(v -> -cauchy(data.sample, v[0], Math.exp(v[1])),
+                    new double[] { median, Math.log(iqr > 0.0 ? iqr / 2 : 1.0) });
+                params = new double[] { p[0], Math.exp(p[1]) };
+                ll = -n * Math.log(Math.PI * params[1])
+                    - data.sum(x -> Math.log1p(square((x - params[0]) / params[1])));
+                break;
+            }
+            case LOGISTIC: {
+                double[] p = minimize(v -> -logistic(data.sample, v[0], Math.exp(v[1])),
+                    new double[] { s.mean(), Math.log(Math.sqrt(3 * s.variance()) / Math.PI) });
+                params = new double[] { p[0], Math.exp(p[1]) };
+                ll = data.sum(x -> logisticDensity((x - params[0]) / params[1])) - n * Math.log(params[1]);
+                break;
+            }
+            case TSTUDENT: {
+                // the registry's t is standard, only the degrees of freedom are fitted
+                double nu = integerArgMax(df -> student(data.sample, df), 1.0);
+                params = new double[] { nu };
+                ll = n * studentConstant(nu) - (nu + 1) / 2 * data.sum(x -> Math.log1p(x * x / nu));
+                break;
+            }
+            case F: {
+                if (s.min < 0.0) return null;
+                params = fDegrees(data.sample);
+                double d1 = params[0], d2 = params[1];
+                ll = n * fConstant(d1, d2) + (d1 / 2 - 1) * s.sumLog
+                    - (d1 + d2) / 2 * data.sum(x -> Math.log(d2 + d1 * x));
+                break;
+            }
+            default:
+                return null;
+        }
+        if (!Double.isFinite(ll) || DistributionRegistry.get(type).check(params) != null) return null;
+
+        DistributionOptions options = DistributionOptions.of(type, params);
+        if (s.min < 0.0 || !DistributionRegistry.get(type).isNonNegative()) {
+            // the scores are those of the untruncated distribution, which the default lower bound 0 would cut
+            options = options.withBounds(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+        }
+        Invertible cdf = (Invertible) DistributionRegistry.get(type).create(params, 1L);
+        double k = params.length;
+        return new Fit(options, ll, 2 * k - 2 * ll, k * Math.log(n) - 2 * ll,
+            kolmogorovSmirnov(data.sample, cdf), andersonDarling(data.sample, cdf));
+    }
+
+    // ---------- Estimates ----------
+
+    /**
+     * @param s log of the mean minus the mean of the logs, &gt; 0
+     * @return the maximum likelihood gamma shape: log k - psi(k) = s
+     */
+    private static double gammaShape(double s) {
+        if (!(s > 0.0)) return Double.NaN;
+        // Minka's approximation, then Newton
+        double k = (3 - s + Math.sqrt(square(s - 3) + 24 * s)) / (12 * s);
+        for (int i = 0; i < MAX_ITERATIONS; i++) {
+            double step = (Math.log(k) - SpecialFunctions.digamma(k) - s) / (1 / k - SpecialFunctions.trigamma(k));
+            double next = k - step;
+            if (next <= 0.0) next = k / 2;
+            if (Math.abs(next - k) <= TOLERANCE * k) return next;
+            k = next;
+        }
+        return k;
+    }
+
+    /**
+     * @return k with psi(k) = y, by Newton from Minka's start
+     */
+    private static double digammaInverse(double y) {
+        double k = y >= -2.22 ? Math.exp(y) + 0.5 : -1 / (y - SpecialFunctions.digamma(1.0));
+        for (int i = 0; i < MAX_ITERATIONS; i++) {
+            double next = k - (SpecialFunctions.digamma(k) - y) / SpecialFunctions.trigamma(k);
+            if (next <= 0.0) next = k / 2;
+            if (Math.abs(next - k) <= TOLERANCE * k) return next;
+            k = next;
+        }
+        return k;
+    }
+
+    private static double gammaLogLikelihood(double n, double sumLog, double sum, double k, double theta) {
+        return (k - 1) * sumLog - sum / theta - n * k * Math.log(theta) - n * SpecialFunctions.logGamma(k);
+    }
+
+    private static double logBeta(double a, double b) {
+        return SpecialFunctions.logGamma(a) + SpecialFunctions.logGamma(b) - SpecialFunctions.logGamma(a + b);
+    }
+
+    /**
+     * Newton's method on the beta likelihood, which is concave in the shapes, halving steps that
+     * do not improve it.
+     * @param l1 mean of log x
+     * @param l2 mean of log(1 - x)
+     * @return the maximum likelihood shapes a and b
+     */
+    private static double[] betaShapes(double l1, double l2) {
+        double a = 1.0, b = 1.0;
+        double f = a * l1 + b * l2 - logBeta(a, b);
+        for (int i = 0; i < MAX_ITERATIONS; i++) {
+            double pab = SpecialFunctions.digamma(a + b), tab = SpecialFunctions.trigamma(a + b);
+            double g1 = l1 - SpecialFunctions.digamma(a) + pab;
+            double g2 = l2 - SpecialFunctions.digamma(b) + pab;
+            double h11 = SpecialFunctions.trigamma(a) - tab, h22 = SpecialFunctions.trigamma(b) - tab, h12 = -tab;
+            double det = h11 * h22 - h12 * h12;
+            double da = (h22 * g1 - h12 * g2) / det, db = (h11 * g2 - h12 * g1) / det;
+            double t = 1.0;
+            double na = a + da, nb = b + db, nf = Double.NEGATIVE_INFINITY;
+            for (int j = 0; j < 60; j++, t /= 2) {
+                na = a + t * da;
+                nb = b + t * db;
+                if (na > 0.0 && nb > 0.0) {
+                    nf = na * l1 + nb * l2 - logBeta(na, nb);
+                    if (nf >= f) break;
+                }
+            }
+            if (!(nf >= f)) break;
+            boolean done = Math.abs(na - a) <= TOLERANCE * a && Math.abs(nb - b) <= TOLERANCE * b;
+            a = na;
+            b = nb;
+            f = nf;
+            if (done) break;
+        }
+        return new double[] { a, b };
+    }
+
+    /**
+     * Newton's method on the profile likelihood of the shape, for the observations divided by their
+     * geometric mean so that the powers do not overflow.
+     * @return the shape and scale
+     */
+    private static double[] weibull(double[] sample, double varianceLog) {
+        double meanLog = 0.0;
+        for (double x : sample) meanLog += Math.log(x);
+        meanLog /= sample.length;
+        double[] logs = new double[sample.length];
+        for (int i = 0; i < logs.length; i++) logs[i] = Math.log(sample[i]) - meanLog;
+
+        double k = varianceLog > 0.0 ? Math.PI / Math.sqrt(6 * varianceLog) : 1.0;
+        for (int i = 0; i < MAX_ITERATIONS; i++) {
+            double s0 = 0.0, s1 = 0.0, s2 = 0.0;
+            for (double l : logs) {
+                double p = Math.exp(k * l);
+                s0 += p;
+                s1 += p * l;
+                s2 += p * l * l;
+            }
+            double m1 = s1 / s0;
+            // the centred logs have mean 0, so the last term of the score vanishes
+            double h = m1 - 1 / k, dh = s2 / s0 - m1 * m1 + 1 / (k * k);
+            double next = k - h / dh;
+            if (next <= 0.0) next = k / 2;
+            if (Math.abs(next - k) <= TOLERANCE * k) {
+                k = next;
+                break;
+            }
+            k = next;
+        }
+        double s0 = 0.0;
+        for (double l : logs) s0 += Math.exp(k * l);
+        return new double[] { k, Math.exp(meanLog) * Math.pow(s0 / logs.length, 1 / k) };
+    }
+
+    private static double cauchy(double[] sample, double median, double scale) {
+        double ll = -sample.length * Math.log(Math.PI * scale);
+        for (double x : sample) ll -= Math.log1p(square((x - median) / scale));
+        return ll;
+    }
+
+    private static double logistic(double[] sample, double location, double scale) {
+        double ll = -sample.length * Math.log(scale);
+        for (double x : sample) ll += logisticDensity((x - location) / scale);
+        return ll;
+    }
+
+    /** @return log density of the standard logistic distribution */
+    private static double logisticDensity(double z) {
+        double a = Math.abs(z);
+        return -a - 2 * Math.log1p(Math.exp(-a));
+    }
+
+    private static double studentConstant(double nu) {
+        return SpecialFunctions.logGamma((nu + 1) / 2) - SpecialFunctions.logGamma(nu / 2) - Math.log(nu * Math.PI) / 2;
+    }
+
+    private static double student(double[] sample, double nu) {
+        double ll = sample.length * studentConstant(nu);
+        for (double x : sample) ll -= (nu + 1) / 2 * Math.log1p(x * x / nu);
+        return ll;
+    }
+
+    private static double fConstant(double d1, double d2) {
+        return (d1 * Math.log(d1) + d2 * Math.log(d2)) / 2 - logBeta(d1 / 2, d2 / 2);
+    }
+
+    private static double fDensity(double[] sample, double d1, double d2) {
+        double ll = sample.length * fConstant(d1, d2);
+        for (double x : sample) ll += (d1 / 2 - 1) * Math.log(x) - (d1 + d2) / 2 * Math.log(d2 + d1 * x);
+        return ll;
+    }
+
+    /**
+     * The degrees of freedom are whole numbers: the continuous maximum on the subsample, then the best
+     * of its four whole neighbours. Data far from any F distribution drives them to infinity, so they are
+     * kept below {@link #MAX_DEGREES}.
+     */
+    private static double[] fDegrees(double[] sample) {
+        double limit = Math.log(MAX_DEGREES);
+        double[] p = minimize(v -> v[0] < 0.0 || v[1] < 0.0 || v[0] > limit || v[1] > limit
+                ? Double.POSITIVE_INFINITY : -fDensity(sample, Math.exp(v[0]), Math.exp(v[1])),
+            new double[] { Math.log(5.0), Math.log(10.0) });
+        double[] best = null;
+        double bestLl = Double.NEGATIVE_INFINITY;
+        for (double d1 : neighbours(Math.exp(p[0]))) {
+            for (double d2 : neighbours(Math.exp(p[1]))) {
+                double ll = fDensity(sample, d1, d2);
+                if (best == null || ll > bestLl) {
+                    best = new double[] { d1, d2 };
+                    bestLl = ll;
+                }
+            }
+        }
+        return best;
+    }
+
+    private static double[] neighbours(double x) {
+        x = Math.min(x, MAX_DEGREES);
+        return new double[] { Math.max(1.0, Math.floor(x)), Math.max(1.0, Math.ceil(x)) };
+    }
+
+    /**
+     * Maximise a unimodal function of a whole number &ge; {@code min}: golden section on its log, then the
+     * better of the two whole neighbours.
+     */
+    private static double integerArgMax(DoubleUnaryOperator f, double min) {
+        double lo = Math.log(min), hi = Math.log(MAX_DEGREES), g = (Math.sqrt(5) - 1) / 2;
+        double a = hi - g * (hi - lo), b = lo + g * (hi - lo);
+        double fa = f.applyAsDouble(Math.exp(a)), fb = f.applyAsDouble(Math.exp(b));
+        while (hi - lo > 1e-4) {
+            if (fa >= fb) {
+                hi = b;
+                b = a;
+                fb = fa;
+                a = hi - g * (hi - lo);
+                fa = f.applyAsDouble(Math.exp(a));
+            } else {
+                lo = a;
+                a = b;
+                fa = fb;
+                b = lo + g * (hi - lo);
+                fb = f.applyAsDouble(Math.exp(b));
+            }
+        }
+        double[] whole = neighbours(Math.max(min, Math.exp((lo + hi) / 2)));
+        return f.applyAsDouble(whole[1]) > f.applyAsDouble(whole[0]) ? whole[1] : whole[0];
+    }
+
+    /**
+     * Nelder-Mead simplex minimisation, for the two-parameter likelihoods without a usable Newton step.
+     * @param f function to minimise
+     * @param start start point
+     * @return the point of the smallest value found
+     */
+    private static double[] minimize(ToDoubleFunction<double[]> f, double[] start) {
+        int d = start.length;
+        double[][] x = new double[d + 1][];
+        double[] fx = new double[d + 1];
+        for (int i = 0; i <= d; i++) {
+            x[i] = start.clone();
+            if (i > 0) x[i][i - 1] += Math.max(0.1, 0.1 * Math.abs(start[i - 1]));
+            fx[i] = value(f, x[i]);
+        }
+        for (int iteration = 0; iteration < 5 * MAX_ITERATIONS; iteration++) {
+            // order best to worst
+            for (int i = 1; i <= d; i++) {
+                for (int j = i; j > 0 && fx[j] < fx[j - 1]; j--) {
+                    double[] t = x[j]; x[j] = x[j - 1]; x[j - 1] = t;
+                    double u = fx[j]; fx[j] = fx[j - 1]; fx[j - 1] = u;
+                }
+            }
+            if (Math.abs(fx[d] - fx[0]) <= TOLERANCE * (Math.abs(fx[0]) + TOLERANCE)) break;
+            double size = 0.0;
+            for (int i = 1; i <= d; i++) {
+                for (int j = 0; j < d; j++) size = Math.max(size, Math.abs(x[i][j] - x[0][j]));
+            }
+            if (size <= 1e-9) break;
+
+            double[] centroid = new double[d];
+            for (int i = 0; i < d; i++) {
+                for (int j = 0; j < d; j++) centroid[j] += x[i][j] / d;
+            }
+            double[] reflected = along(centroid, x[d], -1.0);
+            double fr = value(f, reflected);
+            if (fr < fx[0]) {
+                double[] expanded = along(centroid, x[d], -2.0);
+                double fe = value(f, expanded);
+                x[d] = fe < fr ? expanded : reflected;
+                fx[d] = Math.min(fe, fr);
+            } else if (fr < fx[d - 1]) {
+                x[d] = reflected;
+                fx[d] = fr;
+            } else {
+                double[] contracted = along(centroid, x[d], 0.5);
+                double fc = value(f, contracted);
+                if (fc < fx[d]) {
+                    x[d] = contracted;
+                    fx[d] = fc;
+                } else {
+                    for (int i = 1; i <= d; i++) {
+                        x[i] = along(x[0], x[i], 0.5);
+                        fx[i] = value(f, x[i]);
+                    }
+                }
+            }
+        }
+        int best = 0;
+        for (int i = 1; i <= d; i++) if (fx[i] < fx[best]) best = i;
+        return x[best];
+    }
+
+    /** @return {@code from + t * (to - from)} */
+    private static double[] along(double[] from, double[] to, double t) {
+        double[] p = new double[from.length];
+        for (int i = 0; i < p.length; i++) p[i] = from[i] + t * (to[i] - from[i]);
+        return p;
+    }
+
+    private static double value(ToDoubleFunction<double[]> f, double[] x) {
+        double v = f.applyAsDouble(x);
+        return Double.isNaN(v) ? Double.POSITIVE_INFINITY : v;
+    }
+
+    private static double square(double x) {
+        return x * x;
+    }
+
+    // ---------- Goodness of fit ----------
+
+    /**
+     * @param sorted observations in ascending order
+     * @return the largest distance between the empirical and the fitted distribution function
+     */
+    static double kolmogorovSmirnov(double[] sorted, Invertible dist) {
+        int m = sorted.length;
+        double d = 0.0;
+        for (int i = 0; i < m; i++) {
+            double f = dist.cdf(sorted[i]);
+            d = Math.max(d, Math.max((i + 1.0) / m - f, f - (double) i / m));
+        }
+        return d;
+    }
+
+    /**
+     * @param sorted observations in ascending order
+     * @return the Anderson-Darling statistic A&sup2;, which weighs the tails more than the Kolmogorov-Smirnov distance
+     */
+    static double andersonDarling(double[] sorted, Invertible dist) {
+        int m = sorted.length;
+        double[] f = new double[m];
+        for (int i = 0; i < m; i++) f[i] = Math.min(Math.max(dist.cdf(sorted[i]), 1e-300), 1.0 - 1e-16);
+        double s = 0.0;
+        for (int i = 0; i < m; i++) s += (2 * i + 1) * (Math.log(f[i]) + Math.log1p(-f[m - 1 - i]));
+        return -m - s / m;
+    }
+
+    // ---------- Report ----------
+
+    public static void main(String[] args) {
+        long start = System.nanoTime();
+        List<Fit> fits;
+        String what;
+        if (args.length > 0) {
+            int column = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+            Path path = Path.of(args[0]);
+            fits = fit(new SampleFile(path, SampleFile.formatOf(path), column));
+            what = path.toString();
+        } else {
+            Gamma gamma = new Gamma(4.0, 2.5, 1000L);
+            double[] x = new double[10_000_000];
+            gamma.sample(x, 0, x.length);
+            start = System.nanoTime();
+            fits = fit(x);
+            what = "10,000,000 gamma(2.5, 4) variates";
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("Fits to %s in %.2f s, by AIC%n", what, seconds);
+        System.out.printf("%-20s %-34s %14s %14s %9s %10s%n", "distribution", "parameters", "AIC", "BIC", "KS", "AD");
+        for (Fit fit : fits) System.out.println(fit);
+    }
+}
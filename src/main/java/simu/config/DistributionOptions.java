@@ -1,57 +1,314 @@
 package simu.config;
 
 import distributions.ContinuousGenerator;
-import distributions.Negexp;
-import distributions.Normal;
-import distributions.Uniform;
+import distributions.Empirical;
+import distributions.Generator;
+import distributions.Invertible;
+import distributions.RandomSource;
+import distributions.SamplingMethod;
+import distributions.TraceReplay;
+import distributions.Truncated;
 
+import java.nio.file.Path;
+
+/**
+ * A duration distribution: a {@link DistributionType} with its parameters (see
+ * {@link DistributionRegistry} for the schema), bounds and a location shift. The samples are
+ * <code>shift + X</code> with <code>X</code> drawn from the distribution conditioned on
+ * <code>lower &le; shift + X &le; upper</code>.
+ * <p>
+ * The lower bound is 0 unless set otherwise, so that a duration is never negative. Bounds that cut
+ * off probability are applied by {@link Truncated} where the distribution has an inverse distribution
+ * function and through a quantile table otherwise; bounds that cut nothing leave the generator as it
+ * is. A replayed trace is neither truncated nor checked.
+ */
 public class DistributionOptions {
     public enum DistributionType {
         NEGEXP,
         NORMAL,
-        UNIFORM
+        UNIFORM,
+        EMPIRICAL, // sampled from the observations in a file
+        TRACE,     // the observations in a file, replayed in order
+        GAMMA,
+        ERLANG,
+        LOGNORMAL,
+        WEIBULL,
+        PARETO,
+        BETA,
+        BETAPRIME,
+        CAUCHY,
+        LOGISTIC,
+        CHISQUARE,
+        F,
+        TSTUDENT,
+        INVGAMMA
     }
 
-    private DistributionType type;
+    // seed of the pilot samples a truncation table is built from
+    private static final long TABLE_SEED = 1L;
+
+    private final DistributionType type;
+    private final double[] params; // in the order of the registry schema
+    private String file;            // for EMPIRICAL and TRACE
+
+    private double lower = 0.0;
+    private double upper = Double.POSITIVE_INFINITY;
+    private double shift = 0.0;
 
-    private double mean;
-    private double stdDev; // for NORMAL
-    private double min;    // for UNIFORM
-    private double max;    // for UNIFORM
+    // quantile table of an EMPIRICAL file, built once and shared by the generators of all servers
+    private Empirical empirical;
+    // quantile table of the truncated distribution, for types without an inverse
+    private Empirical truncation;
+    // distribution function at the shifted bounds, computed once; empty for types without an inverse
+    private double[] boundCdf;
 
-    private DistributionOptions(DistributionType type, double mean, double stdDev, double min, double max) {
+    private DistributionOptions(DistributionType type, double... params) {
         this.type = type;
-        this.mean = mean;
-        this.stdDev = stdDev;
-        this.min = min;
-        this.max = max;
+        this.params = params;
     }
 
 
     // ---------- Factories ----------
 
     public static DistributionOptions negExp(double mean) {
-        return new DistributionOptions(DistributionType.NEGEXP, mean, 0.0, 0.0, 0.0);
+        return new DistributionOptions(DistributionType.NEGEXP, mean);
     }
 
     public static DistributionOptions normal(double mean, double stdDev) {
-        return new DistributionOptions(DistributionType.NORMAL, mean, stdDev, 0.0, 0.0);
+        return new DistributionOptions(DistributionType.NORMAL, mean, stdDev);
     }
 
     public static DistributionOptions uniform(double min, double max) {
-        return new DistributionOptions(DistributionType.UNIFORM, 0.0, 0.0, min, max);
+        return new DistributionOptions(DistributionType.UNIFORM, min, max);
+    }
+
+    /**
+     * Any distribution of the registry.
+     * @param type distribution type, not EMPIRICAL or TRACE
+     * @param params parameter values in the order of {@link DistributionRegistry.Entry#getParameters()}
+     * @return the options
+     */
+    public static DistributionOptions of(DistributionType type, double... params) {
+        DistributionRegistry.Entry entry = DistributionRegistry.get(type);
+        if (entry.usesFile()) {
+            throw new IllegalArgumentException(entry.getLabel() + " is built from a sample file");
+        }
+        if (params.length != entry.getParameters().size()) {
+            throw new IllegalArgumentException(entry.getLabel() + " takes " + entry.getParameters().size() + " parameters");
+        }
+        return new DistributionOptions(type, params.clone());
+    }
+
+    /**
+     * Sample from the distribution of observed values, see {@link distributions.Empirical}.
+     * @param file binary (little-endian doubles) or CSV file of observations, see {@link distributions.SampleFile}
+     */
+    public static DistributionOptions empirical(String file) {
+        DistributionOptions o = new DistributionOptions(DistributionType.EMPIRICAL);
+        o.file = file;
+        return o;
+    }
+
+    /**
+     * Replay observed values in file order, see {@link distributions.TraceReplay}. Every generator
+     * built from these options replays the file from its start.
+     * @param file binary (little-endian doubles) or CSV file of observations
+     */
+    public static DistributionOptions trace(String file) {
+        DistributionOptions o = new DistributionOptions(DistributionType.TRACE);
+        o.file = file;
+        return o;
+    }
+
+    /**
+     * The same distribution, conditioned on samples in <code>[lower, upper]</code>.
+     * @param lower lower bound, <code>Double.NEGATIVE_INFINITY</code> for none
+     * @param upper upper bound, <code>Double.POSITIVE_INFINITY</code> for none
+     * @return new options
+     */
+    public DistributionOptions withBounds(double lower, double upper) {
+        DistributionOptions o = this.copy();
+        o.lower = lower;
+        o.upper = upper;
+        return o;
+    }
+
+    /**
+     * The same distribution moved by <code>shift</code>; the bounds stay where they are.
+     * @param shift location shift added to every sample
+     * @return new options
+     */
+    public DistributionOptions withShift(double shift) {
+        DistributionOptions o = this.copy();
+        o.shift = shift;
+        return o;
+    }
+
+    private DistributionOptions copy() {
+        DistributionOptions o = new DistributionOptions(this.type, this.params);
+        o.file = this.file;
+        o.lower = this.lower;
+        o.upper = this.upper;
+        o.shift = this.shift;
+        o.empirical = this.empirical;
+        return o;
     }
 
 
     // ---------- Gen creation ----------
 
     public ContinuousGenerator toGen(long seed) {
-        switch (this.type) {
-            case NEGEXP: return new Negexp(this.mean, seed);
-            case NORMAL: return new Normal(this.mean, this.stdDev, seed);
-            case UNIFORM: return new Uniform(this.min, this.max, seed);
-            default: throw new IllegalStateException("Unknown distribution type: " + this.type);
+        return this.toGen(seed, RandomSource.LEHMER);
+    }
+
+    /**
+     * Create a generator that draws its uniforms from the given source.
+     * @param seed seed of the uniform source
+     * @param source uniform source algorithm
+     * @return the generator
+     */
+    public ContinuousGenerator toGen(long seed, RandomSource source) {
+        return this.toGen(seed, source, SamplingMethod.REFERENCE);
+    }
+
+    /**
+     * Create a generator that draws its uniforms from the given source with the given algorithm family.
+     * @param seed seed of the uniform source
+     * @param source uniform source algorithm
+     * @param method sampling algorithm, e.g. FAST for the Ziggurat normal and exponential samplers
+     * @return the generator
+     */
+    public ContinuousGenerator toGen(long seed, RandomSource source, SamplingMethod method) {
+        return this.toGen(seed, source != RandomSource.LEHMER ? source.create(seed) : null, method);
+    }
+
+    /**
+     * Create a generator that draws its uniforms from the given source object, e.g. a
+     * {@link distributions.QuasiRandomSequence} coordinate.
+     * @param seed seed of the generator
+     * @param uniforms uniform source, used by this generator only; null for a LEHMER source on <code>seed</code>
+     * @param method sampling algorithm
+     * @return the generator
+     */
+    public ContinuousGenerator toGen(long seed, ContinuousGenerator uniforms, SamplingMethod method) {
+        ContinuousGenerator gen;
+        if (this.type == DistributionType.TRACE) {
+            gen = new TraceReplay(Path.of(this.file));
+        } else {
+            Generator base = this.createBase(seed);
+            if (!this.isTruncated()) {
+                gen = (ContinuousGenerator) configure(base, uniforms, method);
+            } else if (base instanceof Invertible) {
+                gen = new Truncated(configure(base, uniforms, method), this.lower - this.shift, this.upper - this.shift);
+            } else {
+                gen = (ContinuousGenerator) configure(new Empirical(this.truncationTable(), seed), uniforms, method);
+            }
         }
+        return this.shift != 0.0 ? new Shifted(gen, this.shift) : gen;
+    }
+
+    private static Generator configure(Generator gen, ContinuousGenerator uniforms, SamplingMethod method) {
+        if (uniforms != null) {
+            gen.setSource(uniforms);
+        }
+        gen.setMethod(method);
+        return gen;
+    }
+
+    private Generator createBase(long seed) {
+        if (this.type == DistributionType.EMPIRICAL) {
+            return new Empirical(this.empiricalTable(), seed);
+        }
+        return DistributionRegistry.get(this.type).create(this.params, seed);
+    }
+
+    /**
+     * @return whether the bounds cut off any probability of the (shifted) distribution
+     */
+    public boolean isTruncated() {
+        if (this.type == DistributionType.TRACE) return false;
+        double lo = this.lower - this.shift, hi = this.upper - this.shift;
+        double[] cdf = this.boundCdf();
+        if (cdf.length > 0) {
+            return cdf[0] > 0.0 || (hi < Double.POSITIVE_INFINITY && cdf[1] < 1.0);
+        }
+        double support = DistributionRegistry.get(this.type).isNonNegative() ? 0.0 : Double.NEGATIVE_INFINITY;
+        return lo > support || hi < Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * @return null if the parameters and bounds are usable, otherwise an error message
+     */
+    public String check() {
+        DistributionRegistry.Entry entry = DistributionRegistry.get(this.type);
+        if (!entry.usesFile()) {
+            String err = entry.check(this.params);
+            if (err != null) return err;
+        }
+        if (!Double.isFinite(this.shift)) return "Shift must be a finite number";
+        if (Double.isNaN(this.lower) || Double.isNaN(this.upper) || !(this.lower < this.upper)) {
+            return "Lower bound must be < upper bound";
+        }
+        if (this.type == DistributionType.TRACE || entry.usesFile() && this.file == null) return null;
+        double[] cdf = this.boundCdf();
+        if (cdf.length > 0 && !(cdf[1] - cdf[0] > 0.0)) {
+            return "The bounds hold no probability";
+        }
+        return null;
+    }
+
+    private synchronized double[] boundCdf() {
+        if (this.boundCdf == null) {
+            Generator probe = this.createBase(TABLE_SEED);
+            if (probe instanceof Invertible) {
+                Invertible f = (Invertible) probe;
+                this.boundCdf = new double[] { f.cdf(this.lower - this.shift), f.cdf(this.upper - this.shift) };
+            } else {
+                this.boundCdf = new double[0];
+            }
+        }
+        return this.boundCdf;
+    }
+
+    private synchronized Empirical empiricalTable() {
+        if (this.empirical == null) {
+            this.empirical = new Empirical(Path.of(this.file), 0L);
+        }
+        return this.empirical;
+    }
+
+    // built from FAST pilot samples (same distribution, cheaper) on a fixed seed, once for all servers
+    private synchronized Empirical truncationTable() {
+        if (this.truncation == null) {
+            Generator pilot = configure(this.createBase(TABLE_SEED), null, SamplingMethod.FAST);
+            this.truncation = Truncated.table((ContinuousGenerator) pilot, this.lower - this.shift, this.upper - this.shift);
+        }
+        return this.truncation;
+    }
+
+
+    /**
+     * Adds a constant to the samples of another generator.
+     */
+    private static final class Shifted implements ContinuousGenerator {
+        private final ContinuousGenerator base;
+        private final double shift;
+
+        Shifted(ContinuousGenerator base, double shift) {
+            this.base = base;
+            this.shift = shift;
+        }
+
+        @Override public double sample() { return this.base.sample() + this.shift; }
+
+        @Override public void sample(double[] out, int off, int len) {
+            this.base.sample(out, off, len);
+            for (int i = off; i < off + len; i++) out[i] += this.shift;
+        }
+
+        @Override public void setSeed(long seed) { this.base.setSeed(seed); }
+        @Override public long getSeed() { return this.base.getSeed(); }
+        @Override public void reseed() { this.base.reseed(); }
     }
 
 
@@ -59,16 +316,65 @@ public class DistributionOptions {
     public DistributionType getType() {
         return this.type;
     }
+
+    /** @return the parameter values in the order of the registry schema */
+    public double[] getParameters() {
+        return this.params.clone();
+    }
+
+    /**
+     * @param name parameter name in the registry schema
+     * @return the value, 0 if the distribution has no parameter of that name
+     */
+    public double getParameter(String name) {
+        int i = DistributionRegistry.get(this.type).indexOf(name);
+        return i >= 0 ? this.params[i] : 0.0;
+    }
+
     public double getMean() {
-        return this.mean;
+        return this.getParameter("mean");
     }
     public double getStdDev() {
-        return this.stdDev;
+        return this.getParameter("stdDev");
     }
     public double getMin() {
-        return this.min;
+        return this.getParameter("min");
     }
     public double getMax() {
-        return this.max;
+        return this.getParameter("max");
+    }
+    public String getFile() {
+        return this.file;
+    }
+    public double getLower() {
+        return this.lower;
+    }
+    public double getUpper() {
+        return this.upper;
+    }
+    public double getShift() {
+        return this.shift;
+    }
+
+    @Override
+    public String toString() {
+        DistributionRegistry.Entry entry = DistributionRegistry.get(this.type);
+        StringBuilder sb = new StringBuilder(entry.getLabel()).append('(');
+        if (entry.usesFile()) {
+            sb.append(this.file);
+        } else {
+            for (int i = 0; i < this.params.length; i++) {
+                if (i > 0) sb.append(", ");
+                sb.append(entry.getParameters().get(i).name).append('=').append(this.params[i]);
+            }
+        }
+        sb.append(')');
+        if (this.shift != 0.0) sb.append(" + ").append(this.shift);
+        if (this.isBounded()) sb.append(" in [").append(this.lower).append(", ").append(this.upper).append(']');
+        return sb.toString();
+    }
+
+    private boolean isBounded() {
+        return this.lower != 0.0 || this.upper != Double.POSITIVE_INFINITY;
     }
 }
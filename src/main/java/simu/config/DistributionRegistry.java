@@ -0,0 +1,246 @@
+package simu.config;
+
+import distributions.Beta;
+import distributions.BetaPrime;
+import distributions.Cauchy;
+import distributions.ChiSquare;
+import distributions.Erlang;
+import distributions.FDistribution;
+import distributions.Gamma;
+import distributions.Generator;
+import distributions.Invgamma;
+import distributions.LogNormal;
+import distributions.Logistic;
+import distributions.Negexp;
+import distributions.Normal;
+import distributions.ParameterException;
+import distributions.Pareto;
+import distributions.Tstudent;
+import distributions.Uniform;
+import distributions.Weibull;
+import simu.config.DistributionOptions.DistributionType;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parameter schema and generator factory of every {@link DistributionType}. The dialog builds its
+ * fields from the schema and {@link DistributionOptions#toGen} builds the generators through the
+ * factories, so a distribution added here is available in both.
+ */
+public final class DistributionRegistry {
+
+    /** Values a parameter may take. */
+    public enum Kind {
+        REAL,     // any finite number
+        POSITIVE, // finite and > 0
+        COUNT     // integer >= 1
+    }
+
+    /**
+     * One parameter of a distribution.
+     */
+    public static final class Parameter {
+        public final String name;
+        public final String label;
+        public final Kind kind;
+        public final double defaultValue;
+
+        Parameter(String name, String label, Kind kind, double defaultValue) {
+            this.name = name;
+            this.label = label;
+            this.kind = kind;
+            this.defaultValue = defaultValue;
+        }
+
+        /** @return null if the value is allowed, otherwise an error message */
+        public String check(double value) {
+            if (!Double.isFinite(value)) return this.label + " must be a finite number";
+            switch (this.kind) {
+                case POSITIVE:
+                    return value > 0.0 ? null : this.label + " must be > 0";
+                case COUNT:
+                    return value >= 1.0 && value == Math.rint(value) ? null : this.label + " must be a whole number >= 1";
+                default:
+                    return null;
+            }
+        }
+    }
+
+    @FunctionalInterface
+    interface Factory {
+        Generator create(double[] p, long seed);
+    }
+
+    /**
+     * Schema and factory of one distribution type.
+     */
+    public static final class Entry {
+        private final DistributionType type;
+        private final String label;
+        private final List<Parameter> parameters;
+        private final boolean nonNegative;
+        private final Factory factory;
+
+        Entry(DistributionType type, String label, boolean nonNegative, Factory factory, Parameter... parameters) {
+            this.type = type;
+            this.label = label;
+            this.parameters = List.of(parameters);
+            this.nonNegative = nonNegative;
+            this.factory = factory;
+        }
+
+        public DistributionType getType() { return this.type; }
+        public String getLabel() { return this.label; }
+        public List<Parameter> getParameters() { return this.parameters; }
+
+        /** @return whether the generators are built from a sample file instead of parameters */
+        public boolean usesFile() { return this.factory == null; }
+
+        /** @return whether every sample is >= 0 for all parameter values, so no lower bound is needed for durations */
+        public boolean isNonNegative() { return this.nonNegative; }
+
+        /**
+         * @param name parameter name
+         * @return index of the parameter, -1 if the distribution has none of that name
+         */
+        public int indexOf(String name) {
+            for (int i = 0; i < this.parameters.size(); i++) {
+                if (this.parameters.get(i).name.equals(name)) return i;
+            }
+            return -1;
+        }
+
+        /** @return the default parameter values */
+        public double[] defaults() {
+            double[] p = new double[this.parameters.size()];
+            for (int i = 0; i < p.length; i++) p[i] = this.parameters.get(i).defaultValue;
+            return p;
+        }
+
+        /**
+         * @param params parameter values in schema order
+         * @return null if the values are allowed, otherwise an error message
+         */
+        public String check(double[] params) {
+            if (params.length != this.parameters.size()) {
+                return this.label + " takes " + this.parameters.size() + " parameters";
+            }
+            for (int i = 0; i < params.length; i++) {
+                String err = this.parameters.get(i).check(params[i]);
+                if (err != null) return err;
+            }
+            if (this.factory != null) {
+                try {
+                    this.factory.create(params, 1L);
+                } catch (ParameterException e) {
+                    return e.getMessage();
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Create a generator with the default Lehmer source and the reference algorithms.
+         * @param params parameter values in schema order
+         * @param seed seed of the uniform source
+         * @return the generator
+         */
+        public Generator create(double[] params, long seed) {
+            if (this.factory == null) {
+                throw new IllegalStateException(this.label + " is built from a sample file");
+            }
+            return this.factory.create(params, seed);
+        }
+    }
+
+    private static final Map<DistributionType, Entry> ENTRIES = new EnumMap<>(DistributionType.class);
+
+    static {
+        add(new Entry(DistributionType.NEGEXP, "Negative Exponential", true,
+                (p, s) -> new Negexp(p[0], s),
+                new Parameter("mean", "Mean", Kind.POSITIVE, 10.0)));
+        add(new Entry(DistributionType.NORMAL, "Normal", false,
+                (p, s) -> new Normal(p[0], p[1] * p[1], s), // Normal takes the variance
+                new Parameter("mean", "Mean", Kind.REAL, 10.0),
+                new Parameter("stdDev", "Std dev", Kind.POSITIVE, 5.0)));
+        add(new Entry(DistributionType.UNIFORM, "Uniform", false,
+                (p, s) -> new Uniform(p[0], p[1], s),
+                new Parameter("min", "Min", Kind.REAL, 0.0),
+                new Parameter("max", "Max", Kind.REAL, 1.0)));
+        add(new Entry(DistributionType.EMPIRICAL, "Empirical (from file)", false, null));
+        add(new Entry(DistributionType.TRACE, "Trace replay (from file)", false, null));
+        add(new Entry(DistributionType.GAMMA, "Gamma", true,
+                (p, s) -> new Gamma(p[1], p[0], s),
+                new Parameter("shape", "Shape", Kind.POSITIVE, 2.0),
+                new Parameter("scale", "Scale", Kind.POSITIVE, 5.0)));
+        add(new Entry(DistributionType.ERLANG, "Erlang", true,
+                (p, s) -> new Erlang(p[0], p[1], s),
+                new Parameter("shape", "Phases", Kind.COUNT, 2.0),
+                new Parameter("scale", "Phase mean", Kind.POSITIVE, 5.0)));
+        add(new Entry(DistributionType.LOGNORMAL, "Log-normal", true,
+                (p, s) -> new LogNormal(p[0], p[1] * p[1], s),
+                new Parameter("logMean", "Mean of log", Kind.REAL, 2.0),
+                new Parameter("logStdDev", "Std dev of log", Kind.POSITIVE, 0.5)));
+        add(new Entry(DistributionType.WEIBULL, "Weibull", true,
+                (p, s) -> new Weibull(p[1], p[0], s),
+                new Parameter("shape", "Shape", Kind.POSITIVE, 1.5),
+                new Parameter("scale", "Scale", Kind.POSITIVE, 10.0)));
+        add(new Entry(DistributionType.PARETO, "Pareto", true,
+                (p, s) -> new Pareto(p[1], p[0], s),
+                new Parameter("shape", "Shape", Kind.POSITIVE, 3.0),
+                new Parameter("scale", "Minimum", Kind.POSITIVE, 5.0)));
+        add(new Entry(DistributionType.BETA, "Beta", true,
+                (p, s) -> new Beta(p[0], p[1], s),
+                new Parameter("a", "Shape a", Kind.POSITIVE, 2.0),
+                new Parameter("b", "Shape b", Kind.POSITIVE, 5.0)));
+        add(new Entry(DistributionType.BETAPRIME, "Beta prime", true,
+                (p, s) -> new BetaPrime(p[0], p[1], s),
+                new Parameter("a", "Shape a", Kind.POSITIVE, 3.0),
+                new Parameter("b", "Shape b", Kind.POSITIVE, 4.0)));
+        add(new Entry(DistributionType.CAUCHY, "Cauchy", false,
+                (p, s) -> new Cauchy(p[0], p[1], s),
+                new Parameter("median", "Median", Kind.REAL, 10.0),
+                new Parameter("scale", "Scale", Kind.POSITIVE, 1.0)));
+        add(new Entry(DistributionType.LOGISTIC, "Logistic", false,
+                (p, s) -> new Logistic(p[0], p[1], s),
+                new Parameter("location", "Location", Kind.REAL, 10.0),
+                new Parameter("scale", "Scale", Kind.POSITIVE, 2.0)));
+        add(new Entry(DistributionType.CHISQUARE, "Chi-square", true,
+                (p, s) -> new ChiSquare((long) p[0], s),
+                new Parameter("df", "Degrees of freedom", Kind.COUNT, 4.0)));
+        add(new Entry(DistributionType.F, "F", true,
+                (p, s) -> new FDistribution((long) p[0], (long) p[1], s),
+                new Parameter("df1", "Numerator df", Kind.COUNT, 5.0),
+                new Parameter("df2", "Denominator df", Kind.COUNT, 10.0)));
+        add(new Entry(DistributionType.TSTUDENT, "Student's t", false,
+                (p, s) -> new Tstudent((long) p[0], s),
+                new Parameter("df", "Degrees of freedom", Kind.COUNT, 5.0)));
+        add(new Entry(DistributionType.INVGAMMA, "Inverse gamma", true,
+                (p, s) -> new Invgamma(p[1], p[0], s), // 1 / Gamma(scale, shape)
+                new Parameter("shape", "Shape", Kind.POSITIVE, 3.0),
+                new Parameter("scale", "Scale of 1/x", Kind.POSITIVE, 0.05)));
+    }
+
+    private static void add(Entry entry) {
+        ENTRIES.put(entry.type, entry);
+    }
+
+    private DistributionRegistry() {}
+
+    /**
+     * @param type distribution type
+     * @return schema and factory of the type
+     */
+    public static Entry get(DistributionType type) {
+        return ENTRIES.get(type);
+    }
+
+    /** @return all entries in declaration order of {@link DistributionType} */
+    public static Collection<Entry> entries() {
+        return Collections.unmodifiableCollection(ENTRIES.values());
+    }
+}
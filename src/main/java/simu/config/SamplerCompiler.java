@@ -0,0 +1,343 @@
+package simu.config;
+
+import distributions.ContinuousGenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Writes the class file of one {@link CompiledSampler} subclass and defines it as a hidden class.
+ * The class has one final field per leaf generator, typed with the generator's class where that
+ * class is public, one final field per constant, and a {@code sample()} whose code evaluates the
+ * expression on the operand stack.
+ * <p>
+ * The constants are set by the constructor, so the class file only depends on the shape of the
+ * expression and the types of its leaves. Identical class files are defined once and shared by all
+ * samplers compiled to them: every call site in {@code sample()} only ever sees one receiver type,
+ * the JIT inlines the leaves into one flat method, and a caller sampling many servers of the same
+ * expression sees one receiver class instead of one per server. The class file is version 49
+ * (Java 5), which is verified by type inference and needs no stack map frames; it only uses
+ * instructions that exist in that version.
+ */
+final class SamplerCompiler {
+    private static final String SUPER = "simu/config/CompiledSampler";
+    private static final String NAME = "simu/config/CompiledSampler$Expr";
+    private static final String GEN = "distributions/ContinuousGenerator";
+    private static final String CTOR = "([L" + GEN + ";[DLjava/lang/String;)V";
+    private static final String SUPER_CTOR = "([L" + GEN + ";Ljava/lang/String;)V";
+
+    // constructors of the classes defined so far, by class file
+    private static final Map<ByteBuffer, MethodHandle> CLASSES = new ConcurrentHashMap<>();
+
+    // opcodes
+    static final int ALOAD_0 = 0x2a, ALOAD_1 = 0x2b, ALOAD_2 = 0x2c, ALOAD_3 = 0x2d, AALOAD = 0x32, DALOAD = 0x31, SIPUSH = 0x11;
+    static final int DADD = 0x63, DSUB = 0x67, DMUL = 0x6b, DDIV = 0x6f, DNEG = 0x77, DCMPG = 0x98, IFGE = 0x9c;
+    static final int GOTO = 0xa7, DRETURN = 0xaf, RETURN = 0xb1, GETFIELD = 0xb4, PUTFIELD = 0xb5;
+    static final int INVOKEVIRTUAL = 0xb6, INVOKESPECIAL = 0xb7, INVOKESTATIC = 0xb8, INVOKEINTERFACE = 0xb9, CHECKCAST = 0xc0;
+
+    private final Pool pool = new Pool();
+    private final List<ContinuousGenerator> leaves = new ArrayList<>();
+    private final List<String> leafTypes = new ArrayList<>();
+    private final Map<ContinuousGenerator, Integer> leafIndex = new IdentityHashMap<>();
+    private final List<Double> constants = new ArrayList<>();
+    private final Code sample = new Code();
+
+    /** @return the code of {@code sample()}; leaves with {@link #sampleLeaf}, arithmetic with {@link Code#op} */
+    Code code() {
+        return this.sample;
+    }
+
+    /**
+     * Push one sample of a leaf. A generator used more than once is held in one field and sampled each time.
+     * @param gen leaf generator
+     */
+    void sampleLeaf(ContinuousGenerator gen) {
+        Integer i = this.leafIndex.get(gen);
+        if (i == null) {
+            i = this.leaves.size();
+            this.leaves.add(gen);
+            this.leafTypes.add(accessibleType(gen.getClass()));
+            this.leafIndex.put(gen, i);
+        }
+        String type = this.leafTypes.get(i);
+        this.sample.op(ALOAD_0, 1);
+        this.sample.op(GETFIELD, 0);
+        this.sample.u2(this.pool.field(NAME, "g" + i, "L" + type + ";"));
+        if (type.equals(GEN)) {
+            this.sample.op(INVOKEINTERFACE, 1);
+            this.sample.u2(this.pool.method(true, GEN, "sample", "()D"));
+            this.sample.u1(1);
+            this.sample.u1(0);
+        } else {
+            this.sample.op(INVOKEVIRTUAL, 1);
+            this.sample.u2(this.pool.method(false, type, "sample", "()D"));
+        }
+    }
+
+    /** Push a constant, held in a field of its own. */
+    void constant(double v) {
+        int i = this.constants.size();
+        this.constants.add(v);
+        this.sample.op(ALOAD_0, 1);
+        this.sample.op(GETFIELD, 1);
+        this.sample.u2(this.pool.field(NAME, "c" + i, "D"));
+    }
+
+    /** Apply {@code Math.min} or {@code Math.max} to the two doubles on the stack. */
+    void math(String name) {
+        this.sample.op(INVOKESTATIC, -2);
+        this.sample.u2(this.pool.method(false, "java/lang/Math", name, "(DD)D"));
+    }
+
+    // the generated code can only name classes that are public all the way out
+    private static String accessibleType(Class<?> k) {
+        for (Class<?> c = k; c != null; c = c.getEnclosingClass()) {
+            if (!Modifier.isPublic(c.getModifiers()) || c.isHidden() || c.isAnonymousClass()) return GEN;
+        }
+        return k.getName().replace('.', '/');
+    }
+
+    /**
+     * Finish {@code sample()}, define the class unless an identical one is defined already, and create
+     * a sampler of it.
+     * @param expression source text, kept for {@code toString()}
+     * @return a new instance of the hidden class
+     */
+    CompiledSampler define(String expression) {
+        this.sample.op(DRETURN, -2);
+        byte[] bytes = this.classFile();
+        double[] values = new double[this.constants.size()];
+        for (int i = 0; i < values.length; i++) values[i] = this.constants.get(i);
+        try {
+            MethodHandle ctor = CLASSES.computeIfAbsent(ByteBuffer.wrap(bytes), k -> defineClass(bytes));
+            return (CompiledSampler) ctor.invoke(this.leaves.toArray(new ContinuousGenerator[0]), values, expression);
+        } catch (Throwable e) {
+            throw new IllegalStateException("Cannot define the sampler of " + expression, e);
+        }
+    }
+
+    private static MethodHandle defineClass(byte[] bytes) {
+        try {
+            MethodHandles.Lookup hidden = MethodHandles.lookup().defineHiddenClass(bytes, true);
+            return hidden.findConstructor(hidden.lookupClass(),
+                    MethodType.methodType(void.class, ContinuousGenerator[].class, double[].class, String.class));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot define a sampler class", e);
+        }
+    }
+
+    private byte[] classFile() {
+        // constructor: super(leaves, expression); g<i> = (T<i>) leaves[i]; c<i> = constants[i]
+        Code init = new Code();
+        init.op(ALOAD_0, 1);
+        init.op(ALOAD_1, 1);
+        init.op(ALOAD_3, 1);
+        init.op(INVOKESPECIAL, -3);
+        init.u2(this.pool.method(false, SUPER, "<init>", SUPER_CTOR));
+        for (int i = 0; i < this.leaves.size(); i++) {
+            String type = this.leafTypes.get(i);
+            init.op(ALOAD_0, 1);
+            init.op(ALOAD_1, 1);
+            init.op(SIPUSH, 1);
+            init.u2(i);
+            init.op(AALOAD, -1);
+            init.op(CHECKCAST, 0);
+            init.u2(this.pool.cls(type));
+            init.op(PUTFIELD, -2);
+            init.u2(this.pool.field(NAME, "g" + i, "L" + type + ";"));
+        }
+        for (int i = 0; i < this.constants.size(); i++) {
+            init.op(ALOAD_0, 1);
+            init.op(ALOAD_2, 1);
+            init.op(SIPUSH, 1);
+            init.u2(i);
+            init.op(DALOAD, 0);
+            init.op(PUTFIELD, -3);
+            init.u2(this.pool.field(NAME, "c" + i, "D"));
+        }
+        init.op(RETURN, 0);
+
+        int thisClass = this.pool.cls(NAME), superClass = this.pool.cls(SUPER);
+        int code = this.pool.utf8("Code");
+        int leafCount = this.leaves.size();
+        int[] fieldNames = new int[leafCount + this.constants.size()], fieldTypes = new int[fieldNames.length];
+        for (int i = 0; i < leafCount; i++) {
+            fieldNames[i] = this.pool.utf8("g" + i);
+            fieldTypes[i] = this.pool.utf8("L" + this.leafTypes.get(i) + ";");
+        }
+        for (int i = leafCount; i < fieldNames.length; i++) {
+            fieldNames[i] = this.pool.utf8("c" + (i - leafCount));
+            fieldTypes[i] = this.pool.utf8("D");
+        }
+        int initName = this.pool.utf8("<init>"), initType = this.pool.utf8(CTOR);
+        int sampleName = this.pool.utf8("sample"), sampleType = this.pool.utf8("()D");
+
+        Bytes out = new Bytes();
+        out.u4(0xCAFEBABE);
+        out.u2(0);
+        out.u2(49);
+        this.pool.writeTo(out);
+        out.u2(0x0031); // public final super
+        out.u2(thisClass);
+        out.u2(superClass);
+        out.u2(0);      // interfaces
+        out.u2(fieldNames.length);
+        for (int i = 0; i < fieldNames.length; i++) {
+            out.u2(0x0012); // private final
+            out.u2(fieldNames[i]);
+            out.u2(fieldTypes[i]);
+            out.u2(0);
+        }
+        out.u2(2);
+        writeMethod(out, 0x0001, initName, initType, code, init, 4);
+        writeMethod(out, 0x0011, sampleName, sampleType, code, this.sample, 1);
+        out.u2(0);      // attributes
+        return out.toByteArray();
+    }
+
+    private static void writeMethod(Bytes out, int access, int name, int type, int codeAttr, Code code, int locals) {
+        byte[] b = code.toByteArray();
+        out.u2(access);
+        out.u2(name);
+        out.u2(type);
+        out.u2(1);
+        out.u2(codeAttr);
+        out.u4(12 + b.length);
+        out.u2(code.maxDepth);
+        out.u2(locals);
+        out.u4(b.length);
+        out.write(b, 0, b.length);
+        out.u2(0); // exception table
+        out.u2(0); // attributes
+    }
+
+
+    /** Big-endian class file output. */
+    static class Bytes extends ByteArrayOutputStream {
+        void u1(int v) { this.write(v); }
+        void u2(int v) { this.write(v >>> 8); this.write(v); }
+        void u4(int v) { this.u2(v >>> 16); this.u2(v); }
+    }
+
+    /**
+     * Bytecode of one method with the operand stack depth tracked in slots (a double takes two).
+     */
+    static final class Code extends Bytes {
+        private int depth;
+        private int maxDepth;
+
+        /**
+         * @param opcode instruction
+         * @param stackDelta change of the stack depth in slots
+         */
+        void op(int opcode, int stackDelta) {
+            this.u1(opcode);
+            this.depth += stackDelta;
+            this.maxDepth = Math.max(this.maxDepth, this.depth);
+        }
+
+        /** @return offset of the next instruction */
+        int position() {
+            return this.count;
+        }
+
+        /**
+         * Emit a branch with a placeholder offset.
+         * @return position of the branch instruction, for {@link #patch}
+         */
+        int branch(int opcode, int stackDelta) {
+            int at = this.count;
+            this.op(opcode, stackDelta);
+            this.u2(0);
+            return at;
+        }
+
+        /** Point the branch emitted at {@code at} to the next instruction. */
+        void patch(int at) {
+            int offset = this.count - at;
+            this.buf[at + 1] = (byte) (offset >>> 8);
+            this.buf[at + 2] = (byte) offset;
+        }
+
+        int depth() {
+            return this.depth;
+        }
+
+        /** Reset the tracked depth where control flow joins, e.g. at the start of an else branch. */
+        void setDepth(int depth) {
+            this.depth = depth;
+        }
+    }
+
+
+    /**
+     * Constant pool with de-duplicated entries.
+     */
+    private static final class Pool {
+        private final Bytes entries = new Bytes();
+        private final Map<String, Integer> index = new HashMap<>();
+        private int count = 1;
+
+        int utf8(String s) {
+            return this.entry("U" + s, 1, () -> {
+                byte[] b = s.getBytes(java.nio.charset.StandardCharsets.UTF_8); // names here are ASCII
+                this.entries.u1(1);
+                this.entries.u2(b.length);
+                this.entries.write(b, 0, b.length);
+            });
+        }
+
+        int cls(String internalName) {
+            int name = this.utf8(internalName);
+            return this.entry("C" + internalName, 1, () -> { this.entries.u1(7); this.entries.u2(name); });
+        }
+
+        private int nameAndType(String name, String type) {
+            int n = this.utf8(name), t = this.utf8(type);
+            return this.entry("N" + name + ":" + type, 1, () -> { this.entries.u1(12); this.entries.u2(n); this.entries.u2(t); });
+        }
+
+        int field(String owner, String name, String type) {
+            return this.member(9, owner, name, type);
+        }
+
+        int method(boolean onInterface, String owner, String name, String type) {
+            return this.member(onInterface ? 11 : 10, owner, name, type);
+        }
+
+        private int member(int tag, String owner, String name, String type) {
+            int c = this.cls(owner), nt = this.nameAndType(name, type);
+            return this.entry(tag + owner + "." + name + ":" + type, 1, () -> {
+                this.entries.u1(tag);
+                this.entries.u2(c);
+                this.entries.u2(nt);
+            });
+        }
+
+        private int entry(String key, int slots, Runnable write) {
+            Integer i = this.index.get(key);
+            if (i != null) return i;
+            write.run();
+            int at = this.count;
+            this.count += slots;
+            this.index.put(key, at);
+            return at;
+        }
+
+        void writeTo(Bytes out) {
+            out.u2(this.count);
+            byte[] b = this.entries.toByteArray();
+            out.write(b, 0, b.length);
+        }
+    }
+}
@@ -0,0 +1,497 @@
+package simu.config;
+
+import distributions.ContinuousGenerator;
+import distributions.RandomSource;
+import distributions.SamplingMethod;
+import simu.config.DistributionOptions.DistributionType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * A sampler written as an arithmetic expression over distributions, e.g.
+ * {@code 1.4 * Normal(15, 5) / speed}. Compiling it generates a {@link CompiledSampler} hidden class
+ * whose {@code sample()} draws the leaves and does the arithmetic in one method, instead of a chain
+ * of wrapper generators with a virtual call per hop. The class is shared by all compilations with the
+ * same shape and leaf types, whatever the values of the constants.
+ * <p>
+ * Grammar:
+ * <pre>
+ *   expr    = term { ('+' | '-') term }
+ *   term    = unary { ('*' | '/') unary }
+ *   unary   = '-' unary | primary
+ *   primary = number | name | call | '(' expr ')'
+ *   call    = Distribution '(' args ')'         any {@link DistributionType}, case-insensitive,
+ *                                               parameters in registry order, a quoted file name
+ *                                               for Empirical and Trace
+ *           | 'trunc' '(' call ',' expr ',' expr ')'   distribution conditioned on [lo, hi]
+ *           | 'mix' '(' expr ',' expr ',' expr ')'     first with probability p, else second
+ *           | ('min' | 'max') '(' expr ',' expr ')'
+ * </pre>
+ * A name is bound at compile time to a number (a constant), a {@link DistributionOptions} or a
+ * {@link ContinuousGenerator} (a leaf that is sampled where the name occurs); {@code inf} is
+ * infinity unless bound. Each distribution call is a leaf of its own, so {@code Normal(0,1) +
+ * Normal(0,1)} adds two independent samples, while a bound generator used twice is sampled twice.
+ * Unlike {@link DistributionOptions} on its own, a distribution in an expression is not bounded
+ * below at 0 unless it is truncated.
+ * <p>
+ * Constant subexpressions are folded; everything else is evaluated in the order written, so the
+ * result is the same as the plain Java expression.
+ */
+public final class SamplerExpression {
+    private final String text;
+    private final Node root;
+
+    private SamplerExpression(String text, Node root) {
+        this.text = text;
+        this.root = root;
+    }
+
+    /**
+     * @param text expression, see the class comment for the grammar
+     * @return the parsed expression
+     * @throws IllegalArgumentException on a syntax error
+     */
+    public static SamplerExpression parse(String text) {
+        Parser p = new Parser(text);
+        Node root = p.expr();
+        p.skipSpace();
+        if (p.pos < text.length()) throw p.error("Unexpected '" + text.charAt(p.pos) + "'");
+        return new SamplerExpression(text, root);
+    }
+
+    /**
+     * Compile with the Lehmer source and the reference algorithms.
+     * @see #compile(Map, LongSupplier, RandomSource, SamplingMethod)
+     */
+    public ContinuousGenerator compile(Map<String, ?> bindings, LongSupplier seeds) {
+        return this.compile(bindings, seeds, RandomSource.LEHMER, SamplingMethod.REFERENCE);
+    }
+
+    /**
+     * Generate the sampler class of this expression and create an instance of it.
+     * @param bindings values of the names: {@code Number}, {@code DistributionOptions} or {@code ContinuousGenerator}
+     * @param seeds seed of each new leaf, in order of occurrence
+     * @param source uniform source of the new leaves
+     * @param method sampling algorithm of the new leaves
+     * @return the sampler
+     * @throws IllegalArgumentException for unbound names or invalid distribution parameters
+     */
+    public ContinuousGenerator compile(Map<String, ?> bindings, LongSupplier seeds, RandomSource source, SamplingMethod method) {
+        Context ctx = new Context(bindings, seeds, source, method);
+        Double c = this.root.constant(ctx);
+        if (c != null) ctx.out.constant(c);
+        else this.root.emit(ctx);
+        return ctx.out.define(this.text);
+    }
+
+    @Override
+    public String toString() {
+        return this.text;
+    }
+
+
+    // ---------- Compilation ----------
+
+    private static final class Context {
+        final Map<String, ?> bindings;
+        final LongSupplier seeds;
+        final RandomSource source;
+        final SamplingMethod method;
+        final SamplerCompiler out = new SamplerCompiler();
+
+        Context(Map<String, ?> bindings, LongSupplier seeds, RandomSource source, SamplingMethod method) {
+            this.bindings = bindings;
+            this.seeds = seeds;
+            this.source = source;
+            this.method = method;
+        }
+
+        ContinuousGenerator leaf(DistributionOptions d) {
+            return d.toGen(this.seeds.getAsLong(), this.source, this.method);
+        }
+    }
+
+    private abstract static class Node {
+        /** @return the value if the subtree does not sample, otherwise null */
+        Double constant(Context ctx) {
+            return null;
+        }
+
+        /** Emit code that pushes one sample of the subtree. */
+        abstract void emit(Context ctx);
+
+        // emit a subtree, folded if constant
+        static void push(Node n, Context ctx) {
+            Double c = n.constant(ctx);
+            if (c != null) ctx.out.constant(c);
+            else n.emit(ctx);
+        }
+
+        double require(Context ctx, String what) {
+            Double c = this.constant(ctx);
+            if (c == null) throw new IllegalArgumentException(what + " must be a constant");
+            return c;
+        }
+    }
+
+    private static final class Const extends Node {
+        final double value;
+        Const(double value) { this.value = value; }
+        @Override Double constant(Context ctx) { return this.value; }
+        @Override void emit(Context ctx) { ctx.out.constant(this.value); }
+    }
+
+    private static final class Name extends Node {
+        final String name;
+        Name(String name) { this.name = name; }
+
+        private Object value(Context ctx) {
+            Object v = ctx.bindings.get(this.name);
+            if (v == null && this.name.equals("inf")) return Double.POSITIVE_INFINITY;
+            if (v == null) throw new IllegalArgumentException("Unbound name '" + this.name + "'");
+            return v;
+        }
+
+        @Override Double constant(Context ctx) {
+            Object v = this.value(ctx);
+            return v instanceof Number ? ((Number) v).doubleValue() : null;
+        }
+
+        @Override void emit(Context ctx) {
+            Object v = this.value(ctx);
+            if (v instanceof DistributionOptions) {
+                ctx.out.sampleLeaf(ctx.leaf((DistributionOptions) v));
+            } else if (v instanceof ContinuousGenerator) {
+                ctx.out.sampleLeaf((ContinuousGenerator) v);
+            } else {
+                throw new IllegalArgumentException("'" + this.name + "' is bound to a " + v.getClass().getSimpleName());
+            }
+        }
+    }
+
+    private static final class Dist extends Node {
+        final DistributionType type;
+        final List<Node> args;
+        final String file;
+
+        Dist(DistributionType type, List<Node> args, String file) {
+            this.type = type;
+            this.args = args;
+            this.file = file;
+        }
+
+        DistributionOptions options(Context ctx) {
+            DistributionOptions d;
+            if (this.type == DistributionType.TRACE) return DistributionOptions.trace(this.file);
+            if (this.type == DistributionType.EMPIRICAL) {
+                d = DistributionOptions.empirical(this.file);
+            } else {
+                double[] p = new double[this.args.size()];
+                for (int i = 0; i < p.length; i++) p[i] = this.args.get(i).require(ctx, "A distribution parameter");
+                String err = DistributionRegistry.get(this.type).check(p);
+                if (err != null) throw new IllegalArgumentException(err);
+                d = DistributionOptions.of(this.type, p);
+            }
+            return d.withBounds(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+        }
+
+        @Override void emit(Context ctx) { ctx.out.sampleLeaf(ctx.leaf(this.options(ctx))); }
+    }
+
+    private static final class Trunc extends Node {
+        final Dist dist;
+        final Node lower, upper;
+
+        Trunc(Dist dist, Node lower, Node upper) {
+            this.dist = dist;
+            this.lower = lower;
+            this.upper = upper;
+        }
+
+        @Override void emit(Context ctx) {
+            double lo = this.lower.require(ctx, "A bound"), hi = this.upper.require(ctx, "A bound");
+            DistributionOptions d = this.dist.options(ctx).withBounds(lo, hi);
+            String err = d.check();
+            if (err != null) throw new IllegalArgumentException(err);
+            ctx.out.sampleLeaf(ctx.leaf(d));
+        }
+    }
+
+    private static final class Neg extends Node {
+        final Node operand;
+        Neg(Node operand) { this.operand = operand; }
+
+        @Override Double constant(Context ctx) {
+            Double c = this.operand.constant(ctx);
+            return c == null ? null : -c;
+        }
+
+        @Override void emit(Context ctx) {
+            this.operand.emit(ctx);
+            ctx.out.code().op(SamplerCompiler.DNEG, 0);
+        }
+    }
+
+    private static final class Binary extends Node {
+        final char op;
+        final Node left, right;
+
+        Binary(char op, Node left, Node right) {
+            this.op = op;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override Double constant(Context ctx) {
+            Double l = this.left.constant(ctx), r = this.right.constant(ctx);
+            if (l == null || r == null) return null;
+            switch (this.op) {
+                case '+': return l + r;
+                case '-': return l - r;
+                case '*': return l * r;
+                default:  return l / r;
+            }
+        }
+
+        @Override void emit(Context ctx) {
+            push(this.left, ctx);
+            push(this.right, ctx);
+            int opcode;
+            switch (this.op) {
+                case '+': opcode = SamplerCompiler.DADD; break;
+                case '-': opcode = SamplerCompiler.DSUB; break;
+                case '*': opcode = SamplerCompiler.DMUL; break;
+                default:  opcode = SamplerCompiler.DDIV; break;
+            }
+            ctx.out.code().op(opcode, -2);
+        }
+    }
+
+    private static final class MinMax extends Node {
+        final String fn;
+        final Node a, b;
+
+        MinMax(String fn, Node a, Node b) {
+            this.fn = fn;
+            this.a = a;
+            this.b = b;
+        }
+
+        @Override Double constant(Context ctx) {
+            Double x = this.a.constant(ctx), y = this.b.constant(ctx);
+            if (x == null || y == null) return null;
+            return this.fn.equals("min") ? Math.min(x, y) : Math.max(x, y);
+        }
+
+        @Override void emit(Context ctx) {
+            push(this.a, ctx);
+            push(this.b, ctx);
+            ctx.out.math(this.fn);
+        }
+    }
+
+    private static final class Mix extends Node {
+        final Node p, first, second;
+
+        Mix(Node p, Node first, Node second) {
+            this.p = p;
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override void emit(Context ctx) {
+            double prob = this.p.require(ctx, "A mixture probability");
+            if (!(prob >= 0.0 && prob <= 1.0)) throw new IllegalArgumentException("A mixture probability must be in [0, 1]");
+            // if (u < p) first else second; only the chosen branch is sampled
+            SamplerCompiler.Code code = ctx.out.code();
+            ctx.out.sampleLeaf(ctx.leaf(DistributionOptions.uniform(0.0, 1.0)));
+            ctx.out.constant(prob);
+            code.op(SamplerCompiler.DCMPG, -3);
+            int toSecond = code.branch(SamplerCompiler.IFGE, -1);
+            int depth = code.depth();
+            push(this.first, ctx);
+            int toEnd = code.branch(SamplerCompiler.GOTO, 0);
+            code.patch(toSecond);
+            code.setDepth(depth);
+            push(this.second, ctx);
+            code.patch(toEnd);
+        }
+    }
+
+
+    // ---------- Parsing ----------
+
+    private static final class Parser {
+        final String s;
+        int pos;
+
+        Parser(String s) {
+            this.s = s;
+        }
+
+        IllegalArgumentException error(String msg) {
+            return new IllegalArgumentException(msg + " at position " + this.pos + " of \"" + this.s + "\"");
+        }
+
+        void skipSpace() {
+            while (this.pos < this.s.length() && Character.isWhitespace(this.s.charAt(this.pos))) this.pos++;
+        }
+
+        boolean eat(char c) {
+            this.skipSpace();
+            if (this.pos < this.s.length() && this.s.charAt(this.pos) == c) {
+                this.pos++;
+                return true;
+            }
+            return false;
+        }
+
+        void expect(char c) {
+            if (!this.eat(c)) throw this.error("Expected '" + c + "'");
+        }
+
+        Node expr() {
+            Node n = this.term();
+            while (true) {
+                if (this.eat('+')) n = new Binary('+', n, this.term());
+                else if (this.eat('-')) n = new Binary('-', n, this.term());
+                else return n;
+            }
+        }
+
+        Node term() {
+            Node n = this.unary();
+            while (true) {
+                if (this.eat('*')) n = new Binary('*', n, this.unary());
+                else if (this.eat('/')) n = new Binary('/', n, this.unary());
+                else return n;
+            }
+        }
+
+        Node unary() {
+            return this.eat('-') ? new Neg(this.unary()) : this.primary();
+        }
+
+        Node primary() {
+            this.skipSpace();
+            if (this.eat('(')) {
+                Node n = this.expr();
+                this.expect(')');
+                return n;
+            }
+            if (this.pos >= this.s.length()) throw this.error("Unexpected end");
+            char c = this.s.charAt(this.pos);
+            if (Character.isDigit(c) || c == '.') return new Const(this.number());
+            if (!Character.isLetter(c) && c != '_') throw this.error("Unexpected '" + c + "'");
+            String name = this.name();
+            if (!this.eat('(')) return new Name(name);
+            return this.call(name);
+        }
+
+        Node call(String name) {
+            String fn = name.toLowerCase(Locale.ROOT);
+            switch (fn) {
+                case "min":
+                case "max": {
+                    Node a = this.expr();
+                    this.expect(',');
+                    Node b = this.expr();
+                    this.expect(')');
+                    return new MinMax(fn, a, b);
+                }
+                case "mix": {
+                    Node p = this.expr();
+                    this.expect(',');
+                    Node a = this.expr();
+                    this.expect(',');
+                    Node b = this.expr();
+                    this.expect(')');
+                    return new Mix(p, a, b);
+                }
+                case "trunc": {
+                    this.skipSpace();
+                    int at = this.pos;
+                    String inner = this.name();
+                    if (!this.eat('(')) { this.pos = at; throw this.error("trunc applies to a distribution"); }
+                    Node d = this.call(inner);
+                    if (!(d instanceof Dist)) { this.pos = at; throw this.error("trunc applies to a distribution"); }
+                    this.expect(',');
+                    Node lo = this.expr();
+                    this.expect(',');
+                    Node hi = this.expr();
+                    this.expect(')');
+                    return new Trunc((Dist) d, lo, hi);
+                }
+                default:
+                    return this.distribution(name);
+            }
+        }
+
+        Node distribution(String name) {
+            DistributionType type;
+            try {
+                type = DistributionType.valueOf(name.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw this.error("Unknown function '" + name + "'");
+            }
+            DistributionRegistry.Entry entry = DistributionRegistry.get(type);
+            if (entry.usesFile()) {
+                String file = this.string();
+                this.expect(')');
+                return new Dist(type, List.of(), file);
+            }
+            List<Node> args = new ArrayList<>();
+            if (!this.eat(')')) {
+                do args.add(this.expr()); while (this.eat(','));
+                this.expect(')');
+            }
+            if (args.size() != entry.getParameters().size()) {
+                throw this.error(entry.getLabel() + " takes " + entry.getParameters().size() + " parameters");
+            }
+            return new Dist(type, args, null);
+        }
+
+        String name() {
+            this.skipSpace();
+            int start = this.pos;
+            while (this.pos < this.s.length()
+                    && (Character.isLetterOrDigit(this.s.charAt(this.pos)) || this.s.charAt(this.pos) == '_')) {
+                this.pos++;
+            }
+            if (start == this.pos) throw this.error("Expected a name");
+            return this.s.substring(start, this.pos);
+        }
+
+        double number() {
+            int start = this.pos;
+            while (this.pos < this.s.length()) {
+                char c = this.s.charAt(this.pos);
+                boolean exponentSign = (c == '+' || c == '-') && this.pos > start
+                        && (this.s.charAt(this.pos - 1) == 'e' || this.s.charAt(this.pos - 1) == 'E');
+                if (!Character.isDigit(c) && c != '.' && c != 'e' && c != 'E' && !exponentSign) break;
+                this.pos++;
+            }
+            try {
+                return Double.parseDouble(this.s.substring(start, this.pos));
+            } catch (NumberFormatException e) {
+                this.pos = start;
+                throw this.error("Invalid number");
+            }
+        }
+
+        String string() {
+            this.skipSpace();
+            char q = this.pos < this.s.length() ? this.s.charAt(this.pos) : 0;
+            if (q != '\'' && q != '"') throw this.error("Expected a quoted file name");
+            int end = this.s.indexOf(q, this.pos + 1);
+            if (end < 0) throw this.error("Unterminated file name");
+            String v = this.s.substring(this.pos + 1, end);
+            this.pos = end + 1;
+            return v;
+        }
+    }
+}
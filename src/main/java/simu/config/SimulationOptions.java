@@ -1,5 +1,9 @@
 package simu.config;
 
+import distributions.QuasiRandomSequence;
+import distributions.RandomSource;
+import distributions.SamplingMethod;
+
 import java.util.Arrays;
 
 /**
@@ -12,13 +16,42 @@ public class SimulationOptions {
     private double simulationDuration;
     private long uiDelayMs;
 
+    // clock time base: ticks per time unit, 0 = plain double time
+    private long tickResolution;
+
     // multiserver service points
     private int numMechanics;
     private int numWashers;
 
+    // directory for the per-customer column store, null = not recorded
+    private String customerRecordDirectory;
+
+    // directories of the per-input variate files written or replayed, null = draw as usual
+    private String variateRecordDirectory;
+    private String variateReplayDirectory;
+
     // random seed for reproducibility
     private long baseRandomSeed;
 
+    // stream of the base seed this run draws its generator seeds from, -1 = legacy seeding
+    private int randomStream = -1;
+
+    // uniform source and algorithm family of all distributions
+    private RandomSource randomSource = RandomSource.LEHMER;
+    private SamplingMethod samplingMethod = SamplingMethod.REFERENCE;
+
+    // randomized quasi-Monte Carlo design the replications draw from, null = pseudo-random
+    private QuasiRandomSequence quasiRandom;
+
+    // draw 1 - u for every uniform u, the antithetic twin of the run without it
+    private boolean antithetic;
+
+    // draw every customer's routing and service times from streams keyed by its arrival number
+    private boolean commonRandomNumbers;
+
+    // samples per buffer of the background prefetch of every generator, 0 = sample on the engine thread
+    private int prefetchBlock;
+
     // distributions
     private DistributionOptions interArrival;
     private DistributionOptions receptionService;
@@ -29,6 +62,9 @@ public class SimulationOptions {
     private double probNeedsMechanic;
     private double probNeedsWash;
 
+    // draw the whole customer path with one alias-method sample instead of one draw per decision
+    private boolean aliasRouting;
+
     // conditional wash program probabilities
     private double probWashExterior;
     private double probWashInterior;
@@ -127,6 +163,13 @@ public class SimulationOptions {
     public long getUiDelayMillis() { return this.uiDelayMs; }
     public void setUiDelayMillis(long uiDelayMillis) { this.uiDelayMs = uiDelayMillis; }
 
+    /**
+     * Ticks per simulation time unit for the fixed-point clock, e.g. 1_000_000_000 for nanosecond ticks.
+     * 0 (the default) keeps the plain {@code double} time base.
+     */
+    public long getTickResolution() { return this.tickResolution; }
+    public void setTickResolution(long ticksPerUnit) { this.tickResolution = ticksPerUnit; }
+
     public int getMechanicServers() { return this.numMechanics; }
     public void setMechanicServers(int mechanicServers) { this.numMechanics = mechanicServers; }
 
@@ -148,9 +191,100 @@ public class SimulationOptions {
     public double getWashProbBoth() { return probWashBoth; }
     public void setWashProbBoth(double probability) { this.probWashBoth = probability; }
 
+    /**
+     * Whether the route and wash program of a customer are drawn together with one sample of Vose's
+     * alias tables (see {@code RouteSampler}) instead of one random number per decision. The routes have
+     * the same distribution but a different sequence; false (the default) reproduces earlier runs.
+     */
+    public boolean isAliasRouting() { return this.aliasRouting; }
+    public void setAliasRouting(boolean aliasRouting) { this.aliasRouting = aliasRouting; }
+
+    /**
+     * Directory where every departed customer is recorded in column files (see {@code CustomerColumnStore}).
+     * null (the default) disables recording.
+     */
+    public String getCustomerRecordDirectory() { return this.customerRecordDirectory; }
+    public void setCustomerRecordDirectory(String directory) { this.customerRecordDirectory = directory; }
+
+    /**
+     * Directory where every variate the run draws is recorded, in one file per stochastic input and server
+     * (see {@code distributions.RecordingGenerator}): {@code arrival-0.f64}, {@code mechanic-1.f64},
+     * {@code routing-0.f64} etc. null (the default) disables recording.
+     */
+    public String getVariateRecordDirectory() { return this.variateRecordDirectory; }
+    public void setVariateRecordDirectory(String directory) { this.variateRecordDirectory = directory; }
+
+    /**
+     * Directory of a recording (see {@link #getVariateRecordDirectory()}) whose variates the run draws
+     * instead of sampling its distributions, in the recorded order per input and server, so that a changed
+     * engine can be checked to give the results of the recorded run. A run that needs more variates than were
+     * recorded fails. null (the default) samples as usual.
+     */
+    public String getVariateReplayDirectory() { return this.variateReplayDirectory; }
+    public void setVariateReplayDirectory(String directory) { this.variateReplayDirectory = directory; }
+
     public long getBaseRandomSeed() { return this.baseRandomSeed; }
     public void setBaseRandomSeed(long baseRandomSeed) { this.baseRandomSeed = baseRandomSeed; }
 
+    /**
+     * Index of the non-overlapping random stream (see {@code distributions.RandomStreams}) the generators
+     * of this run are seeded from, e.g. the replication number. -1 (the default) seeds them from a
+     * {@code java.util.Random} on the base seed as before.
+     */
+    public int getRandomStream() { return this.randomStream; }
+    public void setRandomStream(int stream) { this.randomStream = stream; }
+
+    /**
+     * Uniform source all service and arrival distributions draw from. LEHMER (the default)
+     * is the original generator and reproduces earlier runs for the same seed.
+     */
+    public RandomSource getRandomSource() { return this.randomSource; }
+    public void setRandomSource(RandomSource randomSource) { this.randomSource = randomSource; }
+
+    /**
+     * Algorithm family of the service and arrival distributions. FAST selects e.g. the Ziggurat samplers
+     * for normal and exponential times; REFERENCE (the default) reproduces earlier runs. The GUI
+     * sets FAST unless chosen otherwise, see {@code SimParameters}.
+     */
+    public SamplingMethod getSamplingMethod() { return this.samplingMethod; }
+    public void setSamplingMethod(SamplingMethod samplingMethod) { this.samplingMethod = samplingMethod; }
+
+    /**
+     * Randomized quasi-Monte Carlo sequence of a replication design (see {@code distributions.QuasiRandomSequence}).
+     * The run is point {@link #getRandomStream()} (0 if none is set) of the design with the base seed, and
+     * every stochastic input draws from its own coordinate. null (the default) draws pseudo-random numbers
+     * from {@link #getRandomSource()}.
+     */
+    public QuasiRandomSequence getQuasiRandom() { return this.quasiRandom; }
+    public void setQuasiRandom(QuasiRandomSequence quasiRandom) { this.quasiRandom = quasiRandom; }
+
+    /**
+     * Whether every stochastic input draws {@code 1 - u} for each uniform {@code u} it would draw otherwise
+     * (see {@code distributions.AntitheticSource}). The run is the antithetic twin of the same run without the
+     * flag; the pair is negatively correlated for the INVERSION sampling method. false (the default) draws u.
+     */
+    public boolean isAntithetic() { return this.antithetic; }
+    public void setAntithetic(boolean antithetic) { this.antithetic = antithetic; }
+
+    /**
+     * Whether every stochastic input draws from a stream of its own, keyed by the number of the customer it
+     * draws for (see {@code distributions.KeyedSource}): the n-th customer gets the same inter-arrival time,
+     * routing and service times in every scenario with the same base seed and stream, whatever the order of
+     * events, so that differences between scenarios are measured with common random numbers. Generators are
+     * not prefetched in this mode, and it cannot be combined with a quasi-random design. false (the default)
+     * draws every input's samples in the order they are needed.
+     */
+    public boolean isCommonRandomNumbers() { return this.commonRandomNumbers; }
+    public void setCommonRandomNumbers(boolean commonRandomNumbers) { this.commonRandomNumbers = commonRandomNumbers; }
+
+    /**
+     * Buffer size with which every service and arrival generator is drawn ahead on a helper thread
+     * (see {@code distributions.PrefetchingGenerator}), e.g. 4096. The samples are the same as without
+     * prefetching; it only pays off with a free core for the helper. 0 (the default) disables it.
+     */
+    public int getPrefetchBlock() { return this.prefetchBlock; }
+    public void setPrefetchBlock(int prefetchBlock) { this.prefetchBlock = prefetchBlock; }
+
     public DistributionOptions getInterArrival() { return this.interArrival; }
     public void setInterArrival(DistributionOptions interArrival) { this.interArrival = interArrival; }
 
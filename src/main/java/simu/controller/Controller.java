@@ -2,20 +2,25 @@ package simu.controller;
 
 import javafx.application.Platform;
 import simu.config.SimulationOptions;
+import simu.database.CustomerColumnStore;
 import simu.database.SimulationDataDAO;
 import simu.framework.Clock;
 import simu.framework.IEngine;
 import simu.model.EngineMod;
+import simu.model.QueueSnapshot;
 import simu.model.SimParameters;
 import simu.model.SimulationData;
 import simu.view.ISimulatorUI;
-import simu.view.Visualisation;
 
-public class Controller implements IControllerVtoM, IControllerMtoV {   // NEW
+import java.nio.file.Path;
+
+public class Controller implements IControllerVtoM {
 	private EngineMod engine;
 	private ISimulatorUI ui;
     private SimParameters params;
     private SimulationDataDAO dao = new SimulationDataDAO();
+    private volatile VisualBridge bridge; // visual events of the latest run, applied once per frame
+    private boolean detached;    // turbo: the engine runs unpaced without visual events
 
     public Controller(ISimulatorUI ui, SimParameters params) {
         this.ui = ui;
@@ -29,12 +34,19 @@ public class Controller implements IControllerVtoM, IControllerMtoV {   // NEW
 
         SimulationOptions options = params.toConfig();
 
-        engine = new EngineMod(options,this); // Pass SimParameters to EngineMod
+        if (bridge != null) bridge.stop();
+        bridge = new VisualBridge(ui.getVisualisation());
+        engine = new EngineMod(options, new Run(bridge));
         engine.setSimulationTime(ui.getTime());
         engine.setDelay(ui.getDelay());
+        if (options.getCustomerRecordDirectory() != null) {
+            engine.setCustomerSink(new CustomerColumnStore(Path.of(options.getCustomerRecordDirectory())));
+        }
         // Update visualization with initial service point configuration
         updateServicePoints(options.getMechanicServers(), options.getWashServers());
         ui.getVisualisation().clearDisplay();
+        bridge.start(options.getMechanicServers(), options.getWashServers());
+        engine.setVisualisationDetached(detached);
         ((Thread) engine).start();
     }
 
@@ -64,53 +76,90 @@ public class Controller implements IControllerVtoM, IControllerMtoV {   // NEW
     }
 
     @Override
-    public void simulationFinished(double endTime, SimulationData data) {
-        Platform.runLater(() -> ui.onSimulationFinished(endTime, data));
-
-        Thread t = new Thread(() -> {
-           try {
-               dao.persist(data);
-           } catch (Exception e) {
-               // TODO: more graceful error handling (e.g. alert in UI)
-               e.printStackTrace();
-           }
-        }, "db-persist-thread");
-        t.setDaemon(true);
-        t.start();
-    }
-
-    @Override
-    public void visualiseCustomer(int id) {
-        Platform.runLater(() -> ui.getVisualisation().newCustomer(id));
-    }
-
-    @Override
-    public void visualiseCustomerToMechanic(int id, int mechanicId) {
-        Platform.runLater(() -> ((Visualisation)ui.getVisualisation()).moveCustomerToMechanic(id, mechanicId));
-    }
-
-    @Override
-    public void visualiseCustomerToWasher(int id, int washerId) {
-        Platform.runLater(() -> ((Visualisation)ui.getVisualisation()).moveCustomerToWasher(id, washerId));
-    }
-
-    @Override
-    public void visualiseCustomerToCheckout(int id) {
-        Platform.runLater(() -> ((Visualisation)ui.getVisualisation()).moveCustomerToCheckout(id));
+    public void setVisualisationDetached(boolean detached) {
+        this.detached = detached;
+        if (engine != null) engine.setVisualisationDetached(detached);
     }
 
-    @Override
-    public void visualiseCustomerExit(int id) {
-        Platform.runLater(() -> ((Visualisation)ui.getVisualisation()).customerExit(id));
+    /**
+     * @return the visual events of the current run, e.g. for its dropped and merged event counters; null before the first run
+     */
+    public VisualBridge getVisualBridge() {
+        return bridge;
     }
 
-    @Override
-    public void updateServicePoints(int numMechanics, int numWashers) {
+    private void updateServicePoints(int numMechanics, int numWashers) {
         Platform.runLater(() -> ui.getVisualisation().updateServicePoints(numMechanics, numWashers));
     }
 
-    @Override
-    public void updateQueueLengths(int receptionQueue, int[] mechanicQueues, int[] washerQueues) {
-        Platform.runLater(() -> ((Visualisation)ui.getVisualisation()).updateQueueLengths(receptionQueue, mechanicQueues, washerQueues));
+    /**
+     * The calls of one engine, bound to the bridge of its run, so that an engine that is still
+     * finishing never posts to or stops the bridge of a later run.
+     */
+    private final class Run implements IControllerMtoV {
+        private final VisualBridge bridge;
+
+        Run(VisualBridge bridge) {
+            this.bridge = bridge;
+        }
+
+        @Override
+        public void visualiseCustomer(int id) {
+            bridge.newCustomer(id);
+        }
+
+        @Override
+        public void visualiseCustomerToMechanic(int id, int mechanicId) {
+            bridge.moveCustomerToMechanic(id, mechanicId);
+        }
+
+        @Override
+        public void visualiseCustomerToWasher(int id, int washerId) {
+            bridge.moveCustomerToWasher(id, washerId);
+        }
+
+        @Override
+        public void visualiseCustomerToCheckout(int id) {
+            bridge.moveCustomerToCheckout(id);
+        }
+
+        @Override
+        public void visualiseCustomerExit(int id) {
+            bridge.customerExit(id);
+        }
+
+        @Override
+        public void resyncVisualisation(QueueSnapshot snapshot) {
+            bridge.resync(snapshot);
+        }
+
+        @Override
+        public void updateServicePoints(int numMechanics, int numWashers) {
+            Controller.this.updateServicePoints(numMechanics, numWashers);
+        }
+
+        @Override
+        public void updateQueueLengths(int receptionQueue, int[] mechanicQueues, int[] washerQueues) {
+            bridge.updateQueueLengths(receptionQueue, mechanicQueues, washerQueues);
+        }
+
+        @Override
+        public void simulationFinished(double endTime, SimulationData data) {
+            Platform.runLater(() -> {
+                bridge.stop(); // show the last events before the results
+                ui.onSimulationFinished(endTime, data);
+            });
+
+            Thread t = new Thread(() -> {
+               try {
+                   dao.persist(data);
+               } catch (Exception e) {
+                   // TODO: more graceful error handling (e.g. alert in UI)
+                   e.printStackTrace();
+               }
+            }, "db-persist-thread");
+            t.setDaemon(true);
+            t.start();
+        }
     }
 }
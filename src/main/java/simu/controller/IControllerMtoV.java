@@ -1,5 +1,6 @@
 package simu.controller;
 
+import simu.model.QueueSnapshot;
 import simu.model.SimulationData;
 
 /* interface for the engine */
@@ -10,6 +11,9 @@ public interface IControllerMtoV {
     public void visualiseCustomerToCheckout(int id);
     public void visualiseCustomerExit(int id);
     public void updateServicePoints(int numMechanics, int numWashers);
+    /* called once per engine cycle; the arrays are reused by the engine, copy them to keep them */
     public void updateQueueLengths(int receptionQueue, int[] mechanicQueues, int[] washerQueues);
+    /* replaces everything shown with the customers of the snapshot, e.g. when the visualisation is attached again */
+    public void resyncVisualisation(QueueSnapshot snapshot);
     public void simulationFinished(double endTime, SimulationData data);
 }
@@ -8,4 +8,5 @@ public interface IControllerVtoM {
 		public void stopSimulation();
 		public void pauseSimulation();
 		public void resumeSimulation();
+		public void setVisualisationDetached(boolean detached); // turbo: run unpaced without visual events
 }
@@ -0,0 +1,81 @@
+package simu.controller;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded lock-free queue of longs for exactly one producer thread and one consumer thread. The
+ * positions only grow; each side caches the other's position and reads it again only when the
+ * cache says the ring is full (producer) or empty (consumer), so an offer or drain costs no
+ * contended memory access in the common case.
+ */
+public final class SpscLongRing {
+    private final long[] buffer;
+    private final int mask;
+
+    private final AtomicLong head = new AtomicLong(); // next position to read, written by the consumer
+    private final AtomicLong tail = new AtomicLong(); // next position to write, written by the producer
+    private long cachedHead; // producer's copy of head
+    private long cachedTail; // consumer's copy of tail
+
+    /**
+     * @param capacity number of values the ring holds, a power of two
+     */
+    public SpscLongRing(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two");
+        }
+        this.buffer = new long[capacity];
+        this.mask = capacity - 1;
+    }
+
+    public int capacity() {
+        return this.buffer.length;
+    }
+
+    /**
+     * Append a value; producer thread only.
+     * @param value value to append
+     * @return false if the ring is full
+     */
+    public boolean offer(long value) {
+        long t = this.tail.getPlain();
+        if (t - this.cachedHead == this.buffer.length) {
+            this.cachedHead = this.head.getAcquire();
+            if (t - this.cachedHead == this.buffer.length) return false;
+        }
+        this.buffer[(int) t & this.mask] = value;
+        this.tail.setRelease(t + 1);
+        return true;
+    }
+
+    /**
+     * Remove the oldest values; consumer thread only.
+     * @param out receives the values in order from index 0
+     * @return number of values removed, at most {@code out.length}
+     */
+    public int drain(long[] out) {
+        long h = this.head.getPlain();
+        if (h == this.cachedTail) {
+            this.cachedTail = this.tail.getAcquire();
+            if (h == this.cachedTail) return 0;
+        }
+        int n = (int) Math.min(this.cachedTail - h, out.length);
+        for (int i = 0; i < n; i++) out[i] = this.buffer[(int) (h + i) & this.mask];
+        this.head.setRelease(h + n);
+        return n;
+    }
+
+    /**
+     * @return number of values offered successfully since the ring was created
+     */
+    public long getOffered() {
+        return this.tail.getAcquire();
+    }
+
+    /**
+     * @return number of values in the ring; exact only on the consumer thread when the producer is idle
+     */
+    public int size() {
+        return (int) (this.tail.getAcquire() - this.head.getAcquire());
+    }
+}
@@ -0,0 +1,237 @@
+package simu.controller;
+
+import javafx.animation.AnimationTimer;
+import simu.model.QueueSnapshot;
+import simu.view.IVisualisation;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hands the visual events of the engine thread to the JavaFX thread without a {@code Platform.runLater}
+ * per event. Customer moves go through a {@link SpscLongRing} as one long each; queue lengths only keep
+ * their latest values. An {@link AnimationTimer} applies everything once per frame.
+ * <p>
+ * A frame that finds more than {@link #FRAME_BUDGET} events is behind the engine. It then coalesces
+ * the moves per customer: only the last move of a customer is shown, and a customer that arrives and
+ * leaves within the frame is not shown at all. The counters tell how much was dropped and merged.
+ * When the ring is full the engine thread waits for the next frame, so memory stays bounded.
+ * <p>
+ * A {@link QueueSnapshot} posted with {@link #resync} replaces everything shown: the frame rebuilds the
+ * visualisation from it in one pass and drops the events posted before it.
+ */
+public final class VisualBridge {
+    /** Events the ring holds, about a second of a busy engine at 60 frames per second. */
+    public static final int CAPACITY = 1 << 16;
+    /** Events a frame applies one by one; a larger backlog is coalesced first. */
+    public static final int FRAME_BUDGET = 512;
+
+    // event kinds, in bits 56..63 of an event; the server is in bits 32..55 and the customer id in 0..31
+    private static final int NEW = 1;
+    private static final int TO_MECHANIC = 2;
+    private static final int TO_WASHER = 3;
+    private static final int TO_CHECKOUT = 4;
+    private static final int EXIT = 5;
+    private static final int RESYNC = 6; // the next snapshot of the queue
+    private static final long DROPPED = -1L;
+
+    private static final long WAIT_NANOS = 200_000;
+
+    private final IVisualisation view;
+    private final SpscLongRing ring = new SpscLongRing(CAPACITY);
+    private final long[] batch = new long[CAPACITY];
+    private final Queue<QueueSnapshot> snapshots = new ConcurrentLinkedQueue<>(); // one per RESYNC event in the ring
+    private final AnimationTimer timer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            drain();
+        }
+    };
+    private volatile boolean running;
+
+    // latest queue lengths, written by the engine thread; a frame may see a mix of two updates, the next one corrects it
+    private int receptionLength;
+    private int[] mechanicLengths = new int[0];
+    private int[] washerLengths = new int[0];
+    private volatile long queueVersion;     // updates written, by the engine thread
+    private volatile long shownQueueVersion; // updates shown, by the JavaFX thread
+    private int[] shownMechanicLengths = new int[0];
+    private int[] shownWasherLengths = new int[0];
+
+    // counters, each written by one thread
+    private volatile long producerWaits;     // engine thread
+    private volatile long mergedQueueUpdates; // engine thread
+    private volatile long droppedEvents;     // JavaFX thread
+
+    /**
+     * @param view visualisation the events are applied to, on the JavaFX thread
+     */
+    public VisualBridge(IVisualisation view) {
+        this.view = view;
+    }
+
+    // ---------- JavaFX thread ----------
+
+    /**
+     * Size the queue lengths for a run and start applying events every frame. Call before the engine starts.
+     */
+    public void start(int numMechanics, int numWashers) {
+        this.mechanicLengths = new int[numMechanics];
+        this.washerLengths = new int[numWashers];
+        this.shownMechanicLengths = new int[numMechanics];
+        this.shownWasherLengths = new int[numWashers];
+        this.running = true;
+        this.timer.start();
+    }
+
+    /**
+     * Apply what is left and stop; events posted afterwards are discarded.
+     */
+    public void stop() {
+        this.drain();
+        this.running = false;
+        this.timer.stop();
+    }
+
+    /**
+     * Apply the pending events, coalesced if there are more than {@link #FRAME_BUDGET}, and the latest
+     * queue lengths if they changed.
+     */
+    void drain() {
+        int n = this.ring.drain(this.batch);
+        int last = n - 1;
+        while (last >= 0 && kind(this.batch[last]) != RESYNC) last--;
+        if (last >= 0) {
+            // only the last snapshot counts; it supersedes all events before it
+            QueueSnapshot snapshot = null;
+            for (int i = 0; i <= last; i++) {
+                if (kind(this.batch[i]) == RESYNC) snapshot = this.snapshots.poll();
+                else this.droppedEvents++;
+            }
+            this.view.rebuild(snapshot);
+            n -= last + 1;
+            System.arraycopy(this.batch, last + 1, this.batch, 0, n);
+        }
+        if (n > FRAME_BUDGET) n = this.coalesce(n);
+        for (int i = 0; i < n; i++) this.apply(this.batch[i]);
+
+        long version = this.queueVersion;
+        if (version != this.shownQueueVersion) {
+            int reception = this.receptionLength;
+            System.arraycopy(this.mechanicLengths, 0, this.shownMechanicLengths, 0, this.shownMechanicLengths.length);
+            System.arraycopy(this.washerLengths, 0, this.shownWasherLengths, 0, this.shownWasherLengths.length);
+            this.shownQueueVersion = version;
+            this.view.updateQueueLengths(reception, this.shownMechanicLengths, this.shownWasherLengths);
+        }
+    }
+
+    /**
+     * Keep only the last move of every customer in the batch, and nothing of a customer that arrives and
+     * exits in it. The arrival of a customer that stays is kept, since its car must exist for the move.
+     * @param n events in the batch
+     * @return events kept, moved to the front of the batch in their order
+     */
+    private int coalesce(int n) {
+        Map<Integer, Integer> last = new HashMap<>(); // customer id -> index of its last kept event
+        long dropped = 0;
+        for (int i = n - 1; i >= 0; i--) {
+            long e = this.batch[i];
+            int id = (int) e;
+            Integer later = last.get(id);
+            if (later == null) {
+                last.put(id, i);
+            } else if (kind(e) == NEW && kind(this.batch[later]) != EXIT) {
+                continue;
+            } else {
+                if (kind(e) == NEW) {
+                    this.batch[later] = DROPPED; // arrived and left within the frame
+                    dropped++;
+                }
+                this.batch[i] = DROPPED;
+                dropped++;
+            }
+        }
+        int kept = 0;
+        for (int i = 0; i < n; i++) {
+            if (this.batch[i] != DROPPED) this.batch[kept++] = this.batch[i];
+        }
+        this.droppedEvents += dropped;
+        return kept;
+    }
+
+    private void apply(long e) {
+        int id = (int) e;
+        int server = (int) (e >>> 32) & 0xFFFFFF;
+        switch (kind(e)) {
+            case NEW: this.view.newCustomer(id); break;
+            case TO_MECHANIC: this.view.moveCustomerToMechanic(id, server); break;
+            case TO_WASHER: this.view.moveCustomerToWasher(id, server); break;
+            case TO_CHECKOUT: this.view.moveCustomerToCheckout(id); break;
+            case EXIT: this.view.customerExit(id); break;
+            default: break;
+        }
+    }
+
+    private static int kind(long e) {
+        return (int) (e >>> 56);
+    }
+
+    // ---------- Engine thread ----------
+
+    public void newCustomer(int id) { this.post(NEW, id, 0); }
+    public void moveCustomerToMechanic(int id, int mechanicId) { this.post(TO_MECHANIC, id, mechanicId); }
+    public void moveCustomerToWasher(int id, int washerId) { this.post(TO_WASHER, id, washerId); }
+    public void moveCustomerToCheckout(int id) { this.post(TO_CHECKOUT, id, 0); }
+    public void customerExit(int id) { this.post(EXIT, id, 0); }
+
+    // false if the event was discarded because the bridge stopped
+    private boolean post(int kind, int id, int server) {
+        long e = (long) kind << 56 | (long) (server & 0xFFFFFF) << 32 | (id & 0xFFFFFFFFL);
+        while (!this.ring.offer(e)) {
+            if (!this.running) return false;
+            this.producerWaits++;
+            LockSupport.parkNanos(WAIT_NANOS);
+        }
+        return true;
+    }
+
+    /**
+     * Replace everything shown with the customers of the snapshot with the next frame.
+     */
+    public void resync(QueueSnapshot snapshot) {
+        // queued first, so that the frame which sees the event finds it; taken back if the event is discarded
+        this.snapshots.add(snapshot);
+        if (!this.post(RESYNC, 0, 0)) this.snapshots.remove(snapshot);
+    }
+
+    /**
+     * Replace the queue lengths shown with the next frame; the arrays are copied.
+     */
+    public void updateQueueLengths(int receptionQueue, int[] mechanicQueues, int[] washerQueues) {
+        if (this.queueVersion != this.shownQueueVersion) this.mergedQueueUpdates++;
+        this.receptionLength = receptionQueue;
+        System.arraycopy(mechanicQueues, 0, this.mechanicLengths, 0, Math.min(mechanicQueues.length, this.mechanicLengths.length));
+        System.arraycopy(washerQueues, 0, this.washerLengths, 0, Math.min(washerQueues.length, this.washerLengths.length));
+        this.queueVersion++;
+    }
+
+    // ---------- Counters ----------
+
+    /** @return customer events posted */
+    public long getEvents() { return this.ring.getOffered(); }
+
+    /** @return customer events not shown because a later event of the same customer superseded them */
+    public long getDroppedEvents() { return this.droppedEvents; }
+
+    /** @return queue length updates replaced by a later one before a frame showed them */
+    public long getMergedQueueUpdates() { return this.mergedQueueUpdates; }
+
+    /** @return times the engine thread waited for a frame because the ring was full */
+    public long getProducerWaits() { return this.producerWaits; }
+
+    /** @return customer events waiting for the next frame */
+    public int getBacklog() { return this.ring.size(); }
+}
@@ -0,0 +1,60 @@
+package simu.database;
+
+import simu.model.Customer;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Columns of the customer record store. Every column is kept in its own file of fixed-width
+ * little-endian values ({@code .i32} or {@code .f64}). Timestamps of service points a customer
+ * did not visit are stored as NaN.
+ */
+public enum CustomerColumn {
+    ID(Type.INT, c -> c.getId()),
+    ROUTE(Type.INT, c -> c.getRoute().ordinal()),
+    WASH_PROGRAM(Type.INT, c -> c.getWashProgram().ordinal()),
+    RECEPTION_Q_IN(Type.DOUBLE, c -> c.tReceptionQIn),
+    RECEPTION_START(Type.DOUBLE, c -> c.tReceptionStart),
+    RECEPTION_END(Type.DOUBLE, c -> c.tReceptionEnd),
+    MECHANIC_Q_IN(Type.DOUBLE, c -> c.needsMechanic() ? c.tMechanicQIn : Double.NaN),
+    MECHANIC_START(Type.DOUBLE, c -> c.needsMechanic() ? c.tMechanicStart : Double.NaN),
+    MECHANIC_END(Type.DOUBLE, c -> c.needsMechanic() ? c.tMechanicEnd : Double.NaN),
+    WASH_Q_IN(Type.DOUBLE, c -> c.needsWash() ? c.tWashQIn : Double.NaN),
+    WASH_START(Type.DOUBLE, c -> c.needsWash() ? c.tWashStart : Double.NaN),
+    WASH_END(Type.DOUBLE, c -> c.needsWash() ? c.tWashEnd : Double.NaN),
+    CHECKOUT_Q_IN(Type.DOUBLE, c -> c.tCheckoutQIn),
+    CHECKOUT_START(Type.DOUBLE, c -> c.tCheckoutStart),
+    DEPARTURE(Type.DOUBLE, c -> c.tDeparture),
+    TOTAL_WAIT(Type.DOUBLE, Customer::getTotalWaitTime),
+    TOTAL_SERVICE(Type.DOUBLE, Customer::getTotalServiceTime);
+
+    public enum Type {
+        INT(4, ".i32"),
+        DOUBLE(8, ".f64");
+
+        final int width;
+        final String extension;
+
+        Type(int width, String extension) {
+            this.width = width;
+            this.extension = extension;
+        }
+    }
+
+    private final Type type;
+    private final ToDoubleFunction<Customer> extractor;
+
+    CustomerColumn(Type type, ToDoubleFunction<Customer> extractor) {
+        this.type = type;
+        this.extractor = extractor;
+    }
+
+    public Type getType() { return this.type; }
+
+    /**
+     * @return file name of the column inside a store directory
+     */
+    public String fileName() { return this.name().toLowerCase() + this.type.extension; }
+
+    double extract(Customer c) { return this.extractor.applyAsDouble(c); }
+}
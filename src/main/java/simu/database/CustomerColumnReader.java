@@ -0,0 +1,201 @@
+package simu.database;
+
+import simu.model.Customer;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.DoubleSummaryStatistics;
+import java.util.Properties;
+import java.util.function.DoubleConsumer;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Scans a customer store written by {@link CustomerColumnStore}. Columns are mapped in chunks and read
+ * sequentially, so aggregates over any number of rows run with constant heap usage; only the columns
+ * a scan asks for are touched.
+ */
+public class CustomerColumnReader implements AutoCloseable {
+    private static final int CHUNK_ROWS = CustomerColumnStore.SEGMENT_ROWS * 16;
+
+    /**
+     * Callback for {@link #scanRows}. The values array is reused between rows and holds the
+     * requested columns in the requested order (int columns widened to double).
+     */
+    @FunctionalInterface
+    public interface RowVisitor {
+        void visit(long row, double[] values);
+    }
+
+    private final Path directory;
+    private final long rows;
+    private final FileChannel[] channels = new FileChannel[CustomerColumn.values().length];
+
+    /**
+     * Open a closed store.
+     * @param directory directory the store was written to
+     */
+    public CustomerColumnReader(Path directory) {
+        this.directory = directory;
+        Properties meta = new Properties();
+        try (Reader r = Files.newBufferedReader(directory.resolve(CustomerColumnStore.META_FILE))) {
+            meta.load(r);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No closed customer store in " + directory, e);
+        }
+        this.rows = Long.parseLong(meta.getProperty(CustomerColumnStore.ROWS_KEY, "0"));
+    }
+
+    public long getRowCount() { return this.rows; }
+
+    public Path getDirectory() { return this.directory; }
+
+
+    // ---------- Scans ----------
+
+    /**
+     * Visit every value of one column in row order.
+     * @param column column to read
+     * @param consumer receives the values (int columns widened to double)
+     */
+    public void scan(CustomerColumn column, DoubleConsumer consumer) {
+        this.scanRows((row, values) -> consumer.accept(values[0]), column);
+    }
+
+    /**
+     * Visit every row, reading only the given columns.
+     * @param visitor receives the row index and the values of the columns
+     * @param columns columns to read
+     */
+    public void scanRows(RowVisitor visitor, CustomerColumn... columns) {
+        MappedByteBuffer[] chunks = new MappedByteBuffer[columns.length];
+        double[] values = new double[columns.length];
+        for (long start = 0; start < this.rows; start += CHUNK_ROWS) {
+            int n = (int) Math.min(CHUNK_ROWS, this.rows - start);
+            for (int j = 0; j < columns.length; j++) {
+                chunks[j] = this.map(columns[j], start, n);
+            }
+            for (int k = 0; k < n; k++) {
+                for (int j = 0; j < columns.length; j++) {
+                    values[j] = columns[j].getType() == CustomerColumn.Type.INT
+                            ? chunks[j].getInt()
+                            : chunks[j].getDouble();
+                }
+                visitor.visit(start + k, values);
+            }
+        }
+    }
+
+    private MappedByteBuffer map(CustomerColumn column, long startRow, int n) {
+        int idx = column.ordinal();
+        try {
+            if (this.channels[idx] == null) {
+                this.channels[idx] = FileChannel.open(this.directory.resolve(column.fileName()), StandardOpenOption.READ);
+            }
+            int width = column.getType().width;
+            MappedByteBuffer buf = this.channels[idx].map(FileChannel.MapMode.READ_ONLY, startRow * width, (long) n * width);
+            buf.order(ByteOrder.LITTLE_ENDIAN);
+            return buf;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read column " + column + " in " + this.directory, e);
+        }
+    }
+
+
+    // ---------- Aggregates ----------
+
+    /**
+     * Count, sum, min, max and mean of one column, ignoring NaN (stations not visited).
+     * @param column column to summarize
+     * @return summary statistics
+     */
+    public DoubleSummaryStatistics summarize(CustomerColumn column) {
+        DoubleSummaryStatistics stats = new DoubleSummaryStatistics();
+        this.scan(column, v -> {
+            if (!Double.isNaN(v)) stats.accept(v);
+        });
+        return stats;
+    }
+
+    /**
+     * Summary statistics of an expression over the given columns, ignoring rows where it is NaN.
+     * E.g. sojourn time: {@code summarize(v -> v[1] - v[0], RECEPTION_Q_IN, DEPARTURE)}.
+     * @param expression computed from the column values of a row
+     * @param columns columns the expression reads
+     * @return summary statistics
+     */
+    public DoubleSummaryStatistics summarize(ToDoubleFunction<double[]> expression, CustomerColumn... columns) {
+        DoubleSummaryStatistics stats = new DoubleSummaryStatistics();
+        this.scanRows((row, values) -> {
+            double v = expression.applyAsDouble(values);
+            if (!Double.isNaN(v)) stats.accept(v);
+        }, columns);
+        return stats;
+    }
+
+    /**
+     * Sojourn time (arrival at reception to departure) of the customers that took the given route.
+     * @param route customer route
+     * @return summary statistics
+     */
+    public DoubleSummaryStatistics summarizeSojourn(Customer.Route route) {
+        int ordinal = route.ordinal();
+        return this.summarize(v -> (int) v[0] == ordinal ? v[2] - v[1] : Double.NaN,
+                CustomerColumn.ROUTE, CustomerColumn.RECEPTION_Q_IN, CustomerColumn.DEPARTURE);
+    }
+
+
+    // ---------- Export ----------
+
+    /**
+     * Write all rows and columns as CSV. Unvisited stations are written as empty fields.
+     * @param file target file
+     */
+    public void exportCsv(Path file) {
+        CustomerColumn[] columns = CustomerColumn.values();
+        try (BufferedWriter w = Files.newBufferedWriter(file)) {
+            for (int j = 0; j < columns.length; j++) {
+                if (j > 0) w.write(',');
+                w.write(columns[j].name().toLowerCase());
+            }
+            w.newLine();
+            this.scanRows((row, values) -> {
+                try {
+                    for (int j = 0; j < values.length; j++) {
+                        if (j > 0) w.write(',');
+                        if (columns[j].getType() == CustomerColumn.Type.INT) {
+                            w.write(Integer.toString((int) values[j]));
+                        } else if (!Double.isNaN(values[j])) {
+                            w.write(Double.toString(values[j]));
+                        }
+                    }
+                    w.newLine();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, columns);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot export customer store to " + file, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        for (int i = 0; i < this.channels.length; i++) {
+            if (this.channels[i] == null) continue;
+            try {
+                this.channels[i].close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            this.channels[i] = null;
+        }
+    }
+}
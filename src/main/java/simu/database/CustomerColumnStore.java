@@ -0,0 +1,145 @@
+package simu.database;
+
+import simu.model.Customer;
+import simu.model.CustomerSink;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Properties;
+
+/**
+ * {@link CustomerSink} that appends every departed customer to memory-mapped, column-per-field files
+ * (see {@link CustomerColumn}) in a directory. Files are mapped in fixed-size segments, so appending
+ * costs no heap and no system call per row. On {@link #close()} the files are truncated to the number
+ * of rows written (where the platform allows it) and a small {@code store.properties} file records that count.
+ * <p>
+ * Use {@link CustomerColumnReader} to scan a closed store.
+ * </p>
+ */
+public class CustomerColumnStore implements CustomerSink {
+    static final String META_FILE = "store.properties";
+    static final String ROWS_KEY = "rows";
+    static final int SEGMENT_ROWS = 1 << 16;
+
+    private static final CustomerColumn[] COLUMNS = CustomerColumn.values();
+
+    private final Path directory;
+    private final FileChannel[] channels = new FileChannel[COLUMNS.length];
+    private final MappedByteBuffer[] segments = new MappedByteBuffer[COLUMNS.length];
+    private long rows;
+    private long segmentStartRow;
+    private boolean closed;
+
+    /**
+     * Create (or overwrite) a store in the given directory.
+     * @param directory directory for the column files, created if missing
+     */
+    public CustomerColumnStore(Path directory) {
+        this.directory = directory;
+        try {
+            Files.createDirectories(directory);
+            for (int i = 0; i < COLUMNS.length; i++) {
+                this.channels[i] = FileChannel.open(directory.resolve(COLUMNS[i].fileName()),
+                        StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING);
+            }
+            Files.deleteIfExists(directory.resolve(META_FILE));
+        } catch (IOException e) {
+            this.closeChannels();
+            throw new UncheckedIOException("Cannot create customer store in " + directory, e);
+        }
+    }
+
+    @Override
+    public void accept(Customer c) {
+        if (this.closed) throw new IllegalStateException("Customer store is closed");
+        if (this.rows == this.segmentStartRow + SEGMENT_ROWS || this.segments[0] == null) {
+            this.mapSegment(this.segments[0] == null ? 0 : this.rows);
+        }
+        for (int i = 0; i < COLUMNS.length; i++) {
+            CustomerColumn col = COLUMNS[i];
+            double v = col.extract(c);
+            if (col.getType() == CustomerColumn.Type.INT) {
+                this.segments[i].putInt((int) v);
+            } else {
+                this.segments[i].putDouble(v);
+            }
+        }
+        this.rows++;
+    }
+
+    private void mapSegment(long startRow) {
+        try {
+            for (int i = 0; i < COLUMNS.length; i++) {
+                int width = COLUMNS[i].getType().width;
+                this.segments[i] = this.channels[i].map(FileChannel.MapMode.READ_WRITE,
+                        startRow * width, (long) SEGMENT_ROWS * width);
+                this.segments[i].order(ByteOrder.LITTLE_ENDIAN);
+            }
+            this.segmentStartRow = startRow;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot map customer store segment in " + this.directory, e);
+        }
+    }
+
+    /**
+     * @return number of customers written so far
+     */
+    public long getRowCount() { return this.rows; }
+
+    public Path getDirectory() { return this.directory; }
+
+    /**
+     * Flush the mapped segments, cut the files to the rows written and write the row count.
+     */
+    @Override
+    public void close() {
+        if (this.closed) return;
+        this.closed = true;
+        try {
+            for (int i = 0; i < COLUMNS.length; i++) {
+                if (this.segments[i] != null) this.segments[i].force();
+                this.segments[i] = null;
+            }
+            this.truncateFiles();
+            Properties meta = new Properties();
+            meta.setProperty(ROWS_KEY, Long.toString(this.rows));
+            try (Writer w = Files.newBufferedWriter(this.directory.resolve(META_FILE))) {
+                meta.store(w, "customer column store");
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot close customer store in " + this.directory, e);
+        } finally {
+            this.closeChannels();
+        }
+    }
+
+    private void truncateFiles() {
+        try {
+            for (int i = 0; i < COLUMNS.length; i++) {
+                this.channels[i].truncate(this.rows * COLUMNS[i].getType().width);
+            }
+        } catch (IOException e) {
+            // some platforms refuse to shrink a file that is still mapped; the reader only
+            // trusts the row count, so the unused tail of the last segment is harmless
+        }
+    }
+
+    private void closeChannels() {
+        for (FileChannel ch : this.channels) {
+            if (ch == null) continue;
+            try {
+                ch.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
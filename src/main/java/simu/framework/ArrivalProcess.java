@@ -28,7 +28,8 @@ public class ArrivalProcess {
 	 * Create a new customer (Generate customer arrival event and put it to the event list)
 	 */
 	public void generateNextEvent() {
-		Event t = new Event(type, Clock.getInstance().getClock() + generator.sample());
+		Clock clock = Clock.getInstance();
+		Event t = Event.atTicks(type, clock.ticksAfter(clock.getTicks(), generator.sample()));
 		eventList.add(t);
 	}
 }
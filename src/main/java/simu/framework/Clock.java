@@ -2,27 +2,123 @@ package simu.framework;
 
 /**
  * Singleton for holding global simulation time
+ *
+ * Besides the {@code double} time the clock keeps the same instant as a {@code long} tick value,
+ * which is what events are ordered and compared by. By default (tick resolution 0) the ticks are
+ * the raw bits of the non-negative {@code double} time, which sort exactly like the times themselves,
+ * so the behaviour is identical to plain {@code double} time. With a positive tick resolution the time
+ * base becomes fixed point: every time is rounded to a whole number of ticks (e.g. 1_000_000_000 ticks
+ * per time unit for nanoseconds of simulation time), which gives exact ties over any horizon.
  */
 public class Clock {
 	private double clock;
+	private long ticks;
+	private long ticksPerUnit;		// 0 = ticks are the bits of the double time
 	private static Clock instance;
-	
+
 	private Clock(){
-		clock = 0.0;
+		setClock(0.0);
 	}
-	
+
 	public static Clock getInstance(){
 		if (instance == null){
 			instance = new Clock();
 		}
 		return instance;
 	}
-	
+
 	public void setClock(double clock){
-		this.clock = clock;
+		this.ticks = toTicks(clock);
+		this.clock = toTime(this.ticks);
 	}
 
 	public double getClock(){
 		return clock;
 	}
+
+	/**
+	 * Set the clock to the given tick value
+	 *
+	 * @param ticks New clock value in ticks
+	 */
+	public void setTicks(long ticks) {
+		this.ticks = ticks;
+		this.clock = toTime(ticks);
+	}
+
+	/**
+	 * @return Current clock value in ticks
+	 */
+	public long getTicks() {
+		return ticks;
+	}
+
+	/**
+	 * Select the time base. Must be called before any events are created, the current
+	 * clock value is converted to the new base.
+	 *
+	 * @param ticksPerUnit Number of ticks per simulation time unit, 0 to use the {@code double} time base
+	 */
+	public void setTickResolution(long ticksPerUnit) {
+		if (ticksPerUnit < 0) throw new IllegalArgumentException("Tick resolution must be >= 0: " + ticksPerUnit);
+		double now = clock;
+		this.ticksPerUnit = ticksPerUnit;
+		setClock(now);
+	}
+
+	/**
+	 * @return Number of ticks per simulation time unit, 0 when the {@code double} time base is used
+	 */
+	public long getTickResolution() {
+		return ticksPerUnit;
+	}
+
+	/**
+	 * Convert a (non-negative) simulation time to ticks.
+	 *
+	 * @param time Simulation time
+	 * @return Tick value whose ordering matches the ordering of the times
+	 */
+	public long toTicks(double time) {
+		if (ticksPerUnit == 0) {
+			return Double.doubleToLongBits(time + 0.0);	// +0.0 folds -0.0 into 0.0
+		}
+		if (time == Double.POSITIVE_INFINITY) return Long.MAX_VALUE;
+		return Math.round(time * ticksPerUnit);			// saturates at Long.MAX_VALUE
+	}
+
+	/**
+	 * Convert ticks back to simulation time.
+	 *
+	 * @param ticks Tick value
+	 * @return Simulation time
+	 */
+	public double toTime(long ticks) {
+		if (ticksPerUnit == 0) {
+			return Double.longBitsToDouble(ticks);
+		}
+		if (ticks == Long.MAX_VALUE) return Double.POSITIVE_INFINITY;
+		return (double) ticks / ticksPerUnit;
+	}
+
+	/**
+	 * Tick value of the instant {@code duration} time units after {@code ticks}. This is where
+	 * sampled durations (e.g. from a {@code ContinuousGenerator}) enter the tick time base.
+	 * The result is always at least one tick later than {@code ticks}, so a zero or negative
+	 * duration still schedules strictly after the current instant.
+	 *
+	 * @param ticks Start instant in ticks
+	 * @param duration Duration in simulation time units
+	 * @return End instant in ticks
+	 */
+	public long ticksAfter(long ticks, double duration) {
+		long end;
+		if (ticksPerUnit == 0) {
+			end = toTicks(toTime(ticks) + duration);
+		} else {
+			long d = Math.round(duration * ticksPerUnit);
+			end = d > Long.MAX_VALUE - ticks ? Long.MAX_VALUE : ticks + d;
+		}
+		return end > ticks ? end : ticks + 1;
+	}
 }
@@ -48,7 +48,7 @@ public abstract class Engine extends Thread implements IEngine {
 		while (simulate()){
 			beforeCycle();
 			delay(); // NEW
-			clock.setClock(currentTime());
+			clock.setTicks(currentTicks());
 			runBEvents();
 			tryCEvents();
 		}
@@ -57,7 +57,9 @@ public abstract class Engine extends Thread implements IEngine {
 	}
 
 	private void delay() { // NEW
+		long delay = cycleDelay();
 		Trace.out(Trace.Level.INFO, "Delay " + delay);
+		if (delay <= 0) return;
 		try {
 			sleep(delay);
 		} catch (InterruptedException e) {
@@ -65,20 +67,30 @@ public abstract class Engine extends Thread implements IEngine {
 		}
 	}
 
+	/**
+	 * Pause before each cycle, e.g. to pace the run for a visualisation.
+	 * Can be overridden, e.g. to run unpaced while nothing is shown.
+	 * @return milliseconds to sleep, by default the delay set
+	 */
+	protected long cycleDelay() {
+		return delay;
+	}
+
 	/**
 	 * Execute all B-events (bounded to time) at the current time removing them from the event list.
+	 * Times are compared as exact clock ticks.
 	 */
 	private void runBEvents() {
-		while (eventList.getNextEventTime() == clock.getClock()){
+		while (eventList.getNextEventTicks() == clock.getTicks()){
 			runEvent(eventList.remove());
 		}
 	}
 
 	/**
-	 * @return Earliest event time at the event list
+	 * @return Earliest event time at the event list in clock ticks
 	 */
-	private double currentTime(){
-		return eventList.getNextEventTime();
+	private long currentTicks(){
+		return eventList.getNextEventTicks();
 	}
 
 	/**
@@ -2,17 +2,34 @@ package simu.framework;
 
 /**
  * Event holds three-phase simulation event information; type and time of the event.
- * Events are compared according to time.
+ * Events are compared according to time. The time is kept as {@link Clock} ticks as well,
+ * so comparisons are exact {@code long} comparisons.
  */
 public class Event implements Comparable<Event> {
 	private IEventType type;
 	private double time;
-	
+	private long ticks;
+
 	public Event(IEventType type, double time){
 		this.type = type;
-		this.time = time;
+		Clock clock = Clock.getInstance();
+		this.ticks = clock.toTicks(time);
+		this.time = clock.toTime(this.ticks);
+	}
+
+	/**
+	 * Create an event at the given tick value of the {@link Clock}
+	 *
+	 * @param type Event type
+	 * @param ticks Event time in ticks
+	 * @return The new event
+	 */
+	public static Event atTicks(IEventType type, long ticks) {
+		Event e = new Event(type, 0.0);
+		e.setTicks(ticks);
+		return e;
 	}
-	
+
 	public void setType(IEventType type) {
 		this.type = type;
 	}
@@ -20,16 +37,23 @@ public class Event implements Comparable<Event> {
 		return type;
 	}
 	public void setTime(double time) {
-		this.time = time;
+		Clock clock = Clock.getInstance();
+		this.ticks = clock.toTicks(time);
+		this.time = clock.toTime(this.ticks);
 	}
 	public double getTime() {
 		return time;
 	}
+	public void setTicks(long ticks) {
+		this.ticks = ticks;
+		this.time = Clock.getInstance().toTime(ticks);
+	}
+	public long getTicks() {
+		return ticks;
+	}
 
 	@Override
 	public int compareTo(Event arg) {
-		if (this.time < arg.time) return -1;
-		else if (this.time > arg.time) return 1;
-		return 0;
+		return Long.compare(this.ticks, arg.ticks);
 	}
 }
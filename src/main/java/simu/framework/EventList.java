@@ -41,4 +41,13 @@ public class EventList {
 	public double getNextEventTime(){
 		return eventlist.peek().getTime();
 	}
+
+	/**
+	 * Check the time of the next event in {@link Clock} ticks. This does not retrieve the event from the list.
+	 *
+	 * @return Time of the event in ticks
+	 */
+	public long getNextEventTicks(){
+		return eventlist.peek().getTicks();
+	}
 }
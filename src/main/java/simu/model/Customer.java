@@ -11,6 +11,7 @@ public class Customer {
 	private double arrivalTime;
 	private double removalTime;
 	private int id;
+	private int arrivalNumber = -1;
 	private static int i = 1;
 	private static long sum = 0;
 
@@ -18,18 +19,42 @@ public class Customer {
 		NONE, INTERIOR, EXTERIOR, BOTH
 	}
 
+	/**
+	 * The possible paths of a customer through the service points
+	 */
+	public enum Route {
+		/** Arrival -> Reception -> Departure */
+		DIRECT,
+		/** Arrival -> Reception -> Mechanic -> Departure */
+		MECHANIC,
+		/** Arrival -> Reception -> Wash -> Departure */
+		WASH,
+		/** Arrival -> Reception -> Mechanic -> Wash -> Departure */
+		MECHANIC_WASH
+	}
+
 	// routing decisions
 	private boolean needsMechanic;
 	private boolean needsWash;
 	private WashProgram washProgram = WashProgram.NONE;
 
+	// route through the stations, drawn on arrival: station indices, the service class at each, and the current step
+	private int[] path = {};
+	private int[] pathClasses = {};
+	private int step;
+
 	// timestamps
 	// naming explanation: (t -> time, QIn -> Queue In)
 	public double tReceptionQIn, tReceptionStart, tReceptionEnd;
 	public double tMechanicQIn, tMechanicStart, tMechanicEnd;
 	public double tWashQIn, tWashStart, tWashEnd;
+	public double tCheckoutQIn, tCheckoutStart;
 	public double tDeparture;
 
+	// accumulated over all service point visits
+	private double totalWaitTime;
+	private double totalServiceTime;
+
 	/**
 	 * Create a unique customer
 	 */
@@ -80,6 +105,19 @@ public class Customer {
 		return this.id;
 	}
 
+	/**
+	 * Get the number of the customer's arrival within its run, counted from 0. Unlike the id it starts
+	 * over in every run, so it identifies the same customer across the runs of a scenario comparison.
+	 * @return arrival number, -1 if not set
+	 */
+	public int getArrivalNumber() {
+		return this.arrivalNumber;
+	}
+
+	public void setArrivalNumber(int arrivalNumber) {
+		this.arrivalNumber = arrivalNumber;
+	}
+
 	/**
 	 * Check whether the customer needs mechanic service
 	 * @return logical value indicating mechanic service need
@@ -112,6 +150,43 @@ public class Customer {
 		this.needsWash = needsWash;
 	}
 
+	/**
+	 * Get the route of the customer, derived from the routing decisions
+	 * @return Route through the service points
+	 */
+	public Route getRoute() {
+		if (this.needsMechanic) {
+			return this.needsWash ? Route.MECHANIC_WASH : Route.MECHANIC;
+		}
+		return this.needsWash ? Route.WASH : Route.DIRECT;
+	}
+
+	/**
+	 * Add a completed service point visit to the customer's totals
+	 * @param waitTime time spent queueing at the service point
+	 * @param serviceTime time spent in service at the service point
+	 */
+	public void addVisit(double waitTime, double serviceTime) {
+		this.totalWaitTime += waitTime;
+		this.totalServiceTime += serviceTime;
+	}
+
+	/**
+	 * Get the total time the customer has spent queueing
+	 * @return Sum of the waiting times of all visits
+	 */
+	public double getTotalWaitTime() {
+		return this.totalWaitTime;
+	}
+
+	/**
+	 * Get the total time the customer has spent in service
+	 * @return Sum of the service times of all visits
+	 */
+	public double getTotalServiceTime() {
+		return this.totalServiceTime;
+	}
+
 	/**
 	 * Get the wash program of the customer
 	 * @return Wash program
@@ -127,4 +202,32 @@ public class Customer {
 	public void setWashProgram(WashProgram washProgram) {
 		this.washProgram = washProgram;
 	}
+
+	/**
+	 * Set the route of the customer; it is at the first station of the route
+	 * @param stations Indices of the stations in the order visited
+	 * @param classes Service class of the customer at each of them
+	 */
+	public void setPath(int[] stations, int[] classes) {
+		this.path = stations;
+		this.pathClasses = classes;
+		this.step = 0;
+	}
+
+	/**
+	 * Move the customer on to the next station of its route
+	 * @return Index of the next station, -1 if the route ends here
+	 */
+	public int nextStation() {
+		return ++this.step < this.path.length ? this.path[this.step] : -1;
+	}
+
+	/**
+	 * Get the service class of the customer at the station of its route it is at, which selects the
+	 * generator of the service time there (e.g. the wash program at the wash)
+	 * @return Service class, 0 without a route
+	 */
+	public int getServiceClass() {
+		return this.step < this.pathClasses.length ? this.pathClasses[this.step] : 0;
+	}
 }
@@ -0,0 +1,19 @@
+package simu.model;
+
+/**
+ * Receiver for customers that have left the system. The engine hands every departed
+ * customer to its sink, e.g. to store the individual journeys for later analysis.
+ */
+public interface CustomerSink extends AutoCloseable {
+    /**
+     * Called once per customer at departure, with all timestamps filled in.
+     * @param c the departed customer
+     */
+    void accept(Customer c);
+
+    /**
+     * Flush and release resources. Called by the engine when the simulation ends.
+     */
+    @Override
+    void close();
+}
@@ -1,31 +1,121 @@
 package simu.model;
 
+import distributions.AntitheticSource;
 import distributions.ContinuousGenerator;
+import distributions.KeyedSource;
+import distributions.PrefetchingGenerator;
+import distributions.RandomStreams;
+import distributions.RecordingGenerator;
+import distributions.SampleFile;
+import distributions.TraceReplay;
+import simu.config.DistributionOptions;
+import simu.config.SamplerExpression;
 import simu.config.SimulationOptions;
 import simu.controller.IControllerMtoV;
 import simu.framework.*;
+import simu.model.network.CompiledNetwork;
+import simu.model.network.NetworkEvent;
+import simu.model.network.RouteSampler;
+import simu.model.network.StationNetwork;
+import simu.stats.ResponseTimeStats;
 
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Random;
-
+import java.util.function.DoubleSupplier;
+
+/**
+ * Three-phase engine that runs a {@link StationNetwork}, by default the garage. Events are dispatched
+ * through a handler table indexed by {@link NetworkEvent#getSlot()}, customers follow the route drawn
+ * for them on arrival, and C-events are only tried at stations whose queues changed in the current
+ * cycle, so the work per event does not depend on the number of stations.
+ */
 public class EngineMod extends Engine {
-    // single-server service points
-    private final ServicePoint reception;
-    private final ServicePoint checkout;
+    // the network run: stations, routes and event slots
+    private final CompiledNetwork network;
+
+    // stations the visualisation shows and customers are time stamped at, -1 if the network has none of that name
+    private final int reception;
+    private final int mechanic;
+    private final int wash;
+    private final int checkout;
+
+    /** Time stamp of a customer at a station. */
+    @FunctionalInterface
+    private interface Step {
+        void apply(Customer c, double now);
+    }
+
+    /** Visual event of a customer joining a station. */
+    @FunctionalInterface
+    private interface Show {
+        void show(IControllerMtoV visual, Customer c);
+    }
+
+    /** Action of a B-event. */
+    @FunctionalInterface
+    private interface Handler {
+        void handle(double now);
+    }
+
+    // per station index
+    private final ServicePoint[] points;
+    private final Step[] queued;
+    private final Step[] started;
+    private final Step[] ended;
+    private final Show[] shown;
+
+    // stations in the order C-events are tried, and the position of each station in it
+    private final List<ServicePoint> ordered = new ArrayList<>();
+    private final int[] rank;
 
-    // multiserver service points
-    private final ServicePoint mechanic;
-    private final ServicePoint wash;
+    // stations whose queue changed since the last C-phase, by rank
+    private final int[] dirty;
+    private final boolean[] isDirty;
+    private int dirtyCount;
+
+    // per event slot
+    private final Handler[] handlers;
 
     // add counters for different wash programs
     private int washExteriorCount;
     private int washInteriorCount;
     private int washBothCount;
 
+    // wash program of each service class of the wash
+    private final Customer.WashProgram[] washPrograms;
+
+    // wait, service and sojourn distributions per customer route
+    private final Map<Customer.Route, ResponseTimeStats> routeStats = new EnumMap<>(Customer.Route.class);
+
     // arrival process
     private final ArrivalProcess arrivals;
     private final Random rng;
+    private final RandomStreams.Stream seedStream; // null = generator seeds from rng
+    private final RouteSampler routeSampler;       // null = one rng draw per routing decision
+    private final ContinuousGenerator routingUniforms; // null = routing draws from rng
+    private final DoubleSupplier routingDraws;
+
+    // stochastic inputs, each a quasi-Monte Carlo coordinate: the arrivals, station i at 1 + i, then the routing
+    private static final int ARRIVAL_INPUT = 0;
+    private final int routingInput;
+    private final RandomStreams designSeeds;       // randomization of each input of the design
+    private final int[] inputCopies;
+
+    // common random numbers: keyed uniform sources of each input, one per server; empty = off
+    private final List<List<KeyedSource>> keyedSources = new ArrayList<>();
+    private int arrivalCount;
+
+    // variate recording and replay: one file per input and server, numbered in the order of creation
+    private final int[] variateFiles;
+    private final List<RecordingGenerator> recordings = new ArrayList<>();
+    private final RecordingGenerator routingRecording; // null = routing not recorded
+    private final TraceReplay routingReplay;           // null = routing drawn, not replayed
 
     // options (gathered from UI)
     // contains all the parameters for the simulation
@@ -35,34 +125,30 @@ public class EngineMod extends Engine {
     // controller
     private IControllerMtoV controller;
 
+    // receiver of the visual events: the controller while the visualisation is attached, null while detached;
+    // changed on the engine thread only, at the start of a cycle
+    private IControllerMtoV visual;
+    private volatile boolean detachRequested;
+
+    // queue lengths reported to the controller, refilled every cycle
+    private final int[] mechanicQueueLengths;
+    private final int[] washQueueLengths;
+
+    // optional receiver of departed customers (e.g. a customer record store)
+    private CustomerSink customerSink;
+
     // status flags
     private volatile boolean paused = false;
     private volatile boolean stopRequested = false;
 
     /**
-     * Custom generator that modifies the speed of a base generator by a given factor.
-     * For example, a speed factor of 2.0 makes the service twice as fast (halves the time).
-     * This can be used to model servers with different efficiencies. (e.g. more experienced workers)
+     * Service time of a server for one service class: a speed factor of 2.0 makes the service twice as
+     * fast (halves the time), modelling servers with different efficiencies (e.g. more experienced
+     * workers), and the program factor scales it for the class (e.g. a wash program). Compiled per
+     * server and class; all of them share the generated class of their leaf type, so the sampling
+     * call in ServicePoint sees one receiver class.
      */
-    private static class CustomGen implements ContinuousGenerator {
-        private ContinuousGenerator base;
-        private double speedFactor;
-
-        CustomGen(ContinuousGenerator base, double speedFactor) {
-            this.base = base;
-            this.speedFactor = speedFactor <= 0.0 ? 1.0 : speedFactor;
-        }
-        @Override
-        public double sample() {
-            return this.base.sample() / this.speedFactor;
-        }
-        @Override
-        public void setSeed(long seed){}
-        @Override
-        public long getSeed(){ return this.base.getSeed(); }
-        @Override
-        public void reseed(){}
-    }
+    private static final SamplerExpression SERVICE = SamplerExpression.parse("service / speed * program");
 
 
     // ---------- Constructors ----------------
@@ -75,17 +161,125 @@ public class EngineMod extends Engine {
     }
 
     public EngineMod(SimulationOptions options, IControllerMtoV controller) {
+        this(StationNetwork.garage(options), options, controller);
+    }
+
+    /**
+     * Run a network of stations. The options set everything but the model: random numbers, routing
+     * method, recording and the like. Stations named like those of {@link StationNetwork#garage} are
+     * shown by the visualisation and time stamp the customers.
+     * @param network stations, routing and arrivals
+     * @param options simulation options
+     * @param controller receiver of the results and visual events, null for none
+     */
+    public EngineMod(StationNetwork network, SimulationOptions options, IControllerMtoV controller) {
+        Clock.getInstance().setTickResolution(options.getTickResolution());
+
         this.options   = options;
         this.controller= controller;
+        this.visual    = controller;
         this.rng       = new Random(options.getBaseRandomSeed());
-        this.reception = buildReception(options);
-        this.checkout  = buildCheckout(options);
-        this.mechanic  = buildMechanic(options);
-        this.wash      = buildWash(options);
-        this.arrivals  = buildArrivals(options);
+        this.seedStream = options.getRandomStream() >= 0
+            ? new RandomStreams(options.getBaseRandomSeed()).stream(options.getRandomStream())
+            : null;
+        this.designSeeds = new RandomStreams(options.getBaseRandomSeed());
+        if (options.isCommonRandomNumbers() && options.getQuasiRandom() != null) {
+            throw new IllegalArgumentException("Common random numbers cannot be combined with a quasi-random design");
+        }
+        if (options.getVariateRecordDirectory() != null && options.getVariateReplayDirectory() != null) {
+            throw new IllegalArgumentException("Variates cannot be recorded and replayed in the same run");
+        }
+        this.network = network.compile();
+        int n = this.network.size();
+        this.reception = this.network.indexOf(SimulationData.RECEPTION);
+        this.mechanic  = this.network.indexOf(SimulationData.MECHANIC);
+        this.wash      = this.network.indexOf(SimulationData.WASH);
+        this.checkout  = this.network.indexOf(StationNetwork.CHECKOUT);
+        this.routingInput = n + 1;
+        this.inputCopies = new int[n + 2];
+        this.variateFiles = new int[n + 2];
+        for (int i = 0; i < n + 2; i++) this.keyedSources.add(new ArrayList<>());
+
+        // generators are seeded in the order built: the stations in order, then the arrivals
+        this.points = new ServicePoint[n];
+        for (int i = 0; i < n; i++) this.points[i] = this.buildStation(i, options);
+        this.arrivals = this.buildArrivals(options);
+
+        int[] order = this.network.getOrder();
+        this.rank = new int[n];
+        for (int k = 0; k < n; k++) {
+            this.rank[order[k]] = k;
+            this.ordered.add(this.points[order[k]]);
+        }
+        this.dirty = new int[n];
+        this.isDirty = new boolean[n];
+
+        this.queued = new Step[n];
+        this.started = new Step[n];
+        this.ended = new Step[n];
+        this.shown = new Show[n];
+        Arrays.fill(this.queued, (Step) (c, now) -> {});
+        Arrays.fill(this.started, (Step) (c, now) -> {});
+        Arrays.fill(this.ended, (Step) (c, now) -> {});
+        Arrays.fill(this.shown, (Show) (v, c) -> {});
+        this.stamps(this.reception, (c, now) -> c.tReceptionQIn = now, (c, now) -> c.tReceptionStart = now,
+            (c, now) -> c.tReceptionEnd = now, (v, c) -> v.visualiseCustomer(c.getId()));
+        this.stamps(this.mechanic, (c, now) -> c.tMechanicQIn = now, (c, now) -> c.tMechanicStart = now,
+            (c, now) -> c.tMechanicEnd = now,
+            (v, c) -> v.visualiseCustomerToMechanic(c.getId(), this.points[this.mechanic].getAssignedServer(c)));
+        this.stamps(this.wash, (c, now) -> c.tWashQIn = now, (c, now) -> c.tWashStart = now,
+            (c, now) -> c.tWashEnd = now,
+            (v, c) -> v.visualiseCustomerToWasher(c.getId(), this.points[this.wash].getAssignedServer(c)));
+        this.stamps(this.checkout, (c, now) -> c.tCheckoutQIn = now, (c, now) -> c.tCheckoutStart = now,
+            (c, now) -> c.tDeparture = now, (v, c) -> v.visualiseCustomerToCheckout(c.getId()));
+
+        this.handlers = new Handler[n + 1];
+        this.handlers[this.network.getArrivalEvent().getSlot()] = this::arrive;
+        for (int i = 0; i < n; i++) {
+            int station = i;
+            this.handlers[this.network.getEndEvent(i).getSlot()] = now -> this.handleEnd(station, now);
+        }
+
+        String[] classes = this.wash >= 0 ? this.network.getClassNames(this.wash) : new String[0];
+        this.washPrograms = new Customer.WashProgram[classes.length];
+        for (int k = 0; k < classes.length; k++) {
+            this.washPrograms[k] = Customer.WashProgram.NONE;
+            for (Customer.WashProgram program : Customer.WashProgram.values()) {
+                if (program.name().equals(classes[k])) this.washPrograms[k] = program;
+            }
+        }
+
+        this.mechanicQueueLengths = new int[this.servers(this.mechanic)];
+        this.washQueueLengths = new int[this.servers(this.wash)];
+        this.routeSampler = options.isAliasRouting() ? RouteSampler.of(this.network, options, this.nextSeed()) : null;
+        ContinuousGenerator routing = options.isCommonRandomNumbers()
+            ? this.keyedSource(this.routingInput, options)
+            : this.quasiRandomSource(this.routingInput, options);
+        this.routingUniforms = routing != null && options.isAntithetic() ? new AntitheticSource(routing) : routing;
+        if (this.routeSampler != null && this.routingUniforms != null) {
+            this.routeSampler.setSource(this.routingUniforms);
+        }
+        this.routingReplay = options.getVariateReplayDirectory() != null
+            ? this.replay(this.routingInput, options.getVariateReplayDirectory())
+            : null;
+        this.routingRecording = options.getVariateRecordDirectory() != null
+            ? this.recording(null, this.routingInput, options.getVariateRecordDirectory())
+            : null;
+        this.routingDraws = this::nextRoutingUniform;
+
+        for (Customer.Route route : Customer.Route.values()) {
+            this.routeStats.put(route, new ResponseTimeStats());
+        }
+
+        if (options.isCommonRandomNumbers()) {
+            for (int i = 0; i < n; i++) {
+                int input = 1 + i;
+                this.points[i].setSampleListener((c, server) -> this.keyDraws(input, server, c.getArrivalNumber()));
+            }
+        }
 
         if (controller != null) {
-            controller.updateServicePoints(options.getMechanicServers(), options.getWashServers());
+            controller.updateServicePoints(this.servers(this.mechanic), this.servers(this.wash));
         }
     }
 
@@ -93,91 +287,206 @@ public class EngineMod extends Engine {
     // ---------- Initialization ----------
 
     /**
-     * Build the arrival process based on the given options.
-     * @param options Simulation options containing the arrival distribution and parameters
-     * @return Configured arrival process
+     * Time stamp customers at a station of the garage and show them joining it.
+     * @param station station index, nothing if -1
      */
-    private ArrivalProcess buildArrivals(SimulationOptions options) {
-        ContinuousGenerator gen = options.getInterArrival().toGen(this.nextSeed());
-        return new ArrivalProcess(gen, this.eventList, EventType.ARRIVAL);
+    private void stamps(int station, Step queued, Step started, Step ended, Show shown) {
+        if (station < 0) return;
+        this.queued[station] = queued;
+        this.started[station] = started;
+        this.ended[station] = ended;
+        this.shown[station] = shown;
     }
 
     /**
-     * Build the reception service point based on the given options.
-     * @param options Simulation options containing the reception service distribution and parameters
-     * @return Configured reception service point
+     * @param station station index or -1
+     * @return number of servers of the station, 0 if there is none
      */
-    private ServicePoint buildReception(SimulationOptions options) {
-        ContinuousGenerator gen = options.getReceptionService().toGen(this.nextSeed());
-        return new ServicePoint(gen, this.eventList, EventType.RECEPTION_END);
+    private int servers(int station) {
+        return station < 0 ? 0 : this.points[station].getCapacity();
     }
 
     /**
-     * Build the checkout service point with a fixed exponential distribution.
-     * This is hardcoded for simplicity, but could be made configurable if needed.
-     * @param options Simulation options (not used here)
-     * @return Configured checkout service point
+     * Build the arrival process of the network.
+     * @param options Simulation options for the random numbers
+     * @return Configured arrival process
      */
-    private ServicePoint buildCheckout(SimulationOptions options) {
-        ContinuousGenerator gen = new distributions.Negexp(3.0, this.nextSeed()); // fixed mean
-        return new ServicePoint(gen, this.eventList, EventType.CHECKOUT_END);
+    private ArrivalProcess buildArrivals(SimulationOptions options) {
+        ContinuousGenerator gen = this.newGen(this.network.getInterArrival(), ARRIVAL_INPUT, options);
+        return new ArrivalProcess(gen, this.eventList, this.network.getArrivalEvent());
     }
 
     /**
-     * Build the mechanic service point based on the given options.
-     * Supports multiple servers with individual speed factors.
-     * @param options Simulation options containing the mechanic service distribution, number of servers, and speed factors
-     * @return Configured mechanic service point
+     * Build the service point of a station: every server gets a generator of the station's service
+     * time, scaled by its speed factor and by the factor of each service class of the station.
+     * @param station station index
+     * @param options Simulation options for the random numbers
+     * @return Configured service point
      */
-    private ServicePoint buildMechanic(SimulationOptions options) {
-        int n = options.getMechanicServers();
-        double[] speeds = options.getMechanicSpeedFactors();
-        ContinuousGenerator[] gens = new ContinuousGenerator[n];
+    private ServicePoint buildStation(int station, SimulationOptions options) {
+        double[] speeds = this.network.getSpeeds(station);
+        double[] factors = this.network.getClassFactors(station);
+        ContinuousGenerator[][] gens = new ContinuousGenerator[speeds.length][];
 
-        for (int i = 0; i < n; i++) {
-            ContinuousGenerator base = options.getMechanicService().toGen(this.nextSeed());
-            gens[i] = new CustomGen(base, speeds[i]);
+        for (int i = 0; i < speeds.length; i++) {
+            gens[i] = serviceTimes(this.newGen(this.network.getService(station), 1 + station, options), speeds[i], factors);
         }
 
-        return new ServicePoint(gens, this.eventList, EventType.MECHANIC_END);
+        return new ServicePoint(this.network.getName(station), gens, this.eventList, this.network.getEndEvent(station));
     }
 
     /**
-     * Build the wash service point based on the given options.
-     * Supports multiple servers with individual speed factors and different wash programs.
-     * @param options Simulation options containing the wash service distribution, number of servers, and speed factors
-     * @return Configured wash service point
+     * @param base service time generator of the server, shared by all classes
+     * @param speedFactor server speed
+     * @param programFactors time factor of each service class
+     * @return generator of <code>base / speedFactor * programFactor</code> for each class
      */
-    private ServicePoint buildWash(SimulationOptions options) {
-        int n = options.getWashServers();
-        double[] speeds = options.getWashSpeedFactors();
-        ContinuousGenerator[] gens = new ContinuousGenerator[n];
+    private static ContinuousGenerator[] serviceTimes(ContinuousGenerator base, double speedFactor, double... programFactors) {
+        ContinuousGenerator[] gens = new ContinuousGenerator[programFactors.length];
+        for (int k = 0; k < gens.length; k++) {
+            gens[k] = SERVICE.compile(Map.of("service", base, "speed", speedFactor, "program", programFactors[k]), () -> {
+                throw new IllegalStateException(SERVICE + " has no distribution leaves");
+            });
+        }
+        return gens;
+    }
 
-        for (int i = 0; i < n; i++) {
-            ContinuousGenerator base = options.getWashService().toGen(this.nextSeed());
-            gens[i] = new CustomGen(base, speeds[i]);
+    /**
+     * Create a generator for the given distribution with the next seed, the run's uniform source (or the
+     * input's quasi-random coordinate), mirrored in an antithetic run, and sampling method, prefetched on a helper thread if the options ask for it.
+     * With a variate recording the samples are recorded; with a replay the generator is the replay of the recording instead.
+     * @param distribution distribution to sample
+     * @param input stochastic input the generator drives
+     * @param options simulation options
+     * @return the generator
+     */
+    private ContinuousGenerator newGen(DistributionOptions distribution, int input, SimulationOptions options) {
+        if (options.getVariateReplayDirectory() != null) return this.replay(input, options.getVariateReplayDirectory());
+        ContinuousGenerator uniforms = options.isCommonRandomNumbers()
+            ? this.keyedSource(input, options)
+            : this.quasiRandomSource(input, options);
+        long seed = this.nextSeed();
+        if (options.isAntithetic()) {
+            uniforms = uniforms != null ? new AntitheticSource(uniforms) : options.getRandomSource().create(seed, true);
+        }
+        ContinuousGenerator gen = uniforms != null
+            ? distribution.toGen(seed, uniforms, options.getSamplingMethod())
+            : distribution.toGen(seed, options.getRandomSource(), options.getSamplingMethod());
+        if (options.getPrefetchBlock() > 0 && !options.isCommonRandomNumbers()) {
+            gen = new PrefetchingGenerator(gen, options.getPrefetchBlock());
         }
+        if (options.getVariateRecordDirectory() != null) return this.recording(gen, input, options.getVariateRecordDirectory());
+        return gen;
+    }
 
-        // hard coded factors (exterior, interior, both)
-        double exterior = 0.8;
-        double interior = 1.0;
-        double both     = 1.4;
+    /**
+     * @param input stochastic input
+     * @param directory directory of the recording
+     * @return file of the next generator of the input, e.g. {@code mechanic-1.f64} for its second server
+     */
+    private Path variateFile(int input, String directory) {
+        int copy = this.variateFiles[input]++;
+        return Path.of(directory, this.inputName(input) + "-" + copy + ".f64");
+    }
 
-        return new ServicePoint(gens, this.eventList, EventType.WASH_END,
-            (customer, serverId, base) -> switch (customer.getWashProgram()) {
-                case EXTERIOR -> base * exterior;
-                case INTERIOR -> base * interior;
-                case BOTH -> base * both;
-                default -> base;
-            }
-        );
+    /**
+     * @param input stochastic input
+     * @return {@code arrival}, {@code routing} or the station name in lower case, spaces as underscores
+     */
+    private String inputName(int input) {
+        if (input == ARRIVAL_INPUT) return "arrival";
+        if (input == this.routingInput) return "routing";
+        return this.network.getName(input - 1).toLowerCase(Locale.ROOT).replace(' ', '_');
+    }
+
+    /**
+     * @param gen generator whose samples are recorded, null for the routing decisions
+     * @return the recording of the next generator of the input, closed with the results
+     */
+    private RecordingGenerator recording(ContinuousGenerator gen, int input, String directory) {
+        RecordingGenerator recording = new RecordingGenerator(gen, this.variateFile(input, directory));
+        this.recordings.add(recording);
+        return recording;
+    }
+
+    /**
+     * @return the replay of the recorded samples of the next generator of the input; it fails when they run out
+     */
+    private TraceReplay replay(int input, String directory) {
+        return new TraceReplay(new SampleFile(this.variateFile(input, directory), SampleFile.Format.BINARY, 0), false, 0L);
+    }
+
+    /**
+     * Uniform source of an input in a quasi-Monte Carlo design: the input's coordinate of the point of this
+     * run. The randomization depends on the base seed, the input and, for inputs with several servers, the
+     * server, but not on the point, so that all replications of the design share it.
+     * @param input stochastic input
+     * @param options simulation options
+     * @return the source, null if the run is pseudo-random
+     */
+    private ContinuousGenerator quasiRandomSource(int input, SimulationOptions options) {
+        if (options.getQuasiRandom() == null) return null;
+        int copy = this.inputCopies[input]++;
+        long point = Math.max(options.getRandomStream(), 0);
+        return options.getQuasiRandom().create(input, point, this.designSeeds.seed(input, copy));
+    }
+
+    /**
+     * Keyed uniform source of an input with common random numbers. Its seed depends on the base seed, the
+     * random stream and the input only, so the sources of all servers of a station and of all scenarios
+     * compared give a customer the same draws.
+     * @param input stochastic input
+     * @param options simulation options
+     * @return the source, registered for {@link #keyDraws}
+     */
+    private KeyedSource keyedSource(int input, SimulationOptions options) {
+        KeyedSource source = new KeyedSource(this.designSeeds.seed(Math.max(options.getRandomStream(), 0), input));
+        this.keyedSources.get(input).add(source);
+        return source;
+    }
+
+    /**
+     * Point the keyed source of an input at the draws of a customer; nothing without common random numbers.
+     * @param input stochastic input
+     * @param server server whose generator draws next
+     * @param customer arrival number of the customer
+     */
+    private void keyDraws(int input, int server, int customer) {
+        List<KeyedSource> sources = this.keyedSources.get(input);
+        if (!sources.isEmpty()) sources.get(Math.min(server, sources.size() - 1)).setKey(customer);
     }
 
     /**
-     * Generate the next seed for random number generators based on the base RNG.
+     * @return the next uniform of a routing decision
+     */
+    private double nextRoutingUniform() {
+        if (this.routingReplay != null) return this.routingReplay.sample();
+        double u;
+        if (this.routingUniforms != null) {
+            u = this.routingUniforms.sample();
+        } else {
+            u = this.options.isAntithetic() ? 1.0 - this.rng.nextDouble() : this.rng.nextDouble();
+        }
+        return this.routingRecording != null ? this.routingRecording.record(u) : u;
+    }
+
+    /**
+     * @return the path of the next customer with alias routing; its index is what is recorded
+     */
+    private CompiledNetwork.Path nextRoute() {
+        if (this.routingReplay != null) return this.routeSampler.getPath((int) this.routingReplay.sample());
+        int index = this.routeSampler.sampleIndex();
+        if (this.routingRecording != null) this.routingRecording.record(index);
+        return this.routeSampler.getPath(index);
+    }
+
+    /**
+     * Generate the next seed for random number generators, from the run's random stream if one is
+     * selected, otherwise from the base RNG.
      * @return Next seed value
      */
     private long nextSeed() {
+        if (this.seedStream != null) return this.seedStream.nextSeed();
         return Integer.toUnsignedLong(this.rng.nextInt());
     }
 
@@ -186,137 +495,71 @@ public class EngineMod extends Engine {
 
     @Override
     protected void initialize() {
+        this.keyDraws(ARRIVAL_INPUT, 0, 0);
         this.arrivals.generateNextEvent();
     }
 
     @Override
     protected void runEvent(Event e) {
-        // Possible customer flows:
-        //
-        // Arrival -> Reception -> Departure
-        // Arrival -> Reception -> Mechanic -> Departure
-        // Arrival -> Reception -> Wash -> Departure
-        // Arrival -> Reception -> Mechanic -> Wash -> Departure
-
-        double now = Clock.getInstance().getClock();
+        this.handlers[((NetworkEvent) e.getType()).getSlot()].handle(Clock.getInstance().getClock());
+    }
 
-        switch ((EventType) e.getType()) {
-            case ARRIVAL: {
-                Customer c = new Customer();
-                this.decideRouting(c);
-                c.tReceptionQIn = now;
-                this.reception.addQueue(c);
+    private void arrive(double now) {
+        Customer c = new Customer();
+        c.setArrivalNumber(this.arrivalCount++);
+        this.keyDraws(this.routingInput, 0, c.getArrivalNumber());
+        CompiledNetwork.Path path = this.routeSampler != null ? this.nextRoute() : this.network.walk(this.routingDraws);
+        this.setRoute(c, path);
+        this.enter(path.stations[0], c, now);
 
-                if (this.controller != null) {
-                    this.controller.visualiseCustomer(c.getId());
-                }
-
-                this.arrivals.generateNextEvent();
-                break;
-            }
-            case RECEPTION_END: {
-                this.handleEnd(this.reception, EventType.RECEPTION_END, now);
-                break;
-            }
-            case MECHANIC_END: {
-                this.handleEnd(this.mechanic, EventType.MECHANIC_END, now);
-                break;
-            }
-            case WASH_END: {
-                this.handleEnd(this.wash, EventType.WASH_END, now);
-                break;
-            }
-            case CHECKOUT_END: {
-                this.handleEnd(this.checkout, EventType.CHECKOUT_END, now);
-                break;
-            }
-            default: break;
-        }
+        this.keyDraws(ARRIVAL_INPUT, 0, this.arrivalCount);
+        this.arrivals.generateNextEvent();
     }
 
     /**
-     * Decide the routing for the customer after reception
-     * @param c Customer whose routing is to be decided
+     * Give the customer its route and set the garage's routing decisions from it
+     * @param c Customer to route
+     * @param path Route drawn for the customer
      */
-    private void decideRouting(Customer c) {
-        boolean mech = this.rng.nextDouble() < this.options.getProbNeedsMechanic();
-        boolean wash = this.rng.nextDouble() < this.options.getProbNeedsWash();
-
-        c.setNeedsMechanic(mech);
-        c.setNeedsWash(wash);
-
-        if (wash) {
-            double p = this.rng.nextDouble();
-            double ext = this.options.getWashProbExterior();
-            double inter = ext + this.options.getWashProbInterior();
-
-            if (p < ext) {
-                c.setWashProgram(Customer.WashProgram.EXTERIOR);
-                this.washExteriorCount++;
-            } else if (p < inter) {
-                c.setWashProgram(Customer.WashProgram.INTERIOR);
-                this.washInteriorCount++;
-            } else {
-                c.setWashProgram(Customer.WashProgram.BOTH);
-                this.washBothCount++;
+    private void setRoute(Customer c, CompiledNetwork.Path path) {
+        c.setPath(path.stations, path.classes);
+        for (int i = 0; i < path.stations.length; i++) {
+            if (path.stations[i] == this.mechanic) {
+                c.setNeedsMechanic(true);
+            } else if (path.stations[i] == this.wash) {
+                c.setNeedsWash(true);
+                c.setWashProgram(this.washPrograms[path.classes[i]]);
+            }
+        }
+
+        if (c.needsWash()) {
+            switch (c.getWashProgram()) {
+                case EXTERIOR -> this.washExteriorCount++;
+                case INTERIOR -> this.washInteriorCount++;
+                case BOTH -> this.washBothCount++;
+                default -> {}
             }
         }
     }
 
     /**
-     * Handle the end of service at a service point.
-     * This includes processing all customers who have finished service,
-     * starting new services if possible, and updating the visualization.
-     * @param sp Service point where the service has ended
-     * @param type Event type corresponding to the service point
+     * Handle the end of service at a service point: move every customer who finished on to the next
+     * station of their route, or out, and start as many new services as possible.
+     * @param station index of the service point where the service has ended
      * @param now Current simulation time
      */
-    private void handleEnd(ServicePoint sp, EventType type, double now) {
+    private void handleEnd(int station, double now) {
+        ServicePoint sp = this.points[station];
         while (true) {
             ServicePoint.EndInfo ei = sp.finishService(now);
             if (ei == null) break;
             Customer c = ei.customer;
-            switch (type) {
-                case RECEPTION_END:
-                    c.tReceptionEnd = now;
-                    if (c.needsMechanic()) {
-                        c.tMechanicQIn = now;
-                        this.mechanic.addQueue(c);
-                        if (this.controller != null) this.controller.visualiseCustomerToMechanic(c.getId(), this.mechanic.getAssignedServer(c));
-                    } else if (c.needsWash()) {
-                        c.tWashQIn = now;
-                        this.wash.addQueue(c);
-                        if (this.controller != null) this.controller.visualiseCustomerToWasher(c.getId(), this.wash.getAssignedServer(c));
-                    } else {
-                        this.checkout.addQueue(c);
-                        if (this.controller != null) {
-                            this.controller.visualiseCustomerToCheckout(c.getId());
-                        }
-                    }
-                    break;
-                case MECHANIC_END:
-                    if (c.needsWash()) {
-                        c.tWashQIn = now;
-                        this.wash.addQueue(c);
-                        if (this.controller != null) this.controller.visualiseCustomerToWasher(c.getId(), this.wash.getAssignedServer(c));
-                    } else {
-                        this.checkout.addQueue(c);
-                        if (this.controller != null) {
-                            this.controller.visualiseCustomerToCheckout(c.getId());
-                        }
-                    }
-                    break;
-                case WASH_END:
-                    this.checkout.addQueue(c);
-                    if (this.controller != null) {
-                        this.controller.visualiseCustomerToCheckout(c.getId());
-                    }
-                    break;
-                case CHECKOUT_END:
-                    c.tDeparture = now;
-                    if (controller != null) controller.visualiseCustomerExit(c.getId());
-                    break;
-                default: break;
+            this.ended[station].apply(c, now);
+            int next = c.nextStation();
+            if (next == CompiledNetwork.EXIT) {
+                this.depart(c, now);
+            } else {
+                this.enter(next, c, now);
             }
         }
 
@@ -324,43 +567,58 @@ public class EngineMod extends Engine {
         while (true) {
             ServicePoint.StartInfo si = sp.tryStart(now);
             if (si == null) break;
-            switch (type) {
-                case RECEPTION_END: si.customer.tReceptionStart = now;  break;
-                case MECHANIC_END:  si.customer.tMechanicStart = now;   break;
-                case WASH_END:      si.customer.tWashStart = now;       break;
-                default: break;
-            }
+            this.started[station].apply(si.customer, now);
         }
+    }
 
-        if (controller != null) {
-            int receptionQueueLength = reception.getQueueLength();
-            int[] mechanicQueues = mechanic.getQueueLengthsPerServer();
-            int[] washerQueues = wash.getQueueLengthsPerServer();
-            controller.updateQueueLengths(receptionQueueLength, mechanicQueues, washerQueues);
+    /**
+     * Queue a customer at a station, mark the station for the C-phase and show the move.
+     */
+    private void enter(int station, Customer c, double now) {
+        this.queued[station].apply(c, now);
+        this.points[station].addQueue(c);
+        this.markDirty(station);
+        if (this.visual != null) this.shown[station].show(this.visual, c);
+    }
+
+    /**
+     * Add a station to the stations whose C-events are tried in this cycle, keeping them in flow order.
+     */
+    private void markDirty(int station) {
+        if (this.isDirty[station]) return;
+        this.isDirty[station] = true;
+        int at = this.dirtyCount++;
+        while (at > 0 && this.rank[this.dirty[at - 1]] > this.rank[station]) {
+            this.dirty[at] = this.dirty[at - 1];
+            at--;
         }
+        this.dirty[at] = station;
+    }
+
+    private void depart(Customer c, double now) {
+        this.routeStats.get(c.getRoute()).record(
+            c.getTotalWaitTime(), c.getTotalServiceTime(), now - c.getArrivalTime());
+        if (this.customerSink != null) this.customerSink.accept(c);
+        if (this.visual != null) this.visual.visualiseCustomerExit(c.getId());
     }
 
     @Override
     protected void tryCEvents() {
         double now = Clock.getInstance().getClock();
 
-        // single-server service points
-        this.startIfPossible(this.reception, EventType.RECEPTION_END, now);
-
-        // possible multiserver service points
-        this.startIfPossible(this.mechanic,  EventType.MECHANIC_END,  now);
-        this.startIfPossible(this.wash,      EventType.WASH_END,      now);
-
-        // checkout
-        this.startIfPossible(this.checkout,  EventType.CHECKOUT_END,  now);
+        // only stations customers joined can start a service; all others started what they could
+        for (int i = 0; i < this.dirtyCount; i++) {
+            int station = this.dirty[i];
+            this.isDirty[station] = false;
+            this.startIfPossible(station, now);
+        }
+        this.dirtyCount = 0;
 
-        // Update queue lengths in visualization
-        if (this.controller != null) {
-            int receptionQueueLength = this.reception.getQueueLength();
-            int[] mechanicQueues = this.mechanic.getQueueLengthsPerServer();
-            int[] washerQueues = this.wash.getQueueLengthsPerServer();
-            int[] checkoutQueues = this.checkout.getQueueLengthsPerServer();
-            this.controller.updateQueueLengths(receptionQueueLength, mechanicQueues, washerQueues);
+        // Update queue lengths in visualization, once per cycle after all B- and C-events
+        if (this.visual != null) {
+            this.visual.updateQueueLengths(this.reception >= 0 ? this.points[this.reception].getQueueLength() : 0,
+                this.queueLengths(this.mechanic, this.mechanicQueueLengths),
+                this.queueLengths(this.wash, this.washQueueLengths));
         }
     }
 
@@ -368,28 +626,53 @@ public class EngineMod extends Engine {
     protected void results() {
         double now = Clock.getInstance().getClock();
 
-        SimulationData data = SimulationData.from(now, this.reception, this.mechanic, this.wash);
+        if (this.controller != null && this.visual == null) {
+            this.controller.resyncVisualisation(this.snapshotQueues()); // show where the unpaced run ended
+        }
+
+        if (this.customerSink != null) {
+            this.customerSink.close();
+        }
+        for (RecordingGenerator recording : this.recordings) recording.close();
+
+        SimulationData data = this.snapshotResults(now).toSimulationData();
 
         if (this.controller != null) {
             this.controller.simulationFinished(now, data);
         }
 
         System.out.println("\n--- Final statistics ---");
-        this.printPoint("Reception", this.reception, now);
-        this.printPointWithServers("Mechanic", this.mechanic, now);
-        this.printPointWithServers("Wash", this.wash, now);
+        for (ServicePoint sp : this.ordered) {
+            if (sp.getCapacity() > 1) this.printPointWithServers(sp.getName(), sp, now);
+            else this.printPoint(sp.getName(), sp, now);
+        }
+        for (Map.Entry<Customer.Route, ResponseTimeStats> e : this.routeStats.entrySet()) {
+            ResponseTimeStats rs = e.getValue();
+            System.out.printf("Route %s: customers=%d, avgSojourn=%.3f, p95Sojourn=%.3f, p99Sojourn=%.3f, p95Wait=%.3f%n",
+                e.getKey(), rs.getCount(), rs.getSojourn().getMean(), rs.getSojourn().quantile(0.95),
+                rs.getSojourn().quantile(0.99), rs.getWait().quantile(0.95));
+        }
     }
 
 
     // ---------- Helper methods ----------
 
+    /**
+     * @param station station index or -1
+     * @param lengths buffer of one entry per server
+     * @return the queue length of each server of the station, the buffer unchanged if there is none
+     */
+    private int[] queueLengths(int station, int[] lengths) {
+        return station < 0 ? lengths : this.points[station].getQueueLengthsPerServer(lengths);
+    }
+
     /**
      * Try to start as many services as possible at the given service point.
-     * @param sp Service point where to start services
-     * @param type Event type to be used for the service end events
+     * @param station index of the service point where to start services
      * @param now Current simulation time
      */
-    private void startIfPossible(ServicePoint sp, EventType type, double now) {
+    private void startIfPossible(int station, double now) {
+        ServicePoint sp = this.points[station];
         int free = sp.availableSlots();
 
         if (free <= 0) return;
@@ -399,12 +682,7 @@ public class EngineMod extends Engine {
 
             if (si == null) break;
 
-            switch (type) {
-                case RECEPTION_END: si.customer.tReceptionStart = now;  break;
-                case MECHANIC_END:  si.customer.tMechanicStart = now;   break;
-                case WASH_END:      si.customer.tWashStart = now;       break;
-                default: break;
-            }
+            this.started[station].apply(si.customer, now);
         }
     }
 
@@ -426,8 +704,57 @@ public class EngineMod extends Engine {
         this.resumeEngine(); // in case it's paused
     }
 
+    /**
+     * Snapshot the statistics of all stations and routes. Snapshots of several engines
+     * (replications) can be merged into one result.
+     * @param now current simulation time
+     * @return independent partial result
+     */
+    public ResultAccumulator snapshotResults(double now) {
+        return ResultAccumulator.of(now, this.ordered, this.routeStats);
+    }
+
+    /**
+     * Hand every departed customer to the given sink. The sink is closed when the simulation ends.
+     * Must be set before the engine is started.
+     * @param sink receiver of departed customers, null for none
+     */
+    public void setCustomerSink(CustomerSink sink) {
+        this.customerSink = sink;
+    }
+
+    /**
+     * Detach the visualisation to run unpaced at full speed, or attach it again. Takes effect at the start of
+     * the next cycle; on attaching, the visualisation is rebuilt from the service point queues in one pass.
+     * @param detached whether the controller stops receiving visual events
+     */
+    public void setVisualisationDetached(boolean detached) {
+        this.detachRequested = detached;
+    }
+
+    /**
+     * @return the customers at every station now
+     */
+    public QueueSnapshot snapshotQueues() {
+        return new QueueSnapshot(this.point(this.reception), this.point(this.mechanic), this.point(this.wash),
+            this.point(this.checkout));
+    }
+
+    private ServicePoint point(int station) {
+        return station < 0 ? null : this.points[station];
+    }
+
+    @Override
+    protected long cycleDelay() {
+        return this.visual == null && this.controller != null ? 0L : super.cycleDelay();
+    }
+
     @Override
     protected void beforeCycle() {
+        if (this.detachRequested != (this.visual == null) && this.controller != null) {
+            this.visual = this.detachRequested ? null : this.controller;
+            if (this.visual != null) this.visual.resyncVisualisation(this.snapshotQueues());
+        }
         if (this.stopRequested) {
             setSimulationTime(Clock.getInstance().getClock());
         }
@@ -450,9 +777,14 @@ public class EngineMod extends Engine {
         double avgService = sp.getAverageServiceTime();
         double avgTotal = avgWait + avgService;
         double util = (now > 0 && cap > 0) ? sp.getBusyTime() / (cap * now) : 0.0;
-
-        System.out.printf("%s: servers=%d, served=%d, avgWait=%.3f, avgService=%.3f, avgTotal=%.3f, util=%.1f%%%n",
-            label, cap, served, avgWait, avgService, avgTotal, util * 100.0);
+        ResponseTimeStats rs = sp.getResponseTimeStats();
+
+        System.out.printf("%s: servers=%d, served=%d, avgWait=%.3f, p95Wait=%.3f, p99Wait=%.3f, avgService=%.3f, avgTotal=%.3f, util=%.1f%%%n",
+            label, cap, served, avgWait, rs.getWait().quantile(0.95), rs.getWait().quantile(0.99),
+            avgService, avgTotal, util * 100.0);
+        System.out.printf("  Lq=%.3f, L=%.3f (Little: %.3f), maxQueue=%d%n",
+            sp.getAverageQueueLength(now), sp.getAverageNumberInSystem(now),
+            now > 0 ? served / now * avgTotal : 0.0, sp.getMaxQueueLength());
     }
     private void printPointWithServers(String label, ServicePoint sp, double now) {
         this.printPoint(label, sp, now);
@@ -0,0 +1,72 @@
+package simu.model;
+
+import distributions.QuasiRandomSequence;
+import simu.config.SimulationOptions;
+import simu.framework.Trace;
+import simu.stats.RunningStat;
+
+import java.io.PrintStream;
+import java.util.List;
+
+/**
+ * Compares the variance of replication estimates of the default {@link EngineMod} scenario from
+ * pseudo-random streams with that of randomized Sobol and Halton designs.
+ */
+public final class QuasiRandomReport {
+    private static final List<ReplicationRunner.Measure> MEASURES = ReplicationRunner.DEFAULT_MEASURES;
+
+    private QuasiRandomReport() {}
+
+    /**
+     * Estimate every measure with one design.
+     * @param sequence quasi-random sequence, null for pseudo-random streams
+     * @param seed base seed of the design
+     * @param replications runs of the design
+     * @param duration simulation length of a run
+     * @return the mean of every measure over the runs
+     */
+    static double[] estimate(QuasiRandomSequence sequence, long seed, int replications, double duration) {
+        ReplicationRunner.Estimate[] estimates = new ReplicationRunner(() -> {
+            SimulationOptions options = SimulationOptions.defaults();
+            options.setBaseRandomSeed(seed);
+            options.setQuasiRandom(sequence);
+            return options;
+        }, duration).independent(replications, MEASURES);
+        double[] mean = new double[estimates.length];
+        for (int k = 0; k < mean.length; k++) mean[k] = estimates[k].getMean();
+        return mean;
+    }
+
+    /**
+     * @param args [replications] [designs] [duration]
+     */
+    public static void main(String[] args) {
+        int replications = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int designs = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        double duration = args.length > 2 ? Double.parseDouble(args[2]) : 2000.0;
+
+        QuasiRandomSequence[] methods = {null, QuasiRandomSequence.SOBOL, QuasiRandomSequence.HALTON};
+        RunningStat[][] stats = new RunningStat[methods.length][MEASURES.size()];
+
+        Trace.setTraceLevel(Trace.Level.ERR);
+        ReplicationRunner.quietly(() -> {
+            for (int m = 0; m < methods.length; m++) {
+                for (int k = 0; k < MEASURES.size(); k++) stats[m][k] = new RunningStat();
+                for (int d = 0; d < designs; d++) {
+                    double[] est = estimate(methods[m], 1000L + d, replications, duration);
+                    for (int k = 0; k < est.length; k++) stats[m][k].add(est[k]);
+                }
+            }
+        });
+
+        PrintStream out = System.out;
+        out.printf("%d designs of %d replications, %.0f time units each%n", designs, replications, duration);
+        out.printf("%-18s %14s %14s %8s %14s %8s%n", "measure", "PRNG var", "SOBOL var", "factor", "HALTON var", "factor");
+        for (int k = 0; k < MEASURES.size(); k++) {
+            double prng = stats[0][k].getVariance();
+            out.printf("%-18s %14.4f %14.4f %8.2f %14.4f %8.2f%n", MEASURES.get(k).getName(), prng,
+                stats[1][k].getVariance(), prng / stats[1][k].getVariance(),
+                stats[2][k].getVariance(), prng / stats[2][k].getVariance());
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package simu.model;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The customers at every station at one moment, by id, for rebuilding a visualisation without replaying its
+ * events. Each server's customers are listed with the one in service first, then the queue in order, as the
+ * visualisation draws them.
+ */
+public final class QueueSnapshot {
+    private final int[] reception;
+    private final int[][] mechanics;
+    private final int[][] washers;
+    private final int[] checkout;
+    private final Set<Integer> visitedMechanic = new HashSet<>();
+    private final Set<Integer> washedAfterMechanic = new HashSet<>();
+
+    /**
+     * A station missing from the network (null) shows as empty.
+     */
+    QueueSnapshot(ServicePoint reception, ServicePoint mechanic, ServicePoint wash, ServicePoint checkout) {
+        this.reception = reception != null ? this.ids(reception.getCustomers(0), false, false) : new int[0];
+        this.mechanics = new int[mechanic != null ? mechanic.getCapacity() : 0][];
+        for (int i = 0; i < this.mechanics.length; i++) this.mechanics[i] = this.ids(mechanic.getCustomers(i), true, false);
+        this.washers = new int[wash != null ? wash.getCapacity() : 0][];
+        for (int i = 0; i < this.washers.length; i++) this.washers[i] = this.ids(wash.getCustomers(i), true, true);
+        this.checkout = checkout != null ? this.ids(checkout.getCustomers(0), true, true) : new int[0];
+    }
+
+    private int[] ids(List<Customer> customers, boolean pastMechanic, boolean pastWash) {
+        int[] ids = new int[customers.size()];
+        for (int i = 0; i < ids.length; i++) {
+            Customer c = customers.get(i);
+            ids[i] = c.getId();
+            if (pastMechanic && c.needsMechanic()) {
+                this.visitedMechanic.add(ids[i]);
+                if (pastWash && c.needsWash()) this.washedAfterMechanic.add(ids[i]);
+            }
+        }
+        return ids;
+    }
+
+    public int[] getReception() { return this.reception; }
+
+    /** @return customers of each mechanic */
+    public int[][] getMechanics() { return this.mechanics; }
+
+    /** @return customers of each washer */
+    public int[][] getWashers() { return this.washers; }
+
+    public int[] getCheckout() { return this.checkout; }
+
+    /** @return whether the customer is at or past the mechanic */
+    public boolean hasVisitedMechanic(int id) { return this.visitedMechanic.contains(id); }
+
+    /** @return whether the customer is at or past the wash after the mechanic */
+    public boolean isWashedAfterMechanic(int id) { return this.washedAfterMechanic.contains(id); }
+
+    /** @return number of customers in the garage */
+    public int size() {
+        int n = this.reception.length + this.checkout.length;
+        for (int[] ids : this.mechanics) n += ids.length;
+        for (int[] ids : this.washers) n += ids.length;
+        return n;
+    }
+}
@@ -0,0 +1,212 @@
+package simu.model;
+
+import distributions.SamplingMethod;
+import distributions.Tstudent;
+import simu.config.SimulationOptions;
+import simu.framework.Clock;
+import simu.framework.Trace;
+import simu.stats.RunningStat;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Runs replications of a scenario, replication {@code r} on random stream {@code r}, independent or in
+ * antithetic pairs, and estimates measures of its results with confidence intervals.
+ */
+public final class ReplicationRunner {
+
+    /**
+     * A named result of one run.
+     */
+    public static final class Measure {
+        private final String name;
+        private final ToDoubleFunction<SimulationData> value;
+
+        public Measure(String name, ToDoubleFunction<SimulationData> value) {
+            this.name = name;
+            this.value = value;
+        }
+
+        public String getName() { return this.name; }
+
+        public double of(SimulationData data) { return this.value.applyAsDouble(data); }
+    }
+
+    /** Average waits at the reception, mechanic and wash, and the customers served. */
+    public static final List<Measure> DEFAULT_MEASURES = List.of(
+        new Measure("Reception wait", SimulationData::getReceptionAvgWait),
+        new Measure("Mechanic wait", SimulationData::getMechanicAvgWait),
+        new Measure("Wash wait", d -> d.getAvgWait(SimulationData.WASH)),
+        new Measure("Served", d -> d.getServed("Checkout")));
+
+    /**
+     * Mean of independent observations with a Student t confidence interval.
+     */
+    public static final class Estimate {
+        private final RunningStat stat;
+
+        Estimate(RunningStat stat) {
+            this.stat = stat;
+        }
+
+        public double getMean() { return this.stat.getMean(); }
+
+        /** @return number of observations */
+        public long getCount() { return this.stat.getCount(); }
+
+        /** @return variance of the mean */
+        public double getVariance() {
+            return this.stat.getCount() > 0 ? this.stat.getVariance() / this.stat.getCount() : Double.NaN;
+        }
+
+        /**
+         * @param level confidence level, e.g. 0.95
+         * @return half-width of the confidence interval of the mean, NaN with fewer than two observations
+         */
+        public double getHalfWidth(double level) {
+            long n = this.stat.getCount();
+            if (n < 2) return Double.NaN;
+            return new Tstudent(n - 1, 0L).quantile(0.5 + level / 2) * Math.sqrt(this.getVariance());
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%.4g +- %.3g", this.getMean(), this.getHalfWidth(0.95));
+        }
+    }
+
+    private final Supplier<SimulationOptions> scenario;
+    private final double duration;
+    private final long baseSeed;
+
+    /**
+     * @param scenario fresh options of the scenario for every run; the random stream and antithetic flag are set
+     *                 per run, and the base seed is that of the first options supplied, since the default one
+     *                 changes with the time
+     * @param duration simulation length of a run
+     */
+    public ReplicationRunner(Supplier<SimulationOptions> scenario, double duration) {
+        if (!(duration > 0.0)) throw new IllegalArgumentException("duration must be positive");
+        this.scenario = scenario;
+        this.duration = duration;
+        this.baseSeed = scenario.get().getBaseRandomSeed();
+    }
+
+    /** @return the base seed all replications draw their streams from */
+    public long getBaseSeed() {
+        return this.baseSeed;
+    }
+
+    /**
+     * Run one replication. Runs share the simulation clock, so they must not overlap.
+     * @param replication replication number, the random stream of the run
+     * @param antithetic whether to run the antithetic twin of the replication
+     * @return the results at the end of the run
+     */
+    public SimulationData run(int replication, boolean antithetic) {
+        if (replication < 0) throw new IllegalArgumentException("replication must not be negative");
+        SimulationOptions options = this.scenario.get();
+        options.setBaseRandomSeed(this.baseSeed);
+        options.setRandomStream(replication);
+        options.setAntithetic(antithetic);
+        options.setUiDelayMillis(0);
+
+        Clock.getInstance().setClock(0.0);
+        EngineMod engine = new EngineMod(options, null);
+        engine.setSimulationTime(this.duration);
+        engine.run();
+        return engine.snapshotResults(Clock.getInstance().getClock()).toSimulationData();
+    }
+
+    /**
+     * Estimate the measures over independent replications 0 .. {@code replications - 1}.
+     * @return one estimate per measure, in the order of {@code measures}
+     */
+    public Estimate[] independent(int replications, List<Measure> measures) {
+        RunningStat[] stats = newStats(measures.size());
+        for (int r = 0; r < replications; r++) {
+            SimulationData data = this.run(r, false);
+            for (int k = 0; k < stats.length; k++) stats[k].add(measures.get(k).of(data));
+        }
+        return toEstimates(stats);
+    }
+
+    /**
+     * Estimate the measures over antithetic pairs: replications 0 .. {@code pairs - 1}, each run with its twin.
+     * @return one estimate per measure, in the order of {@code measures}; an observation is the mean of a pair
+     */
+    public Estimate[] antithetic(int pairs, List<Measure> measures) {
+        RunningStat[] stats = newStats(measures.size());
+        for (int r = 0; r < pairs; r++) {
+            SimulationData data = this.run(r, false);
+            SimulationData twin = this.run(r, true);
+            for (int k = 0; k < stats.length; k++) {
+                stats[k].add(0.5 * (measures.get(k).of(data) + measures.get(k).of(twin)));
+            }
+        }
+        return toEstimates(stats);
+    }
+
+    private static RunningStat[] newStats(int n) {
+        RunningStat[] stats = new RunningStat[n];
+        for (int k = 0; k < n; k++) stats[k] = new RunningStat();
+        return stats;
+    }
+
+    private static Estimate[] toEstimates(RunningStat[] stats) {
+        Estimate[] estimates = new Estimate[stats.length];
+        for (int k = 0; k < stats.length; k++) estimates[k] = new Estimate(stats[k]);
+        return estimates;
+    }
+
+    /**
+     * Run {@code body} with {@code System.out} discarded, for reports: the engine prints every run's statistics.
+     */
+    static void quietly(Runnable body) {
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            body.run();
+        } finally {
+            System.setOut(out);
+        }
+    }
+
+    /**
+     * Compare independent and antithetic replications of the default scenario.
+     * @param args [pairs] [duration] [seed]
+     */
+    public static void main(String[] args) {
+        int pairs = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+        double duration = args.length > 1 ? Double.parseDouble(args[1]) : 2000.0;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 1000L;
+
+        ReplicationRunner runner = new ReplicationRunner(() -> {
+            SimulationOptions options = SimulationOptions.defaults();
+            options.setBaseRandomSeed(seed);
+            options.setSamplingMethod(SamplingMethod.INVERSION);
+            options.setAliasRouting(true);
+            return options;
+        }, duration);
+        Estimate[][] estimates = new Estimate[2][];
+
+        Trace.setTraceLevel(Trace.Level.ERR);
+        quietly(() -> {
+            estimates[0] = runner.independent(2 * pairs, DEFAULT_MEASURES);
+            estimates[1] = runner.antithetic(pairs, DEFAULT_MEASURES);
+        });
+
+        System.out.printf("%d independent replications and %d antithetic pairs, %.0f time units each%n",
+            2 * pairs, pairs, duration);
+        System.out.printf("%-18s %22s %22s %8s%n", "measure", "independent", "antithetic", "factor");
+        for (int k = 0; k < DEFAULT_MEASURES.size(); k++) {
+            Estimate ind = estimates[0][k], anti = estimates[1][k];
+            System.out.printf("%-18s %22s %22s %8.2f%n", DEFAULT_MEASURES.get(k).getName(), ind, anti,
+                ind.getVariance() / anti.getVariance());
+        }
+    }
+}
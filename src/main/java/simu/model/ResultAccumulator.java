@@ -0,0 +1,110 @@
+package simu.model;
+
+import simu.stats.Mergeable;
+import simu.stats.ResponseTimeStats;
+import simu.stats.StationAccumulator;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Mergeable partial result of a simulation: the {@link StationAccumulator} of every station, the
+ * per-route response times and the observed duration. Partial results of replications, batches or
+ * shards are combined with {@link #merge} (or {@link Mergeable#reduce} for many), and the final result is
+ * turned into a {@link SimulationData} with {@link #toSimulationData()}.
+ */
+public class ResultAccumulator implements Mergeable<ResultAccumulator> {
+    private final Map<String, StationAccumulator> stations = new LinkedHashMap<>();
+    private final Map<Customer.Route, ResponseTimeStats> routes = new EnumMap<>(Customer.Route.class);
+    private double duration;
+    private int runs;
+
+    /**
+     * @param duration observed simulation length of this partial result
+     */
+    public ResultAccumulator(double duration) {
+        this.duration = duration;
+        this.runs = 1;
+        for (Customer.Route route : Customer.Route.values()) {
+            this.routes.put(route, new ResponseTimeStats());
+        }
+    }
+
+    /**
+     * Create a deep copy of the given result.
+     * @param other result to copy
+     */
+    public ResultAccumulator(ResultAccumulator other) {
+        this.duration = other.duration;
+        this.runs = other.runs;
+        other.stations.forEach((name, st) -> this.stations.put(name, new StationAccumulator(st)));
+        other.routes.forEach((route, rs) -> this.routes.put(route, new ResponseTimeStats(rs)));
+    }
+
+    /**
+     * Snapshot the given service points and route statistics at the end of a run.
+     * @param now current simulation time (the run length)
+     * @param points service points, in display order
+     * @param routes wait / service / sojourn statistics per customer route
+     * @return independent partial result
+     */
+    public static ResultAccumulator of(double now, Iterable<ServicePoint> points, Map<Customer.Route, ResponseTimeStats> routes) {
+        ResultAccumulator acc = new ResultAccumulator(now);
+        for (ServicePoint sp : points) {
+            acc.addStation(sp.snapshot(now));
+        }
+        routes.forEach((route, rs) -> acc.routes.get(route).merge(rs));
+        return acc;
+    }
+
+    /**
+     * Add (or merge into an existing one with the same name) a station's statistics.
+     * @param station station statistics, copied
+     */
+    public void addStation(StationAccumulator station) {
+        StationAccumulator existing = this.stations.get(station.getName());
+        if (existing == null) {
+            this.stations.put(station.getName(), new StationAccumulator(station));
+        } else {
+            existing.merge(station);
+        }
+    }
+
+    /**
+     * Absorb the result of another run. Stations are matched by name; stations only present in
+     * {@code other} are added.
+     * @param other partial result to absorb
+     */
+    @Override
+    public void merge(ResultAccumulator other) {
+        for (StationAccumulator st : other.stations.values()) {
+            this.addStation(st);
+        }
+        other.routes.forEach((route, rs) -> this.routes.get(route).merge(rs));
+        this.duration += other.duration;
+        this.runs += other.runs;
+    }
+
+    @Override
+    public ResultAccumulator copy() { return new ResultAccumulator(this); }
+
+    public Map<String, StationAccumulator> getStations() { return Collections.unmodifiableMap(this.stations); }
+    public Map<Customer.Route, ResponseTimeStats> getRoutes() { return Collections.unmodifiableMap(this.routes); }
+
+    /**
+     * @return total observed duration of all merged runs
+     */
+    public double getDuration() { return this.duration; }
+
+    /**
+     * @return number of runs merged into this result
+     */
+    public int getRuns() { return this.runs; }
+
+    /**
+     * @return results in the form used by the views and the database
+     */
+    public SimulationData toSimulationData() { return SimulationData.from(this); }
+}
@@ -0,0 +1,110 @@
+package simu.model;
+
+import simu.config.SimulationOptions;
+import simu.framework.Trace;
+import simu.stats.RunningStat;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Compares two scenarios by the paired differences of their replications, with a Student t confidence
+ * interval. {@link #withCommonRandomNumbers} correlates the pairs, which narrows it.
+ */
+public final class ScenarioComparison {
+    private final ReplicationRunner first;
+    private final ReplicationRunner second;
+
+    /**
+     * Compare the scenarios as supplied, each with the base seed of its first options.
+     * @param first fresh options of the first scenario for every run
+     * @param second fresh options of the second scenario for every run
+     * @param duration simulation length of a run
+     */
+    public ScenarioComparison(Supplier<SimulationOptions> first, Supplier<SimulationOptions> second, double duration) {
+        this.first = new ReplicationRunner(first, duration);
+        this.second = new ReplicationRunner(second, duration);
+    }
+
+    /**
+     * Compare the scenarios with common random numbers from the base seed of the first.
+     * @param first fresh options of the first scenario for every run
+     * @param second fresh options of the second scenario for every run
+     * @param duration simulation length of a run
+     * @return the comparison
+     */
+    public static ScenarioComparison withCommonRandomNumbers(Supplier<SimulationOptions> first,
+                                                             Supplier<SimulationOptions> second, double duration) {
+        long seed = first.get().getBaseRandomSeed();
+        return new ScenarioComparison(common(first, seed), common(second, seed), duration);
+    }
+
+    private static Supplier<SimulationOptions> common(Supplier<SimulationOptions> scenario, long seed) {
+        return () -> {
+            SimulationOptions options = scenario.get();
+            options.setBaseRandomSeed(seed);
+            options.setCommonRandomNumbers(true);
+            return options;
+        };
+    }
+
+    /**
+     * Estimate the differences of the measures over replications 0 .. {@code replications - 1}.
+     * @return one estimate of (second - first) per measure, in the order of {@code measures}
+     */
+    public ReplicationRunner.Estimate[] compare(int replications, List<ReplicationRunner.Measure> measures) {
+        RunningStat[] stats = new RunningStat[measures.size()];
+        for (int k = 0; k < stats.length; k++) stats[k] = new RunningStat();
+        for (int r = 0; r < replications; r++) {
+            SimulationData a = this.first.run(r, false);
+            SimulationData b = this.second.run(r, false);
+            for (int k = 0; k < stats.length; k++) {
+                stats[k].add(measures.get(k).of(b) - measures.get(k).of(a));
+            }
+        }
+        ReplicationRunner.Estimate[] estimates = new ReplicationRunner.Estimate[stats.length];
+        for (int k = 0; k < stats.length; k++) estimates[k] = new ReplicationRunner.Estimate(stats[k]);
+        return estimates;
+    }
+
+    private static Supplier<SimulationOptions> mechanics(int servers, long seed) {
+        return () -> {
+            SimulationOptions options = SimulationOptions.defaults();
+            options.setBaseRandomSeed(seed);
+            options.setMechanicServers(servers);
+            return options;
+        };
+    }
+
+    /**
+     * Compare 2 with 3 mechanics from independent runs, the same base seed and common random numbers.
+     * @param args [replications] [duration] [seed]
+     */
+    public static void main(String[] args) {
+        int replications = args.length > 0 ? Integer.parseInt(args[0]) : 40;
+        double duration = args.length > 1 ? Double.parseDouble(args[1]) : 2000.0;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 1000L;
+
+        ScenarioComparison[] comparisons = {
+            new ScenarioComparison(mechanics(2, seed), mechanics(3, seed + 1), duration),
+            new ScenarioComparison(mechanics(2, seed), mechanics(3, seed), duration),
+            withCommonRandomNumbers(mechanics(2, seed), mechanics(3, seed), duration)
+        };
+        List<ReplicationRunner.Measure> measures = ReplicationRunner.DEFAULT_MEASURES;
+        ReplicationRunner.Estimate[][] estimates = new ReplicationRunner.Estimate[comparisons.length][];
+
+        Trace.setTraceLevel(Trace.Level.ERR);
+        ReplicationRunner.quietly(() -> {
+            for (int m = 0; m < comparisons.length; m++) estimates[m] = comparisons[m].compare(replications, measures);
+        });
+
+        System.out.printf("3 minus 2 mechanics, %d replications of %.0f time units%n", replications, duration);
+        System.out.printf("%-16s %18s %18s %22s %8s%n", "measure", "independent", "same seed", "common random numbers", "factor");
+        for (int k = 0; k < measures.size(); k++) {
+            double crn = estimates[2][k].getVariance();
+            System.out.printf("%-16s %18s %18s %22s %8s%n", measures.get(k).getName(),
+                estimates[0][k], estimates[1][k], estimates[2][k],
+                crn > 0.0 ? String.format("%.3g", estimates[0][k].getVariance() / crn) : "-");
+        }
+    }
+}
@@ -2,7 +2,12 @@ package simu.model;
 
 import distributions.ContinuousGenerator;
 import simu.framework.*;
+import simu.stats.ResponseTimeStats;
+import simu.stats.StationAccumulator;
+import simu.stats.TimeWeightedStat;
+import java.util.ArrayList;
 import java.util.LinkedList;
+import java.util.List;
 
 public class ServicePoint {
 
@@ -19,6 +24,15 @@ public class ServicePoint {
 		double adjust(Customer c, int serverId, double baseSample);
 	}
 
+	/**
+	 * Called just before the service time of a customer is sampled from the server's generator,
+	 * e.g. to key the generator's uniform source to the customer (common random numbers).
+	 */
+	@FunctionalInterface
+	public interface SampleListener {
+		void beforeSample(Customer c, int serverId);
+	}
+
 	/**
 	 * Immutable DTO describing a service start decision.
 	 * <p>
@@ -90,12 +104,15 @@ public class ServicePoint {
 		}
 	}
 
+	private static final long IDLE = Long.MAX_VALUE;
+
 	// Config / infra
 	private final EventList eventList;
-	private final EventType endType;
+	private final IEventType endType;
 	private final int capacity;
-	private final ContinuousGenerator[] generators;
+	private final ContinuousGenerator[][] generators; // per server, one per service class
 	private final ServiceTimeStrategy timeStrategy;
+	private SampleListener sampleListener; // null = none
 
 	// Queues (one per server)
 	private final LinkedList<QItem>[] queues;
@@ -103,15 +120,11 @@ public class ServicePoint {
 	// Active service state per server
 	private final Customer[] active;
 	private final double[] startTimes;
-	private final double[] endTimes; // POSITIVE_INFINITY if idle
+	private final long[] endTicks; // clock ticks, IDLE if idle
+	private final double[] waitTimes; // wait of the customer in service
 
-	// Stats
-	private int served = 0;
-	private double totalWaitTime = 0.0;
-	private double totalBusyTime = 0.0;
-	private final double[] perServerBusy;
-	private final int[] perServerServed;
-	private final double[] perServerWaitSum;
+	// Stats: counts, moments, sketches and time integrals of the station and each server
+	private final StationAccumulator stats;
 
 
 	// ---------- Constructors ----------
@@ -132,10 +145,10 @@ public class ServicePoint {
 		this.eventList = el;
 		this.endType = type;
 		this.timeStrategy = strategy;
-		this.generators = new ContinuousGenerator[this.capacity];
+		this.generators = new ContinuousGenerator[this.capacity][];
 
 		for (int i = 0; i < this.capacity; i++)
-			this.generators[i] = gen;
+			this.generators[i] = new ContinuousGenerator[] { gen };
 
 		this.queues = new LinkedList[this.capacity];
 
@@ -144,14 +157,13 @@ public class ServicePoint {
 
 		this.active = new Customer[this.capacity];
 		this.startTimes = new double[this.capacity];
-		this.endTimes = new double[this.capacity];
+		this.endTicks = new long[this.capacity];
+		this.waitTimes = new double[this.capacity];
 
 		for (int i = 0; i < this.capacity; i++)
-			endTimes[i] = Double.POSITIVE_INFINITY;
+			endTicks[i] = IDLE;
 
-		this.perServerBusy = new double[this.capacity];
-		this.perServerServed = new int[this.capacity];
-		this.perServerWaitSum = new double[this.capacity];
+		this.stats = new StationAccumulator(stationName(type), this.capacity, Clock.getInstance().getClock());
 	}
 
 	public ServicePoint(ContinuousGenerator[] gens, EventList el, EventType type) {
@@ -159,13 +171,39 @@ public class ServicePoint {
 	}
 
 	public ServicePoint(ContinuousGenerator[] gens, EventList el, EventType type, ServiceTimeStrategy strategy) {
+		this(stationName(type), perServer(gens), el, type, strategy);
+	}
+
+	/**
+	 * Create the service point with a generator per server and service class: a customer of
+	 * {@link Customer#getServiceClass() service class} k is served by server i in
+	 * {@code gens[i][k]}, so differences between classes (e.g. wash programs) are part of the
+	 * generators instead of a strategy applied to every sample.
+	 * @param gens generators of each server, one per service class
+	 */
+	public ServicePoint(ContinuousGenerator[][] gens, EventList el, EventType type) {
+		this(stationName(type), gens, el, type, null);
+	}
+
+	/**
+	 * Create a named service point, e.g. a station of a network, whose end events are of any type.
+	 * @param name station name, used in the statistics
+	 * @param gens generators of each server, one per service class
+	 * @param type type of the service end events
+	 */
+	public ServicePoint(String name, ContinuousGenerator[][] gens, EventList el, IEventType type) {
+		this(name, gens, el, type, null);
+	}
+
+	private ServicePoint(String name, ContinuousGenerator[][] gens, EventList el, IEventType type, ServiceTimeStrategy strategy) {
 		this.capacity = gens.length;
 		this.eventList = el;
 		this.endType = type;
 		this.timeStrategy = strategy;
-		this.generators = new ContinuousGenerator[this.capacity];
+		this.generators = new ContinuousGenerator[this.capacity][];
 
-		System.arraycopy(gens, 0, this.generators, 0, this.capacity);
+		for (int i = 0; i < this.capacity; i++)
+			this.generators[i] = gens[i].clone();
 		this.queues = new LinkedList[this.capacity];
 
 		for (int i = 0; i < this.capacity; i++)
@@ -173,14 +211,34 @@ public class ServicePoint {
 
 		this.active = new Customer[this.capacity];
 		this.startTimes = new double[this.capacity];
-		this.endTimes = new double[this.capacity];
+		this.endTicks = new long[this.capacity];
+		this.waitTimes = new double[this.capacity];
 
 		for (int i = 0; i < this.capacity; i++)
-			endTimes[i] = Double.POSITIVE_INFINITY;
+			endTicks[i] = IDLE;
 
-		this.perServerBusy = new double[this.capacity];
-		this.perServerServed = new int[this.capacity];
-		this.perServerWaitSum = new double[this.capacity];
+		this.stats = new StationAccumulator(name, this.capacity, Clock.getInstance().getClock());
+	}
+
+
+	private static ContinuousGenerator[][] perServer(ContinuousGenerator[] gens) {
+		ContinuousGenerator[][] classes = new ContinuousGenerator[gens.length][];
+		for (int i = 0; i < gens.length; i++)
+			classes[i] = new ContinuousGenerator[] { gens[i] };
+		return classes;
+	}
+
+	private static String stationName(EventType type) {
+		String n = type.name().endsWith("_END") ? type.name().substring(0, type.name().length() - 4) : type.name();
+		return n.charAt(0) + n.substring(1).toLowerCase();
+	}
+
+
+	/**
+	 * @param listener called before every service time is sampled, null for none
+	 */
+	public void setSampleListener(SampleListener listener) {
+		this.sampleListener = listener;
 	}
 
 
@@ -195,6 +253,8 @@ public class ServicePoint {
 		double now = Clock.getInstance().getClock();
 		int sid = this.selectShortestQueueServer();
 		this.queues[sid].addLast(new QItem(c, now));
+
+		this.stats.arrive(now, sid);
 	}
 
 	/**
@@ -216,7 +276,7 @@ public class ServicePoint {
 			// Add remaining service time if server is busy
 			double remainingTime = 0;
 			if (this.active[i] != null) {
-				remainingTime = Math.max(0, this.endTimes[i] - now);
+				remainingTime = Math.max(0, Clock.getInstance().toTime(this.endTicks[i]) - now);
 			}
 
 			double totalTime = queueTime + remainingTime;
@@ -245,20 +305,26 @@ public class ServicePoint {
 				Customer c = qi.customer;
 
 				double wait = Math.max(0.0, now - qi.enqueuedAt);
-				this.totalWaitTime += wait;
-				this.perServerWaitSum[sid] += wait;
+				this.stats.startService(now, sid);
 
-				double baseSample = this.generators[sid] != null ? this.generators[sid].sample() : 0.0;
+				if (this.sampleListener != null) this.sampleListener.beforeSample(c, sid);
+				ContinuousGenerator[] classes = this.generators[sid];
+				ContinuousGenerator gen = classes[classes.length > 1 ? c.getServiceClass() : 0];
+				double baseSample = gen != null ? gen.sample() : 0.0;
 				double serviceTime = (timeStrategy != null) ? timeStrategy.adjust(c, sid, baseSample) : baseSample;
 
-				double end = now + serviceTime;
-				if (end <= now) end = Math.nextUp(now); // simple safeguard
+				// the clock converts the sampled duration to ticks, always at least one tick ahead; durations
+				// are bounded below at 0 by DistributionOptions, so only a zero sample is moved up here
+				Clock clock = Clock.getInstance();
+				long endTick = clock.ticksAfter(clock.toTicks(now), serviceTime);
+				double end = clock.toTime(endTick);
 
 				this.active[sid] = c;
 				this.startTimes[sid] = now;
-				this.endTimes[sid] = end;
+				this.endTicks[sid] = endTick;
+				this.waitTimes[sid] = wait;
 
-				this.eventList.add(new Event(this.endType, end));
+				this.eventList.add(Event.atTicks(this.endType, endTick));
 				return new StartInfo(c, serviceTime, end, sid);
 			}
 		}
@@ -281,36 +347,35 @@ public class ServicePoint {
 
 		Customer c = this.active[sid];
 		double start = this.startTimes[sid];
-		double end = this.endTimes[sid];
+		double end = Clock.getInstance().toTime(this.endTicks[sid]);
 
 		this.active[sid] = null;
-		this.endTimes[sid] = Double.POSITIVE_INFINITY;
+		this.endTicks[sid] = IDLE;
 
 		double busy = Math.max(0.0, end - start);
-		this.totalBusyTime += busy;
-		this.perServerBusy[sid] += busy;
-		this.perServerServed[sid]++;
+		double wait = this.waitTimes[sid];
+		this.stats.endService(now, sid, wait, busy);
+		c.addVisit(wait, busy);
 
-		this.served++;
 		return new EndInfo(c, sid, start, end);
 	}
 
 	/**
 	 * Find the server that has finished its service the earliest (at or before `now`).
 	 * If multiple servers finished at the same time, the one with the lowest server ID is chosen.
-	 * If no server has finished yet, returns -1.
+	 * If no server has finished yet, returns -1. End times are compared as exact clock ticks.
 	 * @param now current simulation time
 	 * @return index of the server that finished earliest, or -1 if none
 	 */
 	private int findEarliestFinished(double now) {
 		int best = -1;
-		double bestEnd = Double.POSITIVE_INFINITY;
-		final double EPS = 1e-9;
+		long bestEnd = IDLE;
+		long nowTicks = Clock.getInstance().toTicks(now);
 
 		for (int i = 0; i < this.capacity; i++) {
-			if (this.active[i] != null && this.endTimes[i] - now <= EPS) {
-				if (this.endTimes[i] < bestEnd) {
-					bestEnd = this.endTimes[i];
+			if (this.active[i] != null && this.endTicks[i] <= nowTicks) {
+				if (this.endTicks[i] < bestEnd) {
+					bestEnd = this.endTicks[i];
 					best = i;
 				}
 			}
@@ -340,20 +405,93 @@ public class ServicePoint {
 
 	// ---------- Getters and analytics ----------
 
-	public int getServedCount() { return this.served; }
+	public int getServedCount() { return (int) this.stats.getServed(); }
 	public int getCapacity() { return this.capacity; }
-	public double getBusyTime() { return this.totalBusyTime; }
-	public double getAverageServiceTime() { return this.served > 0 ? this.totalBusyTime / this.served : 0.0; }
-	public double getAverageWaitTime() { return this.served > 0 ? this.totalWaitTime / this.served : 0.0; }
-	public double getTotalWaitTime() { return this.totalWaitTime; }
+	public double getBusyTime() { return this.stats.getService().getSum(); }
+	public double getAverageServiceTime() { return this.stats.getService().getMean(); }
+	public double getAverageWaitTime() { return this.stats.getWait().getMean(); }
+	public double getTotalWaitTime() { return this.stats.getWait().getSum(); }
+
+	/**
+	 * @return station name derived from the service end event type, e.g. "Reception"
+	 */
+	public String getName() { return this.stats.getName(); }
+
+	/**
+	 * Get all statistics of this service point.
+	 * @return live accumulator (not a copy), see {@link #snapshot(double)}
+	 */
+	public StationAccumulator getStatistics() { return this.stats; }
+
+	/**
+	 * Get an independent copy of the statistics with the time integrals closed at {@code now}.
+	 * Snapshots of the same station from several runs can be merged.
+	 * @param now current simulation time
+	 * @return snapshot of the statistics
+	 */
+	public StationAccumulator snapshot(double now) { return this.stats.snapshot(now); }
+
+	/**
+	 * Get the streaming wait, service and sojourn time distributions of completed services.
+	 * @return live statistics of this service point (not a copy)
+	 */
+	public ResponseTimeStats getResponseTimeStats() { return this.stats.getResponse(); }
+
+	/**
+	 * Time-average number of customers waiting (Lq).
+	 * @param now current simulation time
+	 * @return average queue length from the creation of the service point until now
+	 */
+	public double getAverageQueueLength(double now) { return this.stats.getQueue().getMean(now); }
+
+	/**
+	 * Time-average number of customers waiting or in service (L).
+	 * @param now current simulation time
+	 * @return average number in the service point from its creation until now
+	 */
+	public double getAverageNumberInSystem(double now) { return this.stats.getSystem().getMean(now); }
+
+	/**
+	 * Time-average number of busy servers.
+	 * @param now current simulation time
+	 * @return average number of busy servers from the creation of the service point until now
+	 */
+	public double getAverageBusyServers(double now) { return this.stats.getBusy().getMean(now); }
+
+	public int getMaxQueueLength() { return this.stats.getQueue().getMaxLevel(); }
+	public TimeWeightedStat getQueueLengthStat() { return this.stats.getQueue(); }
+	public TimeWeightedStat getNumberInSystemStat() { return this.stats.getSystem(); }
+	public TimeWeightedStat getBusyServersStat() { return this.stats.getBusy(); }
+
+	/**
+	 * Get per-server time-average queue lengths (waiting customers only)
+	 * @param now current simulation time
+	 * @return array of length `capacity` with per-server average queue lengths
+	 */
+	public double[] getPerServerAverageQueueLengths(double now) {
+		double[] avg = new double[this.capacity];
+		for (int i = 0; i < this.capacity; i++) avg[i] = this.stats.getServerQueue(i).getMean(now);
+		return avg;
+	}
+
+	/**
+	 * Get per-server time-weighted occupancy (fraction of time busy, including a service in progress)
+	 * @param now current simulation time
+	 * @return array of length `capacity` with values in [0, 1]
+	 */
+	public double[] getPerServerOccupancy(double now) {
+		double[] occ = new double[this.capacity];
+		for (int i = 0; i < this.capacity; i++) occ[i] = this.stats.getServerBusy(i).getMean(now);
+		return occ;
+	}
 
 	/**
 	 * Get a snapshot of how much time each server has been busy.
 	 * @return array of length `capacity` with per-server busy times
 	 */
 	public double[] getPerServerBusyTimeSnapshot() {
-		double[] copy = new double[this.perServerBusy.length];
-		System.arraycopy(this.perServerBusy, 0, copy, 0, copy.length);
+		double[] copy = new double[this.capacity];
+		for (int i = 0; i < this.capacity; i++) copy[i] = this.stats.getServerService(i).getSum();
 		return copy;
 	}
 
@@ -362,8 +500,8 @@ public class ServicePoint {
 	 * @return array of length `capacity` with per-server served counts
 	 */
 	public int[] getPerServerServedSnapshot() {
-		int[] copy = new int[this.perServerServed.length];
-		System.arraycopy(this.perServerServed, 0, copy, 0, copy.length);
+		int[] copy = new int[this.capacity];
+		for (int i = 0; i < this.capacity; i++) copy[i] = (int) this.stats.getServerService(i).getCount();
 		return copy;
 	}
 
@@ -389,11 +527,31 @@ public class ServicePoint {
         return -1;
     }
 
+    /**
+     * Get the customers of a server as they are drawn: the one in service first, then the queue in order
+     * @param server zero-based server id
+     * @return new list of the customers
+     */
+    public List<Customer> getCustomers(int server) {
+        List<Customer> customers = new ArrayList<>(queues[server].size() + 1);
+        if (active[server] != null) customers.add(active[server]);
+        for (QItem item : queues[server]) customers.add(item.customer);
+        return customers;
+    }
+
     /**
      * Get number of customers in each server's queue
      */
     public int[] getQueueLengthsPerServer() {
-        int[] lengths = new int[capacity];
+        return getQueueLengthsPerServer(new int[capacity]);
+    }
+
+    /**
+     * Get number of customers in each server's queue without allocating
+     * @param lengths array of length >= `capacity` to fill
+     * @return `lengths`
+     */
+    public int[] getQueueLengthsPerServer(int[] lengths) {
         for (int i = 0; i < capacity; i++) {
             lengths[i] = queues[i].size() + (active[i] != null ? 1 : 0);
         }
@@ -406,9 +564,7 @@ public class ServicePoint {
 	 */
 	public double[] getPerServerAverageWaitTimes() {
 		double[] avg = new double[this.capacity];
-		for (int i = 0; i < this.capacity; i++) {
-			avg[i] = perServerServed[i] > 0 ? perServerWaitSum[i] / perServerServed[i] : 0.0;
-		}
+		for (int i = 0; i < this.capacity; i++) avg[i] = this.stats.getServerWait(i).getMean();
 		return avg;
 	}
 
@@ -418,9 +574,7 @@ public class ServicePoint {
 	 */
 	public double[] getPerServerAverageServiceTimes() {
 		double[] avg = new double[this.capacity];
-		for (int i = 0; i < this.capacity; i++) {
-			avg[i] = perServerServed[i] > 0 ? perServerBusy[i] / perServerServed[i] : 0.0;
-		}
+		for (int i = 0; i < this.capacity; i++) avg[i] = this.stats.getServerService(i).getMean();
 		return avg;
 	}
 
@@ -1,5 +1,6 @@
 package simu.model;
 
+import distributions.SamplingMethod;
 import javafx.beans.property.*;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -23,6 +24,9 @@ public final class SimParameters {
     private final ObjectProperty<DistributionOptions> washService =
             new SimpleObjectProperty<>(DistributionOptions.normal(15.0, 5.0));
 
+    private final ObjectProperty<SamplingMethod> samplingMethod =
+            new SimpleObjectProperty<>(SamplingMethod.FAST);
+
     // --- Probabilities ---
     private final DoubleProperty pNeedsMechanic = new SimpleDoubleProperty(0.70);
     private final DoubleProperty pNeedsWash     = new SimpleDoubleProperty(0.50);
@@ -84,6 +88,7 @@ public final class SimParameters {
         o.setReceptionService(getReceptionService());
         o.setMechanicService(getMechanicService());
         o.setWashService(getWashService());
+        o.setSamplingMethod(getSamplingMethod());
 
         o.setProbNeedsMechanic(pNeedsMechanicProperty().get());
         o.setProbNeedsWash(pNeedsWashProperty().get());
@@ -95,6 +100,9 @@ public final class SimParameters {
         o.setMechanicSpeedFactors(mechanicSpeedFactorsArray());
         o.setWashSpeedFactors(washerSpeedFactorsArray());
 
+        // Optional: record every departed customer, e.g. -Dsimu.customerRecords=runs/latest
+        o.setCustomerRecordDirectory(System.getProperty("simu.customerRecords"));
+
         // Optional: provide a reproducible seed if you add one to SimParameters later
         // o.setBaseRandomSeed(System.currentTimeMillis());
 
@@ -111,6 +119,7 @@ public final class SimParameters {
     public ObjectProperty<DistributionOptions> receptionServiceProperty() { return receptionService; }
     public ObjectProperty<DistributionOptions> mechanicServiceProperty()  { return mechanicService; }
     public ObjectProperty<DistributionOptions> washServiceProperty()      { return washService; }
+    public ObjectProperty<SamplingMethod>      samplingMethodProperty()   { return samplingMethod; }
 
     public DoubleProperty pNeedsMechanicProperty() { return pNeedsMechanic; }
     public DoubleProperty pNeedsWashProperty()     { return pNeedsWash; }
@@ -139,6 +148,8 @@ public final class SimParameters {
     public void setMechanicService(DistributionOptions d){ mechanicService.set(d); }
     public DistributionOptions getWashService()       { return washService.get(); }
     public void setWashService(DistributionOptions d) { washService.set(d); }
+    public SamplingMethod getSamplingMethod()         { return samplingMethod.get(); }
+    public void setSamplingMethod(SamplingMethod m)   { samplingMethod.set(m); }
 
     // --- Snapshots for the engine ---
     public double[] mechanicSpeedFactorsArray() {
@@ -159,6 +170,7 @@ public final class SimParameters {
                 ", receptionService=" + receptionService.get() +
                 ", mechanicService=" + mechanicService.get() +
                 ", washService=" + washService.get() +
+                ", samplingMethod=" + samplingMethod.get() +
                 ", pNeedsMechanic=" + pNeedsMechanic.get() +
                 ", pNeedsWash=" + pNeedsWash.get() +
                 ", pWashExterior=" + pWashExterior.get() +
@@ -1,91 +1,34 @@
 package simu.model;
 
+import simu.stats.ResponseTimeStats;
+import simu.stats.RunningStat;
+import simu.stats.StationAccumulator;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Final results of a simulation (or of several merged runs), built from a {@link ResultAccumulator}.
+ * Holds the statistics of any number of stations; the getters for reception, mechanic and wash are
+ * views on the stations of those names and return zeros when a station is missing.
+ */
 public class SimulationData {
+    public static final String RECEPTION = "Reception";
+    public static final String MECHANIC = "Mechanic";
+    public static final String WASH = "Wash";
 
-    // --- Aggregated fields (persisted) ---
-    private final int receptionServers;
-    private final int receptionServed;
-    private final double receptionAvgWait;
-    private final double receptionAvgService;
-    private final double receptionAvgTotal;
-    private final double receptionUtil;
-
-    private final int mechanicServers;
-    private final int mechanicServed;
-    private final double mechanicAvgWait;
-    private final double mechanicAvgService;
-    private final double mechanicAvgTotal;
-    private final double mechanicUtil;
-
-    private final int washServers;
-    private final int washServed;
-    private final double washAvgWait;
-    private final double washAvgService;
-    private final double washAvgTotal;
-    private final double washUtil;
-
-    // --- Not persisted fields ---
     private final double simulationLength;
-
-    private final int[] mechanicServedPerServer;
-    private final double[] mechanicUtilPerServer;  // 0..1
-    private final int[] washServedPerServer;
-    private final double[] washUtilPerServer;      // 0..1
-
-    private final double[] mechanicAvgWaitPerServer;
-    private final double[] mechanicAvgServicePerServer;
-    private final double[] mechanicAvgTotalPerServer;
-    private final double[] washAvgWaitPerServer;
-    private final double[] washAvgServicePerServer;
-    private final double[] washAvgTotalPerServer;
-
-    private SimulationData(
-            double simulationLength,
-            int receptionServers, int receptionServed,
-            double receptionAvgWait, double receptionAvgService, double receptionAvgTotal, double receptionUtil,
-            int mechanicServers, int mechanicServed,
-            double mechanicAvgWait, double mechanicAvgService, double mechanicAvgTotal, double mechanicUtil,
-            int washServers, int washServed,
-            double washAvgWait, double washAvgService, double washAvgTotal, double washUtil,
-            int[] mechanicServedPerServer, double[] mechanicUtilPerServer,
-            int[] washServedPerServer, double[] washUtilPerServer,
-            double[] mechanicAvgWaitPerServer, double[] mechanicAvgServicePerServer, double[] mechanicAvgTotalPerServer,
-            double[] washAvgWaitPerServer, double[] washAvgServicePerServer, double[] washAvgTotalPerServer
-    ) {
-        this.simulationLength = simulationLength;
-
-        this.receptionServers = receptionServers;
-        this.receptionServed = receptionServed;
-        this.receptionAvgWait = receptionAvgWait;
-        this.receptionAvgService = receptionAvgService;
-        this.receptionAvgTotal = receptionAvgTotal;
-        this.receptionUtil = receptionUtil;
-
-        this.mechanicServers = mechanicServers;
-        this.mechanicServed = mechanicServed;
-        this.mechanicAvgWait = mechanicAvgWait;
-        this.mechanicAvgService = mechanicAvgService;
-        this.mechanicAvgTotal = mechanicAvgTotal;
-        this.mechanicUtil = mechanicUtil;
-
-        this.washServers = washServers;
-        this.washServed = washServed;
-        this.washAvgWait = washAvgWait;
-        this.washAvgService = washAvgService;
-        this.washAvgTotal = washAvgTotal;
-        this.washUtil = washUtil;
-
-        this.mechanicServedPerServer = mechanicServedPerServer;
-        this.mechanicUtilPerServer = mechanicUtilPerServer;
-        this.washServedPerServer = washServedPerServer;
-        this.washUtilPerServer = washUtilPerServer;
-
-        this.mechanicAvgWaitPerServer = mechanicAvgWaitPerServer;
-        this.mechanicAvgServicePerServer = mechanicAvgServicePerServer;
-        this.mechanicAvgTotalPerServer = mechanicAvgTotalPerServer;
-        this.washAvgWaitPerServer = washAvgWaitPerServer;
-        this.washAvgServicePerServer = washAvgServicePerServer;
-        this.washAvgTotalPerServer = washAvgTotalPerServer;
+    private final int runs;
+    private final Map<String, StationAccumulator> stations;
+    private final Map<Customer.Route, ResponseTimeStats> routeResponse;
+
+    private SimulationData(ResultAccumulator acc) {
+        ResultAccumulator copy = acc.copy(); // later merges must not change the result
+        this.simulationLength = copy.getDuration();
+        this.runs = copy.getRuns();
+        this.stations = copy.getStations();
+        this.routeResponse = copy.getRoutes();
     }
 
     /**
@@ -97,89 +40,161 @@ public class SimulationData {
      * @return a SimulationData object
      */
     public static SimulationData from(double now, ServicePoint reception, ServicePoint mechanic, ServicePoint wash) {
-        int rCap = reception.getCapacity();
-        int rServed = reception.getServedCount();
-        double rAvgWait = reception.getAverageWaitTime();
-        double rAvgService = reception.getAverageServiceTime();
-        double rAvgTotal = rAvgWait + rAvgService;
-        double rUtil = (now > 0 && rCap > 0) ? reception.getBusyTime() / (rCap * now) : 0.0;
-
-        int mCap = mechanic.getCapacity();
-        int mServed = mechanic.getServedCount();
-        double mAvgWait = mechanic.getAverageWaitTime();
-        double mAvgService = mechanic.getAverageServiceTime();
-        double mAvgTotal = mAvgWait + mAvgService;
-        double mUtil = (now > 0 && mCap > 0) ? mechanic.getBusyTime() / (mCap * now) : 0.0;
-
-        int[] mServedPer = mechanic.getPerServerServedSnapshot();
-        double[] mBusyPer = mechanic.getPerServerBusyTimeSnapshot();
-        double[] mUtilPer = new double[mBusyPer.length];
-        for (int i = 0; i < mBusyPer.length; i++) mUtilPer[i] = now > 0 ? mBusyPer[i] / now : 0.0;
-
-        double[] mAvgWaitPer = mechanic.getPerServerAverageWaitTimes();
-        double[] mAvgServicePer = mechanic.getPerServerAverageServiceTimes();
-        double[] mAvgTotalPer = mechanic.getPerServerAverageTotalTimes();
-
-        int wCap = wash.getCapacity();
-        int wServed = wash.getServedCount();
-        double wAvgWait = wash.getAverageWaitTime();
-        double wAvgService = wash.getAverageServiceTime();
-        double wAvgTotal = wAvgWait + wAvgService;
-        double wUtil = (now > 0 && wCap > 0) ? wash.getBusyTime() / (wCap * now) : 0.0;
-
-        int[] wServedPer = wash.getPerServerServedSnapshot();
-        double[] wBusyPer = wash.getPerServerBusyTimeSnapshot();
-        double[] wUtilPer = new double[wBusyPer.length];
-        for (int i = 0; i < wBusyPer.length; i++) wUtilPer[i] = now > 0 ? wBusyPer[i] / now : 0.0;
-
-        double[] wAvgWaitPer = wash.getPerServerAverageWaitTimes();
-        double[] wAvgServicePer = wash.getPerServerAverageServiceTimes();
-        double[] wAvgTotalPer = wash.getPerServerAverageTotalTimes();
-
-        return new SimulationData(
-                now,
-                rCap, rServed, rAvgWait, rAvgService, rAvgTotal, rUtil,
-                mCap, mServed, mAvgWait, mAvgService, mAvgTotal, mUtil,
-                wCap, wServed, wAvgWait, wAvgService, wAvgTotal, wUtil,
-                mServedPer, mUtilPer,
-                wServedPer, wUtilPer,
-                mAvgWaitPer, mAvgServicePer, mAvgTotalPer,
-                wAvgWaitPer, wAvgServicePer, wAvgTotalPer
-        );
+        return from(now, reception, mechanic, wash, Collections.emptyMap());
     }
 
-    // --- Getters (aggregated) ---
-    public int getReceptionServers() { return receptionServers; }
-    public int getReceptionServed() { return receptionServed; }
-    public double getReceptionAvgWait() { return receptionAvgWait; }
-    public double getReceptionAvgService() { return receptionAvgService; }
-    public double getReceptionAvgTotal() { return receptionAvgTotal; }
-    public double getReceptionUtil() { return receptionUtil; }
-
-    public int getMechanicServers() { return mechanicServers; }
-    public int getMechanicServed() { return mechanicServed; }
-    public double getMechanicAvgWait() { return mechanicAvgWait; }
-    public double getMechanicAvgService() { return mechanicAvgService; }
-    public double getMechanicAvgTotal() { return mechanicAvgTotal; }
-    public double getMechanicUtil() { return mechanicUtil; }
-
-    public int getWashServers() { return washServers; }
-    public int getWashServed() { return washServed; }
-    public double getWashAvgWait() { return washAvgWait; }
-    public double getWashAvgService() { return washAvgService; }
-    public double getWashAvgTotal() { return washAvgTotal; }
-    public double getWashUtil() { return washUtil; }
-
-    public int[] getMechanicServedPerServer() { return mechanicServedPerServer.clone(); }
-    public double[] getMechanicUtilPerServer() { return mechanicUtilPerServer.clone(); }
-    public int[] getWashServedPerServer() { return washServedPerServer.clone(); }
-    public double[] getWashUtilPerServer() { return washUtilPerServer.clone(); }
+    /**
+     * Create a SimulationData object from the given ServicePoints, per-route statistics and current time.
+     * The statistics are copied, so the result does not change when the simulation continues.
+     * @param now current simulation time
+     * @param reception the reception service point
+     * @param mechanic the mechanic service point
+     * @param wash the wash service point
+     * @param routes wait / service / sojourn statistics per customer route
+     * @return a SimulationData object
+     */
+    public static SimulationData from(double now, ServicePoint reception, ServicePoint mechanic, ServicePoint wash,
+                                      Map<Customer.Route, ResponseTimeStats> routes) {
+        return from(ResultAccumulator.of(now, List.of(reception, mechanic, wash), routes));
+    }
 
+    /**
+     * Create a SimulationData object from a (possibly merged) partial result.
+     * @param acc accumulated result, copied
+     * @return a SimulationData object
+     */
+    public static SimulationData from(ResultAccumulator acc) {
+        return new SimulationData(acc);
+    }
+
+    private StationAccumulator station(String name) {
+        StationAccumulator st = this.stations.get(name);
+        return st != null ? st : new StationAccumulator(name, 0, 0.0);
+    }
+
+    private int[] servedPerServer(String name) {
+        StationAccumulator st = this.station(name);
+        int[] a = new int[st.getServers()];
+        for (int i = 0; i < a.length; i++) a[i] = (int) st.getServerService(i).getCount();
+        return a;
+    }
+
+    private double[] utilPerServer(String name) {
+        StationAccumulator st = this.station(name);
+        double[] a = new double[st.getServers()];
+        for (int i = 0; i < a.length; i++) a[i] = simulationLength > 0 ? st.getServerService(i).getSum() / simulationLength : 0.0;
+        return a;
+    }
+
+    private double[] meanPerServer(String name, boolean wait, boolean service) {
+        StationAccumulator st = this.station(name);
+        double[] a = new double[st.getServers()];
+        for (int i = 0; i < a.length; i++) {
+            if (wait) a[i] += st.getServerWait(i).getMean();
+            if (service) a[i] += st.getServerService(i).getMean();
+        }
+        return a;
+    }
+
+    private double[] queuePerServer(String name) {
+        StationAccumulator st = this.station(name);
+        double[] a = new double[st.getServers()];
+        for (int i = 0; i < a.length; i++) a[i] = st.getServerQueue(i).getMean();
+        return a;
+    }
+
+    // --- Getters (any station) ---
     public double getSimulationLength() { return simulationLength; }
-    public double[] getMechanicAvgWaitPerServer() { return mechanicAvgWaitPerServer.clone(); }
-    public double[] getMechanicAvgServicePerServer() { return mechanicAvgServicePerServer.clone(); }
-    public double[] getMechanicAvgTotalPerServer() { return mechanicAvgTotalPerServer.clone(); }
-    public double[] getWashAvgWaitPerServer() { return washAvgWaitPerServer.clone(); }
-    public double[] getWashAvgServicePerServer() { return washAvgServicePerServer.clone(); }
-    public double[] getWashAvgTotalPerServer() { return washAvgTotalPerServer.clone(); }
+
+    /**
+     * @return number of runs merged into this result
+     */
+    public int getRuns() { return runs; }
+
+    /**
+     * @return statistics of every station by name, in display order
+     */
+    public Map<String, StationAccumulator> getStations() { return stations; }
+
+    public StationAccumulator getStation(String name) { return stations.get(name); }
+
+    public int getServed(String name) { return (int) station(name).getServed(); }
+    public int getServers(String name) { return station(name).getServers(); }
+    public double getAvgWait(String name) { return station(name).getWait().getMean(); }
+    public double getAvgService(String name) { return station(name).getService().getMean(); }
+    public double getAvgTotal(String name) { return station(name).getTotal().getMean(); }
+    public double getUtil(String name) { return station(name).getUtilization(simulationLength); }
+    public double getAvgQueue(String name) { return station(name).getQueue().getMean(); }
+    public double getAvgInSystem(String name) { return station(name).getSystem().getMean(); }
+    public int getMaxQueue(String name) { return station(name).getQueue().getMaxLevel(); }
+    public RunningStat getTotalStat(String name) { return station(name).getTotal(); }
+
+    // --- Getters (aggregated) ---
+    public int getReceptionServers() { return getServers(RECEPTION); }
+    public int getReceptionServed() { return getServed(RECEPTION); }
+    public double getReceptionAvgWait() { return getAvgWait(RECEPTION); }
+    public double getReceptionAvgService() { return getAvgService(RECEPTION); }
+    public double getReceptionAvgTotal() { return getAvgTotal(RECEPTION); }
+    public double getReceptionUtil() { return getUtil(RECEPTION); }
+
+    public int getMechanicServers() { return getServers(MECHANIC); }
+    public int getMechanicServed() { return getServed(MECHANIC); }
+    public double getMechanicAvgWait() { return getAvgWait(MECHANIC); }
+    public double getMechanicAvgService() { return getAvgService(MECHANIC); }
+    public double getMechanicAvgTotal() { return getAvgTotal(MECHANIC); }
+    public double getMechanicUtil() { return getUtil(MECHANIC); }
+
+    public int getWashServers() { return getServers(WASH); }
+    public int getWashServed() { return getServed(WASH); }
+    public double getWashAvgWait() { return getAvgWait(WASH); }
+    public double getWashAvgService() { return getAvgService(WASH); }
+    public double getWashAvgTotal() { return getAvgTotal(WASH); }
+    public double getWashUtil() { return getUtil(WASH); }
+
+    public int[] getMechanicServedPerServer() { return servedPerServer(MECHANIC); }
+    public double[] getMechanicUtilPerServer() { return utilPerServer(MECHANIC); }
+    public int[] getWashServedPerServer() { return servedPerServer(WASH); }
+    public double[] getWashUtilPerServer() { return utilPerServer(WASH); }
+
+    public double[] getMechanicAvgWaitPerServer() { return meanPerServer(MECHANIC, true, false); }
+    public double[] getMechanicAvgServicePerServer() { return meanPerServer(MECHANIC, false, true); }
+    public double[] getMechanicAvgTotalPerServer() { return meanPerServer(MECHANIC, true, true); }
+    public double[] getWashAvgWaitPerServer() { return meanPerServer(WASH, true, false); }
+    public double[] getWashAvgServicePerServer() { return meanPerServer(WASH, false, true); }
+    public double[] getWashAvgTotalPerServer() { return meanPerServer(WASH, true, true); }
+
+    // --- Getters (distributions) ---
+    public ResponseTimeStats getReceptionResponse() { return station(RECEPTION).getResponse(); }
+    public ResponseTimeStats getMechanicResponse() { return station(MECHANIC).getResponse(); }
+    public ResponseTimeStats getWashResponse() { return station(WASH).getResponse(); }
+    public Map<Customer.Route, ResponseTimeStats> getRouteResponse() { return routeResponse; }
+
+    public double getReceptionWaitQuantile(double q) { return getReceptionResponse().getWait().quantile(q); }
+    public double getMechanicWaitQuantile(double q) { return getMechanicResponse().getWait().quantile(q); }
+    public double getWashWaitQuantile(double q) { return getWashResponse().getWait().quantile(q); }
+
+    // --- Getters (time-weighted) ---
+    public double getReceptionAvgQueue() { return getAvgQueue(RECEPTION); }
+    public double getReceptionAvgInSystem() { return getAvgInSystem(RECEPTION); }
+    public int getReceptionMaxQueue() { return getMaxQueue(RECEPTION); }
+    public double getMechanicAvgQueue() { return getAvgQueue(MECHANIC); }
+    public double getMechanicAvgInSystem() { return getAvgInSystem(MECHANIC); }
+    public int getMechanicMaxQueue() { return getMaxQueue(MECHANIC); }
+    public double getWashAvgQueue() { return getAvgQueue(WASH); }
+    public double getWashAvgInSystem() { return getAvgInSystem(WASH); }
+    public int getWashMaxQueue() { return getMaxQueue(WASH); }
+    public double[] getMechanicAvgQueuePerServer() { return queuePerServer(MECHANIC); }
+    public double[] getWashAvgQueuePerServer() { return queuePerServer(WASH); }
+
+    /**
+     * Little's law estimate of the average number in a service point, L = lambda * W,
+     * with lambda = served / simulation length and W = average total time.
+     * Comparing it with the measured time average (e.g. {@link #getMechanicAvgInSystem()}) checks the run.
+     * @param served number of customers served
+     * @param avgTotal average total time (wait + service)
+     * @return lambda * W
+     */
+    public double littlesLaw(int served, double avgTotal) {
+        return simulationLength > 0 ? served / simulationLength * avgTotal : 0.0;
+    }
 }
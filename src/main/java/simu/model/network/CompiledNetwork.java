@@ -0,0 +1,294 @@
+package simu.model.network;
+
+import simu.config.DistributionOptions;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.DoubleSupplier;
+
+/**
+ * A {@link StationNetwork} compiled into dense, int-indexed tables: one {@link NetworkEvent} per station,
+ * and per station its server speeds, the cumulative probabilities and factors of its service classes, and
+ * its routing targets with their conditional probabilities. Stations are numbered in the order they were
+ * added.
+ * <p>
+ * A customer's route is drawn when it arrives ({@link #walk}): at every station of the route its service
+ * class is drawn, then the targets of the station are decided in turn, each with its probability given
+ * that none of the earlier ones was taken. A target that takes all the remaining probability needs no
+ * draw. The cost of a route is one short row per station visited, independent of the size of the network.
+ * </p>
+ */
+public final class CompiledNetwork {
+    public static final int EXIT = -1;
+
+    // probability mass below which a remainder counts as zero
+    static final double TOLERANCE = 1e-9;
+
+    /**
+     * Route of one customer: the stations in the order visited and the service class at each.
+     */
+    public static final class Path {
+        public final int[] stations;
+        public final int[] classes;
+
+        Path(int[] stations, int[] classes) {
+            this.stations = stations;
+            this.classes = classes;
+        }
+    }
+
+    private final String[] names;
+    private final DistributionOptions interArrival;
+    private final DistributionOptions[] services;
+    private final double[][] speeds;          // per station, speed of each server
+    private final String[][] classNames;      // per station, name of each service class
+    private final double[][] classWeights;    // per station, probability of each service class
+    private final double[][] classCumulative; // per station, cumulative class probabilities, the last class excluded
+    private final double[][] classFactors;    // per station, service time factor of each class
+    private final int[][] targets;            // per station, next stations in routing order
+    private final double[][] weights;         // per station, probability of each target
+    private final double[][] conditional;     // per station, probability of each target if no earlier one was taken
+    private final double[] exitWeights;       // per station, probability of leaving the network
+    private final int entry;
+    private final int[] order;
+    private final NetworkEvent arrivalEvent;
+    private final NetworkEvent[] endEvents;
+
+    CompiledNetwork(StationNetwork net) {
+        List<StationNetwork.Station> stations = net.getStations();
+        int n = stations.size();
+        if (n == 0) throw new IllegalArgumentException("Network has no stations");
+
+        this.entry = net.indexOf(net.getEntry());
+        if (this.entry < 0) throw new IllegalArgumentException("Unknown entry station: " + net.getEntry());
+        for (String from : net.getRouting().keySet()) {
+            if (net.indexOf(from) < 0) throw new IllegalArgumentException("Routing from unknown station: " + from);
+        }
+
+        this.interArrival = net.getInterArrival();
+        this.arrivalEvent = new NetworkEvent(NetworkEvent.ARRIVAL_SLOT, "ARRIVAL");
+        this.names = new String[n];
+        this.services = new DistributionOptions[n];
+        this.speeds = new double[n][];
+        this.classNames = new String[n][];
+        this.classWeights = new double[n][];
+        this.classCumulative = new double[n][];
+        this.classFactors = new double[n][];
+        this.targets = new int[n][];
+        this.weights = new double[n][];
+        this.conditional = new double[n][];
+        this.exitWeights = new double[n];
+        this.endEvents = new NetworkEvent[n];
+
+        for (int i = 0; i < n; i++) {
+            StationNetwork.Station st = stations.get(i);
+            this.names[i] = st.name;
+            this.services[i] = st.service;
+            this.endEvents[i] = new NetworkEvent(i + 1, st.name.toUpperCase() + "_END");
+            this.speeds[i] = new double[st.speedFactors.length];
+            for (int k = 0; k < this.speeds[i].length; k++) {
+                this.speeds[i][k] = st.speedFactors[k] <= 0.0 ? 1.0 : st.speedFactors[k];
+            }
+
+            this.classNames[i] = st.classNames.clone();
+            this.classWeights[i] = st.classProbabilities.clone();
+            this.classFactors[i] = st.classFactors.clone();
+            this.classCumulative[i] = new double[st.classProbabilities.length - 1];
+            double sum = 0.0;
+            for (int k = 0; k < this.classCumulative[i].length; k++) {
+                sum += st.classProbabilities[k];
+                this.classCumulative[i][k] = sum;
+            }
+
+            Map<String, Double> row = net.routesFrom(st.name);
+            int m = 0;
+            for (String to : row.keySet()) if (!to.equals(StationNetwork.EXIT)) m++;
+            this.targets[i] = new int[m];
+            this.weights[i] = new double[m];
+            this.conditional[i] = new double[m];
+            double total = 0.0, remaining = 1.0;
+            int k = 0;
+            for (Map.Entry<String, Double> r : row.entrySet()) {
+                total += r.getValue();
+                if (r.getKey().equals(StationNetwork.EXIT)) continue;
+                int target = net.indexOf(r.getKey());
+                if (target < 0) throw new IllegalArgumentException("Routing to unknown station: " + r.getKey());
+                double p = r.getValue();
+                this.targets[i][k] = target;
+                this.weights[i][k] = p;
+                this.conditional[i][k] = remaining > 0.0 ? p / remaining : 0.0;
+                remaining -= p;
+                k++;
+            }
+            if (total > 1.0 + TOLERANCE) {
+                throw new IllegalArgumentException("Routing probabilities from " + st.name + " sum to " + total);
+            }
+            this.exitWeights[i] = remaining > TOLERANCE ? remaining : 0.0;
+        }
+
+        this.checkExits();
+        this.order = this.flowOrder();
+    }
+
+    /**
+     * Reject networks where customers can reach a station from which they never leave.
+     */
+    private void checkExits() {
+        int n = this.names.length;
+        boolean[] leaves = new boolean[n];
+        ArrayDeque<Integer> todo = new ArrayDeque<>();
+        for (int i = 0; i < n; i++) {
+            if (this.exitWeights[i] > 0.0) {
+                leaves[i] = true;
+                todo.add(i);
+            }
+        }
+        while (!todo.isEmpty()) {
+            int to = todo.poll();
+            for (int i = 0; i < n; i++) {
+                if (!leaves[i] && this.routesTo(i, to)) {
+                    leaves[i] = true;
+                    todo.add(i);
+                }
+            }
+        }
+        boolean[] reached = new boolean[n];
+        reached[this.entry] = true;
+        todo.add(this.entry);
+        while (!todo.isEmpty()) {
+            int from = todo.poll();
+            if (!leaves[from]) throw new IllegalArgumentException("Customers at " + this.names[from] + " never leave the network");
+            for (int k = 0; k < this.targets[from].length; k++) {
+                int to = this.targets[from][k];
+                if (this.weights[from][k] > 0.0 && !reached[to]) {
+                    reached[to] = true;
+                    todo.add(to);
+                }
+            }
+        }
+    }
+
+    private boolean routesTo(int from, int to) {
+        for (int k = 0; k < this.targets[from].length; k++) {
+            if (this.targets[from][k] == to && this.weights[from][k] > 0.0) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Order the stations as customers flow through them: a station comes after every station that routes
+     * to it, and where that does not decide (parallel stations, cycles) the one added first comes first.
+     */
+    private int[] flowOrder() {
+        int n = this.names.length;
+        int[] pending = new int[n]; // routes from unplaced stations
+        for (int i = 0; i < n; i++) {
+            for (int k = 0; k < this.targets[i].length; k++) {
+                int to = this.targets[i][k];
+                if (to != i && this.weights[i][k] > 0.0) pending[to]++;
+            }
+        }
+        int[] order = new int[n];
+        boolean[] placed = new boolean[n];
+        for (int at = 0; at < n; at++) {
+            int next = -1;
+            for (int i = 0; i < n && next < 0; i++) if (!placed[i] && pending[i] == 0) next = i;
+            for (int i = 0; i < n && next < 0; i++) if (!placed[i]) next = i;
+            order[at] = next;
+            placed[next] = true;
+            for (int k = 0; k < this.targets[next].length; k++) {
+                int to = this.targets[next][k];
+                if (to != next && this.weights[next][k] > 0.0) pending[to]--;
+            }
+        }
+        return order;
+    }
+
+
+    // ---------- Routing ----------
+
+    /**
+     * Draw the route of an arriving customer.
+     * @param uniforms uniform random numbers in [0, 1), one per decision
+     * @return the stations from the entry to the last one before leaving, with the class at each
+     */
+    public Path walk(DoubleSupplier uniforms) {
+        int[] stations = new int[4];
+        int[] classes = new int[4];
+        int n = 0;
+        for (int s = this.entry; s != EXIT; s = this.next(s, uniforms)) {
+            if (n == stations.length) {
+                stations = Arrays.copyOf(stations, 2 * n);
+                classes = Arrays.copyOf(classes, 2 * n);
+            }
+            stations[n] = s;
+            classes[n] = this.serviceClass(s, uniforms);
+            n++;
+        }
+        return new Path(Arrays.copyOf(stations, n), Arrays.copyOf(classes, n));
+    }
+
+    private int serviceClass(int station, DoubleSupplier uniforms) {
+        double[] cum = this.classCumulative[station];
+        if (cum.length == 0) return 0;
+        double u = uniforms.getAsDouble();
+        for (int k = 0; k < cum.length; k++) {
+            if (u < cum[k]) return k;
+        }
+        return cum.length;
+    }
+
+    private int next(int station, DoubleSupplier uniforms) {
+        int[] t = this.targets[station];
+        double[] q = this.conditional[station];
+        for (int k = 0; k < t.length; k++) {
+            if (k == t.length - 1 && this.exitWeights[station] == 0.0) return t[k];
+            if (uniforms.getAsDouble() < q[k]) return t[k];
+        }
+        return EXIT;
+    }
+
+
+    // ---------- Queries ----------
+
+    public int size() { return this.names.length; }
+    public int getEntry() { return this.entry; }
+    public String getName(int station) { return this.names[station]; }
+    public DistributionOptions getInterArrival() { return this.interArrival; }
+    public DistributionOptions getService(int station) { return this.services[station]; }
+    public NetworkEvent getArrivalEvent() { return this.arrivalEvent; }
+    public NetworkEvent getEndEvent(int station) { return this.endEvents[station]; }
+
+    /**
+     * @param name station name
+     * @return index of the station, -1 if there is none of that name
+     */
+    public int indexOf(String name) {
+        for (int i = 0; i < this.names.length; i++) {
+            if (this.names[i].equals(name)) return i;
+        }
+        return -1;
+    }
+
+    /** @return speed of each server of the station, 1.0 where none was given */
+    public double[] getSpeeds(int station) { return this.speeds[station].clone(); }
+
+    /** @return service time factor of each service class of the station */
+    public double[] getClassFactors(int station) { return this.classFactors[station].clone(); }
+
+    /** @return name of each service class of the station */
+    public String[] getClassNames(int station) { return this.classNames[station].clone(); }
+
+    /**
+     * @return the stations in the order customers flow through them, the order to try C-events in
+     */
+    public int[] getOrder() { return this.order.clone(); }
+
+    // for RouteSampler, which enumerates the paths
+    int[] targets(int station) { return this.targets[station]; }
+    double[] weights(int station) { return this.weights[station]; }
+    double[] classWeights(int station) { return this.classWeights[station]; }
+    double exitWeight(int station) { return this.exitWeights[station]; }
+}
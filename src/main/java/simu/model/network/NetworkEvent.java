@@ -0,0 +1,27 @@
+package simu.model.network;
+
+import simu.framework.IEventType;
+
+/**
+ * Event type of a compiled station network. Instead of one enum constant per station, every event
+ * carries the index of its handler, so the engine dispatches with a single array lookup.
+ */
+public final class NetworkEvent implements IEventType {
+    public static final int ARRIVAL_SLOT = 0;
+
+    private final int slot;
+    private final String label;
+
+    NetworkEvent(int slot, String label) {
+        this.slot = slot;
+        this.label = label;
+    }
+
+    /**
+     * @return index into the engine's handler table (0 = arrival, i + 1 = service end at station i)
+     */
+    public int getSlot() { return this.slot; }
+
+    @Override
+    public String toString() { return this.label; }
+}
@@ -0,0 +1,140 @@
+package simu.model.network;
+
+import distributions.Categorical;
+import distributions.ContinuousGenerator;
+import distributions.RandomSource;
+import simu.config.SimulationOptions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Draws the whole route of a customer through a network (every routing decision and every service
+ * class on the way) with one sample of a {@link Categorical} over all paths, instead of one random
+ * number per decision as {@link CompiledNetwork#walk} does. The probability of a path is the product
+ * of its decisions, so the routes have the same distribution.
+ * <p>
+ * The paths are enumerated up front, so the network must not have cycles and at most
+ * {@value #MAX_PATHS} paths.
+ * </p>
+ */
+public class RouteSampler {
+    public static final int MAX_PATHS = 1 << 16;
+
+    private final CompiledNetwork.Path[] paths;
+    private final Categorical categorical;
+
+    /**
+     * @param network compiled network
+     * @param seed seed of the uniform source
+     * @param source uniform source algorithm
+     * @throws IllegalArgumentException if the network has a cycle or too many paths
+     */
+    public RouteSampler(CompiledNetwork network, long seed, RandomSource source) {
+        List<CompiledNetwork.Path> found = new ArrayList<>();
+        List<Double> weights = new ArrayList<>();
+        int n = network.size();
+        enumerate(network, network.getEntry(), 1.0, new int[n], new int[n], 0, new boolean[n], found, weights);
+        this.paths = found.toArray(new CompiledNetwork.Path[0]);
+        double[] w = new double[weights.size()];
+        for (int i = 0; i < w.length; i++) w[i] = weights.get(i);
+        this.categorical = new Categorical(w, seed);
+        if (source != RandomSource.LEHMER) {
+            this.categorical.setSource(source.create(seed));
+        }
+    }
+
+    /**
+     * Routing of a network with the uniform source, sampling method and antithetic flag of the options;
+     * INVERSION picks the path by its cumulative probabilities instead of the alias tables.
+     * @param network compiled network
+     * @param options simulation options
+     * @param seed seed of the uniform source
+     * @return the sampler
+     */
+    public static RouteSampler of(CompiledNetwork network, SimulationOptions options, long seed) {
+        RouteSampler sampler = new RouteSampler(network, seed, options.getRandomSource());
+        sampler.categorical.setMethod(options.getSamplingMethod());
+        if (options.isAntithetic()) {
+            sampler.setSource(options.getRandomSource().create(seed, true));
+        }
+        return sampler;
+    }
+
+    // depth-first: for each class of the station, the routes through each target in order, then leaving
+    private static void enumerate(CompiledNetwork net, int station, double weight, int[] stations, int[] classes, int depth,
+                                  boolean[] onPath, List<CompiledNetwork.Path> found, List<Double> weights) {
+        if (onPath[station]) {
+            throw new IllegalArgumentException("Alias routing needs a network without cycles, " + net.getName(station) + " is on one");
+        }
+        onPath[station] = true;
+        stations[depth] = station;
+        double[] classWeights = net.classWeights(station);
+        int[] targets = net.targets(station);
+        double[] targetWeights = net.weights(station);
+        for (int c = 0; c < classWeights.length; c++) {
+            double w = weight * classWeights[c];
+            if (w == 0.0) continue;
+            classes[depth] = c;
+            for (int k = 0; k < targets.length; k++) {
+                if (targetWeights[k] > 0.0) {
+                    enumerate(net, targets[k], w * targetWeights[k], stations, classes, depth + 1, onPath, found, weights);
+                }
+            }
+            if (net.exitWeight(station) > 0.0) {
+                if (found.size() == MAX_PATHS) {
+                    throw new IllegalArgumentException("Alias routing supports at most " + MAX_PATHS + " paths");
+                }
+                found.add(new CompiledNetwork.Path(Arrays.copyOf(stations, depth + 1), Arrays.copyOf(classes, depth + 1)));
+                weights.add(w * net.exitWeight(station));
+            }
+        }
+        onPath[station] = false;
+    }
+
+    /**
+     * Draw from another uniform source, e.g. a quasi-random coordinate.
+     * @param uniforms uniform source used from now on
+     */
+    public void setSource(ContinuousGenerator uniforms) {
+        this.categorical.setSource(uniforms);
+    }
+
+    /**
+     * @return the path of the next customer
+     */
+    public CompiledNetwork.Path sample() {
+        return this.paths[this.sampleIndex()];
+    }
+
+    /**
+     * @return the index of the path of the next customer, see {@link #getPath(int)}
+     */
+    public int sampleIndex() {
+        return (int) this.categorical.sample();
+    }
+
+    /**
+     * @param index path index, from 0 to {@link #size()} - 1
+     * @return the path
+     */
+    public CompiledNetwork.Path getPath(int index) {
+        return this.paths[index];
+    }
+
+    /**
+     * @param index path index
+     * @return probability of the path
+     */
+    public double getProbability(int index) {
+        return this.categorical.getProbability(index);
+    }
+
+    /**
+     * @return number of paths
+     */
+    public int size() {
+        return this.paths.length;
+    }
+}
@@ -0,0 +1,252 @@
+package simu.model.network;
+
+import simu.config.DistributionOptions;
+import simu.config.SimulationOptions;
+import simu.model.Customer;
+import simu.model.SimulationData;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Description of an open queueing network: stations with their server pools, service time
+ * distributions and service classes, the arrival process and a probabilistic routing matrix.
+ * Routing probabilities leaving a station may sum to less than one; the remainder leaves the system.
+ * <p>
+ * The description is only data. {@link #compile} checks it and turns it into a {@link CompiledNetwork}
+ * of dense, index-based tables that {@code EngineMod} runs without any per-station code.
+ * </p>
+ */
+public class StationNetwork {
+    public static final String EXIT = "exit";
+
+    /** Name of the garage's last station; the others are named in {@link SimulationData}. */
+    public static final String CHECKOUT = "Checkout";
+
+    /**
+     * One station (service point) of the network.
+     */
+    public static class Station {
+        final String name;
+        final DistributionOptions service;
+        final double[] speedFactors;
+        String[] classNames = { "" };
+        double[] classProbabilities = { 1.0 };
+        double[] classFactors = { 1.0 };
+
+        Station(String name, DistributionOptions service, double[] speedFactors) {
+            this.name = name;
+            this.service = service;
+            this.speedFactors = speedFactors.clone();
+        }
+
+        public String getName() { return this.name; }
+        public int getServers() { return this.speedFactors.length; }
+        public DistributionOptions getService() { return this.service; }
+    }
+
+    private final DistributionOptions interArrival;
+    private final List<Station> stations = new ArrayList<>();
+    private final Map<String, Map<String, Double>> routing = new LinkedHashMap<>();
+    private String entry;
+
+
+    // ---------- Constructors ----------
+
+    /**
+     * @param interArrival distribution of the times between external arrivals
+     */
+    public StationNetwork(DistributionOptions interArrival) {
+        this.interArrival = interArrival;
+    }
+
+
+    // ---------- Building ----------
+
+    /**
+     * Add a station whose servers all work at the same speed.
+     * @param name unique station name
+     * @param servers number of parallel servers
+     * @param service service time distribution
+     * @return this network
+     */
+    public StationNetwork addStation(String name, int servers, DistributionOptions service) {
+        double[] speeds = new double[Math.max(servers, 0)];
+        Arrays.fill(speeds, 1.0);
+        return this.addStation(name, service, speeds);
+    }
+
+    /**
+     * Add a station with one server per speed factor.
+     * @param name unique station name
+     * @param service service time distribution
+     * @param speedFactors speed of each server (2.0 halves the service time, not positive = 1.0)
+     * @return this network
+     */
+    public StationNetwork addStation(String name, DistributionOptions service, double[] speedFactors) {
+        if (name.equals(EXIT) || this.indexOf(name) >= 0) {
+            throw new IllegalArgumentException("Duplicate or reserved station name: " + name);
+        }
+        if (speedFactors.length < 1) throw new IllegalArgumentException("Station " + name + " needs at least one server");
+        this.stations.add(new Station(name, service, speedFactors));
+        if (this.entry == null) this.entry = name;
+        return this;
+    }
+
+    /**
+     * Split the customers of a station into service classes, e.g. the programs of a wash. The class of a
+     * customer is drawn when its route reaches the station, and its service time there is the station's
+     * service time times the factor of the class.
+     * @param station station name
+     * @param names name of each class
+     * @param probabilities probability of each class, summing to 1
+     * @param factors service time factor of each class
+     * @return this network
+     */
+    public StationNetwork setServiceClasses(String station, String[] names, double[] probabilities, double[] factors) {
+        int i = this.indexOf(station);
+        if (i < 0) throw new IllegalArgumentException("Unknown station: " + station);
+        if (names.length < 1 || probabilities.length != names.length || factors.length != names.length) {
+            throw new IllegalArgumentException("Station " + station + " needs a probability and a factor for each of its classes");
+        }
+        double sum = 0.0;
+        for (double p : probabilities) {
+            if (!(p >= 0.0 && p <= 1.0)) throw new IllegalArgumentException("Class probability must be in [0, 1]: " + p);
+            sum += p;
+        }
+        if (Math.abs(sum - 1.0) > CompiledNetwork.TOLERANCE) {
+            throw new IllegalArgumentException("Class probabilities of " + station + " sum to " + sum);
+        }
+        Station st = this.stations.get(i);
+        st.classNames = names.clone();
+        st.classProbabilities = probabilities.clone();
+        st.classFactors = factors.clone();
+        return this;
+    }
+
+    /**
+     * Select the station external arrivals join. Defaults to the first station added.
+     * @param name station name
+     * @return this network
+     */
+    public StationNetwork setEntry(String name) {
+        this.entry = name;
+        return this;
+    }
+
+    /**
+     * Send customers finishing at {@code from} to {@code to} with the given probability. A customer's
+     * next station is decided target by target in the order the routes of {@code from} were added.
+     * @param from station name
+     * @param to station name or {@link #EXIT}
+     * @param probability routing probability in [0, 1]
+     * @return this network
+     */
+    public StationNetwork route(String from, String to, double probability) {
+        if (!(probability >= 0.0 && probability <= 1.0)) {
+            throw new IllegalArgumentException("Routing probability must be in [0, 1]: " + probability);
+        }
+        this.routing.computeIfAbsent(from, k -> new LinkedHashMap<>()).merge(to, probability, Double::sum);
+        return this;
+    }
+
+
+    // ---------- Queries ----------
+
+    public List<Station> getStations() { return Collections.unmodifiableList(this.stations); }
+    public DistributionOptions getInterArrival() { return this.interArrival; }
+    public String getEntry() { return this.entry; }
+
+    /**
+     * @param name station name
+     * @return index of the station in the order added, -1 if there is none of that name
+     */
+    public int indexOf(String name) {
+        for (int i = 0; i < this.stations.size(); i++) {
+            if (this.stations.get(i).name.equals(name)) return i;
+        }
+        return -1;
+    }
+
+    Map<String, Double> routesFrom(String name) {
+        return this.routing.getOrDefault(name, Collections.emptyMap());
+    }
+
+    Map<String, Map<String, Double>> getRouting() { return this.routing; }
+
+
+    // ---------- Compilation ----------
+
+    /**
+     * Validate the description and compile it into dense routing and dispatch tables.
+     * @return compiled network
+     * @throws IllegalArgumentException if a route names an unknown station, the probabilities leaving a
+     *         station sum to more than 1, or customers can reach a station they can never leave
+     */
+    public CompiledNetwork compile() {
+        return new CompiledNetwork(this);
+    }
+
+
+    // ---------- Models ----------
+
+    /**
+     * The garage: reception, mechanic, wash and checkout. The independent "needs mechanic" and "needs
+     * wash" decisions become routing probabilities, and the wash programs are the service classes of the
+     * wash, named after {@link Customer.WashProgram}. The combined program takes what the exterior and
+     * interior probabilities leave of 1.
+     * <p>
+     * The stations are added in the order their generators have always been seeded, so a run of the
+     * garage reproduces earlier runs with the same seed.
+     * </p>
+     * @param options simulation options
+     * @return network description
+     */
+    public static StationNetwork garage(SimulationOptions options) {
+        double pMech = clamp(options.getProbNeedsMechanic());
+        double pWash = clamp(options.getProbNeedsWash());
+        double ext = clamp(options.getWashProbExterior());
+        double inter = clamp(ext + options.getWashProbInterior());
+        String[] programs = {
+            Customer.WashProgram.EXTERIOR.name(), Customer.WashProgram.INTERIOR.name(), Customer.WashProgram.BOTH.name()
+        };
+
+        return new StationNetwork(options.getInterArrival())
+                .addStation(SimulationData.RECEPTION, 1, options.getReceptionService())
+                .addStation(CHECKOUT, 1, DistributionOptions.negExp(3.0)) // fixed mean
+                .addStation(SimulationData.MECHANIC, options.getMechanicService(), options.getMechanicSpeedFactors())
+                .addStation(SimulationData.WASH, options.getWashService(), options.getWashSpeedFactors())
+                .setServiceClasses(SimulationData.WASH, programs,
+                        new double[] { ext, inter - ext, 1.0 - inter },
+                        new double[] { 0.8, 1.0, 1.4 })
+                .route(SimulationData.RECEPTION, SimulationData.MECHANIC, pMech)
+                .route(SimulationData.RECEPTION, SimulationData.WASH, (1.0 - pMech) * pWash)
+                .route(SimulationData.RECEPTION, CHECKOUT, (1.0 - pMech) * (1.0 - pWash))
+                .route(SimulationData.MECHANIC, SimulationData.WASH, pWash)
+                .route(SimulationData.MECHANIC, CHECKOUT, 1.0 - pWash)
+                .route(SimulationData.WASH, CHECKOUT, 1.0);
+    }
+
+    /**
+     * A line of {@code n} identical stations, e.g. to measure the per-event cost of large networks.
+     * @param n number of stations
+     * @param servers servers per station
+     * @param interArrival arrival distribution
+     * @param service service time distribution of every station
+     * @return network description
+     */
+    public static StationNetwork tandem(int n, int servers, DistributionOptions interArrival, DistributionOptions service) {
+        StationNetwork net = new StationNetwork(interArrival);
+        for (int i = 0; i < n; i++) net.addStation("Station " + (i + 1), servers, service);
+        for (int i = 0; i < n - 1; i++) net.route("Station " + (i + 1), "Station " + (i + 2), 1.0);
+        return net;
+    }
+
+    private static double clamp(double p) {
+        return Math.max(0.0, Math.min(1.0, p));
+    }
+}
@@ -0,0 +1,185 @@
+package simu.stats;
+
+import java.util.Arrays;
+
+/**
+ * Bounded-memory streaming histogram with log-linear (HDR-style) buckets.
+ * <p>
+ * Values are scaled by {@code unit} to integers. Below {@code 2 * 2^subBucketBits} every integer has its own
+ * bucket, above that every power of two is split into {@code 2^subBucketBits} equally wide sub-buckets.
+ * The relative error of a reported quantile is therefore at most {@code 2^-subBucketBits}, whatever the
+ * range of the data, and memory grows only with the logarithm of the largest recorded value.
+ * </p>
+ * <p>
+ * Histograms with the same {@code unit} and {@code subBucketBits} can be merged, which makes them usable
+ * as quantile sketches for partial results.
+ * </p>
+ */
+public class LogLinearHistogram implements Mergeable<LogLinearHistogram> {
+    public static final double DEFAULT_UNIT = 1e-3;
+    public static final int DEFAULT_SUB_BUCKET_BITS = 7; // <= 0.8 % relative error
+
+    private final double unit;
+    private final int subBucketBits;
+    private final int subBucketCount;
+
+    private long[] counts;
+    private long count;
+    private double sum;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+
+    // ---------- Constructors ----------
+
+    public LogLinearHistogram() {
+        this(DEFAULT_UNIT, DEFAULT_SUB_BUCKET_BITS);
+    }
+
+    /**
+     * @param unit smallest value that is resolved exactly (values are recorded in multiples of it)
+     * @param subBucketBits log2 of the number of sub-buckets per power of two (precision)
+     */
+    public LogLinearHistogram(double unit, int subBucketBits) {
+        if (unit <= 0) throw new IllegalArgumentException("unit must be > 0: " + unit);
+        if (subBucketBits < 1 || subBucketBits > 16) throw new IllegalArgumentException("subBucketBits must be in 1..16: " + subBucketBits);
+        this.unit = unit;
+        this.subBucketBits = subBucketBits;
+        this.subBucketCount = 1 << subBucketBits;
+        this.counts = new long[2 * this.subBucketCount];
+    }
+
+    /**
+     * Create a deep copy of the given histogram.
+     * @param other histogram to copy
+     */
+    public LogLinearHistogram(LogLinearHistogram other) {
+        this.unit = other.unit;
+        this.subBucketBits = other.subBucketBits;
+        this.subBucketCount = other.subBucketCount;
+        this.counts = other.counts.clone();
+        this.count = other.count;
+        this.sum = other.sum;
+        this.min = other.min;
+        this.max = other.max;
+    }
+
+
+    // ---------- Recording ----------
+
+    /**
+     * Record a single value. Negative values are recorded as 0.
+     * @param value value to record
+     */
+    public void record(double value) {
+        double v = value > 0.0 ? value : 0.0;
+        int idx = this.indexOf(v);
+        if (idx >= this.counts.length) {
+            this.counts = Arrays.copyOf(this.counts, Math.max(idx + 1, this.counts.length + this.subBucketCount));
+        }
+        this.counts[idx]++;
+        this.count++;
+        this.sum += v;
+        if (v < this.min) this.min = v;
+        if (v > this.max) this.max = v;
+    }
+
+    /**
+     * Add all recorded values of another histogram to this one.
+     * @param other histogram with the same unit and precision
+     */
+    @Override
+    public void merge(LogLinearHistogram other) {
+        if (other.unit != this.unit || other.subBucketBits != this.subBucketBits) {
+            throw new IllegalArgumentException("Cannot merge histograms with different unit or precision");
+        }
+        if (other.counts.length > this.counts.length) {
+            this.counts = Arrays.copyOf(this.counts, other.counts.length);
+        }
+        for (int i = 0; i < other.counts.length; i++) {
+            this.counts[i] += other.counts[i];
+        }
+        this.count += other.count;
+        this.sum += other.sum;
+        this.min = Math.min(this.min, other.min);
+        this.max = Math.max(this.max, other.max);
+    }
+
+    @Override
+    public LogLinearHistogram copy() { return new LogLinearHistogram(this); }
+
+    private int indexOf(double v) {
+        double scaledD = v / this.unit;
+        long scaled = scaledD >= Long.MAX_VALUE ? Long.MAX_VALUE : (long) scaledD;
+        if (scaled < 2L * this.subBucketCount) {
+            return (int) scaled;
+        }
+        int shift = (63 - Long.numberOfLeadingZeros(scaled)) - this.subBucketBits;
+        int sub = (int) (scaled >>> shift) - this.subBucketCount;
+        return (shift + 1) * this.subBucketCount + sub;
+    }
+
+    private double lowerBound(int idx) {
+        if (idx < 2 * this.subBucketCount) {
+            return idx * this.unit;
+        }
+        int shift = idx / this.subBucketCount - 1;
+        long sub = (idx % this.subBucketCount) + this.subBucketCount;
+        return (double) (sub << shift) * this.unit;
+    }
+
+    private double width(int idx) {
+        if (idx < 2 * this.subBucketCount) {
+            return this.unit;
+        }
+        int shift = idx / this.subBucketCount - 1;
+        return (double) (1L << shift) * this.unit;
+    }
+
+
+    // ---------- Queries ----------
+
+    /**
+     * Estimate the value at the given quantile.
+     * @param q quantile in [0, 1], e.g. 0.95
+     * @return the estimated value, or NaN if nothing has been recorded
+     */
+    public double quantile(double q) {
+        if (this.count == 0) return Double.NaN;
+        if (q <= 0.0) return this.min;
+        if (q >= 1.0) return this.max;
+
+        long rank = (long) Math.ceil(q * this.count);
+        long seen = 0;
+        for (int i = 0; i < this.counts.length; i++) {
+            seen += this.counts[i];
+            if (seen >= rank) {
+                double mid = this.lowerBound(i) + this.width(i) / 2.0;
+                return Math.max(this.min, Math.min(this.max, mid));
+            }
+        }
+        return this.max;
+    }
+
+    /**
+     * Fraction of recorded values that are at most the given value (bucket resolution).
+     * @param value threshold
+     * @return fraction in [0, 1], or NaN if nothing has been recorded
+     */
+    public double fractionAtOrBelow(double value) {
+        if (this.count == 0) return Double.NaN;
+        if (value < 0) return 0.0;
+        int last = Math.min(this.indexOf(value), this.counts.length - 1);
+        long seen = 0;
+        for (int i = 0; i <= last; i++) seen += this.counts[i];
+        return (double) seen / this.count;
+    }
+
+    public long getCount() { return this.count; }
+    public double getSum() { return this.sum; }
+    public double getMean() { return this.count > 0 ? this.sum / this.count : 0.0; }
+    public double getMin() { return this.count > 0 ? this.min : Double.NaN; }
+    public double getMax() { return this.count > 0 ? this.max : Double.NaN; }
+    public double getUnit() { return this.unit; }
+    public int getSubBucketBits() { return this.subBucketBits; }
+}
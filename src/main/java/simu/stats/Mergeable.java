@@ -0,0 +1,42 @@
+package simu.stats;
+
+import java.util.List;
+
+/**
+ * Statistic that can absorb another instance of the same kind, e.g. the partial result of another
+ * replication, batch or shard. Merging is associative, so partial results can be combined in any
+ * grouping, in particular as a balanced tree with {@link #reduce(List)}.
+ *
+ * @param <T> the implementing type
+ */
+public interface Mergeable<T extends Mergeable<T>> {
+    /**
+     * Add everything recorded by {@code other} to this instance. {@code other} is not changed.
+     * @param other partial result to absorb
+     */
+    void merge(T other);
+
+    /**
+     * @return independent deep copy of this instance
+     */
+    T copy();
+
+    /**
+     * Combine partial results pairwise in a balanced tree. The inputs are not changed.
+     * @param parts partial results, at least one
+     * @param <T> statistic type
+     * @return a new instance holding all partial results
+     */
+    static <T extends Mergeable<T>> T reduce(List<? extends T> parts) {
+        if (parts.isEmpty()) throw new IllegalArgumentException("Nothing to reduce");
+        return reduce(parts, 0, parts.size());
+    }
+
+    private static <T extends Mergeable<T>> T reduce(List<? extends T> parts, int from, int to) {
+        if (to - from == 1) return parts.get(from).copy();
+        int mid = (from + to) >>> 1;
+        T left = reduce(parts, from, mid);
+        left.merge(reduce(parts, mid, to));
+        return left;
+    }
+}
@@ -0,0 +1,58 @@
+package simu.stats;
+
+/**
+ * Streaming wait, service and sojourn time distributions of one station or customer route.
+ * Each is held in a {@link LogLinearHistogram}, so memory stays bounded however many customers pass.
+ */
+public class ResponseTimeStats implements Mergeable<ResponseTimeStats> {
+    private final LogLinearHistogram wait;
+    private final LogLinearHistogram service;
+    private final LogLinearHistogram sojourn;
+
+    public ResponseTimeStats() {
+        this.wait = new LogLinearHistogram();
+        this.service = new LogLinearHistogram();
+        this.sojourn = new LogLinearHistogram();
+    }
+
+    /**
+     * Create a deep copy of the given statistics.
+     * @param other statistics to copy
+     */
+    public ResponseTimeStats(ResponseTimeStats other) {
+        this.wait = new LogLinearHistogram(other.wait);
+        this.service = new LogLinearHistogram(other.service);
+        this.sojourn = new LogLinearHistogram(other.sojourn);
+    }
+
+    /**
+     * Record one completed visit.
+     * @param waitTime time spent queueing
+     * @param serviceTime time spent in service
+     * @param sojournTime total time spent (at least wait + service, more if there were several visits)
+     */
+    public void record(double waitTime, double serviceTime, double sojournTime) {
+        this.wait.record(waitTime);
+        this.service.record(serviceTime);
+        this.sojourn.record(sojournTime);
+    }
+
+    /**
+     * Add all visits recorded by another instance to this one.
+     * @param other statistics to merge
+     */
+    @Override
+    public void merge(ResponseTimeStats other) {
+        this.wait.merge(other.wait);
+        this.service.merge(other.service);
+        this.sojourn.merge(other.sojourn);
+    }
+
+    @Override
+    public ResponseTimeStats copy() { return new ResponseTimeStats(this); }
+
+    public long getCount() { return this.sojourn.getCount(); }
+    public LogLinearHistogram getWait() { return this.wait; }
+    public LogLinearHistogram getService() { return this.service; }
+    public LogLinearHistogram getSojourn() { return this.sojourn; }
+}
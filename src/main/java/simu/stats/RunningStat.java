@@ -0,0 +1,82 @@
+package simu.stats;
+
+/**
+ * Streaming count, mean, variance, minimum and maximum of a sample (Welford's algorithm).
+ * Two instances are combined with the parallel formula of Chan et al., so sums of squares are
+ * never formed and the variance stays accurate for long runs.
+ */
+public class RunningStat implements Mergeable<RunningStat> {
+    private long count;
+    private double mean;
+    private double m2;     // sum of squared deviations from the mean
+    private double sum;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public RunningStat() {}
+
+    /**
+     * Create a copy of the given statistic.
+     * @param other statistic to copy
+     */
+    public RunningStat(RunningStat other) {
+        this.count = other.count;
+        this.mean = other.mean;
+        this.m2 = other.m2;
+        this.sum = other.sum;
+        this.min = other.min;
+        this.max = other.max;
+    }
+
+    /**
+     * Record a single observation.
+     * @param x observed value
+     */
+    public void add(double x) {
+        this.count++;
+        double delta = x - this.mean;
+        this.mean += delta / this.count;
+        this.m2 += delta * (x - this.mean);
+        this.sum += x;
+        if (x < this.min) this.min = x;
+        if (x > this.max) this.max = x;
+    }
+
+    @Override
+    public void merge(RunningStat other) {
+        if (other.count == 0) return;
+        if (this.count == 0) {
+            this.count = other.count;
+            this.mean = other.mean;
+            this.m2 = other.m2;
+            this.sum = other.sum;
+            this.min = other.min;
+            this.max = other.max;
+            return;
+        }
+        long n = this.count + other.count;
+        double delta = other.mean - this.mean;
+        this.mean += delta * other.count / n;
+        this.m2 += other.m2 + delta * delta * ((double) this.count * other.count / n);
+        this.count = n;
+        this.sum += other.sum;
+        this.min = Math.min(this.min, other.min);
+        this.max = Math.max(this.max, other.max);
+    }
+
+    @Override
+    public RunningStat copy() { return new RunningStat(this); }
+
+    public long getCount() { return this.count; }
+    public double getSum() { return this.sum; }
+    public double getMean() { return this.count > 0 ? this.mean : 0.0; }
+    public double getMin() { return this.count > 0 ? this.min : Double.NaN; }
+    public double getMax() { return this.count > 0 ? this.max : Double.NaN; }
+
+    /**
+     * @return sample variance (n - 1 in the denominator), 0 with fewer than two observations
+     */
+    public double getVariance() { return this.count > 1 ? this.m2 / (this.count - 1) : 0.0; }
+
+    public double getStdDev() { return Math.sqrt(this.getVariance()); }
+}
@@ -0,0 +1,212 @@
+package simu.stats;
+
+/**
+ * All statistics of one station (service point) in one mergeable object: counts, Welford moments of
+ * wait, service and total time, their distributions, and the time integrals of queue length, number in
+ * the station and busy servers, both for the station and for each of its servers.
+ * <p>
+ * The owning service point feeds it through {@link #arrive}, {@link #startService} and {@link #endService}.
+ * Accumulators of the same station from disjoint observation periods (replications, batches) are combined
+ * with {@link #merge}; counts, moments, sketches, areas and observed durations all add up.
+ * </p>
+ */
+public class StationAccumulator implements Mergeable<StationAccumulator> {
+    private final String name;
+    private final int servers;
+
+    private final RunningStat wait = new RunningStat();
+    private final RunningStat service = new RunningStat();
+    private final RunningStat total = new RunningStat();
+    private final ResponseTimeStats response;
+
+    private final TimeWeightedStat queue;   // customers waiting (Lq)
+    private final TimeWeightedStat system;  // customers waiting or in service (L)
+    private final TimeWeightedStat busy;    // busy servers
+
+    private final RunningStat[] serverWait;
+    private final RunningStat[] serverService;
+    private final TimeWeightedStat[] serverQueue;
+    private final TimeWeightedStat[] serverBusy;
+
+
+    // ---------- Constructors ----------
+
+    /**
+     * @param name station name, used to match accumulators when merging
+     * @param servers number of parallel servers
+     * @param startTime simulation time from which the station is observed
+     */
+    public StationAccumulator(String name, int servers, double startTime) {
+        this.name = name;
+        this.servers = servers;
+        this.response = new ResponseTimeStats();
+        this.queue = new TimeWeightedStat(startTime);
+        this.system = new TimeWeightedStat(startTime);
+        this.busy = new TimeWeightedStat(startTime);
+        this.serverWait = new RunningStat[servers];
+        this.serverService = new RunningStat[servers];
+        this.serverQueue = new TimeWeightedStat[servers];
+        this.serverBusy = new TimeWeightedStat[servers];
+        for (int i = 0; i < servers; i++) {
+            this.serverWait[i] = new RunningStat();
+            this.serverService[i] = new RunningStat();
+            this.serverQueue[i] = new TimeWeightedStat(startTime);
+            this.serverBusy[i] = new TimeWeightedStat(startTime);
+        }
+    }
+
+    /**
+     * Create a deep copy of the given accumulator.
+     * @param other accumulator to copy
+     */
+    public StationAccumulator(StationAccumulator other) {
+        this.name = other.name;
+        this.servers = other.servers;
+        this.wait.merge(other.wait);
+        this.service.merge(other.service);
+        this.total.merge(other.total);
+        this.response = new ResponseTimeStats(other.response);
+        this.queue = new TimeWeightedStat(other.queue);
+        this.system = new TimeWeightedStat(other.system);
+        this.busy = new TimeWeightedStat(other.busy);
+        this.serverWait = new RunningStat[this.servers];
+        this.serverService = new RunningStat[this.servers];
+        this.serverQueue = new TimeWeightedStat[this.servers];
+        this.serverBusy = new TimeWeightedStat[this.servers];
+        for (int i = 0; i < this.servers; i++) {
+            this.serverWait[i] = new RunningStat(other.serverWait[i]);
+            this.serverService[i] = new RunningStat(other.serverService[i]);
+            this.serverQueue[i] = new TimeWeightedStat(other.serverQueue[i]);
+            this.serverBusy[i] = new TimeWeightedStat(other.serverBusy[i]);
+        }
+    }
+
+
+    // ---------- Updates ----------
+
+    /**
+     * A customer joined the queue of a server.
+     * @param now current simulation time
+     * @param server server whose queue was joined
+     */
+    public void arrive(double now, int server) {
+        this.serverQueue[server].increment(now);
+        this.queue.increment(now);
+        this.system.increment(now);
+    }
+
+    /**
+     * A waiting customer entered service.
+     * @param now current simulation time
+     * @param server server that starts serving
+     */
+    public void startService(double now, int server) {
+        this.serverQueue[server].decrement(now);
+        this.queue.decrement(now);
+        this.serverBusy[server].increment(now);
+        this.busy.increment(now);
+    }
+
+    /**
+     * A customer left the station after service.
+     * @param now current simulation time
+     * @param server server that finished
+     * @param waitTime time the customer waited in the queue
+     * @param serviceTime time the customer spent in service
+     */
+    public void endService(double now, int server, double waitTime, double serviceTime) {
+        this.serverBusy[server].decrement(now);
+        this.busy.decrement(now);
+        this.system.decrement(now);
+
+        this.wait.add(waitTime);
+        this.service.add(serviceTime);
+        this.total.add(waitTime + serviceTime);
+        this.serverWait[server].add(waitTime);
+        this.serverService[server].add(serviceTime);
+        this.response.record(waitTime, serviceTime, waitTime + serviceTime);
+    }
+
+    /**
+     * Close the time integrals at the given time, e.g. before taking a snapshot at the end of a run.
+     * @param now current simulation time
+     */
+    public void advance(double now) {
+        this.queue.advance(now);
+        this.system.advance(now);
+        this.busy.advance(now);
+        for (int i = 0; i < this.servers; i++) {
+            this.serverQueue[i].advance(now);
+            this.serverBusy[i].advance(now);
+        }
+    }
+
+    /**
+     * Copy of this accumulator with the time integrals closed at {@code now}.
+     * @param now current simulation time
+     * @return independent snapshot
+     */
+    public StationAccumulator snapshot(double now) {
+        StationAccumulator copy = new StationAccumulator(this);
+        copy.advance(now);
+        return copy;
+    }
+
+    /**
+     * Absorb the accumulator of the same station from another observation period.
+     * @param other accumulator with the same name and number of servers
+     */
+    @Override
+    public void merge(StationAccumulator other) {
+        if (!this.name.equals(other.name) || this.servers != other.servers) {
+            throw new IllegalArgumentException("Cannot merge station " + other.name + " (" + other.servers
+                    + " servers) into " + this.name + " (" + this.servers + " servers)");
+        }
+        this.wait.merge(other.wait);
+        this.service.merge(other.service);
+        this.total.merge(other.total);
+        this.response.merge(other.response);
+        this.queue.merge(other.queue);
+        this.system.merge(other.system);
+        this.busy.merge(other.busy);
+        for (int i = 0; i < this.servers; i++) {
+            this.serverWait[i].merge(other.serverWait[i]);
+            this.serverService[i].merge(other.serverService[i]);
+            this.serverQueue[i].merge(other.serverQueue[i]);
+            this.serverBusy[i].merge(other.serverBusy[i]);
+        }
+    }
+
+    @Override
+    public StationAccumulator copy() { return new StationAccumulator(this); }
+
+
+    // ---------- Queries ----------
+
+    public String getName() { return this.name; }
+    public int getServers() { return this.servers; }
+    public long getServed() { return this.total.getCount(); }
+
+    public RunningStat getWait() { return this.wait; }
+    public RunningStat getService() { return this.service; }
+    public RunningStat getTotal() { return this.total; }
+    public ResponseTimeStats getResponse() { return this.response; }
+
+    public TimeWeightedStat getQueue() { return this.queue; }
+    public TimeWeightedStat getSystem() { return this.system; }
+    public TimeWeightedStat getBusy() { return this.busy; }
+
+    public RunningStat getServerWait(int server) { return this.serverWait[server]; }
+    public RunningStat getServerService(int server) { return this.serverService[server]; }
+    public TimeWeightedStat getServerQueue(int server) { return this.serverQueue[server]; }
+    public TimeWeightedStat getServerBusy(int server) { return this.serverBusy[server]; }
+
+    /**
+     * Utilization from completed services: total service time / (servers * observed duration).
+     * @param duration observed duration
+     * @return utilization in [0, 1]
+     */
+    public double getUtilization(double duration) {
+        return (duration > 0 && this.servers > 0) ? this.service.getSum() / (this.servers * duration) : 0.0;
+    }
+}
@@ -0,0 +1,147 @@
+package simu.stats;
+
+import java.util.Arrays;
+
+/**
+ * Time-weighted statistic of an integer level that changes at discrete instants,
+ * e.g. a queue length or the number of busy servers.
+ * <p>
+ * The area under the level curve is accumulated incrementally at every change, so time averages
+ * (L, Lq, occupancy) come out exactly without sampling. The time spent at each level is kept as well,
+ * up to {@link #MAX_TRACKED_LEVEL}; time at higher levels is added to the last entry.
+ * </p>
+ */
+public class TimeWeightedStat implements Mergeable<TimeWeightedStat> {
+    public static final int MAX_TRACKED_LEVEL = 1024;
+
+    private double startTime;
+    private double lastTime;
+    private int level;
+    private int maxLevel;
+    private double area;
+    private double[] timeAtLevel = new double[8];
+
+
+    // ---------- Constructors ----------
+
+    /**
+     * @param startTime time from which the statistic is observed (level 0)
+     */
+    public TimeWeightedStat(double startTime) {
+        this.startTime = startTime;
+        this.lastTime = startTime;
+    }
+
+    /**
+     * Create a deep copy of the given statistic.
+     * @param other statistic to copy
+     */
+    public TimeWeightedStat(TimeWeightedStat other) {
+        this.startTime = other.startTime;
+        this.lastTime = other.lastTime;
+        this.level = other.level;
+        this.maxLevel = other.maxLevel;
+        this.area = other.area;
+        this.timeAtLevel = other.timeAtLevel.clone();
+    }
+
+
+    // ---------- Updates ----------
+
+    /**
+     * Change the level at the given time. The time spent at the previous level is accumulated first.
+     * @param now current simulation time
+     * @param newLevel level from now on
+     */
+    public void set(double now, int newLevel) {
+        this.advance(now);
+        this.level = newLevel;
+        if (newLevel > this.maxLevel) this.maxLevel = newLevel;
+    }
+
+    public void increment(double now) { this.set(now, this.level + 1); }
+    public void decrement(double now) { this.set(now, this.level - 1); }
+
+    /**
+     * Accumulate the time spent at the current level up to the given time without changing the level.
+     * @param now current simulation time
+     */
+    public void advance(double now) {
+        double dt = now - this.lastTime;
+        if (dt <= 0.0) return;
+        this.area += this.level * dt;
+        int bin = Math.min(Math.max(this.level, 0), MAX_TRACKED_LEVEL);
+        if (bin >= this.timeAtLevel.length) {
+            this.timeAtLevel = Arrays.copyOf(this.timeAtLevel, Math.min(MAX_TRACKED_LEVEL + 1, Math.max(bin + 1, this.timeAtLevel.length * 2)));
+        }
+        this.timeAtLevel[bin] += dt;
+        this.lastTime = now;
+    }
+
+    /**
+     * Combine with the statistic of another, disjoint observation period (e.g. another replication).
+     * Areas, observed durations and time-at-level histograms add up; the current level is kept.
+     * @param other statistic to merge
+     */
+    @Override
+    public void merge(TimeWeightedStat other) {
+        this.area += other.area;
+        this.startTime -= other.lastTime - other.startTime; // extend the observed duration
+        this.maxLevel = Math.max(this.maxLevel, other.maxLevel);
+        if (other.timeAtLevel.length > this.timeAtLevel.length) {
+            this.timeAtLevel = Arrays.copyOf(this.timeAtLevel, other.timeAtLevel.length);
+        }
+        for (int i = 0; i < other.timeAtLevel.length; i++) {
+            this.timeAtLevel[i] += other.timeAtLevel[i];
+        }
+    }
+
+    @Override
+    public TimeWeightedStat copy() { return new TimeWeightedStat(this); }
+
+
+    // ---------- Queries ----------
+
+    public int getLevel() { return this.level; }
+    public int getMaxLevel() { return this.maxLevel; }
+
+    /**
+     * @return accumulated area under the level curve up to the last update
+     */
+    public double getArea() { return this.area; }
+
+    /**
+     * @return observed duration up to the last update
+     */
+    public double getDuration() { return this.lastTime - this.startTime; }
+
+    /**
+     * Time average of the level up to the last update.
+     * @return average level, 0 if no time has passed
+     */
+    public double getMean() {
+        double duration = this.getDuration();
+        return duration > 0.0 ? this.area / duration : 0.0;
+    }
+
+    /**
+     * Time average of the level up to {@code now}, counting the current level until then.
+     * @param now current simulation time
+     * @return average level, 0 if no time has passed
+     */
+    public double getMean(double now) {
+        double dt = Math.max(0.0, now - this.lastTime);
+        double duration = this.getDuration() + dt;
+        return duration > 0.0 ? (this.area + this.level * dt) / duration : 0.0;
+    }
+
+    /**
+     * Time spent at each level up to the last update; the last entry also holds
+     * the time spent above {@link #MAX_TRACKED_LEVEL}.
+     * @return array indexed by level (copy)
+     */
+    public double[] getTimeAtLevel() {
+        int len = Math.min(this.timeAtLevel.length, Math.min(this.maxLevel, MAX_TRACKED_LEVEL) + 1);
+        return Arrays.copyOf(this.timeAtLevel, len);
+    }
+}
@@ -8,6 +8,7 @@ public class Customer {
     private double y;
     boolean visitedMechanic = false;
     boolean afterMechanicInWasher = false;
+    int station = -1; // index of the station the customer is at in the visualisation, -1 if none
     private Image image;
 
     public Customer(int id, double x, double y, Image image) {
@@ -1,20 +1,36 @@
 package simu.view;
 
 // File: DistributionOptionsDialog.java
+import javafx.beans.Observable;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Node;
 import javafx.scene.control.*;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
 import javafx.scene.layout.VBox;
+import javafx.stage.FileChooser;
 import javafx.util.StringConverter;
 import simu.config.DistributionOptions;
 import simu.config.DistributionOptions.DistributionType;
-
+import simu.config.DistributionRegistry;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.regex.Pattern;
 
+/**
+ * Edits a {@link DistributionOptions}. The parameter fields are built from the
+ * {@link DistributionRegistry} schema of the selected type.
+ */
 public final class DistributionOptionsDialog extends Dialog<DistributionOptions> {
 
     private final ComboBox<DistributionType> typeBox = new ComboBox<>();
@@ -23,10 +39,18 @@ public final class DistributionOptionsDialog extends Dialog<DistributionOptions>
     private static final double MIN_BOUND = -1_000_000.0;
     private static final double MAX_BOUND =  1_000_000.0;
 
-    private final Spinner<Double> meanSp = dSpinner(0.0001, MAX_BOUND, 10.0, 0.1);
-    private final Spinner<Double> stdSp  = dSpinner(0.0001, MAX_BOUND, 5.0, 0.1);
-    private final Spinner<Double> minSp  = dSpinner(MIN_BOUND, MAX_BOUND, 0.0, 0.1);
-    private final Spinner<Double> maxSp  = dSpinner(MIN_BOUND, MAX_BOUND, 1.0, 0.1);
+    // parameter rows of the selected type, rebuilt when the type changes
+    private final GridPane paramGrid = new GridPane();
+    private final List<Spinner<Double>> paramSps = new ArrayList<>();
+    // last values entered per type, so switching back and forth keeps them
+    private final Map<DistributionType, double[]> values = new EnumMap<>(DistributionType.class);
+
+    private final TextField fileField = new TextField();
+    private final Button browseBtn = new Button("Browse…");
+
+    private final TextField lowerField = new TextField("0");
+    private final TextField upperField = new TextField();
+    private final Spinner<Double> shiftSp = dSpinner(MIN_BOUND, MAX_BOUND, 0.0, 0.1);
 
     private final Label err = new Label();
 
@@ -38,17 +62,11 @@ public final class DistributionOptionsDialog extends Dialog<DistributionOptions>
         // Load app stylesheet so dialog matches the app theme
         getDialogPane().getStylesheets().add("styles.css");
 
-        // Combo items + user-friendly labels
+        // Combo items + user-friendly labels from the registry
         typeBox.getItems().addAll(DistributionType.values());
         typeBox.setConverter(new StringConverter<>() {
             @Override public String toString(DistributionType t) {
-                if (t == null) return "";
-                switch (t) {
-                    case NEGEXP: return "Negative Exponential";
-                    case NORMAL: return "Normal";
-                    case UNIFORM: return "Uniform";
-                    default: return t.name();
-                }
+                return t == null ? "" : DistributionRegistry.get(t).getLabel();
             }
             @Override public DistributionType fromString(String s) {
                 return DistributionType.valueOf(s.toUpperCase());
@@ -59,14 +77,30 @@ public final class DistributionOptionsDialog extends Dialog<DistributionOptions>
         GridPane g = new GridPane();
         g.getStyleClass().addAll("dialog-grid");
         g.setPadding(Insets.EMPTY);
+        paramGrid.getStyleClass().addAll("dialog-grid");
+        paramGrid.setPadding(Insets.EMPTY);
 
         int r = 0;
         g.add(styledLabel("Type"), 0, r); g.add(typeBox, 1, r++);
+        g.add(paramGrid, 0, r++, 2, 1);
+
+        fileField.setPromptText("CSV or binary file of observations");
+        browseBtn.setOnAction(e -> {
+            FileChooser chooser = new FileChooser();
+            chooser.setTitle("Observations");
+            File f = chooser.showOpenDialog(getDialogPane().getScene().getWindow());
+            if (f != null) fileField.setText(f.getAbsolutePath());
+        });
+        HBox fileRow = new HBox(6, fileField, browseBtn);
+        HBox.setHgrow(fileField, Priority.ALWAYS);
+        g.add(styledLabel("Sample file"), 0, r); g.add(fileRow, 1, r++);
 
-        g.add(styledLabel("Mean"), 0, r); g.add(meanSp, 1, r++);
-        g.add(styledLabel("Std dev"), 0, r); g.add(stdSp, 1, r++);
-        g.add(styledLabel("Min"), 0, r); g.add(minSp, 1, r++);
-        g.add(styledLabel("Max"), 0, r); g.add(maxSp, 1, r++);
+        lowerField.setPromptText("none");
+        upperField.setPromptText("none");
+        HBox boundsRow = new HBox(6, lowerField, new Label("to"), upperField);
+        boundsRow.setAlignment(Pos.CENTER_LEFT);
+        g.add(styledLabel("Bounds"), 0, r); g.add(boundsRow, 1, r++);
+        g.add(styledLabel("Shift"), 0, r); g.add(shiftSp, 1, r++);
 
         err.getStyleClass().add("error-text");
         HBox errRow = new HBox(err);
@@ -84,53 +118,38 @@ public final class DistributionOptionsDialog extends Dialog<DistributionOptions>
         body.getStyleClass().add("dialog-body");
 
         getDialogPane().setContent(body);
-        getDialogPane().setPrefSize(480, 360);
+        getDialogPane().setPrefSize(480, 420);
 
         // Init from existing
         if (initial != null) {
+            values.put(initial.getType(), initial.getParameters());
+            fileField.setText(initial.getFile());
+            lowerField.setText(boundText(initial.getLower()));
+            upperField.setText(boundText(initial.getUpper()));
+            shiftSp.getValueFactory().setValue(initial.getShift());
             typeBox.getSelectionModel().select(initial.getType());
-            switch (initial.getType()) {
-                case NEGEXP:
-                    meanSp.getValueFactory().setValue(initial.getMean());
-                    break;
-                case NORMAL:
-                    meanSp.getValueFactory().setValue(initial.getMean());
-                    stdSp.getValueFactory().setValue(initial.getStdDev());
-                    break;
-                case UNIFORM:
-                    minSp.getValueFactory().setValue(initial.getMin());
-                    maxSp.getValueFactory().setValue(initial.getMax());
-                    break;
-            }
         } else {
             typeBox.getSelectionModel().select(DistributionType.NEGEXP);
         }
 
-        // Visibility by type + sanitize editors on UNIFORM
-        typeBox.valueProperty().addListener((o, old, t) -> updateVisibility(g));
-        updateVisibility(g);
-
-        // Disable OK when invalid + build result
+        // Parameter rows + visibility by type
         final Node okBtn = getDialogPane().lookupButton(ButtonType.OK);
         okBtn.getStyleClass().add("primary");
-        okBtn.disableProperty().bind(new javafx.beans.binding.BooleanBinding() {
-            { super.bind(typeBox.valueProperty(),
-                    meanSp.valueProperty(), stdSp.valueProperty(),
-                    minSp.valueProperty(), maxSp.valueProperty()); }
-            @Override protected boolean computeValue() { return validate(false) != null; }
+        typeBox.valueProperty().addListener((o, old, t) -> {
+            rememberValues(old);
+            // a distribution that may go negative gets a lower bound of 0 unless one is set
+            if (t != null && !DistributionRegistry.get(t).isNonNegative() && lowerField.getText().isBlank()) {
+                lowerField.setText("0");
+            }
+            rebuildParameters(g, okBtn);
         });
+        rebuildParameters(g, okBtn);
 
         setResultConverter(btn -> {
             if (btn != ButtonType.OK) return null;
             String errMsg = validate(true);
             if (errMsg != null) return null;
-            DistributionType t = typeBox.getValue();
-            switch (t) {
-                case NEGEXP: return DistributionOptions.negExp(meanSp.getValue());
-                case NORMAL: return DistributionOptions.normal(meanSp.getValue(), stdSp.getValue());
-                case UNIFORM: return DistributionOptions.uniform(minSp.getValue(), maxSp.getValue());
-                default: throw new IllegalStateException("Unhandled type " + t);
-            }
+            return build();
         });
     }
 
@@ -177,24 +196,40 @@ public final class DistributionOptionsDialog extends Dialog<DistributionOptions>
         return l;
     }
 
-    private void updateVisibility(GridPane g) {
-        DistributionType t = typeBox.getValue();
+    private void rememberValues(DistributionType t) {
+        if (t == null || DistributionRegistry.get(t).usesFile()) return;
+        double[] v = new double[paramSps.size()];
+        for (int i = 0; i < v.length; i++) v[i] = paramSps.get(i).getValue();
+        values.put(t, v);
+    }
 
-        boolean showMean = (t == DistributionType.NEGEXP || t == DistributionType.NORMAL);
-        boolean showStd  = (t == DistributionType.NORMAL);
-        boolean showMin  = (t == DistributionType.UNIFORM);
-        boolean showMax  = (t == DistributionType.UNIFORM);
+    /** One row per parameter of the selected type; the OK button is re-bound to the new fields. */
+    private void rebuildParameters(GridPane g, Node okBtn) {
+        DistributionType t = typeBox.getValue();
+        DistributionRegistry.Entry entry = DistributionRegistry.get(t);
+        double[] v = values.computeIfAbsent(t, k -> entry.defaults());
+
+        paramGrid.getChildren().clear();
+        paramSps.clear();
+        List<DistributionRegistry.Parameter> params = entry.getParameters();
+        for (int i = 0; i < params.size(); i++) {
+            DistributionRegistry.Parameter p = params.get(i);
+            boolean count = p.kind == DistributionRegistry.Kind.COUNT;
+            Spinner<Double> sp = dSpinner(MIN_BOUND, MAX_BOUND, v.length == params.size() ? v[i] : p.defaultValue, count ? 1.0 : 0.1);
+            paramSps.add(sp);
+            paramGrid.add(styledLabel(p.label), 0, i);
+            paramGrid.add(sp, 1, i);
+        }
 
-        setRowVisible(g, 1, showMean); // Mean
-        setRowVisible(g, 2, showStd);  // Std dev
-        setRowVisible(g, 3, showMin);  // Min
-        setRowVisible(g, 4, showMax);  // Max
+        setRowVisible(g, 2, entry.usesFile());                  // Sample file
+        setRowVisible(g, 3, t != DistributionType.TRACE);       // Bounds
 
-        if (t == DistributionType.UNIFORM) {
-            // Ensure editor text is a clean, parsable number to avoid NFE when clicking arrows
-            syncEditor(minSp);
-            syncEditor(maxSp);
-        }
+        List<Observable> deps = new ArrayList<>(List.of(typeBox.valueProperty(), fileField.textProperty(),
+                lowerField.textProperty(), upperField.textProperty(), shiftSp.valueProperty()));
+        for (Spinner<Double> sp : paramSps) deps.add(sp.valueProperty());
+        okBtn.disableProperty().unbind();
+        okBtn.disableProperty().bind(javafx.beans.binding.Bindings.createBooleanBinding(
+                () -> validate(false) != null, deps.toArray(new Observable[0])));
     }
 
     private void setRowVisible(GridPane g, int rowIndex, boolean visible) {
@@ -203,29 +238,57 @@ public final class DistributionOptionsDialog extends Dialog<DistributionOptions>
                 .forEach(n -> { n.setVisible(visible); n.setManaged(visible); });
     }
 
-    private static void syncEditor(Spinner<Double> sp) {
-        SpinnerValueFactory.DoubleSpinnerValueFactory vf =
-                (SpinnerValueFactory.DoubleSpinnerValueFactory) sp.getValueFactory();
-        sp.getEditor().setText(vf.getConverter().toString(vf.getValue()));
+    private static String boundText(double b) {
+        return Double.isInfinite(b) ? "" : String.valueOf(b);
+    }
+
+    /** @return the bound in the field; blank means none */
+    private static double parseBound(TextField f, double none) {
+        String s = f.getText() == null ? "" : f.getText().trim().replace(',', '.');
+        return s.isEmpty() ? none : Double.parseDouble(s);
+    }
+
+    private DistributionOptions build() {
+        DistributionType t = typeBox.getValue();
+        DistributionOptions d;
+        switch (t) {
+            case EMPIRICAL: d = DistributionOptions.empirical(fileField.getText().trim()); break;
+            case TRACE: d = DistributionOptions.trace(fileField.getText().trim()); break;
+            default:
+                double[] v = new double[paramSps.size()];
+                for (int i = 0; i < v.length; i++) v[i] = paramSps.get(i).getValue();
+                d = DistributionOptions.of(t, v);
+        }
+        if (t != DistributionType.TRACE) {
+            d = d.withBounds(parseBound(lowerField, Double.NEGATIVE_INFINITY), parseBound(upperField, Double.POSITIVE_INFINITY));
+        }
+        double shift = shiftSp.getValue();
+        return shift != 0.0 ? d.withShift(shift) : d;
     }
 
     /** @return null if valid, otherwise error message; optionally writes to label */
     private String validate(boolean write) {
         err.setText("");
         DistributionType t = typeBox.getValue();
-        switch (t) {
-            case NEGEXP:
-                if (meanSp.getValue() <= 0) return write("Mean must be > 0 for NegExp");
-                break;
-            case NORMAL:
-                if (meanSp.getValue() <= 0) return write("Mean must be > 0 for Normal");
-                if (stdSp.getValue()  <= 0) return write("Std dev must be > 0 for Normal");
-                break;
-            case UNIFORM:
-                if (minSp.getValue() >= maxSp.getValue()) return write("Min must be < Max for Uniform");
-                break;
+        if (t == null) return write("Choose a distribution");
+        if (DistributionRegistry.get(t).usesFile()) {
+            String f = fileField.getText() == null ? "" : fileField.getText().trim();
+            if (f.isEmpty()) return write("Choose a sample file");
+            try {
+                if (!Files.isReadable(Path.of(f))) return write("Sample file not readable");
+            } catch (InvalidPathException e) {
+                return write("Invalid sample file name");
+            }
+            if (t == DistributionType.EMPIRICAL) return null; // bounds are checked against the file when the run starts
+        }
+        DistributionOptions d;
+        try {
+            d = build();
+        } catch (NumberFormatException e) {
+            return write("Bounds must be numbers or blank");
         }
-        return null;
+        String msg = d.check();
+        return msg != null ? write(msg) : null;
     }
 
     private String write(String m) { err.setText(m); return m; }
@@ -1,5 +1,7 @@
 package simu.view;
 
+import simu.model.QueueSnapshot;
+
 public interface IVisualisation {
     void clearDisplay();
     void newCustomer(int id);
@@ -7,5 +9,7 @@ public interface IVisualisation {
     void updateQueueLengths(int receptionQueue, int[] mechanicQueues, int[] washerQueues);
     void moveCustomerToMechanic(int id, int mechanicId);
     void moveCustomerToWasher(int id, int washerId);
+    void moveCustomerToCheckout(int id);
     void customerExit(int id);
+    void rebuild(QueueSnapshot snapshot);
 }
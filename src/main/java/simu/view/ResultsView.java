@@ -10,7 +10,11 @@ import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
+import simu.model.Customer;
 import simu.model.SimulationData;
+import simu.stats.ResponseTimeStats;
+
+import java.util.Map;
 
 public class ResultsView {
 
@@ -43,17 +47,23 @@ public class ResultsView {
         addSummaryBlock(summary, 0, "Reception",
                 data.getReceptionServers(), data.getReceptionServed(),
                 data.getReceptionAvgWait(), data.getReceptionAvgService(),
-                data.getReceptionAvgTotal(), data.getReceptionUtil());
+                data.getReceptionAvgTotal(), data.getReceptionUtil(),
+                data.getReceptionAvgQueue(), data.getReceptionAvgInSystem(), data.getReceptionMaxQueue(),
+                data.littlesLaw(data.getReceptionServed(), data.getReceptionAvgTotal()));
 
         addSummaryBlock(summary, 1, "Mechanic",
                 data.getMechanicServers(), data.getMechanicServed(),
                 data.getMechanicAvgWait(), data.getMechanicAvgService(),
-                data.getMechanicAvgTotal(), data.getMechanicUtil());
+                data.getMechanicAvgTotal(), data.getMechanicUtil(),
+                data.getMechanicAvgQueue(), data.getMechanicAvgInSystem(), data.getMechanicMaxQueue(),
+                data.littlesLaw(data.getMechanicServed(), data.getMechanicAvgTotal()));
 
         addSummaryBlock(summary, 2, "Wash",
                 data.getWashServers(), data.getWashServed(),
                 data.getWashAvgWait(), data.getWashAvgService(),
-                data.getWashAvgTotal(), data.getWashUtil());
+                data.getWashAvgTotal(), data.getWashUtil(),
+                data.getWashAvgQueue(), data.getWashAvgInSystem(), data.getWashMaxQueue(),
+                data.littlesLaw(data.getWashServed(), data.getWashAvgTotal()));
 
         TableView<Row> table = new TableView<>();
         table.getStyleClass().add("results-table");
@@ -83,20 +93,31 @@ public class ResultsView {
         cTot.setCellValueFactory(new PropertyValueFactory<>("avgTotal"));
         cTot.setStyle("-fx-alignment: CENTER-RIGHT;");
 
+        TableColumn<Row,String> cP95 = new TableColumn<>("P95 Wait");
+        cP95.setCellValueFactory(new PropertyValueFactory<>("p95Wait"));
+        cP95.setStyle("-fx-alignment: CENTER-RIGHT;");
+
+        TableColumn<Row,String> cP99 = new TableColumn<>("P99 Wait");
+        cP99.setCellValueFactory(new PropertyValueFactory<>("p99Wait"));
+        cP99.setStyle("-fx-alignment: CENTER-RIGHT;");
+
         TableColumn<Row,String> cUtil = new TableColumn<>("Util %");
         cUtil.setCellValueFactory(new PropertyValueFactory<>("utilPct"));
         cUtil.setStyle("-fx-alignment: CENTER-RIGHT;");
 
-        table.getColumns().addAll(cName,cServ,cSrv,cWait,cSvc,cTot,cUtil);
+        table.getColumns().addAll(cName,cServ,cSrv,cWait,cP95,cP99,cSvc,cTot,cUtil);
 
         table.getItems().add(new Row("Reception", data.getReceptionServed(), data.getReceptionServers(),
-                data.getReceptionAvgWait(), data.getReceptionAvgService(), data.getReceptionAvgTotal(), data.getReceptionUtil(), true));
+                data.getReceptionAvgWait(), data.getReceptionAvgService(), data.getReceptionAvgTotal(), data.getReceptionUtil(), true)
+                .withWaitQuantiles(data.getReceptionResponse()));
 
         table.getItems().add(new Row("Mechanic (all)", data.getMechanicServed(), data.getMechanicServers(),
-                data.getMechanicAvgWait(), data.getMechanicAvgService(), data.getMechanicAvgTotal(), data.getMechanicUtil(), true));
+                data.getMechanicAvgWait(), data.getMechanicAvgService(), data.getMechanicAvgTotal(), data.getMechanicUtil(), true)
+                .withWaitQuantiles(data.getMechanicResponse()));
 
         table.getItems().add(new Row("Wash (all)", data.getWashServed(), data.getWashServers(),
-                data.getWashAvgWait(), data.getWashAvgService(), data.getWashAvgTotal(), data.getWashUtil(), true));
+                data.getWashAvgWait(), data.getWashAvgService(), data.getWashAvgTotal(), data.getWashUtil(), true)
+                .withWaitQuantiles(data.getWashResponse()));
 
         int[] mServed = data.getMechanicServedPerServer();
         double[] mUtil = data.getMechanicUtilPerServer();
@@ -152,9 +173,9 @@ public class ResultsView {
             if (onClose != null) onClose.run();
         });
 
-        root.getChildren().addAll(heading, summary, new Separator(), table, closeBtn);
+        root.getChildren().addAll(heading, summary, new Separator(), table, buildRouteSummary(data), closeBtn);
 
-        Scene sc = new Scene(root, 920, 640);
+        Scene sc = new Scene(root, 1020, 840);
         sc.getStylesheets().add("results.css");
         return sc;
     }
@@ -162,7 +183,8 @@ public class ResultsView {
     private void addSummaryBlock(GridPane gp, int col, String title,
                                  int servers, int served,
                                  double avgWait, double avgService,
-                                 double avgTotal, double util) {
+                                 double avgTotal, double util,
+                                 double avgQueue, double avgInSystem, int maxQueue, double littleL) {
         VBox box = new VBox(4);
         box.getStyleClass().add("results-block");
         Label t = new Label(title);
@@ -174,17 +196,67 @@ public class ResultsView {
         Label l4 = labelKV("Avg Service", fmt(avgService));
         Label l5 = labelKV("Avg Total time", fmt(avgTotal));
         Label l6 = labelKV("Utilization %", pct(util));
-        box.getChildren().addAll(t,l1,l2,l3,l4,l5,l6);
+        Label l7 = labelKV("Avg queue (Lq)", fmt(avgQueue));
+        Label l8 = labelKV("Avg in system (L)", fmt(avgInSystem) + " (\u03bbW " + fmt(littleL) + ")");
+        Label l9 = labelKV("Max queue", String.valueOf(maxQueue));
+        box.getChildren().addAll(t,l1,l2,l3,l4,l5,l6,l7,l8,l9);
         gp.add(box, col, 0);
     }
 
+    /**
+     * Build a compact grid with sojourn and wait percentiles per customer route.
+     */
+    private GridPane buildRouteSummary(SimulationData data) {
+        GridPane gp = new GridPane();
+        gp.setHgap(24);
+        gp.setVgap(4);
+
+        String[] headers = {"Route", "Customers", "Avg Sojourn", "P95 Sojourn", "P99 Sojourn", "P95 Wait", "P99 Wait"};
+        for (int c = 0; c < headers.length; c++) {
+            Label h = new Label(headers[c]);
+            h.getStyleClass().add("results-block-title");
+            gp.add(h, c, 0);
+        }
+
+        int r = 1;
+        for (Map.Entry<Customer.Route, ResponseTimeStats> e : data.getRouteResponse().entrySet()) {
+            ResponseTimeStats rs = e.getValue();
+            String[] cells = {
+                    routeName(e.getKey()),
+                    String.valueOf(rs.getCount()),
+                    fmt(rs.getSojourn().getMean()),
+                    fmt(rs.getSojourn().quantile(0.95)),
+                    fmt(rs.getSojourn().quantile(0.99)),
+                    fmt(rs.getWait().quantile(0.95)),
+                    fmt(rs.getWait().quantile(0.99))
+            };
+            for (int c = 0; c < cells.length; c++) {
+                Label l = new Label(cells[c]);
+                l.getStyleClass().add("results-metric");
+                gp.add(l, c, r);
+            }
+            r++;
+        }
+        return gp;
+    }
+
+    private static String routeName(Customer.Route route) {
+        switch (route) {
+            case DIRECT: return "Reception only";
+            case MECHANIC: return "Mechanic";
+            case WASH: return "Wash";
+            case MECHANIC_WASH: return "Mechanic + Wash";
+            default: return route.name();
+        }
+    }
+
     private Label labelKV(String k, String v) {
         Label l = new Label(k + ": " + v);
         l.getStyleClass().add("results-metric");
         return l;
     }
 
-    private static String fmt(double v) { return String.format("%.3f", v); }
+    private static String fmt(double v) { return Double.isNaN(v) ? "-" : String.format("%.3f", v); }
     private static String pct(double v) { return String.format("%.1f", v * 100.0); }
 
     public static class Row {
@@ -196,6 +268,8 @@ public class ResultsView {
         private final String avgTotal;
         private final String utilPct;
         private final boolean aggregate;
+        private String p95Wait = "-";
+        private String p99Wait = "-";
 
         public Row(String name, int served, int servers,
                    double avgWait, double avgService, double avgTotal, double util,
@@ -210,6 +284,16 @@ public class ResultsView {
             this.aggregate = aggregate;
         }
 
+        /**
+         * Fill the wait percentile columns from the given statistics.
+         * @return this row
+         */
+        public Row withWaitQuantiles(ResponseTimeStats stats) {
+            this.p95Wait = fmt(stats.getWait().quantile(0.95));
+            this.p99Wait = fmt(stats.getWait().quantile(0.99));
+            return this;
+        }
+
         public String getName() { return name; }
         public int getServed() { return served; }
         public int getServers() { return servers; }
@@ -217,6 +301,8 @@ public class ResultsView {
         public String getAvgService() { return avgService; }
         public String getAvgTotal() { return avgTotal; }
         public String getUtilPct() { return utilPct; }
+        public String getP95Wait() { return p95Wait; }
+        public String getP99Wait() { return p99Wait; }
         public boolean isAggregate() { return aggregate; }
     }
 }
@@ -6,6 +6,7 @@ import java.util.List;
 import javafx.application.Application;
 import javafx.application.Platform;
 import javafx.beans.property.DoubleProperty;
+import javafx.collections.FXCollections;
 import javafx.geometry.HPos;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
@@ -16,6 +17,7 @@ import javafx.scene.control.*;
 import javafx.scene.layout.*;
 import javafx.stage.Stage;
 
+import distributions.SamplingMethod;
 import simu.controller.Controller;
 import simu.controller.IControllerVtoM;
 import simu.framework.Trace;
@@ -44,6 +46,10 @@ public class SimulatorGUI extends Application implements ISimulatorUI {
 
     private final Label washSplitSumLabel = new Label("Sum: 1.00");
 
+    // --- Sampling algorithm of the distributions ---
+    private final ComboBox<SamplingMethod> samplingMethodBox =
+            new ComboBox<>(FXCollections.observableArrayList(SamplingMethod.values()));
+
     // --- Dynamic per-server speed sliders ---
     private final VBox mechanicSpeedsBox = new VBox(30); // Increased spacing for mechanics
     private final VBox washerSpeedsBox   = new VBox(30); // Increased spacing for washers
@@ -130,6 +136,8 @@ public class SimulatorGUI extends Application implements ISimulatorUI {
         params.pWashInteriorProperty().bindBidirectional(probWashInteriorSlider.valueProperty());
         params.pWashBothProperty().bindBidirectional(probWashBothSlider.valueProperty());
 
+        samplingMethodBox.valueProperty().bindBidirectional(params.samplingMethodProperty());
+
         washSplitSumLabel.textProperty().bind(
                 params.pWashExteriorProperty()
                         .add(params.pWashInteriorProperty())
@@ -219,6 +227,7 @@ public class SimulatorGUI extends Application implements ISimulatorUI {
         form.add(field("Reception service",   editReceptionBtn), 1, r++);
         form.add(field("Mechanic service",    editMechanicBtn),  0, r);
         form.add(field("Wash service",        editWashBtn),      1, r++);
+        form.add(field("Sampling method",     samplingMethodBox), 0, r++);
 
         // --- Section: Service Point Speed Factors ---
         form.add(sectionHeader("Service Point Speed Factors"), 0, r++, 2, 1);
@@ -1,5 +1,9 @@
 package simu.view;
 
+import javafx.application.Platform;
+import javafx.beans.value.ChangeListener;
+import javafx.scene.Scene;
+import javafx.scene.SnapshotParameters;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.paint.*;
@@ -8,11 +12,21 @@ import javafx.scene.shape.StrokeLineJoin;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
 import javafx.scene.image.Image;
-import javafx.scene.text.Text;
+import javafx.scene.transform.Transform;
+import javafx.stage.Window;
+import simu.model.QueueSnapshot;
 
 import java.io.InputStream;
 import java.util.*;
 
+/**
+ * Draws the garage in two layers. The background (connecting lines and station boxes) only changes with
+ * the layout, so it is drawn once into an image. The cars and queue counts of a station are drawn over it
+ * and are redrawn only for the stations whose queue changed since the last pulse.
+ * <p>
+ * Moves only mark stations dirty; the redraw runs at most once per pulse, before layout, however many
+ * moves there were. Each customer knows its station, so a move costs the same with any number of cars.
+ */
 public class Visualisation extends Canvas implements IVisualisation {
     private final GraphicsContext gc;
     private final Map<Integer, Customer> customers = new HashMap<>();
@@ -29,6 +43,12 @@ public class Visualisation extends Canvas implements IVisualisation {
     private static final int MAX_VISIBLE_QUEUE = 4; // Max customers to show in queue -> the rest are shown in a counter
     private static final double QUEUE_OVERFLOW_PADDING = 6;
 
+    // Area a station draws its cars, badge and count in, around its center
+    private static final double REGION_LEFT = HALF_STATION + QUEUE_SPACING * (MAX_VISIBLE_QUEUE + 1) + 48;
+    private static final double REGION_RIGHT = HALF_STATION + 6;
+    private static final double REGION_TOP = HALF_STATION + 26;
+    private static final double REGION_BOTTOM = HALF_STATION + 6;
+
     // Colors
     private static final Color BACKGROUND_COLOR = Color.web("#0e1116");
     private static final Color RECEPTION_COLOR = Color.web("#3a3f44");
@@ -42,6 +62,10 @@ public class Visualisation extends Canvas implements IVisualisation {
     private static final Color OVERFLOW_BG = Color.web("#151a20");
     private static final Color OVERFLOW_BORDER = Color.web("#262c36");
 
+    // Fonts
+    private static final Font LABEL_FONT = Font.font("System", FontWeight.BOLD, 14);
+    private static final Font QUEUE_FONT = Font.font("System", FontWeight.BOLD, 12);
+
     // Car sprite fields
     private static final String[] CAR_SPRITES = {
         "img/coupe_blue.png",
@@ -65,23 +89,53 @@ public class Visualisation extends Canvas implements IVisualisation {
     private static final double LEFT_MARGIN = 100;
     private static final double RIGHT_MARGIN = 10;
 
-    private final List<Customer> receptionQueue = new ArrayList<>();
-    private final List<Customer> checkoutQueue = new ArrayList<>();
-
-    private final List<Position> mechanicPositions = new ArrayList<>();
-    private final Map<Integer, List<Customer>> mechanicQueues = new HashMap<>();
-
-    private final List<Position> washerPositions = new ArrayList<>();
-    private final Map<Integer, List<Customer>> washerQueues = new HashMap<>();
+    // All stations in drawing order: reception, mechanics, washers, checkout
+    private final List<Station> stations = new ArrayList<>();
+    private final List<Station> mechanics = new ArrayList<>();
+    private final List<Station> washers = new ArrayList<>();
+    private Station reception;
+    private Station checkout;
+
+    // Rendering state
+    private Image background;           // static layer, null until drawn for the current layout
+    private double backgroundScale = 1; // pixels of the background image per canvas unit
+    private boolean fullRedraw = true;   // redraw every station, not only the dirty ones
+    private boolean redrawRequested;
+    private final Runnable pulseListener = this::redraw;
+    // the background is drawn at the output scale of the window, e.g. after a move to another monitor
+    private final ChangeListener<Number> scaleListener = (obs, oldScale, newScale) -> clearDisplay();
+    private final ChangeListener<Window> windowListener = (obs, oldWindow, newWindow) -> {
+        watchScale(oldWindow, newWindow);
+        clearDisplay();
+    };
 
 
-    // Position helper class
-    private static class Position {
+    // Station helper class
+    private static class Station {
+        final int index;
         final double x;
         final double y;
-        Position(double x, double y) {
+        final Color color;
+        final String label;
+        final Set<Customer> queue = new LinkedHashSet<>(); // customer in service first, then the waiting ones in order
+        final List<Station> overlapping = new ArrayList<>(); // stations whose regions intersect this one, itself included
+        boolean dirty;
+
+        Station(int index, double x, double y, Color color, String label) {
+            this.index = index;
             this.x = x;
             this.y = y;
+            this.color = color;
+            this.label = label;
+        }
+
+        double left() { return x - REGION_LEFT; }
+        double right() { return x + REGION_RIGHT; }
+        double top() { return y - REGION_TOP; }
+        double bottom() { return y + REGION_BOTTOM; }
+
+        boolean intersects(Station other) {
+            return left() < other.right() && other.left() < right() && top() < other.bottom() && other.top() < bottom();
         }
     }
 
@@ -89,22 +143,47 @@ public class Visualisation extends Canvas implements IVisualisation {
         super(w, h);
         gc = this.getGraphicsContext2D();
         loadCarSprites();
+        layoutStations(0, 0);
+
+        // redraw once per pulse, after the animation timers that post the moves
+        sceneProperty().addListener((obs, oldScene, newScene) -> {
+            if (oldScene != null) {
+                oldScene.removePreLayoutPulseListener(pulseListener);
+                oldScene.windowProperty().removeListener(windowListener);
+                watchScale(oldScene.getWindow(), null);
+            }
+            if (newScene != null) {
+                newScene.addPreLayoutPulseListener(pulseListener);
+                newScene.windowProperty().addListener(windowListener);
+                watchScale(null, newScene.getWindow());
+                clearDisplay();
+                Platform.requestNextPulse();
+            }
+        });
         clearDisplay();
     }
 
+    private void watchScale(Window oldWindow, Window newWindow) {
+        if (oldWindow != null) {
+            oldWindow.outputScaleXProperty().removeListener(scaleListener);
+            oldWindow.outputScaleYProperty().removeListener(scaleListener);
+        }
+        if (newWindow != null) {
+            newWindow.outputScaleXProperty().addListener(scaleListener);
+            newWindow.outputScaleYProperty().addListener(scaleListener);
+        }
+    }
+
     public void reset() {
         customers.clear();
-        receptionQueue.clear();
-        mechanicQueues.values().forEach(List::clear);
-        washerQueues.values().forEach(List::clear);
-        checkoutQueue.clear();
+        for (Station s : stations) s.queue.clear();
         clearDisplay();
     }
 
-    private void setupCanvas() {
-        gc.setLineCap(StrokeLineCap.ROUND);
-        gc.setLineJoin(StrokeLineJoin.ROUND);
-        gc.setLineWidth(2);
+    private void setupCanvas(GraphicsContext g) {
+        g.setLineCap(StrokeLineCap.ROUND);
+        g.setLineJoin(StrokeLineJoin.ROUND);
+        g.setLineWidth(2);
     }
 
     private void loadCarSprites() {
@@ -123,80 +202,140 @@ public class Visualisation extends Canvas implements IVisualisation {
     public void newCustomer(int id) {
         Image sprite = carImages.isEmpty() ? null : carImages.get(rng.nextInt(carImages.size()));
         Customer customer = new Customer(id, receptionX, receptionY, sprite);
-        customers.put(id, customer);
-        receptionQueue.add(customer);
-        clearAndRedraw();
+        Customer previous = customers.put(id, customer);
+        if (previous != null) leave(previous);
+        enter(customer, reception);
     }
 
+    /**
+     * Redraw everything, the background included, with the next pulse.
+     */
     @Override
     public void clearDisplay() {
-        setupCanvas();
-        gc.setFill(BACKGROUND_COLOR);
-        gc.fillRect(0, 0, this.getWidth(), this.getHeight());
-        drawServicePoints();
-        drawQueueInfo();
+        background = null;
+        fullRedraw = true;
+        requestRedraw();
+    }
+
+    // ---------- Membership ----------
+
+    private void enter(Customer c, Station s) {
+        if (c.station == s.index) return;
+        leave(c);
+        s.queue.add(c);
+        c.station = s.index;
+        markDirty(s);
+    }
+
+    private void leave(Customer c) {
+        if (c.station < 0) return;
+        Station s = stations.get(c.station);
+        s.queue.remove(c);
+        c.station = -1;
+        markDirty(s);
+    }
+
+    private void markDirty(Station s) {
+        s.dirty = true;
+        requestRedraw();
+    }
+
+    private void requestRedraw() {
+        if (redrawRequested) return;
+        redrawRequested = true;
+        Platform.requestNextPulse();
     }
 
+    // ---------- Drawing ----------
+
     /**
-     * Helper to check if a customer is in any queue
-     * Fixes a bug where a customer could be drawn multiple times
-     * @param c Customer to check
-     * @return true if in any queue, false otherwise
+     * Bring the canvas up to date; called once per pulse, does nothing unless something changed.
      */
-    private boolean isInAnyQueue(Customer c) {
-        if (receptionQueue.contains(c)) return true;
-        if (checkoutQueue.contains(c)) return true;
-        for (List<Customer> q : mechanicQueues.values()) if (q.contains(c)) return true;
-        for (List<Customer> q : washerQueues.values()) if (q.contains(c)) return true;
-        return false;
+    private void redraw() {
+        if (!redrawRequested) return;
+        redrawRequested = false;
+        if (background == null) drawBackground();
+
+        if (fullRedraw) {
+            fullRedraw = false;
+            restoreBackground(0, 0, getWidth(), getHeight());
+            for (Station s : stations) {
+                s.dirty = false;
+                drawQueue(s);
+            }
+            return;
+        }
+
+        for (Station s : stations) {
+            if (!s.dirty) continue;
+            // neighbours may reach into the region, draw their part of it again too
+            double x = Math.max(0, s.left());
+            double y = Math.max(0, s.top());
+            double w = Math.min(getWidth(), s.right()) - x;
+            double h = Math.min(getHeight(), s.bottom()) - y;
+            if (w <= 0 || h <= 0) continue;
+            gc.save();
+            gc.beginPath();
+            gc.rect(x, y, w, h);
+            gc.clip();
+            restoreBackground(x, y, w, h);
+            for (Station o : s.overlapping) drawQueue(o);
+            gc.restore();
+            s.dirty = false;
+        }
     }
 
-    private void drawServicePoints() {
+    /**
+     * Draw the static layer into an image, at the resolution of the screen the canvas is on.
+     */
+    private void drawBackground() {
+        Scene scene = getScene();
+        backgroundScale = scene != null && scene.getWindow() != null ? scene.getWindow().getOutputScaleX() : 1;
+
+        Canvas layer = new Canvas(getWidth(), getHeight());
+        GraphicsContext g = layer.getGraphicsContext2D();
+        setupCanvas(g);
+        g.setFill(BACKGROUND_COLOR);
+        g.fillRect(0, 0, layer.getWidth(), layer.getHeight());
+
         // Draw connecting lines first (background)
-        drawConnectingLines();
+        drawConnectingLines(g);
 
         // Draw service points with shadows and gradients
-        drawServicePoint(receptionX, receptionY, RECEPTION_COLOR, "Reception");
-        drawQueue(receptionQueue, receptionX, receptionY);
-
-        // Draw Mechanics
-        for (int i = 0; i < mechanicPositions.size(); i++) {
-            Position pos = mechanicPositions.get(i);
-            drawServicePoint(pos.x, pos.y, MECHANIC_COLOR, "Mechanic " + (i + 1));
-            drawQueue(mechanicQueues.get(i), pos.x, pos.y);
-        }
+        for (Station s : stations) drawServicePoint(g, s.x, s.y, s.color, s.label);
 
-        // Draw Washers
-        for (int i = 0; i < washerPositions.size(); i++) {
-            Position pos = washerPositions.get(i);
-            drawServicePoint(pos.x, pos.y, WASHER_COLOR, "Washer " + (i + 1));
-            drawQueue(washerQueues.get(i), pos.x, pos.y);
-        }
+        SnapshotParameters params = new SnapshotParameters();
+        params.setFill(BACKGROUND_COLOR);
+        params.setTransform(Transform.scale(backgroundScale, backgroundScale));
+        background = layer.snapshot(params, null);
+    }
 
-        // Draw Exit
-        drawServicePoint(exitX, exitY, EXIT_COLOR, "Checkout");
-        drawQueue(checkoutQueue, exitX, exitY);
+    private void restoreBackground(double x, double y, double w, double h) {
+        double s = backgroundScale;
+        gc.drawImage(background, x * s, y * s, w * s, h * s, x, y, w, h);
     }
 
-    private void drawQueue(List<Customer> queue, double servicePointX, double servicePointY) {
-        if (queue == null || queue.isEmpty()) return;
+    private void drawQueue(Station s) {
+        drawQueueInfo(s);
+        if (s.queue.isEmpty()) return;
 
-        // Customer at index 0 = currently in service (draw centered on station)
-        Customer inService = queue.get(0);
-        inService.setPosition(servicePointX, servicePointY);
+        // First customer = currently in service (draw centered on station)
+        Iterator<Customer> it = s.queue.iterator();
+        Customer inService = it.next();
+        inService.setPosition(s.x, s.y);
         drawCustomer(inService, true);
 
-        int waiting = queue.size() - 1;
+        int waiting = s.queue.size() - 1;
         if (waiting <= 0) return;
 
         int visibleWaiting = Math.min(waiting, MAX_VISIBLE_QUEUE);
-        double queueStartX = servicePointX - (STATION_SIZE / 2.0 + QUEUE_SPACING);
+        double queueStartX = s.x - (STATION_SIZE / 2.0 + QUEUE_SPACING);
 
         // Draw waiting customers to the left
         for (int i = 0; i < visibleWaiting; i++) {
-            Customer c = queue.get(i + 1);
+            Customer c = it.next();
             double x = queueStartX - (i * QUEUE_SPACING);
-            c.setPosition(x, servicePointY);
+            c.setPosition(x, s.y);
             drawCustomer(c, false);
         }
 
@@ -205,13 +344,13 @@ public class Visualisation extends Canvas implements IVisualisation {
             int hidden = waiting - MAX_VISIBLE_QUEUE;
             double nextSlotCenter = queueStartX - (visibleWaiting * QUEUE_SPACING);
             double badgeX = nextSlotCenter - 8;
-            drawOverflowBadge(badgeX, servicePointY, hidden);
+            drawOverflowBadge(badgeX, s.y, hidden);
         }
     }
 
     private void drawOverflowBadge(double centerX, double centerY, int count) {
         String text = "(+" + count + ")";
-        gc.setFont(Font.font("System", FontWeight.BOLD, 14));
+        gc.setFont(LABEL_FONT);
 
         double textWidth = gc.getFont().getSize() * text.length() * 0.52;
         double textHeight = gc.getFont().getSize() + 4;
@@ -233,26 +372,26 @@ public class Visualisation extends Canvas implements IVisualisation {
         gc.fillText(text, centerX - textWidth / 2, centerY + (gc.getFont().getSize() / 3.0));
     }
 
-    private void drawConnectingLines() {
-        gc.setStroke(LINE_COLOR);
-        gc.setLineWidth(3);
-        gc.setLineDashes(5);  // Single value creates uniform dashed line
+    private void drawConnectingLines(GraphicsContext g) {
+        g.setStroke(LINE_COLOR);
+        g.setLineWidth(3);
+        g.setLineDashes(5);  // Single value creates uniform dashed line
 
         // Draw lines from reception to mechanics and washers
-        for (Position mechanic : mechanicPositions) {
-            drawArrowLine(receptionX + HALF_STATION, receptionY,
+        for (Station mechanic : mechanics) {
+            drawArrowLine(g, receptionX + HALF_STATION, receptionY,
                          mechanic.x - HALF_STATION, mechanic.y);
         }
 
-        for (Position washer : washerPositions) {
-            drawArrowLine(receptionX + HALF_STATION, receptionY,
+        for (Station washer : washers) {
+            drawArrowLine(g, receptionX + HALF_STATION, receptionY,
                          washer.x - HALF_STATION, washer.y);
         }
 
         // Mechanics -> Washers
-        for (Position mechanic : mechanicPositions) {
-            for (Position washer : washerPositions) {
-                drawArrowLine(
+        for (Station mechanic : mechanics) {
+            for (Station washer : washers) {
+                drawArrowLine(g,
                         mechanic.x, mechanic.y + HALF_STATION,
                         washer.x, washer.y - HALF_STATION
                 );
@@ -260,27 +399,27 @@ public class Visualisation extends Canvas implements IVisualisation {
         }
 
         // Draw lines to exit
-        for (Position mechanic : mechanicPositions) {
-            drawArrowLine(mechanic.x + HALF_STATION, mechanic.y,
+        for (Station mechanic : mechanics) {
+            drawArrowLine(g, mechanic.x + HALF_STATION, mechanic.y,
                          exitX - HALF_STATION, exitY);
         }
 
-        for (Position washer : washerPositions) {
-            drawArrowLine(washer.x + HALF_STATION, washer.y,
+        for (Station washer : washers) {
+            drawArrowLine(g, washer.x + HALF_STATION, washer.y,
                          exitX - HALF_STATION, exitY);
         }
 
-        gc.setLineDashes(0);  // Reset to solid line
+        g.setLineDashes(0);  // Reset to solid line
     }
 
-    private void drawArrowLine(double startX, double startY, double endX, double endY) {
+    private void drawArrowLine(GraphicsContext g, double startX, double startY, double endX, double endY) {
         double arrowLength = 15;
 
         // Calculate the angle of the line
         double angle = Math.atan2(endY - startY, endX - startX);
 
         // Draw the main line
-        gc.strokeLine(startX, startY, endX, endY);
+        g.strokeLine(startX, startY, endX, endY);
 
         // Draw the arrow head
         double x1 = endX - arrowLength * Math.cos(angle - Math.PI/6);
@@ -288,11 +427,11 @@ public class Visualisation extends Canvas implements IVisualisation {
         double x2 = endX - arrowLength * Math.cos(angle + Math.PI/6);
         double y2 = endY - arrowLength * Math.sin(angle + Math.PI/6);
 
-        gc.strokeLine(endX, endY, x1, y1);
-        gc.strokeLine(endX, endY, x2, y2);
+        g.strokeLine(endX, endY, x1, y1);
+        g.strokeLine(endX, endY, x2, y2);
     }
 
-    private void drawServicePoint(double x, double y, Color baseColor, String label) {
+    private void drawServicePoint(GraphicsContext g, double x, double y, Color baseColor, String label) {
         // Create gradient for 3D effect
         Stop[] stops = new Stop[]{
             new Stop(0, baseColor.brighter()),
@@ -303,43 +442,37 @@ public class Visualisation extends Canvas implements IVisualisation {
         );
 
         // Draw shadow
-        gc.save();
-        gc.setFill(Color.color(0, 0, 0, 0.3));
-        gc.fillRoundRect(x - HALF_STATION + 4, y - HALF_STATION + 4,
+        g.save();
+        g.setFill(Color.color(0, 0, 0, 0.3));
+        g.fillRoundRect(x - HALF_STATION + 4, y - HALF_STATION + 4,
                         STATION_SIZE, STATION_SIZE, 15, 15);
-        gc.restore();
+        g.restore();
 
         // Draw service point
-        gc.setFill(gradient);
-        gc.fillRoundRect(x - HALF_STATION, y - HALF_STATION,
+        g.setFill(gradient);
+        g.fillRoundRect(x - HALF_STATION, y - HALF_STATION,
                         STATION_SIZE, STATION_SIZE, 15, 15);
 
         // Draw border
-        gc.setStroke(baseColor.darker());
-        gc.setLineWidth(2);
-        gc.strokeRoundRect(x - HALF_STATION, y - HALF_STATION,
+        g.setStroke(baseColor.darker());
+        g.setLineWidth(2);
+        g.strokeRoundRect(x - HALF_STATION, y - HALF_STATION,
                           STATION_SIZE, STATION_SIZE, 15, 15);
 
         // Draw label
-        gc.setFont(Font.font("System", FontWeight.BOLD, 14));
-        gc.setFill(TEXT_COLOR);
-        double textWidth = gc.getFont().getSize() * label.length() * 0.5;
-        gc.fillText(label, x - textWidth/2, y + HALF_STATION + 20);
+        g.setFont(LABEL_FONT);
+        g.setFill(TEXT_COLOR);
+        double textWidth = g.getFont().getSize() * label.length() * 0.5;
+        g.fillText(label, x - textWidth/2, y + HALF_STATION + 20);
     }
 
     @Override
     public void updateQueueLengths(int receptionQueue, int[] mechanicQueues, int[] washerQueues) {
-        // Just trigger a redraw since we're using actual queue sizes
-        clearAndRedraw();
+        // Nothing to do: the counts shown are the sizes of the queues, redrawn with every move
     }
 
     @Override
     public void updateServicePoints(int numMechanics, int numWashers) {
-        mechanicPositions.clear();
-        washerPositions.clear();
-        mechanicQueues.clear();
-        washerQueues.clear();
-
         int maxServers = Math.max(numMechanics, numWashers);
 
         // Keep reception fully visible (left margin for its full queue footprint)
@@ -353,20 +486,6 @@ public class Visualisation extends Canvas implements IVisualisation {
         // Small fixed symmetric edge gap (Reception -> first, last -> Exit)
         double startX = receptionX + BASE_EDGE_GAP;
 
-        // Mechanics
-        for (int i = 0; i < numMechanics; i++) {
-            double x = startX + i * spacing;
-            mechanicPositions.add(new Position(x, 150));
-            mechanicQueues.put(i, new ArrayList<>());
-        }
-
-        // Washers
-        for (int i = 0; i < numWashers; i++) {
-            double x = startX + i * spacing;
-            washerPositions.add(new Position(x, 350));
-            washerQueues.put(i, new ArrayList<>());
-        }
-
         double lastServerX = (maxServers > 0) ? (startX + (maxServers - 1) * spacing) : startX;
 
         // Symmetric small gap to exit
@@ -380,34 +499,59 @@ public class Visualisation extends Canvas implements IVisualisation {
         );
         if (getWidth() < requiredWidth) setWidth(requiredWidth);
 
+        // Mechanic and washer queues start empty; reception and checkout keep their customers
+        List<Customer> atReception = new ArrayList<>(reception.queue);
+        List<Customer> atCheckout = new ArrayList<>(checkout.queue);
+        customers.values().forEach(c -> c.station = -1);
+        layoutStations(numMechanics, numWashers, startX, spacing);
+        atReception.forEach(c -> enter(c, reception));
+        atCheckout.forEach(c -> enter(c, checkout));
         clearDisplay();
     }
 
-    private void drawQueueInfo() {
-        gc.setFont(Font.font("System", FontWeight.BOLD, 12));
-        gc.setFill(TEXT_COLOR);
+    private void layoutStations(int numMechanics, int numWashers) {
+        layoutStations(numMechanics, numWashers, receptionX + BASE_EDGE_GAP, 0);
+    }
 
-        // Reception queue - use actual queue size
-        String receptionText = String.format("Queue: %d", receptionQueue.size());
-        gc.fillText(receptionText, receptionX - 60, receptionY - HALF_STATION - 10);
+    private void layoutStations(int numMechanics, int numWashers, double startX, double spacing) {
+        stations.clear();
+        mechanics.clear();
+        washers.clear();
 
-        // Mechanic queues - use actual queue sizes
-        for (int i = 0; i < mechanicPositions.size(); i++) {
-            Position pos = mechanicPositions.get(i);
-            String queueText = String.format("Queue: %d", mechanicQueues.get(i).size());
-            gc.fillText(queueText, pos.x - 60, pos.y - HALF_STATION - 10);
+        reception = addStation(receptionX, receptionY, RECEPTION_COLOR, "Reception");
+
+        // Mechanics
+        for (int i = 0; i < numMechanics; i++) {
+            double x = startX + i * spacing;
+            mechanics.add(addStation(x, 150, MECHANIC_COLOR, "Mechanic " + (i + 1)));
         }
 
-        // Washer queues - use actual queue sizes
-        for (int i = 0; i < washerPositions.size(); i++) {
-            Position pos = washerPositions.get(i);
-            String queueText = String.format("Queue: %d", washerQueues.get(i).size());
-            gc.fillText(queueText, pos.x - 60, pos.y - HALF_STATION - 10);
+        // Washers
+        for (int i = 0; i < numWashers; i++) {
+            double x = startX + i * spacing;
+            washers.add(addStation(x, 350, WASHER_COLOR, "Washer " + (i + 1)));
         }
 
-        // Checkout / Exit queue
-        String checkoutText = String.format("Queue: %d", checkoutQueue.size());
-        gc.fillText(checkoutText, exitX - 60, exitY - HALF_STATION - 10);
+        // Exit
+        checkout = addStation(exitX, exitY, EXIT_COLOR, "Checkout");
+
+        for (Station s : stations) {
+            for (Station o : stations) {
+                if (s.intersects(o)) s.overlapping.add(o);
+            }
+        }
+    }
+
+    private Station addStation(double x, double y, Color color, String label) {
+        Station s = new Station(stations.size(), x, y, color, label);
+        stations.add(s);
+        return s;
+    }
+
+    private void drawQueueInfo(Station s) {
+        gc.setFont(QUEUE_FONT);
+        gc.setFill(TEXT_COLOR);
+        gc.fillText("Queue: " + s.queue.size(), s.x - 60, s.y - HALF_STATION - 10);
     }
 
     private void drawCustomer(Customer customer, boolean cInService) {
@@ -484,52 +628,24 @@ public class Visualisation extends Canvas implements IVisualisation {
                 + 8;
     }
 
-    private void clearAndRedraw() {
-        clearDisplay(); // draws service points + queues (which already draw queued customers)
-        for (Customer c : customers.values()) {
-            if (!isInAnyQueue(c)) {
-                // e.g. car at exit (just before removal) or any future free-floating states
-                drawCustomer(c, false);
-            }
-        }
-    }
-
     public void moveCustomerToMechanic(int id, int mechanicId) {
-        if (mechanicId >= 0 && mechanicId < mechanicPositions.size()) {
+        if (mechanicId >= 0 && mechanicId < mechanics.size()) {
             Customer customer = customers.get(id);
             if (customer != null) {
-                receptionQueue.remove(customer);
-                for (List<Customer> queue : mechanicQueues.values()) {
-                    queue.remove(customer);
-                }
-
-                Position pos = mechanicPositions.get(mechanicId);
-                customer.setPosition(pos.x, pos.y);
-
-                mechanicQueues.get(mechanicId).add(customer);
-
+                enter(customer, mechanics.get(mechanicId));
                 customer.visitedMechanic = true;
-                clearAndRedraw();
             }
         }
     }
 
     public void moveCustomerToWasher(int id, int washerId) {
-        if (washerId >= 0 && washerId < washerPositions.size()) {
+        if (washerId >= 0 && washerId < washers.size()) {
             Customer customer = customers.get(id);
             if (customer != null) {
-                receptionQueue.remove(customer);
-                mechanicQueues.values().forEach(queue -> queue.remove(customer));
-
-                Position pos = washerPositions.get(washerId);
-                customer.setPosition(pos.x, pos.y);
-
                 if (customer.visitedMechanic) {
                     customer.afterMechanicInWasher = true;
                 }
-
-                washerQueues.get(washerId).add(customer);
-                clearAndRedraw();
+                enter(customer, washers.get(washerId));
             }
         }
     }
@@ -539,26 +655,51 @@ public class Visualisation extends Canvas implements IVisualisation {
 
         if (c == null) return;
 
-        receptionQueue.remove(c);
-        mechanicQueues.values().forEach(q -> q.remove(c));
-        washerQueues.values().forEach(q -> q.remove(c));
+        enter(c, checkout);
+    }
 
-        if (!checkoutQueue.contains(c)) checkoutQueue.add(c);
+    /**
+     * Replace all customers with those of the snapshot in one pass and redraw once, e.g. after the
+     * visualisation was detached. Customers already shown keep their car.
+     */
+    @Override
+    public void rebuild(QueueSnapshot snapshot) {
+        Map<Integer, Customer> previous = new HashMap<>(customers);
+        customers.clear();
+        for (Station s : stations) s.queue.clear();
+        previous.values().forEach(c -> c.station = -1);
 
-        clearAndRedraw();
+        addAll(snapshot, snapshot.getReception(), reception, previous);
+        for (int i = 0; i < snapshot.getMechanics().length && i < mechanics.size(); i++) {
+            addAll(snapshot, snapshot.getMechanics()[i], mechanics.get(i), previous);
+        }
+        for (int i = 0; i < snapshot.getWashers().length && i < washers.size(); i++) {
+            addAll(snapshot, snapshot.getWashers()[i], washers.get(i), previous);
+        }
+        addAll(snapshot, snapshot.getCheckout(), checkout, previous);
+        fullRedraw = true;
+        requestRedraw();
+    }
+
+    private void addAll(QueueSnapshot snapshot, int[] ids, Station station, Map<Integer, Customer> previous) {
+        for (int id : ids) {
+            Customer customer = previous.get(id);
+            if (customer == null) {
+                Image sprite = carImages.isEmpty() ? null : carImages.get(rng.nextInt(carImages.size()));
+                customer = new Customer(id, station.x, station.y, sprite);
+            }
+            customer.visitedMechanic = snapshot.hasVisitedMechanic(id);
+            customer.afterMechanicInWasher = snapshot.isWashedAfterMechanic(id);
+            customers.put(id, customer);
+            station.queue.add(customer);
+            customer.station = station.index;
+        }
     }
 
     public void customerExit(int id) {
-        Customer customer = customers.get(id);
+        Customer customer = customers.remove(id);
         if (customer != null) {
-            receptionQueue.remove(customer);
-            mechanicQueues.values().forEach(queue -> queue.remove(customer));
-            washerQueues.values().forEach(queue -> queue.remove(customer));
-            checkoutQueue.remove(customer);
-
-            customer.setPosition(exitX, exitY);
-            clearAndRedraw();
-            customers.remove(id);
+            leave(customer);
         }
     }
 }
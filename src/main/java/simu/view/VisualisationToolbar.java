@@ -7,6 +7,7 @@ import javafx.geometry.Pos;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.control.Separator;
+import javafx.scene.control.ToggleButton;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.Region;
 import javafx.util.Duration;
@@ -18,6 +19,7 @@ public class VisualisationToolbar extends HBox {
     private final Button fastBtn   = new Button("Increase speed");
     private final Button pauseBtn  = new Button("Pause / Resume");
     private final Button stopBtn   = new Button("End simulation");
+    private final ToggleButton turboBtn = new ToggleButton("Turbo");
     private final Label timeLabel  = new Label("0.000");
     private final Timeline timeUpdater;
     private boolean paused = false;
@@ -48,7 +50,10 @@ public class VisualisationToolbar extends HBox {
 
         stopBtn.setOnAction(e -> controller.stopSimulation());
 
-        getChildren().addAll(slowBtn, fastBtn, pauseBtn, stopBtn, new Region(), new Label("Time:"), timeLabel);
+        // detach the visualisation to skip ahead at full speed, it catches up when turned off
+        turboBtn.setOnAction(e -> controller.setVisualisationDetached(turboBtn.isSelected()));
+
+        getChildren().addAll(slowBtn, fastBtn, pauseBtn, stopBtn, turboBtn, new Region(), new Label("Time:"), timeLabel);
 
         // update time every 200 ms
         timeUpdater = new Timeline(new KeyFrame(Duration.millis(200), e -> {
@@ -64,6 +69,7 @@ public class VisualisationToolbar extends HBox {
         fastBtn.setDisable(true);
         pauseBtn.setDisable(true);
         stopBtn.setDisable(true);
+        turboBtn.setDisable(true);
         timeUpdater.stop();
     }
 }